@@ -286,6 +286,7 @@ CTX.INPUT['executors'] = """
  deleteexecutor.cpp
  executorfactory.cpp
  executorutil.cpp
+ hashjoinexecutor.cpp
  indexcountexecutor.cpp
  indexscanexecutor.cpp
  insertexecutor.cpp
@@ -328,6 +329,7 @@ CTX.INPUT['plannodes'] = """
  abstractscannode.cpp
  aggregatenode.cpp
  deletenode.cpp
+ hashjoinnode.cpp
  indexscannode.cpp
  indexcountnode.cpp
  tablecountnode.cpp
@@ -381,6 +383,7 @@ CTX.INPUT['storage'] = """
  persistenttable.cpp
  PersistentTableStats.cpp
  RecoveryContext.cpp
+ SpillFile.cpp
  streamedtable.cpp
  StreamedTableStats.cpp
  table.cpp
@@ -497,6 +500,8 @@ if whichtests in ("${eetestsuite}", "executors"):
     MergeReceiveExecutorTest
     PartitionByExecutorTest
     TestGeneratedPlans
+    TestHashJoinPlans
+    AggregateSpillTest
     """
 
 if whichtests in ("${eetestsuite}", "expressions"):
@@ -523,6 +528,7 @@ if whichtests in ("${eetestsuite}", "storage"):
      DRTupleStream_test
      ExportTupleStream_test
      PersistentTableMemStatsTest
+     SpillFileTest
      StreamedTable_test
      TempTableLimitsTest
      constraint_test
@@ -50,7 +50,8 @@ namespace voltdb {
             PlanNodeType planNodeType,
             int64_t tuplesFound,
             int64_t currMemoryInBytes,
-            int64_t peakMemoryInBytes) {
+            int64_t peakMemoryInBytes,
+            int64_t spilledBytes) {
         return 1000000000; // larger means less likely/frequent callbacks to ignore
     }
 
@@ -51,7 +51,8 @@ class Topend {
                 PlanNodeType planNodeType,
                 int64_t tuplesProcessed,
                 int64_t currMemoryInBytes,
-                int64_t peakMemoryInBytes) = 0;
+                int64_t peakMemoryInBytes,
+                int64_t spilledBytes) = 0;
 
     virtual std::string planForFragmentId(int64_t fragmentId) = 0;
 
@@ -96,7 +97,8 @@ public:
             PlanNodeType planNodeType,
             int64_t tuplesFound,
             int64_t currMemoryInBytes,
-            int64_t peakMemoryInBytes);
+            int64_t peakMemoryInBytes,
+            int64_t spilledBytes);
 
     std::string planForFragmentId(int64_t fragmentId);
 
@@ -93,12 +93,14 @@ boost::shared_ptr<ExecutorVector> ExecutorVector::fromJsonPlan(VoltDBEngine* eng
 
     int64_t tempTableLogLimit = engine->tempTableLogLimit();
     int64_t tempTableMemoryLimit = engine->tempTableMemoryLimit();
+    int64_t tempTableSpillLimit = engine->tempTableSpillLimit();
 
     // ENG-1333 HACK.  If the plan node fragment has a delete node,
     // then turn off the governors
     if (pnf->hasDelete()) {
         tempTableLogLimit = DEFAULT_TEMP_TABLE_MEMORY;
         tempTableMemoryLimit = -1;
+        tempTableSpillLimit = -1;
     }
 
     // Note: the executor vector takes ownership of the plan node
@@ -106,6 +108,8 @@ boost::shared_ptr<ExecutorVector> ExecutorVector::fromJsonPlan(VoltDBEngine* eng
     boost::shared_ptr<ExecutorVector> ev(new ExecutorVector(fragId,
                                                             tempTableLogLimit,
                                                             tempTableMemoryLimit,
+                                                            tempTableSpillLimit,
+                                                            engine->spillDirectory(),
                                                             pnf));
     ev->init(engine);
     return ev;
@@ -184,7 +188,10 @@ void ExecutorVector::initPlanNode(VoltDBEngine* engine, AbstractPlanNode* node)
 void ExecutorVector::setupContext(ExecutorContext* executorContext)
     { executorContext->setupForExecutors(&m_subplanExecListMap); }
 
-void ExecutorVector::resetLimitStats() { m_limits.resetPeakMemory(); }
+void ExecutorVector::resetLimitStats() {
+    m_limits.resetPeakMemory();
+    m_limits.resetSpilledBytes();
+}
 
 const std::vector<AbstractExecutor*>& ExecutorVector::getExecutorList(int planId) {
     assert(m_subplanExecListMap.find(planId) != m_subplanExecListMap.end());
@@ -534,6 +534,12 @@ UniqueTempTableResult VoltDBEngine::executePlanFragment(ExecutorVector* executor
         // Launch the target plan through its top-most executor list.
         executorVector->setupContext(m_executorContext);
         result = m_executorContext->executeExecutors(0);
+
+        // Progress is only reported every so many tuples, so report the
+        // final spilled bytes of the fragment for them to show in the stats.
+        if (executorVector->limits().getSpilledBytes() > 0) {
+            reportProgressToTopend(&executorVector->limits());
+        }
     }
     catch (const SerializableEEException &e) {
         resetExecutionMetadata(executorVector);
@@ -2033,6 +2039,11 @@ void VoltDBEngine::executeTask(TaskType taskType, ReferenceSerializeInputBE &tas
         }
         break;
     }
+    case TASK_TYPE_SET_SPILL_DIRECTORY:
+        m_spillDirectory = taskInfo.readTextString();
+        VOLT_DEBUG("Temp table spill directory set to %s", m_spillDirectory.c_str());
+        m_resultOutput.writeInt(0);
+        break;
     default:
         throwFatalException("Unknown task type %d", taskType);
     }
@@ -2069,6 +2080,7 @@ void VoltDBEngine::reportProgressToTopend(const TempTableLimits *limits) {
 
     int64_t allocated = limits != NULL ? limits->getAllocated() : -1;
     int64_t peak = limits != NULL ? limits->getPeakMemoryInBytes() : -1;
+    int64_t spilled = limits != NULL ? limits->getSpilledBytes() : -1;
 
     //Update stats in java and let java determine if we should cancel this query.
     m_tuplesProcessedInFragment += m_tuplesProcessedSinceReport;
@@ -2076,7 +2088,8 @@ void VoltDBEngine::reportProgressToTopend(const TempTableLimits *limits) {
                                         m_lastAccessedPlanNodeType,
                                         m_tuplesProcessedInBatch + m_tuplesProcessedInFragment,
                                         allocated,
-                                        peak);
+                                        peak,
+                                        spilled);
     m_tuplesProcessedSinceReport = 0;
 
     if (tupleReportThreshold < 0) {
@@ -463,6 +463,23 @@ class __attribute__((visibility("default"))) VoltDBEngine {
             return (m_tempTableMemoryLimit * 3) / 4;
         }
 
+        /**
+         * The temp table memory at which hash aggregations start to spill
+         * to the spill directory, or -1 if there is no spill directory.
+         * This leaves headroom under the memory limit for merging the spilled data.
+         * Sorts spill only when they would otherwise exceed the memory limit.
+         */
+        int64_t tempTableSpillLimit() const {
+            if (m_spillDirectory.empty() || m_tempTableMemoryLimit <= 0) {
+                return -1;
+            }
+            return m_tempTableMemoryLimit / 2;
+        }
+
+        const std::string& spillDirectory() const {
+            return m_spillDirectory;
+        }
+
         int32_t getPartitionId() const {
             return m_partitionId;
         }
@@ -539,6 +556,9 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         boost::scoped_ptr<TheHashinator> m_hashinator;
         size_t m_startOfResultBuffer;
         int64_t m_tempTableMemoryLimit;
+        // The local directory for spill files of large sorts and aggregations,
+        // or empty if they may not spill.
+        std::string m_spillDirectory;
 
         /*
          * Catalog delegates hashed by path.
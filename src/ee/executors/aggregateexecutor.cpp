@@ -48,10 +48,13 @@
 #include "common/ValueFactory.hpp"
 #include "common/common.h"
 #include "common/debuglog.h"
+#include "common/executorcontext.hpp"
 #include "common/SerializableEEException.h"
 #include "expressions/abstractexpression.h"
 #include "plannodes/aggregatenode.h"
 #include "plannodes/limitnode.h"
+#include "storage/SpillFile.h"
+#include "storage/TempTableLimits.h"
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
 #include "executors/partitionbyexecutor.h"
@@ -751,13 +754,23 @@ inline bool AggregateExecutorBase::insertOutputTuple(AggregateRow* aggregateRow)
     for (int ii = 0; ii < m_aggregateOutputColumns.size(); ii++) {
         const int columnIndex = m_aggregateOutputColumns[ii];
         NValue result = aggs[ii]->finalize(tempTuple.getSchema()->columnType(columnIndex));
-        tempTuple.setNValue(columnIndex, result);
+        if (m_outputObjectPool == NULL) {
+            tempTuple.setNValue(columnIndex, result);
+        }
+        else {
+            tempTuple.setNValueAllocateForObjectCopies(columnIndex, result, m_outputObjectPool);
+        }
     }
 
     VOLT_TRACE("Setting passthrough columns");
     BOOST_FOREACH(int output_col_index, m_passThroughColumns) {
-        tempTuple.setNValue(output_col_index,
-                            m_outputColumnExpressions[output_col_index]->eval(&(aggregateRow->m_passThroughTuple)));
+        NValue value = m_outputColumnExpressions[output_col_index]->eval(&(aggregateRow->m_passThroughTuple));
+        if (m_outputObjectPool == NULL) {
+            tempTuple.setNValue(output_col_index, value);
+        }
+        else {
+            tempTuple.setNValueAllocateForObjectCopies(output_col_index, value, m_outputObjectPool);
+        }
     }
 
     bool needInsert = m_postfilter.eval(&tempTuple, NULL);
@@ -855,6 +868,19 @@ void AggregateExecutorBase::p_execute_finish()
 
 AggregateHashExecutor::~AggregateHashExecutor() {}
 
+// Spilled tuples are hashed to 2^SPILL_PARTITION_BITS partitions. A partition that
+// outgrows the spill threshold again is split by the next bits of the hash, as long
+// as there are bits left.
+static const int SPILL_PARTITION_BITS = 4;
+static const int SPILL_PARTITION_COUNT = 1 << SPILL_PARTITION_BITS;
+static const int MAX_SPILL_DEPTH = static_cast<int>(sizeof(size_t) * 8 / SPILL_PARTITION_BITS);
+
+bool AggregateHashExecutor::p_init(AbstractPlanNode* abstract_node, TempTableLimits* limits)
+{
+    m_limits = limits;
+    return AggregateExecutorBase::p_init(abstract_node, limits);
+}
+
 TableTuple AggregateHashExecutor::p_execute_init(const NValueArray& params,
                                                  ProgressMonitorProxy* pmp,
                                                  const TupleSchema * schema,
@@ -863,6 +889,10 @@ TableTuple AggregateHashExecutor::p_execute_init(const NValueArray& params,
 {
     VOLT_TRACE("hash aggregate executor init..");
     m_hash.clear();
+    m_spillPartitions.clear();
+    m_spillReadPool.reset();
+    m_spillDepth = 0;
+    m_outputObjectPool = NULL;
 
     return AggregateExecutorBase::p_execute_init(params, pmp, schema, newTempTable, parentPostfilter);
 }
@@ -902,6 +932,9 @@ void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
 
     // Group not found. Make a new entry in the hash for this new group.
     if (keyIter == m_hash.end()) {
+        if (spillNewGroup(nextTuple, nextGroupByKeyTuple)) {
+            return;
+        }
         VOLT_TRACE("hash aggregate: new group..");
         aggregateRow = new (m_memoryPool, m_aggTypes.size()) AggregateRow();
         m_hash.insert(HashAggregateMapType::value_type(nextGroupByKeyTuple, aggregateRow));
@@ -931,6 +964,15 @@ void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
 void AggregateHashExecutor::p_execute_finish() {
     VOLT_TRACE("finalizing..");
 
+    insertGroups();
+    if ( ! m_spillPartitions.empty()) {
+        aggregateSpilledPartitions();
+    }
+
+    AggregateExecutorBase::p_execute_finish();
+}
+
+void AggregateHashExecutor::insertGroups() {
     // If there is no aggregation, results are already inserted already
     if (m_aggTypes.size() != 0) {
         for (HashAggregateMapType::const_iterator iter = m_hash.begin(); iter != m_hash.end(); iter++) {
@@ -944,7 +986,77 @@ void AggregateHashExecutor::p_execute_finish() {
 
     // Clean up
     m_hash.clear();
-    AggregateExecutorBase::p_execute_finish();
+}
+
+/*
+ * Once the memory held by the groups crosses the spill threshold, write the input tuple
+ * of a new group to a spill partition instead of adding the group to the hash.
+ * Groups already in the hash continue to be aggregated in memory, so all of the tuples
+ * of any one group are either aggregated in memory or spilled to the same partition.
+ */
+bool AggregateHashExecutor::spillNewGroup(const TableTuple& nextTuple, const TableTuple& groupByKeyTuple) {
+    if (m_spillPartitions.empty()) {
+        if (m_limits == NULL || m_spillDepth >= MAX_SPILL_DEPTH ||
+                ! m_limits->shouldSpill(m_memoryPool.getAllocatedMemory() +
+                                        (m_spillReadPool ? m_spillReadPool->getAllocatedMemory() : 0))) {
+            return false;
+        }
+        VOLT_DEBUG("hash aggregate: spilling new groups at depth %d", m_spillDepth);
+        for (int ii = 0; ii < SPILL_PARTITION_COUNT; ++ii) {
+            m_spillPartitions.push_back(boost::shared_ptr<SpillFile>(new SpillFile(m_limits)));
+        }
+    }
+    size_t hash = TableTupleHasher()(groupByKeyTuple) >> (SPILL_PARTITION_BITS * m_spillDepth);
+    m_spillPartitions[hash % SPILL_PARTITION_COUNT]->append(nextTuple);
+    return true;
+}
+
+/*
+ * Aggregate the spilled tuples one partition at a time, inserting the groups of each
+ * before moving on to the next. The groups of a partition that still cross the spill
+ * threshold are spilled again to partitions one level deeper, which are processed next.
+ */
+void AggregateHashExecutor::aggregateSpilledPartitions() {
+    std::vector<std::pair<boost::shared_ptr<SpillFile>, int> > pending;
+    m_spillReadPool.reset(new Pool());
+    // The values of the groups read back from the partitions are in the spill read pool
+    // or the memory pool, both of which are purged for the next partition, so the output
+    // tuples get their own copies that live as long as the output table.
+    m_outputObjectPool = ExecutorContext::getTempStringPool();
+    while (true) {
+        BOOST_FOREACH (const boost::shared_ptr<SpillFile>& partition, m_spillPartitions) {
+            if (partition->tupleCount() > 0) {
+                pending.push_back(std::make_pair(partition, m_spillDepth + 1));
+            }
+        }
+        m_spillPartitions.clear();
+        if (pending.empty()) {
+            break;
+        }
+
+        boost::shared_ptr<SpillFile> partition = pending.back().first;
+        m_spillDepth = pending.back().second;
+        pending.pop_back();
+
+        // The groups inserted so far no longer need their keys or pass through tuples.
+        m_memoryPool.purge();
+        m_spillReadPool->purge();
+        TableTuple& nextGroupByKeyTuple = m_nextGroupByKeyStorage;
+        nextGroupByKeyTuple.move(NULL);
+
+        char* storage = reinterpret_cast<char*>(
+                m_spillReadPool->allocateZeroes(m_inputSchema->tupleLength() + TUPLE_HEADER_SIZE));
+        TableTuple nextTuple(storage, m_inputSchema);
+        partition->rewind();
+        while (partition->next(nextTuple, m_spillReadPool.get())) {
+            p_execute_tuple(nextTuple);
+        }
+        partition.reset();
+        insertGroups();
+    }
+    m_spillDepth = 0;
+    m_spillReadPool.reset();
+    m_outputObjectPool = NULL;
 }
 
 AggregateSerialExecutor::~AggregateSerialExecutor() {}
@@ -56,8 +56,15 @@
 #include "execution/ProgressMonitorProxy.h"
 #include "executors/executorutil.h"
 
+#include "boost/scoped_ptr.hpp"
+#include "boost/shared_ptr.hpp"
+
+#include <vector>
+
 namespace voltdb {
 
+class SpillFile;
+
 /*
  * Base class for an individual aggregate that aggregates a specific
  * column for a group
@@ -165,7 +172,8 @@ public:
         m_pmp(NULL),
         m_inputSchema(NULL),
         m_groupByKeyPartialHashSchema(NULL),
-        m_outputForEachInputRow(false)
+        m_outputForEachInputRow(false),
+        m_outputObjectPool(NULL)
     { }
     ~AggregateExecutorBase()
     {
@@ -271,6 +279,11 @@ protected:
     CountingPostfilter m_postfilter;
     bool m_outputForEachInputRow;
 
+    // When set, the non-inlined values of the output tuples are copied to this pool
+    // rather than referenced, because the memory they are read from is reused
+    // before the output table is.
+    Pool* m_outputObjectPool;
+
 private:
     TupleSchema* constructGroupBySchema(bool partial);
 };
@@ -296,7 +309,7 @@ class AggregateHashExecutor : public AggregateExecutorBase
 {
 public:
     AggregateHashExecutor(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
-        AggregateExecutorBase(engine, abstract_node) { }
+        AggregateExecutorBase(engine, abstract_node), m_limits(NULL), m_spillDepth(0) { }
 
     // empty destructor defined in .cpp file because of it is called virtually (not inline)
     // same reason for serial and partial
@@ -309,8 +322,24 @@ public:
     void p_execute_finish();
 
 private:
+    virtual bool p_init(AbstractPlanNode*, TempTableLimits*);
     virtual bool p_execute(const NValueArray& params);
+    bool spillNewGroup(const TableTuple& nextTuple, const TableTuple& groupByKeyTuple);
+    void insertGroups();
+    void aggregateSpilledPartitions();
+
     HashAggregateMapType m_hash;
+    TempTableLimits* m_limits;
+    // When the groups outgrow the temp table spill threshold, the input tuples
+    // of any further new groups are hashed to these partitions on disk,
+    // to be aggregated one partition at a time after the groups in memory.
+    std::vector<boost::shared_ptr<SpillFile> > m_spillPartitions;
+    // The number of times the tuples being aggregated have been spilled,
+    // which selects the hash bits that choose their partition.
+    int m_spillDepth;
+    // Holds the non-inlined values of tuples read back from a partition,
+    // while there are spilled partitions to aggregate.
+    boost::scoped_ptr<Pool> m_spillReadPool;
 };
 
 /**
@@ -0,0 +1,384 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+#include "hashjoinexecutor.h"
+
+#include "common/debuglog.h"
+#include "common/common.h"
+#include "common/tabletuple.h"
+#include "common/FatalException.hpp"
+#include "executors/aggregateexecutor.h"
+#include "executors/executorutil.h"
+#include "execution/ProgressMonitorProxy.h"
+#include "expressions/abstractexpression.h"
+#include "storage/table.h"
+#include "storage/temptable.h"
+#include "storage/tableiterator.h"
+#include "storage/tabletuplefilter.h"
+#include "storage/TempTableLimits.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+
+#include "boost/unordered_map.hpp"
+
+#include <algorithm>
+#include <limits>
+#include <vector>
+
+using namespace std;
+using namespace voltdb;
+
+const static int8_t UNMATCHED_TUPLE(TableTupleFilter::ACTIVE_TUPLE);
+const static int8_t MATCHED_TUPLE(TableTupleFilter::ACTIVE_TUPLE + 1);
+
+namespace {
+
+// Maps the hash key of each tuple of the build input to the address of the tuple.
+typedef boost::unordered_multimap<TableTuple, char*, TableTupleHasher, TableTupleEqualityChecker> HashJoinTable;
+
+// The memory of a hash table entry other than the key tuple itself: the entry
+// and the bucket pointer and cached hash value kept alongside it.
+const int HASH_ENTRY_OVERHEAD = static_cast<int>(sizeof(HashJoinTable::value_type) + 2 * sizeof(void*));
+
+/**
+ * Counts the memory of a hash table against the temp table limits of the fragment
+ * as it grows, and gives it all back when the join is done, whether or not
+ * the join ran to completion.
+ */
+class HashTableMemoryCharge {
+public:
+    HashTableMemoryCharge(TempTableLimits* limits) : m_limits(limits), m_chargedBytes(0) { }
+
+    ~HashTableMemoryCharge()
+    {
+        if (m_limits == NULL) {
+            return;
+        }
+        while (m_chargedBytes > 0) {
+            int bytes = static_cast<int>(std::min(m_chargedBytes,
+                                                  static_cast<int64_t>(std::numeric_limits<int>::max())));
+            m_limits->reduceAllocated(bytes);
+            m_chargedBytes -= bytes;
+        }
+    }
+
+    /**
+     * Throws a SQLException when the memory limit is exceeded,
+     * after the bytes have been counted against it.
+     */
+    void charge(int bytes)
+    {
+        if (m_limits == NULL) {
+            return;
+        }
+        m_chargedBytes += bytes;
+        m_limits->increaseAllocated(bytes);
+    }
+
+private:
+    TempTableLimits* m_limits;
+    int64_t m_chargedBytes;
+};
+
+/**
+ * Evaluate the hash key expressions of one input into the key tuple.
+ * Returns false if a key compared with "=" is NULL,
+ * in which case the tuple can not match any tuple of the other input.
+ */
+bool setHashKey(const TableTuple& keyTuple,
+                const vector<AbstractExpression*>& keyExpressions,
+                const vector<bool>& notDistinctKeys,
+                const TableTuple* outerTuple,
+                const TableTuple* innerTuple,
+                Pool* dataPool)
+{
+    for (int ii = 0; ii < keyExpressions.size(); ++ii) {
+        NValue value = keyExpressions[ii]->eval(outerTuple, innerTuple);
+        if (value.isNull() && ! notDistinctKeys[ii]) {
+            return false;
+        }
+        if (dataPool == NULL) {
+            keyTuple.setNValue(ii, value);
+        }
+        else {
+            keyTuple.setNValueAllocateForObjectCopies(ii, value, dataPool);
+        }
+    }
+    return true;
+}
+
+} // namespace
+
+HashJoinExecutor::~HashJoinExecutor()
+{
+    TupleSchema::freeTupleSchema(m_keySchema);
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstractNode,
+                              TempTableLimits* limits)
+{
+    VOLT_TRACE("init HashJoin Executor");
+    assert(limits);
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+
+    // Init parent first
+    if (!AbstractJoinExecutor::p_init(abstractNode, limits)) {
+        return false;
+    }
+
+    // NULL tuples for left and full joins
+    p_init_null_tuples(node->getInputTable(), node->getInputTable(1));
+
+    // The keys of both inputs share a schema, so that the keys of the probing input
+    // can be compared with the keys of the build input in the hash table.
+    const vector<AbstractExpression*>& outerKeys = node->getOuterHashExpressions();
+    const vector<AbstractExpression*>& innerKeys = node->getInnerHashExpressions();
+    assert(outerKeys.size() == innerKeys.size());
+    vector<ValueType> keyColumnTypes;
+    vector<int32_t> keyColumnSizes;
+    vector<bool> keyColumnAllowNull;
+    vector<bool> keyColumnInBytes;
+    for (int ii = 0; ii < outerKeys.size(); ++ii) {
+        assert(outerKeys[ii]->getValueType() == innerKeys[ii]->getValueType());
+        keyColumnTypes.push_back(outerKeys[ii]->getValueType());
+        keyColumnSizes.push_back(std::max(outerKeys[ii]->getValueSize(), innerKeys[ii]->getValueSize()));
+        keyColumnAllowNull.push_back(true);
+        keyColumnInBytes.push_back(outerKeys[ii]->getInBytes() || innerKeys[ii]->getInBytes());
+    }
+    TupleSchema::freeTupleSchema(m_keySchema);
+    m_keySchema = TupleSchema::createTupleSchema(keyColumnTypes,
+                                                 keyColumnSizes,
+                                                 keyColumnAllowNull,
+                                                 keyColumnInBytes);
+    m_probeKeyStorage.init(m_keySchema);
+    m_limits = limits;
+
+    return true;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    assert(m_tmpOutputTable);
+
+    Table* outer_table = node->getInputTable();
+    assert(outer_table);
+
+    Table* inner_table = node->getInputTable(1);
+    assert(inner_table);
+
+    VOLT_TRACE ("input table left:\n %s", outer_table->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", inner_table->debug().c_str());
+
+    AbstractExpression *preJoinPredicate = node->getPreJoinPredicate();
+    AbstractExpression *joinPredicate = node->getJoinPredicate();
+    AbstractExpression *wherePredicate = node->getWherePredicate();
+
+    // Only an inner join may build its hash table on the outer input --
+    // the outer and full joins need to see every outer tuple while probing.
+    bool buildOnOuter = node->mayBuildOnOuter() &&
+        outer_table->activeTupleCount() < inner_table->activeTupleCount();
+    assert( ! buildOnOuter || m_joinType == JOIN_TYPE_INNER);
+    Table* build_table = buildOnOuter ? outer_table : inner_table;
+    Table* probe_table = buildOnOuter ? inner_table : outer_table;
+    const vector<AbstractExpression*>& buildKeys =
+        buildOnOuter ? node->getOuterHashExpressions() : node->getInnerHashExpressions();
+    const vector<AbstractExpression*>& probeKeys =
+        buildOnOuter ? node->getInnerHashExpressions() : node->getOuterHashExpressions();
+    const vector<bool>& notDistinctKeys = node->getNotDistinctKeys();
+
+    // The table filter to keep track of inner tuples that don't match any of outer tuples for FULL joins
+    TableTupleFilter innerTableFilter;
+    if (m_joinType == JOIN_TYPE_FULL) {
+        // Prepopulate the view with all inner tuples
+        innerTableFilter.init(inner_table);
+    }
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = CountingPostfilter::NO_LIMIT;
+    int offset = CountingPostfilter::NO_OFFSET;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    int outer_cols = outer_table->columnCount();
+    int inner_cols = inner_table->columnCount();
+    TableTuple outer_tuple(outer_table->schema());
+    TableTuple inner_tuple(inner_table->schema());
+    TableTuple& build_tuple = buildOnOuter ? outer_tuple : inner_tuple;
+    TableTuple& probe_tuple = buildOnOuter ? inner_tuple : outer_tuple;
+    const TableTuple& null_inner_tuple = m_null_inner_tuple.tuple();
+
+    ProgressMonitorProxy pmp(m_engine, this);
+
+    //
+    // Build the hash table. The build input is not deleted as we go --
+    // the hash table refers to its tuples until the probing is done.
+    //
+    m_memoryPool.purge();
+    m_buildKeyStorage.init(m_keySchema, &m_memoryPool);
+    TableTuple& buildKey = m_buildKeyStorage;
+    buildKey.move(NULL);
+    HashTableMemoryCharge memoryCharge(m_limits);
+    int entrySize = m_keySchema->tupleLength() + TUPLE_HEADER_SIZE + HASH_ENTRY_OVERHEAD;
+    HashJoinTable hashTable(static_cast<size_t>(build_table->activeTupleCount()));
+
+    TableIterator buildIterator = build_table->iterator();
+    while (buildIterator.next(build_tuple)) {
+        pmp.countdownProgress();
+        // An outer tuple that fails the pre-join predicate can't match any inner tuple.
+        if (buildOnOuter && preJoinPredicate != NULL &&
+                ! preJoinPredicate->eval(&outer_tuple, NULL).isTrue()) {
+            continue;
+        }
+        if (buildKey.isNullTuple()) {
+            m_buildKeyStorage.allocateActiveTuple();
+        }
+        if ( ! setHashKey(buildKey, buildKeys, notDistinctKeys,
+                          &outer_tuple, &inner_tuple, &m_memoryPool)) {
+            // Reuse the key storage for the next tuple.
+            continue;
+        }
+        // The copies of the key's non-inlined values live in the memory pool as well
+        memoryCharge.charge(entrySize + static_cast<int>(buildKey.getNonInlinedMemorySize()));
+        hashTable.insert(HashJoinTable::value_type(buildKey, build_tuple.address()));
+        buildKey.move(NULL);
+    }
+    VOLT_TRACE("Hash join built %d entries on the %s input", (int)hashTable.size(),
+               buildOnOuter ? "outer" : "inner");
+
+    // Init the postfilter
+    CountingPostfilter postfilter(m_tmpOutputTable, wherePredicate, limit, offset);
+
+    TableTuple join_tuple;
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = node->getTupleSchemaPreAgg();
+        join_tuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable, &postfilter);
+    } else {
+        join_tuple = m_tmpOutputTable->tempTuple();
+    }
+
+    //
+    // Probe the hash table with each tuple of the other input.
+    //
+    const TableTuple& probeKey = m_probeKeyStorage.tuple();
+    TableIterator probeIterator = probe_table->iteratorDeletingAsWeGo();
+    while (postfilter.isUnderLimit() && probeIterator.next(probe_tuple)) {
+        pmp.countdownProgress();
+
+        if (buildOnOuter) {
+            // The inner tuple is the same for all of its matches
+            join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+        }
+        else {
+            join_tuple.setNValues(0, outer_tuple, 0, outer_cols);
+        }
+
+        // did this loop body find at least one match for this tuple?
+        bool outerMatch = false;
+        // For outer joins if outer tuple fails pre-join predicate
+        // (join expression based on the outer table only)
+        // it can't match any of inner tuples
+        if ((buildOnOuter || preJoinPredicate == NULL || preJoinPredicate->eval(&outer_tuple, NULL).isTrue()) &&
+                setHashKey(probeKey, probeKeys, notDistinctKeys, &outer_tuple, &inner_tuple, NULL)) {
+
+            std::pair<HashJoinTable::const_iterator, HashJoinTable::const_iterator> matches =
+                hashTable.equal_range(probeKey);
+            for (HashJoinTable::const_iterator match = matches.first;
+                    postfilter.isUnderLimit() && match != matches.second; ++match) {
+                build_tuple.move(match->second);
+                // The join predicate still has the key equalities, along with any other
+                // inner-outer join expressions, to settle the hash collisions.
+                if (joinPredicate == NULL || joinPredicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
+                    outerMatch = true;
+                    // The inner tuple passed the join predicate
+                    if (m_joinType == JOIN_TYPE_FULL) {
+                        // Mark it as matched
+                        innerTableFilter.updateTuple(inner_tuple, MATCHED_TUPLE);
+                    }
+                    // Filter the joined tuple
+                    if (postfilter.eval(&outer_tuple, &inner_tuple)) {
+                        // Matched! Complete the joined tuple with the build side column values.
+                        if (buildOnOuter) {
+                            join_tuple.setNValues(0, outer_tuple, 0, outer_cols);
+                        }
+                        else {
+                            join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+                        }
+                        outputTuple(postfilter, join_tuple, pmp);
+                    }
+                }
+            }
+        }
+
+        //
+        // Left Outer Join
+        //
+        if (m_joinType != JOIN_TYPE_INNER && !outerMatch && postfilter.isUnderLimit()) {
+            // Still needs to pass the filter
+            if (postfilter.eval(&outer_tuple, &null_inner_tuple)) {
+                // Matched! Complete the joined tuple with the inner column values.
+                join_tuple.setNValues(outer_cols, null_inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        } // END IF LEFT OUTER JOIN
+    } // END PROBE WHILE LOOP
+
+    //
+    // FULL Outer Join. Iterate over the unmatched inner tuples
+    //
+    if (m_joinType == JOIN_TYPE_FULL && postfilter.isUnderLimit()) {
+        // Preset outer columns to null
+        const TableTuple& null_outer_tuple = m_null_outer_tuple.tuple();
+        join_tuple.setNValues(0, null_outer_tuple, 0, outer_cols);
+
+        TableTupleFilter_iter<UNMATCHED_TUPLE> endItr = innerTableFilter.end<UNMATCHED_TUPLE>();
+        for (TableTupleFilter_iter<UNMATCHED_TUPLE> itr = innerTableFilter.begin<UNMATCHED_TUPLE>();
+                itr != endItr && postfilter.isUnderLimit(); ++itr) {
+            // Restore the tuple value
+            uint64_t tupleAddr = innerTableFilter.getTupleAddress(*itr);
+            inner_tuple.move((char *)tupleAddr);
+            // Still needs to pass the filter
+            assert(inner_tuple.isActive());
+            if (postfilter.eval(&null_outer_tuple, &inner_tuple)) {
+                // Passed! Complete the joined tuple with the inner column values.
+                join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        }
+    }
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    hashTable.clear();
+    buildKey.move(NULL);
+    m_memoryPool.purge();
+
+    cleanupInputTempTable(inner_table);
+    cleanupInputTempTable(outer_table);
+
+    return (true);
+}
@@ -0,0 +1,61 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "common/Pool.hpp"
+#include "common/tabletuple.h"
+#include "executors/abstractjoinexecutor.h"
+
+namespace voltdb {
+
+class TupleSchema;
+
+/**
+ * Joins two inputs on the equality of their hash keys. One input, the inner one
+ * unless the plan allows otherwise and the outer one is smaller, is loaded into
+ * a hash table keyed on its key expressions. The other input is then scanned once,
+ * probing the hash table for the tuples with equal keys.
+ * The memory of the hash table counts against the temp table limits of the fragment.
+ */
+class HashJoinExecutor : public AbstractJoinExecutor {
+    public:
+        HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) :
+            AbstractJoinExecutor(engine, abstract_node),
+            m_keySchema(NULL),
+            m_limits(NULL) { }
+        ~HashJoinExecutor();
+    private:
+
+        bool p_init(AbstractPlanNode*, TempTableLimits* limits);
+        bool p_execute(const NValueArray &params);
+
+        // The schema of the tuples holding the hash keys of either input
+        TupleSchema* m_keySchema;
+        // Storage of the hash keys of the tuples in the hash table
+        PoolBackedTupleStorage m_buildKeyStorage;
+        // The hash key of the tuple probing the hash table
+        StandAloneTupleStorage m_probeKeyStorage;
+        Pool m_memoryPool;
+        TempTableLimits* m_limits;
+};
+
+}
+
+#endif
@@ -51,6 +51,8 @@
 #include "execution/ProgressMonitorProxy.h"
 #include "plannodes/orderbynode.h"
 #include "plannodes/limitnode.h"
+#include "storage/SpillFile.h"
+#include "storage/TempTableLimits.h"
 #include "storage/table.h"
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
@@ -70,6 +72,7 @@ OrderByExecutor::p_init(AbstractPlanNode* abstract_node,
 
     OrderByPlanNode* node = dynamic_cast<OrderByPlanNode*>(abstract_node);
     assert(node);
+    m_limits = limits;
 
     if (!node->isInline()) {
         assert(node->getInputTableCount() == 1);
@@ -136,24 +139,59 @@ OrderByExecutor::p_execute(const NValueArray &params)
     if (limit != 0) {
         vector<TableTuple> xs;
         ProgressMonitorProxy pmp(m_engine, this);
-        while (iterator.next(tuple))
-        {
-            pmp.countdownProgress();
-            assert(tuple.isActive());
-            xs.push_back(tuple);
-        }
-        VOLT_TRACE("\n***** Input Table PreSort:\n '%s'",
-                   input_table->debug().c_str());
-
-
-        if (limit >= 0 && xs.begin() + limit + offset < xs.end()) {
-            // partial sort
-            partial_sort(xs.begin(), xs.begin() + limit + offset, xs.end(),
-                    AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()));
+        AbstractExecutor::TupleComparer comparer(node->getSortExpressions(), node->getSortDirections());
+        // The number of leading tuples in sort order that the output needs
+        int64_t topCount = (limit > 0) ? static_cast<int64_t>(limit) + max(offset, 0) : -1;
+        if (topCount > 0 && topCount < input_table->activeTupleCount()) {
+            // TOP N: keep only the first topCount tuples seen so far, in a heap
+            // whose top is the last of them in sort order. Each further input tuple
+            // either sorts before the top and replaces it, or is dropped.
+            xs.reserve(topCount);
+            while (iterator.next(tuple))
+            {
+                pmp.countdownProgress();
+                assert(tuple.isActive());
+                if (xs.size() < topCount) {
+                    xs.push_back(tuple);
+                    push_heap(xs.begin(), xs.end(), comparer);
+                }
+                else if (comparer(tuple, xs.front())) {
+                    pop_heap(xs.begin(), xs.end(), comparer);
+                    xs.back() = tuple;
+                    push_heap(xs.begin(), xs.end(), comparer);
+                }
+            }
+            sort_heap(xs.begin(), xs.end(), comparer);
         } else {
+            while (iterator.next(tuple))
+            {
+                pmp.countdownProgress();
+                assert(tuple.isActive());
+                xs.push_back(tuple);
+            }
+            VOLT_TRACE("\n***** Input Table PreSort:\n '%s'",
+                       input_table->debug().c_str());
+
             // full sort
-            sort(xs.begin(), xs.end(),
-                    AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()));
+            sort(xs.begin(), xs.end(), comparer);
+        }
+
+        // The output holds a copy of each input tuple. If the input and the output
+        // together would exceed the memory limit, free the input before the output
+        // is built, by way of a spill file of the sorted tuples. Sorts that fit in
+        // memory don't go to disk.
+        TempTable* tmp_input_table = dynamic_cast<TempTable*>(input_table);
+        size_t skipped = (offset > 0) ? min(static_cast<size_t>(offset), xs.size()) : 0;
+        size_t outputCount = xs.size() - skipped;
+        if (limit >= 0 && static_cast<size_t>(limit) < outputCount) {
+            outputCount = limit;
+        }
+        int64_t outputBytes = outputCount * (output_table->schema()->tupleLength() + TUPLE_HEADER_SIZE);
+        if (tmp_input_table != NULL && m_limits != NULL && m_limits->shouldSpillToFit(outputBytes)) {
+            insertSortedThroughSpillFile(xs.begin() + skipped, xs.begin() + skipped + outputCount,
+                                         tmp_input_table, output_table, pmp);
+            VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
+            return true;
         }
 
         int tuple_ctr = 0;
@@ -187,5 +225,29 @@ OrderByExecutor::p_execute(const NValueArray &params)
     return true;
 }
 
+void
+OrderByExecutor::insertSortedThroughSpillFile(vector<TableTuple>::iterator begin,
+                                              vector<TableTuple>::iterator end,
+                                              TempTable* input_table,
+                                              TempTable* output_table,
+                                              ProgressMonitorProxy& pmp)
+{
+    // Like the inserts of the in-memory sort, the spill file copies the tuples
+    // shallowly, so the output shares the non-inlined values of the input.
+    SpillFile sorted(m_limits);
+    for (vector<TableTuple>::iterator it = begin; it != end; ++it) {
+        sorted.appendStorage(*it);
+        pmp.countdownProgress();
+    }
+    input_table->deleteAllTempTuples();
+
+    TableTuple& tuple = output_table->tempTuple();
+    sorted.rewind();
+    while (sorted.nextStorage(tuple)) {
+        output_table->insertTempTuple(tuple);
+        pmp.countdownProgress();
+    }
+}
+
 OrderByExecutor::~OrderByExecutor() {
 }
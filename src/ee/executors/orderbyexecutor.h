@@ -50,11 +50,15 @@
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
 
+#include <vector>
+
 namespace voltdb {
 
     class UndoLog;
     class ReadWriteSet;
     class LimitPlanNode;
+    class ProgressMonitorProxy;
+    class TempTable;
 
     /**
      *
@@ -62,7 +66,7 @@ namespace voltdb {
     class OrderByExecutor : public AbstractExecutor {
     public:
         OrderByExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
-            : AbstractExecutor(engine, abstract_node), limit_node(NULL)
+            : AbstractExecutor(engine, abstract_node), limit_node(NULL), m_limits(NULL)
             { }
         ~OrderByExecutor();
 
@@ -72,7 +76,14 @@ namespace voltdb {
         bool p_execute(const NValueArray &params);
 
     private:
+        void insertSortedThroughSpillFile(std::vector<TableTuple>::iterator begin,
+                                          std::vector<TableTuple>::iterator end,
+                                          TempTable* input_table,
+                                          TempTable* output_table,
+                                          ProgressMonitorProxy& pmp);
+
         LimitPlanNode *limit_node;
+        TempTableLimits* m_limits;
     };
 
 }
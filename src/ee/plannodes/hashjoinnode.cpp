@@ -0,0 +1,64 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+#include <sstream>
+#include "hashjoinnode.h"
+
+#include "expressions/abstractexpression.h"
+
+namespace voltdb {
+
+HashJoinPlanNode::~HashJoinPlanNode() { }
+
+PlanNodeType HashJoinPlanNode::getPlanNodeType() const { return PLAN_NODE_TYPE_HASHJOIN; }
+
+std::string HashJoinPlanNode::debugInfo(const std::string& spacer) const
+{
+    std::ostringstream buffer;
+    buffer << AbstractJoinPlanNode::debugInfo(spacer);
+    buffer << spacer << "MayBuildOnOuter[" << m_mayBuildOnOuter << "]\n";
+    for (int ctr = 0, cnt = (int)m_outerHashExpressions.size(); ctr < cnt; ctr++) {
+        buffer << spacer << "Hash Key[" << ctr << "]" <<
+            (m_notDistinctKeys[ctr] ? " NOT DISTINCT" : "") << "\n";
+        buffer << m_outerHashExpressions[ctr]->debug(spacer);
+        buffer << m_innerHashExpressions[ctr]->debug(spacer);
+    }
+    return buffer.str();
+}
+
+void HashJoinPlanNode::loadFromJSONObject(PlannerDomValue obj)
+{
+    AbstractJoinPlanNode::loadFromJSONObject(obj);
+
+    m_outerHashExpressions.loadExpressionArrayFromJSONObject("OUTER_HASH_EXPRESSIONS", obj);
+    m_innerHashExpressions.loadExpressionArrayFromJSONObject("INNER_HASH_EXPRESSIONS", obj);
+    assert(m_outerHashExpressions.size() == m_innerHashExpressions.size());
+
+    m_notDistinctKeys.assign(m_outerHashExpressions.size(), false);
+    if (obj.hasNonNullKey("NOT_DISTINCT_KEYS")) {
+        PlannerDomValue keysArray = obj.valueForKey("NOT_DISTINCT_KEYS");
+        for (int i = 0; i < keysArray.arrayLen(); i++) {
+            m_notDistinctKeys[keysArray.valueAtIndex(i).asInt()] = true;
+        }
+    }
+
+    m_mayBuildOnOuter = false;
+    if (obj.hasNonNullKey("MAY_BUILD_ON_OUTER")) {
+        m_mayBuildOnOuter = obj.valueForKey("MAY_BUILD_ON_OUTER").asBool();
+    }
+}
+
+} // namespace voltdb
@@ -0,0 +1,54 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HSTOREHASHJOINNODE_H
+#define HSTOREHASHJOINNODE_H
+
+#include "abstractjoinnode.h"
+
+namespace voltdb {
+
+class HashJoinPlanNode : public AbstractJoinPlanNode
+{
+public:
+    HashJoinPlanNode() : m_mayBuildOnOuter(false) { }
+    ~HashJoinPlanNode();
+    PlanNodeType getPlanNodeType() const;
+    std::string debugInfo(const std::string& spacer) const;
+
+    const std::vector<AbstractExpression*>& getOuterHashExpressions() const { return m_outerHashExpressions; }
+    const std::vector<AbstractExpression*>& getInnerHashExpressions() const { return m_innerHashExpressions; }
+    // True for each key pair compared with IS NOT DISTINCT FROM, for which NULL matches NULL
+    const std::vector<bool>& getNotDistinctKeys() const { return m_notDistinctKeys; }
+    bool mayBuildOnOuter() const { return m_mayBuildOnOuter; }
+
+protected:
+    void loadFromJSONObject(PlannerDomValue obj);
+
+    // The key expressions on the outer and on the inner input, pairwise equal for a match
+    OwningExpressionVector m_outerHashExpressions;
+    OwningExpressionVector m_innerHashExpressions;
+    std::vector<bool> m_notDistinctKeys;
+
+    // An inner join whose outer input has no order to preserve
+    // may build its hash table on whichever input is smaller
+    bool m_mayBuildOnOuter;
+};
+
+} // namespace voltdb
+
+#endif
@@ -0,0 +1,198 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "SpillFile.h"
+
+#include "TempTableLimits.h"
+#include "common/SerializableEEException.h"
+#include "common/serializeio.h"
+#include "common/tabletuple.h"
+
+#include <cassert>
+#include <cerrno>
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <string>
+#include <unistd.h>
+
+namespace voltdb {
+
+// Tuples are written and read in chunks of at least this size.
+static const size_t SPILL_BUFFER_SIZE = 256 * 1024;
+
+static void throwSpillException(const char* operation, const std::string& directory)
+{
+    char msg[1024];
+    snprintf(msg, sizeof(msg), "Failed to %s a temp table spill file in %s: %s",
+             operation, directory.c_str(), strerror(errno));
+    throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION, msg);
+}
+
+SpillFile::SpillFile(TempTableLimits* limits)
+    : m_limits(limits)
+    , m_fd(-1)
+    , m_buffer(SPILL_BUFFER_SIZE)
+    , m_position(0)
+    , m_end(0)
+    , m_tupleCount(0)
+{
+    assert(m_limits);
+    assert( ! m_limits->getSpillDirectory().empty());
+    std::string path = m_limits->getSpillDirectory() + "/spill-XXXXXX";
+    std::vector<char> pathTemplate(path.begin(), path.end());
+    pathTemplate.push_back('\0');
+    m_fd = mkstemp(&pathTemplate[0]);
+    if (m_fd < 0) {
+        throwSpillException("create", m_limits->getSpillDirectory());
+    }
+    // Nothing else needs the name, and this way the file can not outlive us.
+    unlink(&pathTemplate[0]);
+}
+
+SpillFile::~SpillFile()
+{
+    if (m_fd >= 0) {
+        close(m_fd);
+    }
+}
+
+void SpillFile::append(const TableTuple& tuple)
+{
+    size_t maxSize = tuple.serializationSize();
+    if (m_buffer.size() - m_position < maxSize) {
+        flush();
+        if (m_buffer.size() < maxSize) {
+            m_buffer.resize(maxSize);
+        }
+    }
+    ReferenceSerializeOutput output(&m_buffer[m_position], m_buffer.size() - m_position);
+    tuple.serializeTo(output);
+    m_position += output.position();
+    ++m_tupleCount;
+}
+
+void SpillFile::flush()
+{
+    if (m_position == 0) {
+        return;
+    }
+    size_t written = 0;
+    while (written < m_position) {
+        ssize_t result = write(m_fd, &m_buffer[written], m_position - written);
+        if (result < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            throwSpillException("write", m_limits->getSpillDirectory());
+        }
+        written += result;
+    }
+    m_limits->increaseSpilled(m_position);
+    m_position = 0;
+}
+
+void SpillFile::rewind()
+{
+    if (m_end == 0) {
+        // Still writing
+        flush();
+    }
+    if (lseek(m_fd, 0, SEEK_SET) < 0) {
+        throwSpillException("rewind", m_limits->getSpillDirectory());
+    }
+    m_position = 0;
+    m_end = 0;
+}
+
+bool SpillFile::fill(size_t bytesNeeded)
+{
+    size_t available = m_end - m_position;
+    if (available >= bytesNeeded) {
+        return true;
+    }
+    // Move the unread bytes to the front of the buffer and read in behind them.
+    memmove(&m_buffer[0], &m_buffer[m_position], available);
+    m_position = 0;
+    m_end = available;
+    if (m_buffer.size() < bytesNeeded) {
+        m_buffer.resize(bytesNeeded);
+    }
+    while (m_end < bytesNeeded) {
+        ssize_t result = read(m_fd, &m_buffer[m_end], m_buffer.size() - m_end);
+        if (result < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            throwSpillException("read", m_limits->getSpillDirectory());
+        }
+        if (result == 0) {
+            return false;
+        }
+        m_end += result;
+    }
+    return true;
+}
+
+bool SpillFile::next(TableTuple& tuple, Pool* pool)
+{
+    if ( ! fill(sizeof(int32_t))) {
+        assert(m_end == m_position);
+        return false;
+    }
+    ReferenceSerializeInputBE lengthInput(&m_buffer[m_position], sizeof(int32_t));
+    size_t tupleSize = sizeof(int32_t) + lengthInput.readInt();
+    if ( ! fill(tupleSize)) {
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                      "Unexpected end of a temp table spill file");
+    }
+    ReferenceSerializeInputBE tupleInput(&m_buffer[m_position], tupleSize);
+    tuple.deserializeFrom(tupleInput, pool);
+    m_position += tupleSize;
+    return true;
+}
+
+void SpillFile::appendStorage(const TableTuple& tuple)
+{
+    size_t tupleSize = tuple.tupleLength();
+    if (m_buffer.size() - m_position < tupleSize) {
+        flush();
+        if (m_buffer.size() < tupleSize) {
+            m_buffer.resize(tupleSize);
+        }
+    }
+    ::memcpy(&m_buffer[m_position], tuple.address(), tupleSize);
+    m_position += tupleSize;
+    ++m_tupleCount;
+}
+
+bool SpillFile::nextStorage(TableTuple& tuple)
+{
+    size_t tupleSize = tuple.tupleLength();
+    if ( ! fill(tupleSize)) {
+        if (m_end != m_position) {
+            throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                          "Unexpected end of a temp table spill file");
+        }
+        return false;
+    }
+    ::memcpy(tuple.address(), &m_buffer[m_position], tupleSize);
+    m_position += tupleSize;
+    return true;
+}
+
+} // namespace voltdb
@@ -0,0 +1,91 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_STORAGE_SPILLFILE_H_
+#define _EE_STORAGE_SPILLFILE_H_
+
+#include <boost/noncopyable.hpp>
+
+#include <cstddef>
+#include <stdint.h>
+#include <vector>
+
+namespace voltdb {
+
+class Pool;
+class TableTuple;
+class TempTableLimits;
+
+/**
+ * A file of tuples that executors use to hold intermediate results
+ * that do not fit within their fragment's temp table memory budget.
+ * Tuples are appended, then the file is rewound and read back sequentially.
+ * The file is created in the spill directory of the TempTableLimits and is
+ * unlinked as soon as it is opened, so it disappears with its file descriptor
+ * even if the process dies. Bytes written are counted in the TempTableLimits.
+ */
+class SpillFile : boost::noncopyable {
+public:
+    SpillFile(TempTableLimits* limits);
+    ~SpillFile();
+
+    void append(const TableTuple& tuple);
+
+    /// Flush any buffered tuples and prepare to read from the first one.
+    void rewind();
+
+    /**
+     * Read the next tuple into the storage of the given tuple, which must
+     * have the schema of the appended tuples. Non-inlined values are
+     * allocated from the given pool. Return false at the end of the file.
+     */
+    bool next(TableTuple& tuple, Pool* pool);
+
+    /**
+     * Append the storage of the tuple as it is. Non-inlined values are not
+     * written, only the pointers to them, so they must outlive the tuples read
+     * back, as they do for a shallow copy of the tuple.
+     */
+    void appendStorage(const TableTuple& tuple);
+
+    /**
+     * Read the next tuple appended by appendStorage into the storage of the
+     * given tuple, which must have the schema of the appended tuples.
+     * Return false at the end of the file.
+     */
+    bool nextStorage(TableTuple& tuple);
+
+    int64_t tupleCount() const { return m_tupleCount; }
+
+private:
+    void flush();
+    bool fill(size_t bytesNeeded);
+
+    TempTableLimits* const m_limits;
+    int m_fd;
+    std::vector<char> m_buffer;
+    /// When writing, the number of buffered bytes.
+    /// When reading, the offset of the next unread byte in the buffer.
+    size_t m_position;
+    /// When reading, the number of valid bytes in the buffer.
+    size_t m_end;
+    int64_t m_tupleCount;
+};
+
+} // namespace voltdb
+
+#endif // _EE_STORAGE_SPILLFILE_H_
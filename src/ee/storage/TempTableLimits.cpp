@@ -60,4 +60,19 @@ void TempTableLimits::increaseAllocated(int bytes)
     LogManager::getThreadLogger(LOGGERID_SQL)->log(LOGLEVEL_INFO, msg);
 }
 
+void TempTableLimits::increaseSpilled(int64_t bytes)
+{
+    m_spilledBytes += bytes;
+    if (m_spillLogLatch) {
+        return;
+    }
+
+    m_spillLogLatch = true;
+    int thresh_mb = static_cast<int>(m_spillThreshold / (1024 * 1024));
+    char msg[1024];
+    snprintf(msg, sizeof(msg), "More than %d MB of temp table memory used while executing SQL."
+             " Spilling intermediate results to %s.", thresh_mb, m_spillDirectory.c_str());
+    LogManager::getThreadLogger(LOGGERID_SQL)->log(LOGLEVEL_INFO, msg);
+}
+
 } // namespace voltdb
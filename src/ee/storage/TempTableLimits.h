@@ -19,21 +19,29 @@
 #define _EE_STORAGE_TEMPTABLELIMITS_H_
 
 #include <stdint.h>
+#include <string>
 
 namespace voltdb {
 
 /**
  * Track the amount of memory used by temp tables in a plan fragment's executors.
  * Log or throw exceptions based on thresholds.
+ * Also tell executors that can spill their intermediate results to disk when
+ * they should start doing so, and track how much they have spilled.
  */
 class TempTableLimits {
 public:
-    TempTableLimits(int64_t memoryLimit = 1024 * 1024 * 100, int64_t logThreshold = -1)
+    TempTableLimits(int64_t memoryLimit = 1024 * 1024 * 100, int64_t logThreshold = -1,
+                    int64_t spillThreshold = -1, const std::string& spillDirectory = "")
         : m_currMemoryInBytes(0)
         , m_peakMemoryInBytes(0)
+        , m_spilledBytes(0)
         , m_logThreshold(logThreshold)
         , m_memoryLimit(memoryLimit)
+        , m_spillThreshold(spillDirectory.empty() ? -1 : spillThreshold)
+        , m_spillDirectory(spillDirectory)
         , m_logLatch(false)
+        , m_spillLogLatch(false)
     { }
 
     /**
@@ -48,21 +56,62 @@ public:
     int64_t getPeakMemoryInBytes() const { return m_peakMemoryInBytes; }
     void resetPeakMemory() { m_peakMemoryInBytes = m_currMemoryInBytes; }
 
+    /**
+     * Return true if an executor holding the given number of bytes of intermediate
+     * data that is not already accounted for in temp tables should spill to disk.
+     */
+    bool shouldSpill(int64_t uncountedBytes = 0) const {
+        return m_spillThreshold >= 0 && m_currMemoryInBytes + uncountedBytes >= m_spillThreshold;
+    }
+
+    /**
+     * Return true if an executor that can spill should do so to stay under the memory
+     * limit: spilling is enabled and adding the given number of bytes to the temp tables
+     * would exceed the limit.
+     */
+    bool shouldSpillToFit(int64_t bytes) const {
+        return m_spillThreshold >= 0 && m_memoryLimit > 0 && m_currMemoryInBytes + bytes > m_memoryLimit;
+    }
+
+    const std::string& getSpillDirectory() const { return m_spillDirectory; }
+
+    /**
+     * Track bytes written to spill files.
+     * Log once at INFO level to the SQL instance for each execution that spills.
+     */
+    void increaseSpilled(int64_t bytes);
+    int64_t getSpilledBytes() const { return m_spilledBytes; }
+    void resetSpilledBytes() {
+        m_spilledBytes = 0;
+        m_spillLogLatch = false;
+    }
+
 private:
     /// The current amount of memory used by temp tables for this plan fragment.
     int64_t m_currMemoryInBytes;
     /// The high water amount of memory used by temp tables
     /// during the current execution of this plan fragment.
     int64_t m_peakMemoryInBytes;
+    /// The number of bytes written to spill files
+    /// during the current execution of this plan fragment.
+    int64_t m_spilledBytes;
     /// The memory allocation at which a log message will be generated.
     /// A negative value disables this behavior.
     const int64_t m_logThreshold;
     /// The memory allocation at which an exception will be thrown and the execution aborted.
     /// A negative value disables this behavior.
     const int64_t m_memoryLimit;
+    /// The memory allocation at which executors that can spill to disk should do so.
+    /// A negative value disables spilling.
+    const int64_t m_spillThreshold;
+    /// The local directory in which spill files are created.
+    const std::string m_spillDirectory;
     /// True if we have already generated a log message for
     /// exceeding the log threshold and not yet dropped below it.
     bool m_logLatch;
+    /// True if we have already generated a log message for
+    /// spilling during the current execution of this plan fragment.
+    bool m_spillLogLatch;
 };
 
 } // namespace voltdb
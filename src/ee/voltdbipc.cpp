@@ -97,7 +97,8 @@ public:
             voltdb::PlanNodeType planNodeType,
             int64_t tuplesProcessed,
             int64_t currMemoryInBytes,
-            int64_t peakMemoryInBytes);
+            int64_t peakMemoryInBytes,
+            int64_t spilledBytes);
 
     std::string decodeBase64AndDecompress(const std::string& base64Data);
 
@@ -1058,7 +1059,8 @@ int64_t VoltDBIPC::fragmentProgressUpdate(
         voltdb::PlanNodeType planNodeType,
         int64_t tuplesProcessed,
         int64_t currMemoryInBytes,
-        int64_t peakMemoryInBytes) {
+        int64_t peakMemoryInBytes,
+        int64_t spilledBytes) {
     if (progressUpdateDisabled) {
         // Large value cuts down on future calls to this stub method.
         return 1000000;
@@ -1070,7 +1072,8 @@ int64_t VoltDBIPC::fragmentProgressUpdate(
                  sizeof(nodeTypeAsInt32) +
                  sizeof(tuplesProcessed) +
                  sizeof(currMemoryInBytes) +
-                 sizeof(peakMemoryInBytes)];
+                 sizeof(peakMemoryInBytes) +
+                 sizeof(spilledBytes)];
     message[0] = static_cast<int8_t>(kErrorCode_progressUpdate);
     size_t offset = 1;
 
@@ -1089,6 +1092,9 @@ int64_t VoltDBIPC::fragmentProgressUpdate(
     *reinterpret_cast<int64_t*>(&message[offset]) = htonll(peakMemoryInBytes);
     offset += sizeof(peakMemoryInBytes);
 
+    *reinterpret_cast<int64_t*>(&message[offset]) = htonll(spilledBytes);
+    offset += sizeof(spilledBytes);
+
     if (staticDebugVerbose) {
         std::cout << "Writing progress update " << (int)*message << std::endl;
     }
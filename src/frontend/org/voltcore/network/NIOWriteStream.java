@@ -22,8 +22,16 @@ import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 
@@ -42,6 +50,15 @@ import org.voltcore.utils.EstTime;
 *  best way to serialize data unless you can't pick a good value for m_port.m_expectedOutgoingMessageSize.
 *  In most cases you are optimizing for the bulk of your message and it is fine to guess a little high as the memory
 *  allocation works well.
+*
+*  Producers enqueue to a lock free queue without holding the monitor of the stream. The network thread moves
+*  everything queued into a private deque before serializing it. Write selection is only turned on by a producer
+*  when it isn't already on, the port rechecks the queue after turning it off so a racing enqueue is never lost.
+*
+*  In gathering mode (NETWORK_GATHERING_WRITES) all the serialized buffers are flushed with a single gathering write
+*  instead of one write per buffer. Gathering mode can also hold back a small pending write for up to
+*  NETWORK_WRITE_COALESCE_MICROS so responses that arrive shortly after it go out in the same write. While a write is
+*  held the port turns write selection off and a timer turns it back on when the window has passed.
 */
 public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
 
@@ -52,16 +69,39 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
 
     private static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
+    static final boolean GATHERING_WRITES = Boolean.getBoolean("NETWORK_GATHERING_WRITES");
+    static final long COALESCE_WINDOW_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Long.getLong("NETWORK_WRITE_COALESCE_MICROS", 0));
+
+    /**
+     * Most buffers handed to a single gathering write, well under IOV_MAX
+     */
+    static final int MAX_GATHERED_BUFFERS = 64;
+
     /**
      * Contains messages waiting to be serialized and written to the socket
      */
-    private final ArrayDeque<DeferredSerialization> m_queuedWrites1 =
-        new ArrayDeque<DeferredSerialization>();
+    private final ConcurrentLinkedQueue<DeferredSerialization> m_queuedWrites =
+        new ConcurrentLinkedQueue<DeferredSerialization>();
+
+    /**
+     * Size of m_queuedWrites, the size of the queue itself is not constant time. Incremented before
+     * the offer so it may briefly count a write that isn't in the queue yet, but never misses one.
+     */
+    private final AtomicInteger m_queuedWriteCount = new AtomicInteger(0);
 
-    private final ArrayDeque<DeferredSerialization> m_queuedWrites2 =
+    /**
+     * Writes taken off m_queuedWrites by the network thread to be serialized
+     */
+    private final ArrayDeque<DeferredSerialization> m_drainedWrites =
         new ArrayDeque<DeferredSerialization>();
 
-    private ArrayDeque<DeferredSerialization> m_queuedWrites = m_queuedWrites1;
+    /*
+     * Contention counters. Enqueues only take the port lock when they have to turn on write selection.
+     */
+    private final AtomicLong m_enqueueCount = new AtomicLong();
+    private final AtomicLong m_writeInterestUpdateCount = new AtomicLong();
+    private volatile int m_maxDrainedWrites = 0;
 
     private final int m_maxQueuedWritesBeforeBackpressure = 100;
 
@@ -74,7 +114,31 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
      * Set to -1 when there are no pending writes. If there is a pending write it is set to the time
      * of the last successful write or the time the oldest pending write was queued.
      */
-    private long m_lastPendingWriteTime = -1;
+    private volatile long m_lastPendingWriteTime = -1;
+
+    private final boolean m_gatheringWrites;
+    private final long m_coalesceWindowNanos;
+
+    /**
+     * Flipped buffers being written by gathering writes, the first may be partially written
+     */
+    private final ArrayDeque<BBContainer> m_gatheredBuffers = new ArrayDeque<BBContainer>();
+    private final ByteBuffer m_gatherArray[] = new ByteBuffer[MAX_GATHERED_BUFFERS];
+
+    /**
+     * Time a small write started being held back to coalesce with later ones, -1 if none is held
+     */
+    private long m_coalesceStartNanos = -1;
+    private boolean m_coalesceTimerArmed = false;
+    private volatile long m_gatheringWriteCount = 0;
+
+    /**
+     * Turns write selection back on for ports holding back a write, only started if coalescing is used
+     */
+    private static class CoalesceTimer {
+        static final ScheduledExecutorService INSTANCE =
+                CoreUtils.getScheduledThreadPoolExecutor("Network Write Coalescer", 1, CoreUtils.SMALL_STACK_SIZE);
+    }
 
     NIOWriteStream(VoltPort port) {
         this(port, null, null, null);
@@ -85,11 +149,24 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
             Runnable offBackPressureCallback,
             Runnable onBackPressureCallback,
             QueueMonitor monitor)
+    {
+        this(port, offBackPressureCallback, onBackPressureCallback, monitor, GATHERING_WRITES, COALESCE_WINDOW_NANOS);
+    }
+
+    NIOWriteStream (
+            VoltPort port,
+            Runnable offBackPressureCallback,
+            Runnable onBackPressureCallback,
+            QueueMonitor monitor,
+            boolean gatheringWrites,
+            long coalesceWindowNanos)
     {
         m_port = port;
         m_offBackPressureCallback = offBackPressureCallback;
         m_onBackPressureCallback = onBackPressureCallback;
         m_monitor = monitor;
+        m_gatheringWrites = gatheringWrites;
+        m_coalesceWindowNanos = coalesceWindowNanos;
     }
 
     /*
@@ -98,13 +175,41 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     @Override
     synchronized public int getOutstandingMessageCount()
     {
-        return m_queuedWrites.size() + super.getOutstandingMessageCount();
+        return m_queuedWriteCount.get() + m_gatheredBuffers.size() + super.getOutstandingMessageCount();
     }
 
     @Override
     synchronized public boolean isEmpty()
     {
-        return super.isEmpty() && m_queuedWrites.isEmpty();
+        return super.isEmpty() && m_gatheredBuffers.isEmpty() && m_queuedWriteCount.get() == 0;
+    }
+
+    /**
+     * @return The number of channel writes done in gathering mode
+     */
+    public long getGatheringWriteCount() {
+        return m_gatheringWriteCount;
+    }
+
+    /**
+     * @return The number of messages enqueued to this stream
+     */
+    public long getEnqueueCount() {
+        return m_enqueueCount.get();
+    }
+
+    /**
+     * @return The number of enqueues that had to take the port lock to turn on write selection
+     */
+    public long getWriteInterestUpdateCount() {
+        return m_writeInterestUpdateCount.get();
+    }
+
+    /**
+     * @return The largest number of queued messages picked up by the network thread at once
+     */
+    public int getMaxDrainedWrites() {
+        return m_maxDrainedWrites;
     }
 
     /**
@@ -117,24 +222,25 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     }
 
     @Override
-    protected synchronized ArrayDeque<DeferredSerialization> getQueuedWrites() {
-        ArrayDeque<DeferredSerialization> oldlist;
-        if (m_queuedWrites.isEmpty()) return m_queuedWrites;
-        if (m_queuedWrites == m_queuedWrites1) {
-            oldlist = m_queuedWrites1;
-            m_queuedWrites = m_queuedWrites2;
+    protected ArrayDeque<DeferredSerialization> getQueuedWrites() {
+        DeferredSerialization ds;
+        int drained = 0;
+        while ((ds = m_queuedWrites.poll()) != null) {
+            m_drainedWrites.offer(ds);
+            drained++;
         }
-        else {
-            oldlist = m_queuedWrites2;
-            m_queuedWrites = m_queuedWrites1;
+        if (drained > 0) {
+            m_queuedWriteCount.addAndGet(-drained);
+            m_maxDrainedWrites = Math.max(m_maxDrainedWrites, drained);
         }
-        return oldlist;
+        return m_drainedWrites;
     }
 
     /**
-     * Called when not all queued data could be flushed to the channel
+     * Called when not all queued data could be flushed to the channel. Producers can start
+     * backpressure without holding the stream's monitor so transitions synchronize here.
      */
-    protected final void backpressureStarted() {
+    protected final synchronized void backpressureStarted() {
         if (networkLog.isTraceEnabled()) {
             networkLog.trace("Backpressure started for client " + m_port);
         }
@@ -149,7 +255,7 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     /**
      * Called when all queued data is flushed to the channel
      */
-    protected final void backpressureEnded() {
+    protected final synchronized void backpressureEnded() {
         if (networkLog.isTraceEnabled()) {
             networkLog.trace("Backpressure ended for client " + m_port);
         }
@@ -182,16 +288,11 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
      */
     @Override
     public void enqueue(final DeferredSerialization ds) {
-        synchronized (this) {
-            if (m_isShutdown) {
-                ds.cancel();
-                return;
-            }
-            updateLastPendingWriteTimeAndQueueBackpressure();
-            m_queuedWrites.offer(ds);
-            m_port.setInterests( SelectionKey.OP_WRITE, 0);
+        if (m_isShutdown) {
+            ds.cancel();
+            return;
         }
-        return;
+        queueWrite(ds);
     }
 
     /*
@@ -204,15 +305,38 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
         m_port.queueTask(new Runnable() {
             @Override
             public void run() {
-                synchronized (NIOWriteStream.this) {
-                    updateLastPendingWriteTimeAndQueueBackpressure();
-                    m_queuedWrites.offer(ds);
-                    m_port.setInterests( SelectionKey.OP_WRITE, 0);
-                }
+                queueWrite(ds);
             }
         });
     }
 
+    private void queueWrite(final DeferredSerialization ds) {
+        m_queuedWriteCount.incrementAndGet();
+        m_queuedWrites.offer(ds);
+        m_enqueueCount.incrementAndGet();
+        updateLastPendingWriteTimeAndQueueBackpressure();
+
+        if ((m_port.interestOps() & SelectionKey.OP_WRITE) == 0) {
+            m_writeInterestUpdateCount.incrementAndGet();
+            m_port.setInterests( SelectionKey.OP_WRITE, 0);
+        }
+
+        /*
+         * Raced with shutdown, whatever shutdown didn't see has to be cancelled here
+         */
+        if (m_isShutdown) {
+            cancelQueuedWrites();
+        }
+    }
+
+    private void cancelQueuedWrites() {
+        DeferredSerialization ds = null;
+        while ((ds = m_queuedWrites.poll()) != null) {
+            m_queuedWriteCount.decrementAndGet();
+            ds.cancel();
+        }
+    }
+
     @Override
     public void enqueue(final ByteBuffer b) {
         enqueue(new ByteBuffer[] { b });
@@ -236,36 +360,31 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
             }
         }
 
-        synchronized (this) {
-            if (m_isShutdown) {
-                return;
-            }
-
-            updateLastPendingWriteTimeAndQueueBackpressure();
+        if (m_isShutdown) {
+            return;
+        }
 
-            m_queuedWrites.offer(new DeferredSerialization() {
-                @Override
-                public void serialize(ByteBuffer outbuf) {
-                    for (ByteBuffer buf : b) {
-                        outbuf.put(buf);
-                    }
+        queueWrite(new DeferredSerialization() {
+            @Override
+            public void serialize(ByteBuffer outbuf) {
+                for (ByteBuffer buf : b) {
+                    outbuf.put(buf);
                 }
+            }
 
-                @Override
-                public void cancel() {}
+            @Override
+            public void cancel() {}
 
-                @Override
-                public int getSerializedSize() {
-                    int sum = 0;
-                    for (ByteBuffer buf : b) {
-                        buf.position(0);
-                        sum += buf.remaining();
-                    }
-                    return sum;
+            @Override
+            public int getSerializedSize() {
+                int sum = 0;
+                for (ByteBuffer buf : b) {
+                    buf.position(0);
+                    sum += buf.remaining();
                 }
-            });
-            m_port.setInterests( SelectionKey.OP_WRITE, 0);
-        }
+                return sum;
+            }
+        });
         return;
     }
 
@@ -276,25 +395,37 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     @Override
     synchronized void shutdown() {
         super.shutdown();
+        int bytesReleased = 0;
+        BBContainer c = null;
+        while ((c = m_gatheredBuffers.poll()) != null) {
+            //Already flipped when they were gathered
+            bytesReleased += c.b().remaining();
+            c.discard();
+        }
+        if (bytesReleased > 0) {
+            updateQueued(-bytesReleased, false);
+        }
+        cancelQueuedWrites();
         DeferredSerialization ds = null;
-        while ((ds = m_queuedWrites.poll()) != null) {
+        while ((ds = m_drainedWrites.poll()) != null) {
             ds.cancel();
         }
     }
 
     @Override
-    public synchronized int calculatePendingWriteDelta(final long now) {
-        if (m_lastPendingWriteTime == -1) {
+    public int calculatePendingWriteDelta(final long now) {
+        final long lastPendingWriteTime = m_lastPendingWriteTime;
+        if (lastPendingWriteTime == -1) {
             return 0;
         }
-        return (int)(now - m_lastPendingWriteTime);
+        return (int)(now - lastPendingWriteTime);
     }
 
     private void updateLastPendingWriteTimeAndQueueBackpressure() {
         if (m_lastPendingWriteTime == -1) {
             m_lastPendingWriteTime = EstTime.currentTimeMillis();
         }
-        if (m_queuedWrites.size() > m_maxQueuedWritesBeforeBackpressure && !m_hadBackPressure) {
+        if (m_queuedWriteCount.get() > m_maxQueuedWritesBeforeBackpressure && !m_hadBackPressure) {
             backpressureStarted();
         }
     }
@@ -322,6 +453,9 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
      */
     @Override
     int drainTo (final GatheringByteChannel channel) throws IOException {
+        if (m_gatheringWrites) {
+            return gatheringDrainTo(channel);
+        }
         int bytesWritten = 0;
         try {
             long rc = 0;
@@ -358,24 +492,130 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
 
             } while (rc > 0);
         } finally {
-            //We might fail after writing few bytes. make sure the ones that are written accounted for.
-            //Not sure if we need to do any backpressure magic as client is dead and so no backpressure on this may be needed.
-            if (m_queuedBuffers.isEmpty() && m_hadBackPressure && m_queuedWrites.size() <= m_maxQueuedWritesBeforeBackpressure) {
-                backpressureEnded();
+            drainCompleted(bytesWritten);
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Write as many of the queued buffers as possible with one gathering write per
+     * MAX_GATHERED_BUFFERS buffers. Fully written buffers are returned to the pool,
+     * a partially written one stays at the head of the gathered buffers.
+     */
+    private int gatheringDrainTo(final GatheringByteChannel channel) throws IOException {
+        int bytesWritten = 0;
+        try {
+            if (shouldCoalesce()) {
+                return 0;
             }
-            //Same here I dont know if we do need to do this housekeeping??
-            if (!isEmpty()) {
-                if (bytesWritten > 0) {
-                    m_lastPendingWriteTime = EstTime.currentTimeMillis();
+            m_coalesceStartNanos = -1;
+
+            long rc = 0;
+            do {
+                while (m_gatheredBuffers.size() < MAX_GATHERED_BUFFERS && !m_queuedBuffers.isEmpty()) {
+                    final BBContainer c = m_queuedBuffers.poll();
+                    c.b().flip();
+                    m_gatheredBuffers.offer(c);
                 }
-            } else {
-                m_lastPendingWriteTime = -1;
-            }
+                if (m_gatheredBuffers.isEmpty()) {
+                    return bytesWritten;
+                }
+
+                int count = 0;
+                for (BBContainer c : m_gatheredBuffers) {
+                    m_gatherArray[count++] = c.b();
+                }
+                rc = channel.write(m_gatherArray, 0, count);
+                m_gatheringWriteCount++;
+                bytesWritten += rc;
+                Arrays.fill(m_gatherArray, 0, count, null);
+
+                while (!m_gatheredBuffers.isEmpty() && !m_gatheredBuffers.peek().b().hasRemaining()) {
+                    m_gatheredBuffers.poll().discard();
+                    m_messagesWritten++;
+                }
+
+                if (!m_gatheredBuffers.isEmpty()) {
+                    //The channel didn't take everything, it is full
+                    if (!m_hadBackPressure) {
+                        backpressureStarted();
+                    }
+                    return bytesWritten;
+                }
+            } while (rc > 0);
+        } finally {
+            drainCompleted(bytesWritten);
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Hold back a small write, nothing partially written and less than one pool buffer
+     * serialized, until the coalescing window since it was first held has passed
+     */
+    private boolean shouldCoalesce() {
+        if (m_coalesceWindowNanos <= 0 || !m_gatheredBuffers.isEmpty() || m_queuedBuffers.size() != 1) {
+            return false;
+        }
+        final ByteBuffer pending = m_queuedBuffers.peek().b();
+        if (!pending.hasRemaining()) {
+            return false;
+        }
+        final long now = System.nanoTime();
+        if (m_coalesceStartNanos == -1) {
+            m_coalesceStartNanos = now;
+            return true;
+        }
+        return now - m_coalesceStartNanos < m_coalesceWindowNanos;
+    }
+
+    /**
+     * Called by the port with the stream locked after draining. If a write is being held back
+     * schedule write selection to be turned back on when the coalescing window has passed,
+     * so the port can turn it off instead of polling the channel for the whole window.
+     * @return true if a write is being held back
+     */
+    boolean deferHeldWrite() {
+        if (m_coalesceStartNanos == -1) {
+            return false;
+        }
+        if (!m_coalesceTimerArmed) {
+            m_coalesceTimerArmed = true;
+            final long delay = m_coalesceWindowNanos - (System.nanoTime() - m_coalesceStartNanos);
+            CoalesceTimer.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (NIOWriteStream.this) {
+                        m_coalesceTimerArmed = false;
+                        if (m_isShutdown) {
+                            return;
+                        }
+                    }
+                    m_port.setInterests(SelectionKey.OP_WRITE, 0);
+                }
+            }, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    private void drainCompleted(int bytesWritten) {
+        //We might fail after writing few bytes. make sure the ones that are written accounted for.
+        //Not sure if we need to do any backpressure magic as client is dead and so no backpressure on this may be needed.
+        if (m_queuedBuffers.isEmpty() && m_gatheredBuffers.isEmpty() && m_hadBackPressure &&
+                m_queuedWriteCount.get() <= m_maxQueuedWritesBeforeBackpressure) {
+            backpressureEnded();
+        }
+        //Same here I dont know if we do need to do this housekeeping??
+        if (!isEmpty()) {
             if (bytesWritten > 0) {
-                updateQueued(-bytesWritten, false);
-                m_bytesWritten += bytesWritten;
+                m_lastPendingWriteTime = EstTime.currentTimeMillis();
             }
+        } else {
+            m_lastPendingWriteTime = -1;
+        }
+        if (bytesWritten > 0) {
+            updateQueued(-bytesWritten, false);
+            m_bytesWritten += bytesWritten;
         }
-        return bytesWritten;
     }
 }
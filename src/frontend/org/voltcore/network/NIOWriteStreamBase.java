@@ -38,7 +38,7 @@ import org.voltcore.utils.RateLimitedLogger;
 public abstract class NIOWriteStreamBase {
     private static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
-    protected boolean m_isShutdown = false;
+    protected volatile boolean m_isShutdown = false;
 
     protected BBContainer m_currentWriteBuffer = null;
 
@@ -252,11 +252,25 @@ public class VoltPort implements Connection
             if (m_writeStream.isEmpty()) {
                 disableWriteSelection();
 
-                if (m_isShuttingDown) {
+                /*
+                 * Writes are enqueued without the write stream lock and only turn on
+                 * write selection if they see it off, so one may have been enqueued after
+                 * the check above while selection was still on.
+                 */
+                if (!m_writeStream.isEmpty()) {
+                    enableWriteSelection();
+                } else if (m_isShuttingDown) {
                     m_channel.close();
                     //m_handler.stopped(this);
                     unregistered();
                 }
+            } else if (m_writeStream.deferHeldWrite()) {
+                /*
+                 * A small write is held back to coalesce with later ones. The stream turns
+                 * write selection back on when the window has passed, until then writes
+                 * enqueued while selection was still on wait for the window too.
+                 */
+                disableWriteSelection();
             }
         }
     }
@@ -0,0 +1,186 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Queue depth and latency of the ad hoc planner threads of the async compiler agent.
+ * Times are in nanoseconds.
+ */
+public class AdHocPlannerStats extends StatsSource {
+
+    public enum StatName {
+        PLANNER_THREADS,
+        QUEUE_DEPTH,
+        MAX_QUEUE_DEPTH,
+        SUBMITTED,
+        REJECTED,
+        QUEUE_TIME_AVG,
+        QUEUE_TIME_MAX,
+        PLAN_TIME_AVG,
+        PLAN_TIME_MAX
+    };
+
+    public interface QueueDepth {
+        int getQueueDepth();
+    }
+
+    private final int m_plannerThreads;
+    private final int m_maxQueueDepth;
+    private final QueueDepth m_queueDepth;
+
+    private boolean m_interval = false;
+
+    private long m_submitted = 0;
+    private long m_lastSubmitted = 0;
+    private long m_rejected = 0;
+    private long m_lastRejected = 0;
+
+    private long m_completed = 0;
+    private long m_lastCompleted = 0;
+    private long m_totalQueueTime = 0;
+    private long m_lastTotalQueueTime = 0;
+    private long m_totalPlanTime = 0;
+    private long m_lastTotalPlanTime = 0;
+
+    private long m_maxQueueTime = 0;
+    private long m_lastMaxQueueTime = 0;
+    private long m_maxPlanTime = 0;
+    private long m_lastMaxPlanTime = 0;
+
+    public AdHocPlannerStats(int plannerThreads, int maxQueueDepth, QueueDepth queueDepth) {
+        super(false);
+        m_plannerThreads = plannerThreads;
+        m_maxQueueDepth = maxQueueDepth;
+        m_queueDepth = queueDepth;
+    }
+
+    public synchronized void submitted() {
+        m_submitted++;
+    }
+
+    public synchronized void rejected() {
+        m_rejected++;
+    }
+
+    /**
+     * Record a work item that was taken off the queue and finished
+     * @param queueTime  nanoseconds spent waiting for a planner thread
+     * @param planTime   nanoseconds spent planning
+     */
+    public synchronized void completed(long queueTime, long planTime) {
+        m_completed++;
+        m_totalQueueTime += queueTime;
+        m_totalPlanTime += planTime;
+        m_maxQueueTime = Math.max(queueTime, m_maxQueueTime);
+        m_lastMaxQueueTime = Math.max(queueTime, m_lastMaxQueueTime);
+        m_maxPlanTime = Math.max(planTime, m_maxPlanTime);
+        m_lastMaxPlanTime = Math.max(planTime, m_lastMaxPlanTime);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(StatName.PLANNER_THREADS.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.QUEUE_DEPTH.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.MAX_QUEUE_DEPTH.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.SUBMITTED.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.REJECTED.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.QUEUE_TIME_AVG.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.QUEUE_TIME_MAX.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.PLAN_TIME_AVG.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.PLAN_TIME_MAX.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        long submitted = m_submitted;
+        long rejected = m_rejected;
+        long completed = m_completed;
+        long totalQueueTime = m_totalQueueTime;
+        long totalPlanTime = m_totalPlanTime;
+        long maxQueueTime = m_maxQueueTime;
+        long maxPlanTime = m_maxPlanTime;
+
+        if (m_interval) {
+            submitted = m_submitted - m_lastSubmitted;
+            m_lastSubmitted = m_submitted;
+
+            rejected = m_rejected - m_lastRejected;
+            m_lastRejected = m_rejected;
+
+            completed = m_completed - m_lastCompleted;
+            m_lastCompleted = m_completed;
+
+            totalQueueTime = m_totalQueueTime - m_lastTotalQueueTime;
+            m_lastTotalQueueTime = m_totalQueueTime;
+
+            totalPlanTime = m_totalPlanTime - m_lastTotalPlanTime;
+            m_lastTotalPlanTime = m_totalPlanTime;
+
+            maxQueueTime = m_lastMaxQueueTime;
+            m_lastMaxQueueTime = 0;
+
+            maxPlanTime = m_lastMaxPlanTime;
+            m_lastMaxPlanTime = 0;
+        }
+
+        rowValues[columnNameToIndex.get(StatName.PLANNER_THREADS.name())] = m_plannerThreads;
+        rowValues[columnNameToIndex.get(StatName.QUEUE_DEPTH.name())] = m_queueDepth.getQueueDepth();
+        rowValues[columnNameToIndex.get(StatName.MAX_QUEUE_DEPTH.name())] = m_maxQueueDepth;
+        rowValues[columnNameToIndex.get(StatName.SUBMITTED.name())] = submitted;
+        rowValues[columnNameToIndex.get(StatName.REJECTED.name())] = rejected;
+        rowValues[columnNameToIndex.get(StatName.QUEUE_TIME_AVG.name())] = completed == 0 ? 0L : totalQueueTime / completed;
+        rowValues[columnNameToIndex.get(StatName.QUEUE_TIME_MAX.name())] = maxQueueTime;
+        rowValues[columnNameToIndex.get(StatName.PLAN_TIME_AVG.name())] = completed == 0 ? 0L : totalPlanTime / completed;
+        rowValues[columnNameToIndex.get(StatName.PLAN_TIME_MAX.name())] = maxPlanTime;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,202 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.voltcore.utils.InstanceId;
+
+/**
+ * Reads the segments written by {@link GroupCommitCommandLog}. A segment ends at the
+ * first entry that is incomplete or fails its checksum, which is where the writer was
+ * when the node stopped.
+ */
+public class CommandLogSegmentReader {
+
+    /**
+     * A logged invocation
+     */
+    public static class Entry {
+        public final long spHandle;
+        public final long txnId;
+        public final long uniqueId;
+        public final boolean isSinglePartition;
+        public final int[] involvedPartitions;
+        public final StoredProcedureInvocation invocation;
+
+        Entry(long spHandle, long txnId, long uniqueId, boolean isSinglePartition,
+              int[] involvedPartitions, StoredProcedureInvocation invocation) {
+            this.spHandle = spHandle;
+            this.txnId = txnId;
+            this.uniqueId = uniqueId;
+            this.isSinglePartition = isSinglePartition;
+            this.involvedPartitions = involvedPartitions;
+            this.invocation = invocation;
+        }
+    }
+
+    private final File m_file;
+    private final ByteBuffer m_buf;
+    private final long m_segmentId;
+    private final InstanceId m_instanceId;
+    private final long m_txnId;
+    private final Map<Integer, Long> m_perPartitionTxnId;
+    private boolean m_done = false;
+
+    /**
+     * @return the segments in the directory, oldest first
+     */
+    public static List<File> listSegments(File dir) {
+        File[] files = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File d, String name) {
+                return name.startsWith(GroupCommitCommandLog.SEGMENT_PREFIX)
+                        && name.endsWith(GroupCommitCommandLog.SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        // segment ids are zero padded so the names sort by id
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    public static long getSegmentId(File segment) {
+        final String name = segment.getName();
+        return Long.parseLong(name.substring(GroupCommitCommandLog.SEGMENT_PREFIX.length(),
+                name.length() - GroupCommitCommandLog.SEGMENT_SUFFIX.length()));
+    }
+
+    public CommandLogSegmentReader(File file) throws IOException {
+        m_file = file;
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            m_buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            fis.close();
+        }
+        try {
+            if (m_buf.getInt() != GroupCommitCommandLog.SEGMENT_MAGIC) {
+                throw new IOException("Not a command log segment: " + file);
+            }
+            final int version = m_buf.getInt();
+            if (version != GroupCommitCommandLog.SEGMENT_VERSION) {
+                throw new IOException("Unsupported version " + version + " of command log segment " + file);
+            }
+            m_segmentId = m_buf.getLong();
+            final int coord = m_buf.getInt();
+            m_instanceId = new InstanceId(coord, m_buf.getLong());
+            m_txnId = m_buf.getLong();
+            final int partitionCount = m_buf.getInt();
+            m_perPartitionTxnId = new HashMap<Integer, Long>();
+            for (int i = 0; i < partitionCount; i++) {
+                final int partition = m_buf.getInt();
+                m_perPartitionTxnId.put(partition, m_buf.getLong());
+            }
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Truncated header in command log segment " + file);
+        }
+    }
+
+    public File getFile() {
+        return m_file;
+    }
+
+    public long getSegmentId() {
+        return m_segmentId;
+    }
+
+    public InstanceId getInstanceId() {
+        return m_instanceId;
+    }
+
+    /**
+     * @return the multi-partition txnId of the truncation snapshot the log started from
+     */
+    public long getTxnId() {
+        return m_txnId;
+    }
+
+    /**
+     * @return the per partition txnIds of the truncation snapshot the log started from
+     */
+    public Map<Integer, Long> getPerPartitionTxnId() {
+        return m_perPartitionTxnId;
+    }
+
+    /**
+     * @return the next entry, or null at the end of the segment
+     */
+    public Entry next() throws IOException {
+        if (m_done || m_buf.remaining() < GroupCommitCommandLog.ENTRY_HEADER_SIZE) {
+            m_done = true;
+            return null;
+        }
+        final int start = m_buf.position();
+        final int length = m_buf.getInt();
+        final int checksum = m_buf.getInt();
+        if (length <= 0 || length > m_buf.remaining()) {
+            m_done = true;
+            return null;
+        }
+        final ByteBuffer payload = m_buf.slice();
+        payload.limit(length);
+        final CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            m_done = true;
+            return null;
+        }
+        m_buf.position(start + GroupCommitCommandLog.ENTRY_HEADER_SIZE + length);
+
+        final byte type = payload.get();
+        if (type != GroupCommitCommandLog.ENTRY_INVOCATION) {
+            throw new IOException("Unknown entry type " + type + " in command log segment " + m_file);
+        }
+        final long spHandle = payload.getLong();
+        final long txnId = payload.getLong();
+        final long uniqueId = payload.getLong();
+        final boolean isSinglePartition = payload.get() != 0;
+        final int involvedCount = payload.getInt();
+        int[] involvedPartitions = null;
+        if (involvedCount >= 0) {
+            involvedPartitions = new int[involvedCount];
+            for (int i = 0; i < involvedCount; i++) {
+                involvedPartitions[i] = payload.getInt();
+            }
+        }
+        final StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+        invocation.initFromBuffer(payload);
+        return new Entry(spHandle, txnId, uniqueId, isSinglePartition, involvedPartitions, invocation);
+    }
+}
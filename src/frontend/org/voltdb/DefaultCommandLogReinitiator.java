@@ -17,18 +17,94 @@
 
 package org.voltdb;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.zookeeper_voltpatches.ZooKeeper;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.messaging.HostMessenger;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.InstanceId;
+import org.voltcore.zk.ZKCountdownLatch;
+import org.voltdb.client.ClientResponse;
 import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.iv2.LeaderCache;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.TxnEgo;
 
 /**
- * The default command log reinitiator for community edition VoltDB.
+ * Replays the segments written by {@link GroupCommitCommandLog}. Without a log
+ * directory, or with an empty one, replay completes immediately.
+ *
+ * Every host reads its own segments. A host replays the single partition transactions
+ * of the partitions it leads, and marks the position of each multi-partition
+ * transaction in those partitions with a sentinel. The host of the MPI replays the
+ * multi-partition transactions once each and then sends the end of log. All hosts
+ * wait for each other before reporting the replay complete.
  */
 public class DefaultCommandLogReinitiator implements CommandLogReinitiator
 {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    // replayed transactions waiting for a response, per kind
+    private static final int MAX_OUTSTANDING_TXNS = 5000;
+
     private Callback m_callback;
 
+    private final int m_hostId;
+    private final HostMessenger m_messenger;
+    private final int m_liveHostCount;
+    private final List<CommandLogSegmentReader> m_segments = new ArrayList<CommandLogSegmentReader>();
+
+    private TransactionCreator m_initiator;
+    private RestoreAgent.SnapshotInfo m_snapshotInfo;
+    private boolean m_isMPINode = false;
+    private final Map<Integer, SimpleClientResponseAdapter> m_adapters =
+            new HashMap<Integer, SimpleClientResponseAdapter>();
+    private final Semaphore m_spPermits = new Semaphore(MAX_OUTSTANDING_TXNS);
+    private final Semaphore m_mpPermits = new Semaphore(MAX_OUTSTANDING_TXNS);
+    private final AtomicLong m_replayedTxns = new AtomicLong();
+    private final AtomicLong m_failedTxns = new AtomicLong();
+
+    public DefaultCommandLogReinitiator()
+    {
+        m_hostId = -1;
+        m_messenger = null;
+        m_liveHostCount = 0;
+    }
+
+    /**
+     * @param hostId       This host
+     * @param messenger    The host messenger, for the replay barrier
+     * @param logPath      The command log directory
+     * @param liveHosts    The hosts that take part in the replay
+     */
+    public DefaultCommandLogReinitiator(int hostId, HostMessenger messenger, String logPath, Set<Integer> liveHosts)
+    {
+        m_hostId = hostId;
+        m_messenger = messenger;
+        m_liveHostCount = liveHosts.size();
+        for (File f : CommandLogSegmentReader.listSegments(new File(logPath))) {
+            try {
+                m_segments.add(new CommandLogSegmentReader(f));
+            } catch (IOException e) {
+                LOG.warn("Skipping unreadable command log segment " + f, e);
+            }
+        }
+        if (!m_segments.isEmpty()) {
+            LOG.info("Found " + m_segments.size() + " command log segments in " + logPath);
+        }
+    }
+
     @Override
     public void setCallback(Callback callback) {
         m_callback = callback;
@@ -39,34 +115,135 @@ public class DefaultCommandLogReinitiator implements CommandLogReinitiator
         new Thread(new Runnable() {
             @Override
             public void run() {
+                if (m_messenger != null) {
+                    try {
+                        replaySegments();
+                    } catch (Exception e) {
+                        VoltDB.crashLocalVoltDB("Command log replay failed", true, e);
+                    }
+                }
                 if (m_callback != null) {
                     m_callback.onReplayCompletion();
                 }
             }
-        }).start();
+        }, "Command Log Replay").start();
+    }
+
+    private void replaySegments() throws Exception {
+        final ZooKeeper zk = m_messenger.getZK();
+        final Set<Integer> ledPartitions = new HashSet<Integer>();
+        final LeaderCache masters = new LeaderCache(zk, VoltZK.iv2masters);
+        masters.start(true);
+        for (Map.Entry<Integer, Long> e : masters.pointInTimeCache().entrySet()) {
+            if (CoreUtils.getHostIdFromHSId(e.getValue()) == m_hostId) {
+                ledPartitions.add(e.getKey());
+            }
+        }
+        masters.shutdown();
+
+        // skip what the restored snapshot already contains
+        final Map<Integer, Long> spTxnIds = m_snapshotInfo != null ?
+                m_snapshotInfo.partitionToTxnId : Collections.<Integer, Long>emptyMap();
+        final long mpTxnId = m_snapshotInfo != null ? m_snapshotInfo.txnId : Long.MIN_VALUE;
+
+        long lastMpTxnId = mpTxnId;
+        for (CommandLogSegmentReader segment : m_segments) {
+            CommandLogSegmentReader.Entry entry;
+            while ((entry = segment.next()) != null) {
+                final int partition = TxnEgo.getPartitionId(entry.spHandle);
+                if (entry.isSinglePartition) {
+                    final Long snapshotTxnId = spTxnIds.get(partition);
+                    if (ledPartitions.contains(partition) &&
+                        (snapshotTxnId == null || entry.spHandle > snapshotTxnId)) {
+                        submit(entry, partition, true, m_spPermits);
+                    }
+                }
+                else if (entry.txnId > mpTxnId) {
+                    if (ledPartitions.contains(partition)) {
+                        m_initiator.sendSentinel(entry.uniqueId, partition);
+                    }
+                    // Multi-partition transactions run one at a time, so all partitions log
+                    // one before any logs the next and the first copy seen is the newest
+                    if (m_isMPINode && entry.txnId > lastMpTxnId) {
+                        lastMpTxnId = entry.txnId;
+                        submit(entry, MpInitiator.MP_INIT_PID, false, m_mpPermits);
+                    }
+                }
+            }
+        }
+
+        if (m_isMPINode) {
+            m_mpPermits.acquire(MAX_OUTSTANDING_TXNS);
+            m_initiator.sendEOLMessage(MpInitiator.MP_INIT_PID);
+        }
+        m_spPermits.acquire(MAX_OUTSTANDING_TXNS);
+        LOG.info("Replayed " + m_replayedTxns.get() + " transactions from the command log, "
+                + m_failedTxns.get() + " of them did not succeed");
+
+        final ZKCountdownLatch barrier = new ZKCountdownLatch(zk, VoltZK.commandlog_replay_barrier, m_liveHostCount);
+        barrier.countDown();
+        barrier.await();
+    }
+
+    private void submit(CommandLogSegmentReader.Entry entry, int partition, boolean isSinglePartition,
+                        final Semaphore permits) throws InterruptedException {
+        permits.acquire();
+        SimpleClientResponseAdapter adapter = m_adapters.get(partition);
+        if (adapter == null) {
+            adapter = new SimpleClientResponseAdapter(ClientInterface.CL_REPLAY_BASE_CID + partition,
+                                                      "CommandLogReplayAdapter" + partition);
+            m_initiator.bindAdapter(adapter);
+            m_adapters.put(partition, adapter);
+        }
+        final StoredProcedureInvocation invocation = entry.invocation;
+        invocation.setClientHandle(adapter.registerCallback(new SimpleClientResponseAdapter.Callback() {
+            @Override
+            public void handleResponse(ClientResponse response) {
+                if (response.getStatus() != ClientResponse.SUCCESS) {
+                    m_failedTxns.incrementAndGet();
+                }
+                permits.release();
+            }
+        }));
+        m_replayedTxns.incrementAndGet();
+        if (!m_initiator.createTransaction(adapter.connectionId(), entry.txnId, entry.uniqueId, invocation,
+                                           false, isSinglePartition, false, partition,
+                                           invocation.getSerializedSize(), System.nanoTime())) {
+            VoltDB.crashLocalVoltDB("Unable to replay " + invocation.getProcName() + " from the command log",
+                                    false, null);
+        }
     }
 
     @Override
     public boolean hasReplayedSegments() {
-        return false;
+        return !m_segments.isEmpty();
     }
 
     @Override
     public Long getMaxLastSeenTxn() {
-        return null;
+        if (m_segments.isEmpty()) {
+            return null;
+        }
+        return m_segments.get(0).getTxnId();
     }
 
     @Override
     public Map<Integer, Long> getMaxLastSeenTxnByPartition() {
-        return null;
+        if (m_segments.isEmpty()) {
+            return null;
+        }
+        return m_segments.get(0).getPerPartitionTxnId();
     }
 
     @Override
     public void setSnapshotTxnId(RestoreAgent.SnapshotInfo info) {
+        m_snapshotInfo = info;
     }
 
     @Override
     public void returnAllSegments() {
+        // the command log deletes the segments when it is initialized
+        m_segments.clear();
     }
 
     @Override
@@ -77,23 +254,28 @@ public class DefaultCommandLogReinitiator implements CommandLogReinitiator
 
     @Override
     public boolean hasReplayedTxns() {
-        return false;
+        return m_replayedTxns.get() > 0;
     }
 
     @Override
     public void generateReplayPlan(long snapshotTimeStamp, long snapshotTxnId,
             int newPartitionCount, boolean isMpiNode) {
+        m_isMPINode = isMpiNode;
     }
 
     @Override
     public void setInitiator(TransactionCreator initiator) {
+        m_initiator = initiator;
     }
 
     @Override
     public InstanceId getInstanceId() {
         // When we don't have a command log, return null to cause the instance ID
         // check to get skipped entirely in RestoreAgent.generatePlans()
-        return null;
+        if (m_segments.isEmpty()) {
+            return null;
+        }
+        return m_segments.get(0).getInstanceId();
     }
 
     @Override
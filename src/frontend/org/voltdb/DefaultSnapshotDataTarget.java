@@ -46,6 +46,7 @@ import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
+import org.voltdb.utils.CompressionCodec;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.PosixAdvise;
 
@@ -55,7 +56,7 @@ import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 import com.google_voltpatches.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google_voltpatches.common.util.concurrent.MoreExecutors;
-import com.google_voltpatches.common.util.concurrent.UnsynchronizedRateLimiter;
+import com.google_voltpatches.common.util.concurrent.RateLimiter;
 
 
 public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
@@ -66,6 +67,11 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     public static volatile boolean m_simulateFullDiskWritingHeader = false;
     public static volatile boolean m_simulateFullDiskWritingChunk = false;
 
+    /*
+     * Codec used to compress chunks, recorded in the header so restore can pick the matching codec
+     */
+    private static final CompressionCodec m_codec = CompressionCodec.fromSystemProperty("SNAPSHOT_COMPRESSION_CODEC");
+
     private final File m_file;
     private final FileChannel m_channel;
     private final FileOutputStream m_fos;
@@ -85,8 +91,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     private volatile IOException m_reportedSerializationFailure = null;
 
     private volatile long m_bytesWritten = 0;
+    private volatile long m_writeNanos = 0;
 
-    private static final Semaphore m_bytesAllowedBeforeSync = new Semaphore((1024 * 1024) * 256);
     private final AtomicInteger m_bytesWrittenSinceLastSync = new AtomicInteger(0);
 
     private final ScheduledFuture<?> m_syncTask;
@@ -105,9 +111,32 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     private final Condition m_noMoreOutstandingWriteTasksCondition =
             m_outstandingWriteTasksLock.newCondition();
 
-    private static final ListeningExecutorService m_es = CoreUtils.getListeningSingleThreadExecutor("Snapshot write service ");
-    static final ListeningScheduledExecutorService m_syncService = MoreExecutors.listeningDecorator(
-            Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Snapshot sync service")));
+    /*
+     * Targets are spread over lanes, each a writer thread and a sync thread with its own
+     * budget of unsynced bytes. A target stays on one lane so its writes are ordered, while
+     * targets on different lanes, and the disks behind them, are written in parallel.
+     */
+    public static final int SNAPSHOT_WRITER_THREADS = Math.max(1, Integer.getInteger("SNAPSHOT_WRITER_THREADS",
+            Math.min(4, CoreUtils.availableProcessors())));
+    static final ListeningExecutorService m_writeLanes[] = new ListeningExecutorService[SNAPSHOT_WRITER_THREADS];
+    static final ListeningScheduledExecutorService m_syncLanes[] =
+            new ListeningScheduledExecutorService[SNAPSHOT_WRITER_THREADS];
+    private static final Semaphore m_bytesAllowedBeforeSync[] = new Semaphore[SNAPSHOT_WRITER_THREADS];
+    private static final int m_laneTargets[] = new int[SNAPSHOT_WRITER_THREADS];
+
+    static {
+        for (int ii = 0; ii < SNAPSHOT_WRITER_THREADS; ii++) {
+            m_writeLanes[ii] = CoreUtils.getListeningSingleThreadExecutor("Snapshot write service " + ii);
+            m_syncLanes[ii] = MoreExecutors.listeningDecorator(
+                    Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Snapshot sync service " + ii)));
+            m_bytesAllowedBeforeSync[ii] = new Semaphore((1024 * 1024) * 256);
+        }
+    }
+
+    private final int m_lane;
+
+    // version of the table files written by current targets
+    static final int NATIVE_FORMAT_VERSION[] = new int[] { 0, 0, 0, 2 };
 
     public static final int SNAPSHOT_SYNC_FREQUENCY = Integer.getInteger("SNAPSHOT_SYNC_FREQUENCY", 500);
     public static final int SNAPSHOT_FADVISE_BYTES = Integer.getInteger("SNAPSHOT_FADVISE_BYTES", 1024 * 1024 * 2);
@@ -130,15 +159,34 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         }
     }
 
-    public static final UnsynchronizedRateLimiter SNAPSHOT_RATELIMITER =
-            UnsynchronizedRateLimiter.create(SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0, 1, TimeUnit.SECONDS);
+    public static final RateLimiter SNAPSHOT_RATELIMITER =
+            RateLimiter.create(SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0, 1, TimeUnit.SECONDS);
 
     public static void enforceSnapshotRateLimit(int permits) {
         if (USE_SNAPSHOT_RATELIMIT) {
+            // the limit is shared by the writers of all lanes
             SNAPSHOT_RATELIMITER.acquire(permits);
         }
     }
 
+    /**
+     * Assign a new target to the lane with the fewest open targets
+     */
+    static synchronized int acquireLane() {
+        int lane = 0;
+        for (int ii = 1; ii < m_laneTargets.length; ii++) {
+            if (m_laneTargets[ii] < m_laneTargets[lane]) {
+                lane = ii;
+            }
+        }
+        m_laneTargets[lane]++;
+        return lane;
+    }
+
+    static synchronized void releaseLane(int lane) {
+        m_laneTargets[lane]--;
+    }
+
     public DefaultSnapshotDataTarget(
             final File file,
             final int hostId,
@@ -163,7 +211,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                 schemaTable,
                 txnId,
                 timestamp,
-                new int[] { 0, 0, 0, 2 });
+                NATIVE_FORMAT_VERSION);
     }
 
     public DefaultSnapshotDataTarget(
@@ -180,77 +228,13 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             final long timestamp,
             int version[]
             ) throws IOException {
-        String hostname = CoreUtils.getHostnameOrAddress();
         m_file = file;
         m_tableName = tableName;
         m_fos = new FileOutputStream(file);
         m_channel = m_fos.getChannel();
         m_needsFinalClose = !isReplicated;
-        final FastSerializer fs = new FastSerializer();
-        fs.writeInt(0);//CRC
-        fs.writeInt(0);//Header length placeholder
-        fs.writeByte(1);//Indicate the snapshot was not completed, set to true for the CRC calculation, false later
-        for (int ii = 0; ii < 4; ii++) {
-            fs.writeInt(version[ii]);//version
-        }
-        JSONStringer stringer = new JSONStringer();
-        byte jsonBytes[] = null;
-        try {
-            stringer.object();
-            stringer.keySymbolValuePair("txnId", txnId);
-            stringer.keySymbolValuePair("hostId", hostId);
-            stringer.keySymbolValuePair("hostname", hostname);
-            stringer.keySymbolValuePair("clusterName", clusterName);
-            stringer.keySymbolValuePair("databaseName", databaseName);
-            stringer.keySymbolValuePair("tableName", tableName.toUpperCase());
-            stringer.keySymbolValuePair("isReplicated", isReplicated);
-            stringer.keySymbolValuePair("isCompressed", true);
-            stringer.keySymbolValuePair("checksumType", "CRC32C");
-            stringer.keySymbolValuePair("timestamp", timestamp);
-            /*
-             * The timestamp string is for human consumption, automated stuff should use
-             * the actual timestamp
-             */
-            stringer.keySymbolValuePair("timestampString", SnapshotUtil.formatHumanReadableDate(timestamp));
-            if (!isReplicated) {
-                stringer.key("partitionIds").array();
-                for (int partitionId : partitionIds) {
-                    stringer.value(partitionId);
-                }
-                stringer.endArray();
-
-                stringer.keySymbolValuePair("numPartitions", numPartitions);
-            }
-            stringer.endObject();
-            String jsonString = stringer.toString();
-            JSONObject jsonObj = new JSONObject(jsonString);
-            jsonString = jsonObj.toString(4);
-            jsonBytes = jsonString.getBytes("UTF-8");
-        } catch (Exception e) {
-            throw new IOException(e);
-        }
-        fs.writeInt(jsonBytes.length);
-        fs.write(jsonBytes);
-
-        final BBContainer container = fs.getBBContainer();
-        container.b().position(4);
-        container.b().putInt(container.b().remaining() - 4);
-        container.b().position(0);
-
-        final byte schemaBytes[];
-        schemaBytes = PrivateVoltTableFactory.getSchemaBytes(schemaTable);
-
-        final PureJavaCrc32 crc = new PureJavaCrc32();
-        ByteBuffer aggregateBuffer = ByteBuffer.allocate(container.b().remaining() + schemaBytes.length);
-        aggregateBuffer.put(container.b());
-        container.discard();
-        aggregateBuffer.put(schemaBytes);
-        aggregateBuffer.flip();
-        crc.update(aggregateBuffer.array(), 4, aggregateBuffer.capacity() - 4);
-
-        final int crcValue = (int) crc.getValue();
-        aggregateBuffer.putInt(crcValue).position(8);
-        aggregateBuffer.put((byte)0).position(0);//Haven't actually finished writing file
+        final ByteBuffer aggregateBuffer = serializeHeader(hostId, clusterName, databaseName, tableName,
+                numPartitions, isReplicated, partitionIds, schemaTable, txnId, timestamp, version);
 
         if (m_simulateFullDiskWritingHeader) {
             m_writeException = new IOException("Disk full");
@@ -263,6 +247,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
          * Be completely sure the write succeeded. If it didn't
          * the disk is probably full or the path is bunk etc.
          */
+        m_lane = acquireLane();
         m_acceptOneWrite = true;
         ListenableFuture<?> writeFuture =
                 write(Callables.returning(DBBPool.wrapBB(aggregateBuffer)), false);
@@ -270,18 +255,21 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             writeFuture.get();
         } catch (InterruptedException e) {
             m_fos.close();
+            releaseLane(m_lane);
             throw new java.io.InterruptedIOException();
         } catch (ExecutionException e) {
             m_fos.close();
+            releaseLane(m_lane);
             throw m_writeException;
         }
         if (m_writeFailed) {
             m_fos.close();
+            releaseLane(m_lane);
             throw m_writeException;
         }
 
         ScheduledFuture<?> syncTask = null;
-        syncTask = m_syncService.scheduleAtFixedRate(new Runnable() {
+        syncTask = m_syncLanes[m_lane].scheduleAtFixedRate(new Runnable() {
             private long fadvisedBytes = 0;
             private long syncedBytes = 0;
             @Override
@@ -302,7 +290,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             SNAP_LOG.debug("Asynchronous close syncing snasphot data, presumably graceful", e);
                         }
                     }
-                    m_bytesAllowedBeforeSync.release(bytesSinceLastSync);
+                    m_bytesAllowedBeforeSync[m_lane].release(bytesSinceLastSync);
 
                     /*
                      * Don't pollute the page cache with snapshot data, use fadvise
@@ -336,6 +324,134 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         m_syncTask = syncTask;
     }
 
+    /**
+     * Serialize the file header, with the completed flag cleared, for a table file of the native format
+     */
+    static ByteBuffer serializeHeader(
+            final int hostId,
+            final String clusterName,
+            final String databaseName,
+            final String tableName,
+            final int numPartitions,
+            final boolean isReplicated,
+            final List<Integer> partitionIds,
+            final VoltTable schemaTable,
+            final long txnId,
+            final long timestamp,
+            int version[]) throws IOException {
+        String hostname = CoreUtils.getHostnameOrAddress();
+        final FastSerializer fs = new FastSerializer();
+        fs.writeInt(0);//CRC
+        fs.writeInt(0);//Header length placeholder
+        fs.writeByte(1);//Indicate the snapshot was not completed, set to true for the CRC calculation, false later
+        for (int ii = 0; ii < 4; ii++) {
+            fs.writeInt(version[ii]);//version
+        }
+        JSONStringer stringer = new JSONStringer();
+        byte jsonBytes[] = null;
+        try {
+            stringer.object();
+            stringer.keySymbolValuePair("txnId", txnId);
+            stringer.keySymbolValuePair("hostId", hostId);
+            stringer.keySymbolValuePair("hostname", hostname);
+            stringer.keySymbolValuePair("clusterName", clusterName);
+            stringer.keySymbolValuePair("databaseName", databaseName);
+            stringer.keySymbolValuePair("tableName", tableName.toUpperCase());
+            stringer.keySymbolValuePair("isReplicated", isReplicated);
+            stringer.keySymbolValuePair("isCompressed", true);
+            stringer.keySymbolValuePair("checksumType", "CRC32C");
+            stringer.keySymbolValuePair("compressionCodec", m_codec.name());
+            stringer.keySymbolValuePair("timestamp", timestamp);
+            /*
+             * The timestamp string is for human consumption, automated stuff should use
+             * the actual timestamp
+             */
+            stringer.keySymbolValuePair("timestampString", SnapshotUtil.formatHumanReadableDate(timestamp));
+            if (!isReplicated) {
+                stringer.key("partitionIds").array();
+                for (int partitionId : partitionIds) {
+                    stringer.value(partitionId);
+                }
+                stringer.endArray();
+
+                stringer.keySymbolValuePair("numPartitions", numPartitions);
+            }
+            stringer.endObject();
+            String jsonString = stringer.toString();
+            JSONObject jsonObj = new JSONObject(jsonString);
+            jsonString = jsonObj.toString(4);
+            jsonBytes = jsonString.getBytes("UTF-8");
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        fs.writeInt(jsonBytes.length);
+        fs.write(jsonBytes);
+
+        final BBContainer container = fs.getBBContainer();
+        container.b().position(4);
+        container.b().putInt(container.b().remaining() - 4);
+        container.b().position(0);
+
+        final byte schemaBytes[];
+        schemaBytes = PrivateVoltTableFactory.getSchemaBytes(schemaTable);
+
+        final PureJavaCrc32 crc = new PureJavaCrc32();
+        final ByteBuffer aggregateBuffer = ByteBuffer.allocate(container.b().remaining() + schemaBytes.length);
+        aggregateBuffer.put(container.b());
+        container.discard();
+        aggregateBuffer.put(schemaBytes);
+        aggregateBuffer.flip();
+        crc.update(aggregateBuffer.array(), 4, aggregateBuffer.capacity() - 4);
+
+        final int crcValue = (int) crc.getValue();
+        aggregateBuffer.putInt(crcValue).position(8);
+        aggregateBuffer.put((byte)0).position(0);//Haven't actually finished writing file
+        return aggregateBuffer;
+    }
+
+    /**
+     * Start compressing a block of tuple data, which begins with its partition id, into a
+     * pooled buffer that leaves room for the chunk header
+     */
+    static Future<BBContainer> compressChunk(ByteBuffer tupleData) {
+        BBContainer cont =
+                DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferCompressedLen);
+        //Skip 4-bytes so the partition ID is not compressed
+        //That way if we detect a corruption we know what partition is bad
+        tupleData.position(tupleData.position() + 4);
+        /*
+         * Leave 12 bytes, it's going to be a 4-byte length prefix, a 4-byte partition id,
+         * and a 4-byte CRC32C of just the header bytes, in addition to the compressed payload CRC
+         * that is 16 bytes, but 4 of those are done by CompressionService
+         */
+        cont.b().position(12);
+        return CompressionService.compressAndCRC32cBufferAsync(tupleData, cont, m_codec);
+    }
+
+    /**
+     * Fill in the header of a chunk compressed by {@link #compressChunk(ByteBuffer)} and
+     * leave the chunk ready to be written from position 0
+     */
+    static void putChunkHeader(ByteBuffer payloadBuffer, int partitionId) {
+        payloadBuffer.position(0);
+
+        ByteBuffer lengthPrefix = ByteBuffer.allocate(12);
+        //Length prefix does not include 4 header items, just compressd payload
+        //that follows
+        lengthPrefix.putInt(payloadBuffer.remaining() - 16);//length prefix
+        lengthPrefix.putInt(partitionId);
+
+        /*
+         * Checksum the header and put it in the payload buffer
+         */
+        PureJavaCrc32C crc = new PureJavaCrc32C();
+        crc.update(lengthPrefix.array(), 0, 8);
+        lengthPrefix.putInt((int)crc.getValue());
+        lengthPrefix.flip();
+        payloadBuffer.put(lengthPrefix);
+        payloadBuffer.position(0);
+    }
+
     @Override
     public void reportSerializationFailure(IOException ex) {
         m_reportedSerializationFailure = ex;
@@ -349,6 +465,21 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
     @Override
     public void close() throws IOException, InterruptedException {
+        try {
+            closeFile();
+        } finally {
+            releaseLane(m_lane);
+        }
+        if (m_onCloseHandler != null) {
+            m_onCloseHandler.run();
+        }
+        if (m_reportedSerializationFailure != null) {
+            // There was an error reported by the EE during serialization
+            throw m_reportedSerializationFailure;
+        }
+    }
+
+    private void closeFile() throws IOException, InterruptedException {
         try {
             m_outstandingWriteTasksLock.lock();
             try {
@@ -359,7 +490,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                 m_outstandingWriteTasksLock.unlock();
             }
             m_syncTask.cancel(false);
-            ListenableFuture<?> task = m_syncService.submit(new Runnable() {
+            ListenableFuture<?> task = m_syncLanes[m_lane].submit(new Runnable() {
                 @Override
                 public void run() {
                     // Empty task to wait on 'cancel' above, since m_syncTask.get()
@@ -373,7 +504,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             }
             m_channel.force(false);
         } finally {
-            m_bytesAllowedBeforeSync.release(m_bytesWrittenSinceLastSync.getAndSet(0));
+            m_bytesAllowedBeforeSync[m_lane].release(m_bytesWrittenSinceLastSync.getAndSet(0));
         }
         m_channel.position(8);
         ByteBuffer completed = ByteBuffer.allocate(1);
@@ -385,13 +516,6 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         m_channel.write(completed);
         m_channel.force(false);
         m_channel.close();
-        if (m_onCloseHandler != null) {
-            m_onCloseHandler.run();
-        }
-        if (m_reportedSerializationFailure != null) {
-            // There was an error reported by the EE during serialization
-            throw m_reportedSerializationFailure;
-        }
     }
 
     @Override
@@ -434,22 +558,11 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
         Future<BBContainer> compressionTask = null;
         if (prependLength) {
-            BBContainer cont =
-                    DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferCompressedLen);
-            //Skip 4-bytes so the partition ID is not compressed
-            //That way if we detect a corruption we know what partition is bad
-            tupleData.position(tupleData.position() + 4);
-            /*
-             * Leave 12 bytes, it's going to be a 4-byte length prefix, a 4-byte partition id,
-             * and a 4-byte CRC32C of just the header bytes, in addition to the compressed payload CRC
-             * that is 16 bytes, but 4 of those are done by CompressionService
-             */
-            cont.b().position(12);
-            compressionTask = CompressionService.compressAndCRC32cBufferAsync(tupleData, cont);
+            compressionTask = compressChunk(tupleData);
         }
         final Future<BBContainer> compressionTaskFinal = compressionTask;
 
-        ListenableFuture<?> writeTask = m_es.submit(new Callable<Object>() {
+        ListenableFuture<?> writeTask = m_writeLanes[m_lane].submit(new Callable<Object>() {
             @Override
             public Object call() throws Exception {
                 try {
@@ -468,34 +581,20 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
                     final ByteBuffer tupleData = tupleDataCont.b();
                     int totalWritten = 0;
+                    long writeStart;
                     if (prependLength) {
                         BBContainer payloadContainer = compressionTaskFinal.get();
                         try {
                             final ByteBuffer payloadBuffer = payloadContainer.b();
-                            payloadBuffer.position(0);
-
-                            ByteBuffer lengthPrefix = ByteBuffer.allocate(12);
-                            m_bytesAllowedBeforeSync.acquire(payloadBuffer.remaining());
-                            //Length prefix does not include 4 header items, just compressd payload
-                            //that follows
-                            lengthPrefix.putInt(payloadBuffer.remaining() - 16);//length prefix
-                            lengthPrefix.putInt(tupleData.getInt(0)); // partitionId
-
-                            /*
-                             * Checksum the header and put it in the payload buffer
-                             */
-                            PureJavaCrc32C crc = new PureJavaCrc32C();
-                            crc.update(lengthPrefix.array(), 0, 8);
-                            lengthPrefix.putInt((int)crc.getValue());
-                            lengthPrefix.flip();
-                            payloadBuffer.put(lengthPrefix);
-                            payloadBuffer.position(0);
+                            putChunkHeader(payloadBuffer, tupleData.getInt(0));
+                            m_bytesAllowedBeforeSync[m_lane].acquire(payloadBuffer.remaining());
 
                             enforceSnapshotRateLimit(payloadBuffer.remaining());
 
                             /*
                              * Write payload to file
                              */
+                            writeStart = System.nanoTime();
                             while (payloadBuffer.hasRemaining()) {
                                 totalWritten += m_channel.write(payloadBuffer);
                             }
@@ -503,10 +602,12 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             payloadContainer.discard();
                         }
                     } else {
+                        writeStart = System.nanoTime();
                         while (tupleData.hasRemaining()) {
                             totalWritten += m_channel.write(tupleData);
                         }
                     }
+                    m_writeNanos += System.nanoTime() - writeStart;
                     m_bytesWritten += totalWritten;
                     m_bytesWrittenSinceLastSync.addAndGet(totalWritten);
                 } catch (IOException e) {
@@ -544,6 +645,11 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         return m_bytesWritten;
     }
 
+    @Override
+    public long getWriteTimeNanos() {
+        return m_writeNanos;
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseHandler = onClose;
@@ -575,15 +681,10 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     }
 
     public static void setRate(final Integer megabytesPerSecond) {
-        m_es.execute(new Runnable() {
-            @Override
-            public void run() {
-                if (megabytesPerSecond == null) {
-                    SNAPSHOT_RATELIMITER.setRate(SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0);
-                } else {
-                    SNAPSHOT_RATELIMITER.setRate(megabytesPerSecond * 1024.0 * 1024.0);
-                }
-            }
-        });
+        if (megabytesPerSecond == null) {
+            SNAPSHOT_RATELIMITER.setRate(SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0);
+        } else {
+            SNAPSHOT_RATELIMITER.setRate(megabytesPerSecond * 1024.0 * 1024.0);
+        }
     }
 }
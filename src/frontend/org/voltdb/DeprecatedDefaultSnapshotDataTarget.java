@@ -379,6 +379,11 @@ public class DeprecatedDefaultSnapshotDataTarget implements SnapshotDataTarget {
         return m_bytesWritten;
     }
 
+    @Override
+    public long getWriteTimeNanos() {
+        return 0;
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseHandler = onClose;
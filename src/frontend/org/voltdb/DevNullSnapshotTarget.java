@@ -77,6 +77,11 @@ public class DevNullSnapshotTarget implements SnapshotDataTarget {
         return 0;
     }
 
+    @Override
+    public long getWriteTimeNanos() {
+        return 0;
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onClose = onClose;
@@ -0,0 +1,462 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.Bits;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.CLibrary;
+import org.voltdb.utils.PosixAdvise;
+
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+/**
+ * Writes the same table files as {@link DefaultSnapshotDataTarget} without going through the
+ * page cache, so a snapshot doesn't evict the working set of the processes sharing the host
+ * or leave gigabytes of dirty pages to be synced at the end.
+ *
+ * The file is opened with O_DIRECT and preallocated ahead of the writes. Chunks are packed
+ * into an aligned staging buffer owned by the writer lane and written out in whole blocks,
+ * and the target only keeps the partial block at its end between writes. Completed blocks are
+ * flushed to the device incrementally. If the file system refuses O_DIRECT the file is written
+ * through the page cache instead, with sync_file_range and fadvise keeping it from piling up.
+ */
+public class DirectIOSnapshotDataTarget implements SnapshotDataTarget {
+    private static final VoltLogger SNAP_LOG = new VoltLogger("SNAPSHOT");
+
+    /*
+     * Only on Linux, where the posix hooks are known, and on architectures where the O_DIRECT flag value is known
+     */
+    public static final boolean SNAPSHOT_DIRECT_IO =
+            PosixAdvise.SYNC_FILE_RANGE_SUPPORTED && Boolean.getBoolean("SNAPSHOT_DIRECT_IO") &&
+            CLibrary.DirectIO.O_DIRECT != 0;
+    public static final long SNAPSHOT_PREALLOCATE_BYTES =
+            Long.getLong("SNAPSHOT_PREALLOCATE_BYTES", 1024 * 1024 * 64);
+    public static final long SNAPSHOT_FLUSH_BYTES = Long.getLong("SNAPSHOT_FLUSH_BYTES", 1024 * 1024 * 32);
+
+    private static final int EINVAL = 22;
+
+    // O_DIRECT wants offsets, lengths and memory aligned to the logical block size, a page covers it
+    private static final int ALIGNMENT = Bits.pageSize();
+    private static final int STAGING_BYTES =
+            ((SnapshotSiteProcessor.m_snapshotBufferCompressedLen / ALIGNMENT) + 2) * ALIGNMENT;
+
+    /**
+     * Direct memory starting on an aligned address
+     */
+    private static class AlignedBuffer {
+        final ByteBuffer m_buf;
+        final long m_address;
+
+        AlignedBuffer(int size) {
+            ByteBuffer raw = ByteBuffer.allocateDirect(size + ALIGNMENT);
+            long address = Pointer.nativeValue(Native.getDirectBufferPointer(raw));
+            int offset = (int) ((ALIGNMENT - (address % ALIGNMENT)) % ALIGNMENT);
+            raw.position(offset);
+            raw.limit(offset + size);
+            m_buf = raw.slice();
+            m_address = address + offset;
+        }
+    }
+
+    // one per writer lane thread
+    private static final ThreadLocal<AlignedBuffer> m_staging = new ThreadLocal<AlignedBuffer>() {
+        @Override
+        protected AlignedBuffer initialValue() {
+            return new AlignedBuffer(STAGING_BYTES);
+        }
+    };
+
+    private final File m_file;
+    private final boolean m_needsFinalClose;
+    private final int m_fd;
+    private final boolean m_direct;
+    private final int m_lane;
+
+    /*
+     * Only touched by the lane thread once the header is written
+     */
+    private final ByteBuffer m_tail = ByteBuffer.allocate(ALIGNMENT);
+    private long m_fileOffset = 0;
+    private long m_allocated = 0;
+    private boolean m_preallocate = PosixAdvise.FALLOCATE_SUPPORTED;
+    private long m_flushedOffset = 0;
+    private long m_fileSize = 0;
+
+    private volatile long m_bytesWritten = 0;
+    private volatile long m_writeNanos = 0;
+    private volatile boolean m_writeFailed = false;
+    private volatile IOException m_writeException = null;
+    private volatile IOException m_reportedSerializationFailure = null;
+    private Runnable m_onCloseHandler = null;
+
+    public DirectIOSnapshotDataTarget(
+            final File file,
+            final int hostId,
+            final String clusterName,
+            final String databaseName,
+            final String tableName,
+            final int numPartitions,
+            final boolean isReplicated,
+            final List<Integer> partitionIds,
+            final VoltTable schemaTable,
+            final long txnId,
+            final long timestamp) throws IOException {
+        m_file = file;
+        m_needsFinalClose = !isReplicated;
+        final ByteBuffer header = DefaultSnapshotDataTarget.serializeHeader(hostId, clusterName, databaseName,
+                tableName, numPartitions, isReplicated, partitionIds, schemaTable, txnId, timestamp,
+                DefaultSnapshotDataTarget.NATIVE_FORMAT_VERSION);
+
+        final int flags = CLibrary.DirectIO.O_WRONLY | CLibrary.DirectIO.O_CREAT | CLibrary.DirectIO.O_TRUNC;
+        int fd;
+        boolean direct = true;
+        try {
+            fd = CLibrary.DirectIO.open(file.getPath(), flags | CLibrary.DirectIO.O_DIRECT, 0644);
+        } catch (LastErrorException e) {
+            if (e.getErrorCode() != EINVAL) {
+                throw new IOException("Unable to open snapshot file " + file + ", errno " + e.getErrorCode());
+            }
+            SNAP_LOG.warn("The file system of " + file + " doesn't support O_DIRECT, writing it through the page cache");
+            direct = false;
+            try {
+                fd = CLibrary.DirectIO.open(file.getPath(), flags, 0644);
+            } catch (LastErrorException e2) {
+                throw new IOException("Unable to open snapshot file " + file + ", errno " + e2.getErrorCode());
+            }
+        }
+        m_fd = fd;
+        m_direct = direct;
+
+        /*
+         * Be completely sure the write succeeded. If it didn't
+         * the disk is probably full or the path is bunk etc.
+         */
+        m_lane = DefaultSnapshotDataTarget.acquireLane();
+        final int headerSize = header.remaining();
+        Future<?> headerWrite = DefaultSnapshotDataTarget.m_writeLanes[m_lane].submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                append(header);
+                m_bytesWritten += headerSize;
+                return null;
+            }
+        });
+        try {
+            headerWrite.get();
+        } catch (InterruptedException e) {
+            closeAfterFailure();
+            throw new java.io.InterruptedIOException();
+        } catch (ExecutionException e) {
+            closeAfterFailure();
+            throw asIOException(e.getCause());
+        }
+    }
+
+    private void closeAfterFailure() {
+        try {
+            CLibrary.DirectIO.close(m_fd);
+        } catch (LastErrorException ignore) {}
+        DefaultSnapshotDataTarget.releaseLane(m_lane);
+    }
+
+    private IOException asIOException(Throwable t) {
+        if (t instanceof IOException) {
+            return (IOException) t;
+        } else if (t instanceof LastErrorException) {
+            return new IOException("Error writing snapshot file " + m_file + ", errno "
+                    + ((LastErrorException) t).getErrorCode());
+        }
+        return new IOException(t);
+    }
+
+    /**
+     * Add data after what has been written so far, writing out every block it completes
+     */
+    private void append(ByteBuffer data) throws IOException {
+        final AlignedBuffer staging = m_staging.get();
+        final ByteBuffer buf = staging.m_buf;
+        buf.clear();
+        m_tail.flip();
+        buf.put(m_tail);
+        m_tail.clear();
+        while (true) {
+            final int length = Math.min(data.remaining(), buf.remaining());
+            final ByteBuffer part = data.duplicate();
+            part.limit(part.position() + length);
+            buf.put(part);
+            data.position(data.position() + length);
+            if (!data.hasRemaining()) {
+                break;
+            }
+            // the staging buffer is a whole number of blocks
+            writeBlocks(staging, buf.position());
+            buf.clear();
+        }
+        final int whole = buf.position() - (buf.position() % ALIGNMENT);
+        if (whole > 0) {
+            writeBlocks(staging, whole);
+        }
+        buf.limit(buf.position());
+        buf.position(whole);
+        m_tail.put(buf);
+    }
+
+    private void writeBlocks(AlignedBuffer staging, int length) throws IOException {
+        preallocate(m_fileOffset + length);
+        long written = 0;
+        while (written < length) {
+            written += CLibrary.DirectIO.pwrite(m_fd, new Pointer(staging.m_address + written),
+                    length - written, m_fileOffset + written);
+        }
+        m_fileOffset += length;
+        if (m_fileOffset - m_flushedOffset >= SNAPSHOT_FLUSH_BYTES) {
+            flush();
+        }
+    }
+
+    /**
+     * Reserve the space ahead of the writes so the file system doesn't allocate it block by block
+     */
+    private void preallocate(long end) {
+        if (!m_preallocate || end <= m_allocated) {
+            return;
+        }
+        final long size = Math.max(end - m_allocated, SNAPSHOT_PREALLOCATE_BYTES);
+        final long retval = PosixAdvise.fallocate(m_fd, m_allocated, size);
+        if (retval != 0) {
+            SNAP_LOG.warn("Unable to preallocate snapshot file " + m_file + ": " + retval);
+            m_preallocate = false;
+        } else {
+            m_allocated += size;
+        }
+    }
+
+    /**
+     * Push what was written since the last flush to the device. With O_DIRECT the data is past
+     * the page cache already and only the device cache is left, otherwise start writeback of the
+     * range, wait for it and drop it from the page cache.
+     */
+    private void flush() throws IOException {
+        final long length = m_fileOffset - m_flushedOffset;
+        if (m_direct) {
+            CLibrary.DirectIO.fdatasync(m_fd);
+        } else {
+            long retval = PosixAdvise.sync_file_range(m_fd, m_flushedOffset, length,
+                    PosixAdvise.SYNC_FILE_RANGE_SYNC);
+            if (retval != 0) {
+                throw new IOException("Error sync_file_range snapshot file " + m_file + ": " + retval);
+            }
+            retval = PosixAdvise.fadvise(m_fd, m_flushedOffset, length, PosixAdvise.POSIX_FADV_DONTNEED);
+            if (retval != 0) {
+                SNAP_LOG.error("Error fadvising snapshot file " + m_file + ": " + retval);
+            }
+        }
+        m_flushedOffset = m_fileOffset;
+    }
+
+    @Override
+    public int getHeaderSize() {
+        return 0;
+    }
+
+    @Override
+    public ListenableFuture<?> write(final Callable<BBContainer> tupleDataC, int tableId) {
+        final BBContainer tupleDataCont;
+        try {
+            tupleDataCont = tupleDataC.call();
+            /*
+             * Can be null if the dedupe filter nulled out the buffer
+             */
+            if (tupleDataCont == null) {
+                return Futures.immediateFuture(null);
+            }
+        } catch (Throwable t) {
+            return Futures.immediateFailedFuture(t);
+        }
+        if (m_writeFailed) {
+            tupleDataCont.discard();
+            return Futures.immediateFuture(null);
+        }
+
+        final ByteBuffer tupleData = tupleDataCont.b();
+        final Future<BBContainer> compressionTask = DefaultSnapshotDataTarget.compressChunk(tupleData);
+        return DefaultSnapshotDataTarget.m_writeLanes[m_lane].submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                try {
+                    final BBContainer payloadContainer = compressionTask.get();
+                    try {
+                        if (m_writeFailed) {
+                            return null;
+                        }
+                        final ByteBuffer payloadBuffer = payloadContainer.b();
+                        DefaultSnapshotDataTarget.putChunkHeader(payloadBuffer, tupleData.getInt(0));
+                        final int size = payloadBuffer.remaining();
+                        DefaultSnapshotDataTarget.enforceSnapshotRateLimit(size);
+
+                        final long writeStart = System.nanoTime();
+                        append(payloadBuffer);
+                        m_writeNanos += System.nanoTime() - writeStart;
+                        m_bytesWritten += size;
+                    } finally {
+                        payloadContainer.discard();
+                    }
+                } catch (Exception e) {
+                    IOException ioe = asIOException(e);
+                    m_writeException = ioe;
+                    SNAP_LOG.error("Error while attempting to write snapshot data to file " + m_file, ioe);
+                    m_writeFailed = true;
+                    throw ioe;
+                } finally {
+                    tupleDataCont.discard();
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void reportSerializationFailure(IOException ex) {
+        m_reportedSerializationFailure = ex;
+    }
+
+    @Override
+    public boolean needsFinalClose() {
+        return m_needsFinalClose;
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        // queued behind every write of this target
+        Future<?> finish = DefaultSnapshotDataTarget.m_writeLanes[m_lane].submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                finishFile();
+                return null;
+            }
+        });
+        try {
+            finish.get();
+        } catch (ExecutionException e) {
+            if (m_writeException == null) {
+                m_writeException = asIOException(e.getCause());
+                m_writeFailed = true;
+            }
+            throw m_writeException;
+        } finally {
+            DefaultSnapshotDataTarget.releaseLane(m_lane);
+        }
+
+        // drop the padding and preallocated space, then mark the file complete
+        RandomAccessFile raf = new RandomAccessFile(m_file, "rw");
+        try {
+            raf.setLength(m_fileSize);
+            raf.seek(8);
+            raf.writeByte(m_writeFailed || m_reportedSerializationFailure != null ? 0 : 1);
+            raf.getChannel().force(false);
+        } finally {
+            raf.close();
+        }
+        if (m_onCloseHandler != null) {
+            m_onCloseHandler.run();
+        }
+        if (m_reportedSerializationFailure != null) {
+            // There was an error reported by the EE during serialization
+            throw m_reportedSerializationFailure;
+        }
+    }
+
+    /**
+     * Write the partial block at the end padded to a whole one and make everything durable
+     */
+    private void finishFile() throws IOException {
+        try {
+            m_fileSize = m_fileOffset + m_tail.position();
+            if (!m_writeFailed && m_tail.position() > 0) {
+                final AlignedBuffer staging = m_staging.get();
+                final ByteBuffer buf = staging.m_buf;
+                buf.clear();
+                m_tail.flip();
+                buf.put(m_tail);
+                m_tail.clear();
+                while (buf.position() < ALIGNMENT) {
+                    buf.put((byte) 0);
+                }
+                writeBlocks(staging, ALIGNMENT);
+            }
+            CLibrary.DirectIO.fdatasync(m_fd);
+        } catch (LastErrorException e) {
+            throw asIOException(e);
+        } finally {
+            try {
+                CLibrary.DirectIO.close(m_fd);
+            } catch (LastErrorException e) {
+                SNAP_LOG.warn("Error closing snapshot file " + m_file + ", errno " + e.getErrorCode());
+            }
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return m_bytesWritten;
+    }
+
+    @Override
+    public long getWriteTimeNanos() {
+        return m_writeNanos;
+    }
+
+    @Override
+    public void setOnCloseHandler(Runnable onClose) {
+        m_onCloseHandler = onClose;
+    }
+
+    @Override
+    public IOException getLastWriteException() {
+        return m_writeException;
+    }
+
+    @Override
+    public SnapshotFormat getFormat() {
+        return SnapshotFormat.NATIVE;
+    }
+
+    @Override
+    public int getInContainerRowCount(BBContainer tupleData) {
+        return SnapshotDataTarget.ROW_COUNT_UNSUPPORTED;
+    }
+
+    @Override
+    public String toString() {
+        return m_file.toString();
+    }
+}
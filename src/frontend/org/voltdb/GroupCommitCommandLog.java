@@ -0,0 +1,610 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.CRC32;
+
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.messaging.HostMessenger;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
+/**
+ * A file backed command log that group commits the transactions logged by all the
+ * sites of the host. Sites hand their invocations to {@link #log} and a single writer
+ * thread appends everything logged during a fsync interval (or until the configured
+ * number of transactions is reached) to the current segment with one gathering write
+ * and one fsync, then tells each site's durability listener which transactions became
+ * durable.
+ *
+ * With synchronous logging the sites hold their transactions until they are durable.
+ * With asynchronous logging they execute immediately and only block on the returned
+ * future when more than {@link #MAX_OUTSTANDING_BYTES} are waiting to be written.
+ *
+ * The log is a series of segments. A truncation snapshot is requested when the
+ * retained segments exceed the configured log size, and segments that only contain
+ * transactions covered by a completed truncation snapshot are deleted. The segments
+ * are replayed by {@link DefaultCommandLogReinitiator}.
+ */
+public class GroupCommitCommandLog implements CommandLog, SnapshotCompletionInterest {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    // segment file format, read back by CommandLogSegmentReader
+    static final int SEGMENT_MAGIC = 0x56434C47;
+    static final int SEGMENT_VERSION = 1;
+    static final String SEGMENT_PREFIX = "commandlog_";
+    static final String SEGMENT_SUFFIX = ".log";
+    static final byte ENTRY_INVOCATION = 1;
+    // length and checksum of the payload
+    static final int ENTRY_HEADER_SIZE = 8;
+
+    // async logging blocks the sites when this much is waiting to be written
+    static final long MAX_OUTSTANDING_BYTES = Long.getLong("COMMANDLOG_MAX_OUTSTANDING_BYTES", 128 * 1024 * 1024);
+    static final long MAX_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    private static final ListenableFuture<Object> NO_BACKPRESSURE = Futures.immediateFuture(null);
+
+    private final boolean m_synchronous;
+    private final int m_fsyncInterval;
+    private final int m_maxTxns;
+    private final File m_logDir;
+    private final File m_snapshotDir;
+
+    // Everything below is guarded by m_lock. The sites add to the pending batch and the
+    // writer thread swaps it out, starting new completion checks for every listener
+    // under the same lock so a transaction is never split from its batch.
+    private final Object m_lock = new Object();
+    private final List<DurabilityListener> m_listeners = new ArrayList<DurabilityListener>();
+    private ArrayList<ByteBuffer> m_pendingEntries = new ArrayList<ByteBuffer>();
+    private long m_pendingBytes = 0;
+    private int m_pendingTxns = 0;
+    private long m_writingBytes = 0;
+    private int m_writingTxns = 0;
+    private ArrayList<SettableFuture<Boolean>> m_pendingFaultFutures = new ArrayList<SettableFuture<Boolean>>();
+    private SettableFuture<Object> m_backpressureFuture = null;
+    private boolean m_initialized = false;
+    private boolean m_shutdown = false;
+
+    // Owned by the writer thread, except that the segment list is shared with truncation
+    private final ArrayDeque<Segment> m_segments = new ArrayDeque<Segment>();
+    private volatile Segment m_currentSegment = null;
+    private long m_nextSegmentId = 0;
+    private long m_segmentBytes = MAX_SEGMENT_BYTES;
+    private long m_logBytes = 0;
+    private InstanceId m_instanceId = null;
+    private long m_truncationTxnId = Long.MIN_VALUE;
+    private Map<Integer, Long> m_truncationTxnIds = new HashMap<Integer, Long>();
+    private volatile boolean m_truncationRequested = false;
+
+    private final Thread m_writer;
+
+    /**
+     * A segment file and the newest transactions it contains, used to decide when a
+     * truncation snapshot has made it obsolete
+     */
+    private static class Segment {
+        final long m_id;
+        final File m_file;
+        FileChannel m_channel;
+        long m_size = 0;
+        final Map<Integer, Long> m_maxSpHandles = new HashMap<Integer, Long>();
+        long m_maxMpTxnId = Long.MIN_VALUE;
+
+        Segment(long id, File file, FileChannel channel) {
+            m_id = id;
+            m_file = file;
+            m_channel = channel;
+        }
+    }
+
+    public GroupCommitCommandLog(boolean synchronous, int fsyncInterval, int maxTxns,
+                                 String logPath, String snapshotPath) {
+        m_synchronous = synchronous;
+        m_fsyncInterval = Math.max(1, fsyncInterval);
+        m_maxTxns = Math.max(1, maxTxns);
+        m_logDir = new File(logPath);
+        m_snapshotDir = new File(snapshotPath);
+        m_writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "Command Log Writer");
+        m_writer.setDaemon(true);
+        m_writer.start();
+    }
+
+    @Override
+    public void init(int logSize, long txnId, int partitionCount, String coreBinding,
+                     Map<Integer, Long> perPartitionTxnId) {
+        initForRejoin(logSize, txnId, partitionCount, false, coreBinding, perPartitionTxnId);
+    }
+
+    @Override
+    public void initForRejoin(int logSize, long txnId, int partitionCount, boolean isRejoin,
+                              String coreBinding, Map<Integer, Long> perPartitionTxnId) {
+        final VoltDBInterface instance = VoltDB.instance();
+        final HostMessenger messenger = instance.getHostMessenger();
+        synchronized (m_lock) {
+            if (m_initialized) {
+                return;
+            }
+            m_logBytes = logSize * 1024L * 1024L;
+            m_segmentBytes = Math.max(1024 * 1024, Math.min(MAX_SEGMENT_BYTES, m_logBytes / 4));
+            m_instanceId = messenger != null ? messenger.getInstanceId() : new InstanceId(0, 0);
+            m_truncationTxnId = txnId;
+            if (perPartitionTxnId != null) {
+                m_truncationTxnIds = new HashMap<Integer, Long>(perPartitionTxnId);
+            }
+            try {
+                // The restore that precedes initialization replayed and truncated anything
+                // left by the previous run, so those segments are obsolete
+                if (!m_logDir.exists() && !m_logDir.mkdirs()) {
+                    throw new IOException("Unable to create command log directory " + m_logDir);
+                }
+                if (!m_snapshotDir.exists() && !m_snapshotDir.mkdirs()) {
+                    throw new IOException("Unable to create command log snapshot directory " + m_snapshotDir);
+                }
+                for (File f : CommandLogSegmentReader.listSegments(m_logDir)) {
+                    m_nextSegmentId = Math.max(m_nextSegmentId, CommandLogSegmentReader.getSegmentId(f) + 1);
+                    if (!f.delete()) {
+                        throw new IOException("Unable to delete obsolete command log segment " + f);
+                    }
+                }
+                openSegment();
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to initialize the command log in " + m_logDir, true, e);
+            }
+            m_initialized = true;
+        }
+        if (instance.getSnapshotCompletionMonitor() != null) {
+            instance.getSnapshotCompletionMonitor().addInterest(this);
+        }
+        LOG.info("Command logging to " + m_logDir + " with " + (m_synchronous ? "synchronous" : "asynchronous")
+                + " group commits every " + m_fsyncInterval + " ms or " + m_maxTxns + " transactions");
+    }
+
+    @Override
+    public boolean needsInitialization() {
+        synchronized (m_lock) {
+            return !m_initialized;
+        }
+    }
+
+    @Override
+    public ListenableFuture<Object> log(Iv2InitiateTaskMessage message, long spHandle, int[] involvedPartitions,
+                                        DurabilityListener listener, TransactionTask durabilityHandle) {
+        // Read only transactions change nothing to replay, they are only ordered behind the
+        // writes logged before them. Serialize outside the lock to keep the sites apart.
+        ByteBuffer entry = null;
+        if (message != null && !message.isReadOnly()) {
+            try {
+                entry = serializeInvocation(message, spHandle, involvedPartitions);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to serialize a transaction for the command log", true, e);
+            }
+        }
+
+        synchronized (m_lock) {
+            if (entry != null && m_initialized) {
+                m_pendingEntries.add(entry);
+                m_pendingBytes += entry.remaining();
+            }
+            m_pendingTxns++;
+            listener.addTransaction(durabilityHandle);
+            if (m_pendingTxns >= m_maxTxns) {
+                m_lock.notifyAll();
+            }
+
+            if (m_synchronous) {
+                // the listener releases the task once it is durable
+                return null;
+            }
+            if (m_pendingBytes + m_writingBytes > MAX_OUTSTANDING_BYTES) {
+                if (m_backpressureFuture == null) {
+                    m_backpressureFuture = SettableFuture.create();
+                }
+                return m_backpressureFuture;
+            }
+            return NO_BACKPRESSURE;
+        }
+    }
+
+    /**
+     * Replay uses the log of the current partition leader, so the viable replay set is not
+     * recorded. The future still completes only after everything logged before it is durable.
+     */
+    @Override
+    public SettableFuture<Boolean> logIv2Fault(long writerHSId, Set<Long> survivorHSId, int partitionId,
+                                               long spHandle) {
+        SettableFuture<Boolean> written = SettableFuture.create();
+        synchronized (m_lock) {
+            m_pendingFaultFutures.add(written);
+            m_lock.notifyAll();
+        }
+        return written;
+    }
+
+    @Override
+    public void initializeLastDurableUniqueId(DurabilityListener listener, long uniqueId) {
+        synchronized (m_lock) {
+            listener.initializeLastDurableUniqueId(uniqueId);
+        }
+    }
+
+    @Override
+    public void registerDurabilityListener(DurabilityListener durabilityListener) {
+        synchronized (m_lock) {
+            m_listeners.add(durabilityListener);
+        }
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        synchronized (m_lock) {
+            m_shutdown = true;
+            m_lock.notifyAll();
+        }
+        m_writer.join();
+        synchronized (m_segments) {
+            for (Segment segment : m_segments) {
+                closeSegment(segment);
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isSynchronous() {
+        return m_synchronous;
+    }
+
+    @Override
+    public boolean canOfferTask() {
+        return !m_synchronous;
+    }
+
+    @Override
+    public void requestTruncationSnapshot(final boolean queueIfPending) {
+        if (m_truncationRequested && !queueIfPending) {
+            return;
+        }
+        final HostMessenger messenger = VoltDB.instance().getHostMessenger();
+        if (messenger == null) {
+            return;
+        }
+        m_truncationRequested = true;
+        try {
+            messenger.getZK().create(VoltZK.request_truncation_snapshot_node, null,
+                    Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
+        } catch (Exception e) {
+            m_truncationRequested = false;
+            LOG.warn("Unable to request a command log truncation snapshot", e);
+        }
+    }
+
+    @Override
+    public CountDownLatch snapshotCompleted(SnapshotCompletionEvent event) {
+        if (event.truncationSnapshot && event.didSucceed) {
+            int deleted = 0;
+            synchronized (m_segments) {
+                Iterator<Segment> iter = m_segments.iterator();
+                while (iter.hasNext()) {
+                    Segment segment = iter.next();
+                    if (segment == m_currentSegment || !isTruncatedBy(segment, event)) {
+                        continue;
+                    }
+                    iter.remove();
+                    closeSegment(segment);
+                    if (!segment.m_file.delete()) {
+                        LOG.warn("Unable to delete truncated command log segment " + segment.m_file);
+                    }
+                    deleted++;
+                }
+            }
+            synchronized (m_lock) {
+                // segments opened from now on start after this snapshot
+                m_truncationTxnId = event.multipartTxnId;
+                m_truncationTxnIds = new HashMap<Integer, Long>(event.partitionTxnIds);
+            }
+            m_truncationRequested = false;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Truncation snapshot " + event.nonce + " released " + deleted + " command log segments");
+            }
+        }
+        return new CountDownLatch(0);
+    }
+
+    private static boolean isTruncatedBy(Segment segment, SnapshotCompletionEvent event) {
+        if (segment.m_maxMpTxnId > event.multipartTxnId) {
+            return false;
+        }
+        for (Map.Entry<Integer, Long> e : segment.m_maxSpHandles.entrySet()) {
+            Long snapshotTxnId = event.partitionTxnIds.get(e.getKey());
+            if (snapshotTxnId == null || snapshotTxnId < e.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void populateCommandLogStats(Map<String, Integer> columnNameToIndex, Object[] rowValues) {
+        long outstandingBytes;
+        long outstandingTxns;
+        synchronized (m_lock) {
+            outstandingBytes = m_pendingBytes + m_writingBytes;
+            outstandingTxns = m_pendingTxns + m_writingTxns;
+        }
+        int segmentCount;
+        synchronized (m_segments) {
+            segmentCount = m_segments.size();
+        }
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_BYTES.name())] = outstandingBytes;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_TXNS.name())] = outstandingTxns;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.IN_USE_SEGMENT_COUNT.name())] = segmentCount;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.SEGMENT_COUNT.name())] = segmentCount;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.FSYNC_INTERVAL.name())] = m_fsyncInterval;
+    }
+
+    /**
+     * Pairs a listener with the completion checks covering the transactions of a batch
+     */
+    private static class ListenerChecks {
+        final DurabilityListener m_listener;
+        final CompletionChecks m_checks;
+
+        ListenerChecks(DurabilityListener listener, CompletionChecks checks) {
+            m_listener = listener;
+            m_checks = checks;
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            final ArrayList<ByteBuffer> entries;
+            final ArrayList<SettableFuture<Boolean>> faultFutures;
+            final SettableFuture<Object> backpressureFuture;
+            final List<ListenerChecks> checks = new ArrayList<ListenerChecks>();
+            synchronized (m_lock) {
+                final long deadline = System.currentTimeMillis() + m_fsyncInterval;
+                long remaining = m_fsyncInterval;
+                while (!m_shutdown && m_pendingTxns < m_maxTxns && remaining > 0) {
+                    try {
+                        m_lock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                if (m_pendingTxns == 0 && m_pendingFaultFutures.isEmpty()) {
+                    if (m_shutdown) {
+                        return;
+                    }
+                    continue;
+                }
+
+                entries = m_pendingEntries;
+                faultFutures = m_pendingFaultFutures;
+                backpressureFuture = m_backpressureFuture;
+                m_pendingEntries = new ArrayList<ByteBuffer>(entries.size());
+                m_pendingFaultFutures = new ArrayList<SettableFuture<Boolean>>();
+                m_backpressureFuture = null;
+                m_writingBytes = m_pendingBytes;
+                m_writingTxns = m_pendingTxns;
+                m_pendingBytes = 0;
+                m_pendingTxns = 0;
+                for (DurabilityListener listener : m_listeners) {
+                    checks.add(new ListenerChecks(listener, listener.startNewTaskList(listener.getNumberOfTasks())));
+                }
+            }
+
+            try {
+                writeEntries(entries);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to write to the command log in " + m_logDir, true, e);
+                return;
+            }
+
+            synchronized (m_lock) {
+                m_writingBytes = 0;
+                m_writingTxns = 0;
+            }
+            for (ListenerChecks lc : checks) {
+                lc.m_listener.processDurabilityChecks(lc.m_checks);
+            }
+            for (SettableFuture<Boolean> f : faultFutures) {
+                f.set(true);
+            }
+            if (backpressureFuture != null) {
+                backpressureFuture.set(null);
+            }
+        }
+    }
+
+    /**
+     * Append a batch to the current segment with a single gathering write and fsync
+     */
+    private void writeEntries(List<ByteBuffer> entries) throws IOException {
+        if (entries.isEmpty() || m_currentSegment == null) {
+            return;
+        }
+        final Segment segment = m_currentSegment;
+        final ByteBuffer[] buffers = entries.toArray(new ByteBuffer[entries.size()]);
+        long remaining = 0;
+        for (ByteBuffer b : buffers) {
+            remaining += b.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= segment.m_channel.write(buffers);
+        }
+        segment.m_channel.force(false);
+        synchronized (m_segments) {
+            for (ByteBuffer b : buffers) {
+                b.flip();
+                trackNewest(segment, b);
+            }
+            segment.m_size = segment.m_channel.position();
+        }
+
+        if (segment.m_size >= m_segmentBytes) {
+            openSegment();
+            if (retainedBytes() > m_logBytes) {
+                requestTruncationSnapshot(false);
+            }
+        }
+    }
+
+    private static void trackNewest(Segment segment, ByteBuffer entry) {
+        // spHandle and txnId follow the entry header and type
+        final int base = entry.position() + ENTRY_HEADER_SIZE + 1;
+        final long spHandle = entry.getLong(base);
+        final long txnId = entry.getLong(base + 8);
+        final boolean isSinglePartition = entry.get(base + 24) != 0;
+        if (isSinglePartition) {
+            final Integer partition = TxnEgo.getPartitionId(spHandle);
+            final Long max = segment.m_maxSpHandles.get(partition);
+            if (max == null || max < spHandle) {
+                segment.m_maxSpHandles.put(partition, spHandle);
+            }
+        } else {
+            segment.m_maxMpTxnId = Math.max(segment.m_maxMpTxnId, txnId);
+        }
+    }
+
+    private long retainedBytes() {
+        long bytes = 0;
+        synchronized (m_segments) {
+            for (Segment segment : m_segments) {
+                bytes += segment.m_size;
+            }
+        }
+        return bytes;
+    }
+
+    private void openSegment() throws IOException {
+        final long id;
+        final ByteBuffer header;
+        synchronized (m_lock) {
+            id = m_nextSegmentId++;
+            header = serializeHeader(id, m_instanceId, m_truncationTxnId, m_truncationTxnIds);
+        }
+        final File file = new File(m_logDir, String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        @SuppressWarnings("resource")
+        final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+
+        final Segment segment = new Segment(id, file, channel);
+        segment.m_size = channel.position();
+        synchronized (m_segments) {
+            if (m_currentSegment != null) {
+                closeSegment(m_currentSegment);
+            }
+            m_segments.add(segment);
+            m_currentSegment = segment;
+        }
+    }
+
+    private static void closeSegment(Segment segment) {
+        if (segment.m_channel != null) {
+            try {
+                segment.m_channel.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close command log segment " + segment.m_file, e);
+            }
+            segment.m_channel = null;
+        }
+    }
+
+    static ByteBuffer serializeHeader(long segmentId, InstanceId instanceId, long txnId,
+                                      Map<Integer, Long> perPartitionTxnId) {
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 + 8 + 4 + 8 + 8 + 4 + perPartitionTxnId.size() * 12);
+        header.putInt(SEGMENT_MAGIC);
+        header.putInt(SEGMENT_VERSION);
+        header.putLong(segmentId);
+        header.putInt(instanceId.getCoord());
+        header.putLong(instanceId.getTimestamp());
+        header.putLong(txnId);
+        header.putInt(perPartitionTxnId.size());
+        for (Map.Entry<Integer, Long> e : perPartitionTxnId.entrySet()) {
+            header.putInt(e.getKey());
+            header.putLong(e.getValue());
+        }
+        header.flip();
+        return header;
+    }
+
+    static ByteBuffer serializeInvocation(Iv2InitiateTaskMessage message, long spHandle,
+                                          int[] involvedPartitions) throws IOException {
+        final StoredProcedureInvocation invocation = message.getStoredProcedureInvocation();
+        final int payloadSize = 1 + 8 + 8 + 8 + 1 + 4
+                + (involvedPartitions == null ? 0 : involvedPartitions.length * 4)
+                + invocation.getSerializedSize();
+        final ByteBuffer buf = ByteBuffer.allocate(ENTRY_HEADER_SIZE + payloadSize);
+        buf.position(ENTRY_HEADER_SIZE);
+        buf.put(ENTRY_INVOCATION);
+        buf.putLong(spHandle);
+        buf.putLong(message.getTxnId());
+        buf.putLong(message.getUniqueId());
+        buf.put(message.isSinglePartition() ? (byte) 1 : (byte) 0);
+        if (involvedPartitions == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(involvedPartitions.length);
+            for (int partition : involvedPartitions) {
+                buf.putInt(partition);
+            }
+        }
+        invocation.flattenToBuffer(buf);
+
+        final CRC32 crc = new CRC32();
+        crc.update(buf.array(), ENTRY_HEADER_SIZE, payloadSize);
+        buf.putInt(0, payloadSize);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+        return buf;
+    }
+}
@@ -447,25 +447,29 @@ public class Inits {
             assert logConfig != null;
 
             if (logConfig.getEnabled()) {
-                if (m_config.m_isEnterprise) {
-                    try {
-                        Class<?> loggerClass = MiscUtils.loadProClass("org.voltdb.CommandLogImpl",
-                                                                   "Command logging", false);
-                        if (loggerClass != null) {
-                            final Constructor<?> constructor = loggerClass.getConstructor(boolean.class,
-                                                                                          int.class,
-                                                                                          int.class,
-                                                                                          String.class,
-                                                                                          String.class);
-                            m_rvdb.m_commandLog = (CommandLog) constructor.newInstance(logConfig.getSynchronous(),
-                                                                                       logConfig.getFsyncinterval(),
-                                                                                       logConfig.getMaxtxns(),
-                                                                                       VoltDB.instance().getCommandLogPath(),
-                                                                                       VoltDB.instance().getCommandLogSnapshotPath());
-                        }
-                    } catch (Exception e) {
-                        VoltDB.crashLocalVoltDB("Unable to instantiate command log", true, e);
+                try {
+                    Class<?> loggerClass = m_config.m_isEnterprise ?
+                            MiscUtils.loadProClass("org.voltdb.CommandLogImpl", "Command logging", true) : null;
+                    if (loggerClass != null) {
+                        final Constructor<?> constructor = loggerClass.getConstructor(boolean.class,
+                                                                                      int.class,
+                                                                                      int.class,
+                                                                                      String.class,
+                                                                                      String.class);
+                        m_rvdb.m_commandLog = (CommandLog) constructor.newInstance(logConfig.getSynchronous(),
+                                                                                   logConfig.getFsyncinterval(),
+                                                                                   logConfig.getMaxtxns(),
+                                                                                   VoltDB.instance().getCommandLogPath(),
+                                                                                   VoltDB.instance().getCommandLogSnapshotPath());
+                    } else {
+                        m_rvdb.m_commandLog = new GroupCommitCommandLog(logConfig.getSynchronous(),
+                                                                        logConfig.getFsyncinterval(),
+                                                                        logConfig.getMaxtxns(),
+                                                                        VoltDB.instance().getCommandLogPath(),
+                                                                        VoltDB.instance().getCommandLogSnapshotPath());
                     }
+                } catch (Exception e) {
+                    VoltDB.crashLocalVoltDB("Unable to instantiate command log", true, e);
                 }
             }
         }
@@ -0,0 +1,263 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.HistogramIterationValue;
+import org.voltcore.messaging.HostMessenger;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.dtxn.LatencyStats;
+
+import com.google_voltpatches.common.base.Splitter;
+import com.google_voltpatches.common.collect.ImmutableSet;
+
+/**
+ * Renders the stats sources registered on this host in the OpenMetrics text format.
+ * Rows are read straight from the sources, without building VoltTables or asking the
+ * other hosts, so a scrape only costs what the sources take to produce their rows.
+ *
+ * Every numeric column of a selector becomes a gauge named voltdb_[selector]_[column],
+ * labelled with the string and id columns of its row. Columns that only ever grow, like
+ * invocation and byte counts, become counters sampled as voltdb_[selector]_[column]_total. The transaction latencies of
+ * LATENCY are rendered as a histogram in seconds. Sources of the EE are left out, their
+ * rows are only refreshed by @Statistics.
+ */
+public class OpenMetricsRenderer {
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /**
+     * Selectors rendered, as a comma separated list
+     */
+    static final List<StatsSelector> SELECTORS = parseSelectors(System.getProperty("METRICS_SELECTORS",
+            "PROCEDURE,INITIATOR,IOSTATS,MEMORY,CPU,LATENCY,LIVECLIENTS,STARVATION,PLANNER,ADHOCPLANNER," +
+            "COMMANDLOG,EXPORTEXECUTOR,IMPORTER"));
+
+    // Upper bounds of the latency buckets in microseconds
+    private static final long LATENCY_BUCKETS[] = {
+        100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000,
+        1000000, 2500000, 5000000, 10000000
+    };
+    private static final String LATENCY_BUCKET_LABELS[] = new String[LATENCY_BUCKETS.length];
+    static {
+        for (int ii = 0; ii < LATENCY_BUCKETS.length; ii++) {
+            LATENCY_BUCKET_LABELS[ii] =
+                    BigDecimal.valueOf(LATENCY_BUCKETS[ii]).movePointLeft(6).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    /*
+     * Columns that count events since the server started, across all selectors
+     */
+    private static final Set<String> COUNTER_COLUMNS = ImmutableSet.of(
+            "INVOCATIONS", "TIMED_INVOCATIONS", "ABORTS", "FAILURES", "SUCCESSES", "RETRIES",
+            "BYTES_READ", "MESSAGES_READ", "BYTES_WRITTEN", "MESSAGES_WRITTEN",
+            "CACHE1_HITS", "CACHE2_HITS", "CACHE_MISSES", "SPILLED_BYTES",
+            "SUBMITTED", "REJECTED", "STEAL_COUNT", "COMPLETED_TASKS");
+
+    private final StatsAgent m_statsAgent;
+
+    public OpenMetricsRenderer(StatsAgent statsAgent) {
+        m_statsAgent = statsAgent;
+    }
+
+    private static List<StatsSelector> parseSelectors(String selectors) {
+        List<StatsSelector> parsed = new ArrayList<StatsSelector>();
+        for (String selector : Splitter.on(',').trimResults().omitEmptyStrings().split(selectors)) {
+            parsed.add(StatsSelector.valueOf(selector.toUpperCase()));
+        }
+        return parsed;
+    }
+
+    public String render() {
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        final Long now = System.currentTimeMillis();
+        for (StatsSelector selector : SELECTORS) {
+            renderSelector(sb, selector, now);
+        }
+        sb.append("# EOF\n");
+        return sb.toString();
+    }
+
+    private void renderSelector(StringBuilder sb, StatsSelector selector, Long now) {
+        final String prefix = "voltdb_" + selector.name().toLowerCase() + "_";
+        final List<StatsSource> sources = new ArrayList<StatsSource>();
+        final List<Object[][]> sourceRows = new ArrayList<Object[][]>();
+        for (StatsSource ss : m_statsAgent.getStatsSources(selector)) {
+            if (ss instanceof LatencyStats) {
+                renderLatency(sb, (LatencyStats)ss);
+            } else if (!ss.isEEStats()) {
+                sources.add(ss);
+                sourceRows.add(ss.getStatsRows(false, now));
+            }
+        }
+
+        // Sources of a selector share a schema, but a family takes its samples from any of them
+        Set<String> metrics = new LinkedHashSet<String>();
+        for (StatsSource ss : sources) {
+            for (ColumnInfo column : ss.getColumnSchema()) {
+                if (isMetric(column)) {
+                    metrics.add(column.name);
+                }
+            }
+        }
+
+        for (String metric : metrics) {
+            final String family = prefix + sanitize(metric);
+            final boolean counter = COUNTER_COLUMNS.contains(metric);
+            final String name = counter ? family + "_total" : family;
+            sb.append("# TYPE ").append(family).append(counter ? " counter\n" : " gauge\n");
+            for (int ii = 0; ii < sources.size(); ii++) {
+                final List<ColumnInfo> columns = sources.get(ii).getColumnSchema();
+                int index = -1;
+                for (int jj = 0; jj < columns.size(); jj++) {
+                    if (columns.get(jj).name.equals(metric)) {
+                        index = jj;
+                        break;
+                    }
+                }
+                if (index == -1) {
+                    continue;
+                }
+                for (Object row[] : sourceRows.get(ii)) {
+                    if (row[index] == null) {
+                        continue;
+                    }
+                    sb.append(name);
+                    appendLabels(sb, columns, row);
+                    sb.append(' ').append(row[index]).append('\n');
+                }
+            }
+        }
+    }
+
+    private static void renderLatency(StringBuilder sb, LatencyStats stats) {
+        final String name = "voltdb_latency_seconds";
+        StringBuilder labels = new StringBuilder();
+        final HostMessenger messenger = VoltDB.instance().getHostMessenger();
+        if (messenger != null) {
+            labels.append("host_id=\"").append(messenger.getHostId()).append("\",hostname=\"");
+            escape(labels, messenger.getHostname());
+            labels.append("\",");
+        }
+
+        long buckets[] = new long[LATENCY_BUCKETS.length];
+        long count;
+        double sum;
+        synchronized (stats) {
+            final AbstractHistogram histogram = stats.getHistogram();
+            count = histogram.getTotalCount();
+            sum = histogram.getMean() * count / 1000000.0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                for (int ii = 0; ii < LATENCY_BUCKETS.length; ii++) {
+                    if (value.getValueIteratedTo() <= LATENCY_BUCKETS[ii]) {
+                        buckets[ii] += value.getCountAddedInThisIterationStep();
+                        break;
+                    }
+                }
+            }
+        }
+
+        sb.append("# TYPE ").append(name).append(" histogram\n");
+        sb.append("# UNIT ").append(name).append(" seconds\n");
+        long cumulative = 0;
+        for (int ii = 0; ii < LATENCY_BUCKETS.length; ii++) {
+            cumulative += buckets[ii];
+            sb.append(name).append("_bucket{").append(labels).append("le=\"")
+              .append(LATENCY_BUCKET_LABELS[ii]).append("\"} ").append(cumulative).append('\n');
+        }
+        sb.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ").append(count).append('\n');
+        if (labels.length() > 0) {
+            labels.setLength(labels.length() - 1);
+        }
+        sb.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+        sb.append(name).append("_sum{").append(labels).append("} ").append(sum).append('\n');
+    }
+
+    private static boolean isLabel(ColumnInfo column) {
+        return column.type == VoltType.STRING || column.name.endsWith("ID");
+    }
+
+    private static boolean isMetric(ColumnInfo column) {
+        if (isLabel(column) || column.name.equals("TIMESTAMP")) {
+            return false;
+        }
+        switch (column.type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case FLOAT:
+        case DECIMAL:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static void appendLabels(StringBuilder sb, List<ColumnInfo> columns, Object row[]) {
+        boolean first = true;
+        for (int ii = 0; ii < columns.size(); ii++) {
+            final ColumnInfo column = columns.get(ii);
+            if (!isLabel(column) || row[ii] == null) {
+                continue;
+            }
+            sb.append(first ? '{' : ',').append(sanitize(column.name)).append("=\"");
+            escape(sb, row[ii].toString());
+            sb.append('"');
+            first = false;
+        }
+        if (!first) {
+            sb.append('}');
+        }
+    }
+
+    private static String sanitize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int ii = 0; ii < name.length(); ii++) {
+            final char c = Character.toLowerCase(name.charAt(ii));
+            sb.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    private static void escape(StringBuilder sb, String value) {
+        for (int ii = 0; ii < value.length(); ii++) {
+            final char c = value.charAt(ii);
+            switch (c) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.voltdb;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -283,6 +284,16 @@ public abstract class OpsAgent
      */
     protected void distributeOpsWork(PendingOpsRequest newRequest, JSONObject obj)
         throws Exception
+    {
+        distributeOpsWork(newRequest, obj, m_messenger.getLiveHostIds());
+    }
+
+    /**
+     * Like {@link #distributeOpsWork(PendingOpsRequest, JSONObject)}, but only asks the given
+     * hosts to do the work, e.g. when a request only needs the rows of a single host.
+     */
+    protected void distributeOpsWork(PendingOpsRequest newRequest, JSONObject obj, Collection<Integer> hostIds)
+        throws Exception
     {
         if (m_pendingRequests.size() > MAX_IN_FLIGHT_REQUESTS) {
             /*
@@ -322,7 +333,7 @@ public abstract class OpsAgent
         obj.put("returnAddress", m_mailbox.getHSId());
         int siteId = CoreUtils.getSiteIdFromHSId(m_mailbox.getHSId());
         byte payloadBytes[] = CompressionService.compressBytes(obj.toString(4).getBytes("UTF-8"));
-        for (int hostId : m_messenger.getLiveHostIds()) {
+        for (int hostId : hostIds) {
             long agentHsId = CoreUtils.getHSIdFromHostAndSite(hostId, siteId);
             newRequest.expectedOpsResponses++;
             BinaryPayloadMessage bpm = new BinaryPayloadMessage(new byte[] {JSON_PAYLOAD}, payloadBytes);
@@ -96,9 +96,9 @@ public class PlannerStatsCollector extends StatsSource {
     long m_lastCacheMisses = 0;
 
     /**
-     * Time of last planning start
+     * Time of last planning start, per thread because ad hoc planning may be done by several threads
      */
-    Long m_currentStartTime = null;
+    private final ThreadLocal<Long> m_currentStartTime = new ThreadLocal<Long>();
 
     /**
      * Total amount of planning time
@@ -124,6 +124,12 @@ public class PlannerStatsCollector extends StatsSource {
     long m_failures = 0;
     long m_lastFailures = 0;
 
+    /**
+     * Bytes of temp data the EE spilled to disk while executing SQL
+     */
+    long m_spilledBytes = 0;
+    long m_lastSpilledBytes = 0;
+
 
     /**
      * Count of the number of invocations = m_cache1Hits + m_cache2Hits + m_cacheMisses + m_failures;
@@ -168,7 +174,7 @@ public class PlannerStatsCollector extends StatsSource {
     /**
      * Used to update EE cache stats without changing tracked time
      */
-    public void updateEECacheStats(long eeCacheSize, long hits, long misses, int partitionId) {
+    public synchronized void updateEECacheStats(long eeCacheSize, long hits, long misses, int partitionId) {
         m_cache1Level = eeCacheSize;
         m_cache1Hits += hits;
         m_cacheMisses += misses;
@@ -177,12 +183,19 @@ public class PlannerStatsCollector extends StatsSource {
         m_partitionId = partitionId;
     }
 
+    /**
+     * Used to count the temp data an EE batch spilled to disk
+     */
+    public synchronized void updateEESpillStats(long spilledBytes) {
+        m_spilledBytes += spilledBytes;
+    }
+
     /**
      * Called before doing planning. Starts timer.
      */
-    public void startStatsCollection() {
+    public synchronized void startStatsCollection() {
         if (getInvocations() % m_collectionFrequency == 0) {
-            m_currentStartTime = System.nanoTime();
+            m_currentStartTime.set(System.nanoTime());
         }
     }
 
@@ -194,9 +207,10 @@ public class PlannerStatsCollector extends StatsSource {
      * @param cacheUse     where the planned statement came from
      * @param partitionId  partition id
      */
-    public void endStatsCollection(long cache1Size, long cache2Size, CacheUse cacheUse, long partitionId) {
-        if (m_currentStartTime != null) {
-            long delta = System.nanoTime() - m_currentStartTime;
+    public synchronized void endStatsCollection(long cache1Size, long cache2Size, CacheUse cacheUse, long partitionId) {
+        final Long currentStartTime = m_currentStartTime.get();
+        if (currentStartTime != null) {
+            long delta = System.nanoTime() - currentStartTime;
             if (delta < 0) {
                 if (Math.abs(delta) > 1000000000) {
                     log.info("Planner statistics recorded a negative planning time larger than one second: " +
@@ -210,7 +224,7 @@ public class PlannerStatsCollector extends StatsSource {
                 m_lastMinPlanningTime = Math.min(delta, m_lastMinPlanningTime);
                 m_lastMaxPlanningTime = Math.max(delta, m_lastMaxPlanningTime);
             }
-            m_currentStartTime = null;
+            m_currentStartTime.remove();
         }
 
         m_cache1Level = cache1Size;
@@ -242,7 +256,7 @@ public class PlannerStatsCollector extends StatsSource {
      * @param values Values of each column of the row of stats. Used as output.
      */
     @Override
-    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
         super.updateStatsRow(rowKey, rowValues);
 
         rowValues[columnNameToIndex.get("PARTITION_ID")] = m_partitionId;
@@ -255,6 +269,7 @@ public class PlannerStatsCollector extends StatsSource {
         long cache2Hits  = m_cache2Hits;
         long cacheMisses = m_cacheMisses;
         long failureCount = m_failures;
+        long spilledBytes = m_spilledBytes;
 
         if (m_interval) {
             totalTimedExecutionTime = m_totalPlanningTime - m_lastTimedPlanningTime;
@@ -283,6 +298,9 @@ public class PlannerStatsCollector extends StatsSource {
             failureCount = m_failures - m_lastFailures;
             m_lastFailures = m_failures;
 
+            spilledBytes = m_spilledBytes - m_lastSpilledBytes;
+            m_lastSpilledBytes = m_spilledBytes;
+
             m_lastInvocations = m_invocations;
         }
 
@@ -302,6 +320,7 @@ public class PlannerStatsCollector extends StatsSource {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] = 0L;
         }
         rowValues[columnNameToIndex.get("FAILURES")] = failureCount;
+        rowValues[columnNameToIndex.get("SPILLED_BYTES")] = spilledBytes;
     }
 
     /**
@@ -322,6 +341,7 @@ public class PlannerStatsCollector extends StatsSource {
         columns.add(new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT));
         columns.add(new ColumnInfo("FAILURES",      VoltType.BIGINT));
+        columns.add(new ColumnInfo("SPILLED_BYTES", VoltType.BIGINT));
     }
 
     @Override
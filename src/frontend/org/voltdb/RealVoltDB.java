@@ -106,6 +106,7 @@ import org.voltdb.common.NodeState;
 import org.voltdb.compiler.AdHocCompilerCache;
 import org.voltdb.compiler.AsyncCompilerAgent;
 import org.voltdb.compiler.ClusterConfig;
+import org.voltdb.compiler.SampledDatabaseEstimates;
 import org.voltdb.compiler.deploymentfile.ClusterType;
 import org.voltdb.compiler.deploymentfile.ConsistencyType;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
@@ -117,6 +118,7 @@ import org.voltdb.dtxn.InitiatorStats;
 import org.voltdb.dtxn.LatencyHistogramStats;
 import org.voltdb.dtxn.LatencyStats;
 import org.voltdb.dtxn.SiteTracker;
+import org.voltdb.export.ExportExecutorStats;
 import org.voltdb.export.ExportManager;
 import org.voltdb.importer.ImportManager;
 import org.voltdb.iv2.BaseInitiator;
@@ -1017,6 +1019,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
              * Construct an adhoc planner for the initial catalog
              */
             final CatalogSpecificPlanner csp = new CatalogSpecificPlanner(m_asyncCompilerAgent, m_catalogContext);
+            m_asyncCompilerAgent.prepareForCatalog(m_catalogContext);
 
             // Initialize stats
             m_ioStats = new IOStats();
@@ -1047,6 +1050,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             m_cpuStats = new CpuStats();
             getStatsAgent().registerStatsSource(StatsSelector.CPU,
                     0, m_cpuStats);
+            getStatsAgent().registerStatsSource(StatsSelector.ADHOCPLANNER,
+                    0, m_asyncCompilerAgent.getStats());
+            getStatsAgent().registerStatsSource(StatsSelector.EXPORTEXECUTOR,
+                    0, new ExportExecutorStats());
 
             // ENG-6321
             m_commandLogStats = new CommandLogStats(m_commandLog);
@@ -1249,8 +1256,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             if (m_configuredReplicationFactor == 0) {
                 consoleLog.warn("This is not a highly available cluster. K-Safety is set to 0.");
             }
-            boolean usingCommandLog = m_config.m_isEnterprise
-                    && (m_catalogContext.cluster.getLogconfig() != null)
+            boolean usingCommandLog = (m_catalogContext.cluster.getLogconfig() != null)
                     && (m_catalogContext.cluster.getLogconfig().get("log") != null)
                     && m_catalogContext.cluster.getLogconfig().get("log").getEnabled();
             if (!usingCommandLog) {
@@ -1721,9 +1727,57 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             }
         }, 0, 6, TimeUnit.MINUTES));
 
+        // warm the ad hoc plan cache and persist its statements for the next start
+        final File adHocPlanCacheDir = AdHocCompilerCache.getPersistenceDirectory();
+        if (adHocPlanCacheDir != null) {
+            m_asyncCompilerAgent.warmAdHocCache(m_catalogContext, adHocPlanCacheDir);
+            m_periodicWorks.add(scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    persistAdHocPlanCache(adHocPlanCacheDir);
+                }
+            }, 1, 1, TimeUnit.MINUTES));
+        }
+
+        // sample the sizes of the tables for the planners and persist them for the next start
+        SampledDatabaseEstimates.load(m_nodeSettings.getVoltDBRoot());
+        m_periodicWorks.add(scheduleWork(new Runnable() {
+            @Override
+            public void run() {
+                refreshPlannerEstimates();
+            }
+        }, SampledDatabaseEstimates.REFRESH_SECONDS, SampledDatabaseEstimates.REFRESH_SECONDS, TimeUnit.SECONDS));
+
         GCInspector.instance.start(m_periodicPriorityWorkThread);
     }
 
+    private void refreshPlannerEstimates() {
+        // The sites hold no data worth sampling until the restore or the rejoin is done
+        if (m_mode == OperationMode.INITIALIZING || m_rejoining || m_joining) {
+            return;
+        }
+        // An exception would cancel the periodic task, so a failed sample only waits for the next one
+        try {
+            if (SampledDatabaseEstimates.refresh(getStatsAgent(), m_nodeSettings.getVoltDBRoot())) {
+                AdHocCompilerCache.invalidatePlans();
+            }
+        } catch (Exception e) {
+            hostLog.warn("Unable to sample the planner estimates", e);
+        }
+    }
+
+    private void persistAdHocPlanCache(File dir) {
+        final CatalogContext context = m_catalogContext;
+        if (context == null) {
+            return;
+        }
+        try {
+            AdHocCompilerCache.persistWarmupStatements(dir, context.getCatalogHash());
+        } catch (IOException e) {
+            hostLog.warn("Unable to persist ad hoc statements to " + dir, e);
+        }
+    }
+
     private void startResourceUsageMonitor() {
         if (resMonitorWork != null) {
             resMonitorWork.cancel(false);
@@ -2826,6 +2880,11 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                     m_asyncCompilerAgent = null;
                 }
 
+                final File adHocPlanCacheDir = AdHocCompilerCache.getPersistenceDirectory();
+                if (adHocPlanCacheDir != null) {
+                    persistAdHocPlanCache(adHocPlanCacheDir);
+                }
+
                 ExportManager.instance().shutdown();
                 m_computationService.shutdown();
                 m_computationService.awaitTermination(1, TimeUnit.DAYS);
@@ -2836,6 +2895,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 m_latencyHistogramStats = null;
 
                 AdHocCompilerCache.clearHashCache();
+                SampledDatabaseEstimates.reset();
                 org.voltdb.iv2.InitiatorMailbox.m_allInitiatorMailboxes.clear();
 
                 PartitionDRGateway.m_partitionDRGateways = ImmutableMap.of();
@@ -2948,6 +3008,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                             true,
                             deploymentBytes);
                 final CatalogSpecificPlanner csp = new CatalogSpecificPlanner( m_asyncCompilerAgent, m_catalogContext);
+                m_asyncCompilerAgent.prepareForCatalog(m_catalogContext);
                 m_txnIdToContextTracker.put(currentTxnId,
                         new ContextTracker(
                                 m_catalogContext,
@@ -3284,7 +3345,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         try {
             final ZooKeeper zk = m_messenger.getZK();
             boolean logRecoveryCompleted = false;
-            if (getCommandLog().getClass().getName().equals("org.voltdb.CommandLogImpl")) {
+            if (getCommandLog().isEnabled()) {
                 String requestNode = zk.create(VoltZK.request_truncation_snapshot_node, null,
                         Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
                 if (m_rejoinTruncationReqId == null) {
@@ -473,7 +473,7 @@ SnapshotCompletionInterest, Promotable
         m_action = action;
         m_hostMessenger = hostMessenger;
         m_zk = hostMessenger.getZK();
-        m_clEnabled = VoltDB.instance().getConfig().m_isEnterprise ? clEnabled : false;
+        m_clEnabled = clEnabled;
         m_clPath = clPath;
         m_clSnapshotPath = clSnapshotPath;
         m_snapshotPath = snapshotPath;
@@ -503,6 +503,11 @@ SnapshotCompletionInterest, Promotable
                                                                     m_hostMessenger,
                                                                     m_clPath,
                                                                     m_liveHosts);
+            } else if (m_clEnabled) {
+                m_replayAgent = new DefaultCommandLogReinitiator(m_hostId,
+                                                                 m_hostMessenger,
+                                                                 m_clPath,
+                                                                 m_liveHosts);
             }
         } catch (Exception e) {
             VoltDB.crashGlobalVoltDB("Unable to instantiate command log reinitiator",
@@ -43,6 +43,7 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
     private final FileChannel m_fc;
     private final RandomAccessFile m_ras;
     private long m_bytesWritten = 0;
+    private long m_writeNanos = 0;
     private Runnable m_onCloseTask;
     private boolean m_needsFinalClose;
 
@@ -62,6 +63,7 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
     private AtomicInteger m_bytesSinceLastSync = new AtomicInteger(0);
 
     private final ScheduledFuture<?> m_syncTask;
+    private final int m_lane;
 
     /*
      * If a write fails then this snapshot is hosed.
@@ -84,8 +86,9 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
         m_needsFinalClose = needsFinalClose;
 
         m_es = CoreUtils.getListeningSingleThreadExecutor("Snapshot write thread for " + m_file);
+        m_lane = DefaultSnapshotDataTarget.acquireLane();
         ScheduledFuture<?> syncTask = null;
-        syncTask = DefaultSnapshotDataTarget.m_syncService.scheduleAtFixedRate(new Runnable() {
+        syncTask = DefaultSnapshotDataTarget.m_syncLanes[m_lane].scheduleAtFixedRate(new Runnable() {
             private long syncedBytes = 0;
             @Override
             public void run() {
@@ -141,6 +144,7 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
                         final ByteBuffer dataBuf = data.b();
                         DefaultSnapshotDataTarget.enforceSnapshotRateLimit(dataBuf.remaining());
 
+                        final long writeStart = System.nanoTime();
                         while (dataBuf.hasRemaining()) {
                             int written = m_fc.write(dataBuf);
                             if (written > 0) {
@@ -148,6 +152,7 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
                                 totalWritten += written;
                             }
                         }
+                        m_writeNanos += System.nanoTime() - writeStart;
                         if (m_bytesSinceLastSync.addAndGet(totalWritten) > m_bytesAllowedBeforeSync) {
                             m_fc.force(false);
                             m_bytesSinceLastSync.set(0);
@@ -186,6 +191,7 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
             m_fc.close();
             m_tempFile.renameTo(m_file);
         } finally {
+            DefaultSnapshotDataTarget.releaseLane(m_lane);
             m_onCloseTask.run();
         }
         if (m_reportedSerializationFailure != null) {
@@ -199,6 +205,11 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
         return m_bytesWritten;
     }
 
+    @Override
+    public long getWriteTimeNanos() {
+        return m_writeNanos;
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseTask = onClose;
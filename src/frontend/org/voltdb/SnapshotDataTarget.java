@@ -60,6 +60,12 @@ public interface SnapshotDataTarget {
 
     public long getBytesWritten();
 
+    /**
+     * Get the time in nanoseconds spent writing the bytes reported by {@link #getBytesWritten()},
+     * or 0 if the target does not measure it
+     */
+    public long getWriteTimeNanos();
+
     public void setOnCloseHandler(Runnable onClose);
 
     /**
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.sysprocs.SnapshotRegistry;
@@ -116,6 +117,8 @@ public class SnapshotStatus extends StatsSource {
         columns.add(new ColumnInfo("THROUGHPUT", VoltType.FLOAT));
         columns.add(new ColumnInfo("RESULT", VoltType.STRING));
         columns.add(new ColumnInfo("TYPE", VoltType.STRING));
+        columns.add(new ColumnInfo("WRITE_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WRITE_THROUGHPUT", VoltType.FLOAT));
     }
 
     @SuppressWarnings("unchecked")
@@ -132,6 +135,11 @@ public class SnapshotStatus extends StatsSource {
                 (s.timeFinished - timeStarted) / 1000.0;
             throughput = (s.bytesWritten / (1024.0 * 1024.0)) / duration;
         }
+        // how fast this table's file was written while its writer was busy with it
+        double writeThroughput = 0;
+        if (t.writeNanos != 0) {
+            writeThroughput = (t.size / (1024.0 * 1024.0)) / (t.writeNanos / 1000000000.0);
+        }
 
         rowValues[columnNameToIndex.get("TABLE")] = t.name;
         rowValues[columnNameToIndex.get("PATH")] = s.path;
@@ -145,6 +153,8 @@ public class SnapshotStatus extends StatsSource {
         rowValues[columnNameToIndex.get("THROUGHPUT")] = throughput;
         rowValues[columnNameToIndex.get("RESULT")] = t.error == null ? "SUCCESS" : "FAILURE";
         rowValues[columnNameToIndex.get("TYPE")] = getSnapshotType(s.path);
+        rowValues[columnNameToIndex.get("WRITE_TIME")] = TimeUnit.NANOSECONDS.toMillis(t.writeNanos);
+        rowValues[columnNameToIndex.get("WRITE_THROUGHPUT")] = writeThroughput;
         super.updateStatsRow(rowKey, rowValues);
     }
 
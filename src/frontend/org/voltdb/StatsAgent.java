@@ -16,12 +16,20 @@
  */
 package org.voltdb;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 import org.cliffc_voltpatches.high_scale_lib.NonBlockingHashMap;
 import org.cliffc_voltpatches.high_scale_lib.NonBlockingHashSet;
 import org.json_voltpatches.JSONObject;
 import org.voltcore.network.Connection;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.TheHashinator.HashinatorConfig;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.client.ClientResponse;
@@ -29,12 +37,82 @@ import org.voltdb.client.ClientResponse;
 import com.google_voltpatches.common.base.Supplier;
 import com.google_voltpatches.common.base.Suppliers;
 import com.google_voltpatches.common.collect.ImmutableMap;
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 
 /**
  * Agent responsible for collecting stats on this host.
+ *
+ * The stats sources of the sites of a host are collected in parallel. Selectors that
+ * return a single table can also be fetched a page at a time by passing a row limit and
+ * the cursor returned with the previous page to @Statistics, so that a large result is
+ * never built in one piece. Pages walk the hosts in order, a host at a time.
  */
 public class StatsAgent extends OpsAgent
 {
+    /**
+     * Threads collecting the stats sources of different sites at once, 1 collects them serially
+     */
+    public static final int COLLECTION_THREADS = Integer.getInteger("STATS_COLLECTION_THREADS",
+            Math.max(1, Math.min(8, CoreUtils.availableProcessors() / 2)));
+
+    private static final ListeningExecutorService m_collectors = COLLECTION_THREADS > 1 ?
+            CoreUtils.getListeningExecutorService("StatsAgent collector", COLLECTION_THREADS) : null;
+
+    /**
+     * Selectors whose result is a single table of rows that can be returned a page at a time
+     */
+    private static final Set<StatsSelector> PAGEABLE_SELECTORS = Collections.unmodifiableSet(
+            EnumSet.complementOf(EnumSet.of(
+                    StatsSelector.DR,
+                    StatsSelector.DRPRODUCER,
+                    StatsSelector.DRCONSUMER,
+                    StatsSelector.MANAGEMENT,
+                    StatsSelector.TOPO,
+                    StatsSelector.PARTITIONCOUNT,
+                    StatsSelector.PROCEDUREPROFILE,
+                    StatsSelector.PROCEDUREINPUT,
+                    StatsSelector.PROCEDUREOUTPUT)));
+
+    /**
+     * The rows of a page still to be skipped and returned while collecting
+     */
+    private static class RowWindow {
+        private int m_skip;
+        private int m_remaining;
+        private int m_rows = 0;
+        // Set once a row past the end of the page was found
+        private boolean m_truncated = false;
+
+        RowWindow(int offset, int limit) {
+            m_skip = offset;
+            m_remaining = limit;
+        }
+
+        /**
+         * @return how many of the next count rows come before the page
+         */
+        int skip(int count) {
+            final int skipped = Math.min(m_skip, count);
+            m_skip -= skipped;
+            return skipped;
+        }
+
+        /**
+         * @return true if the next row is part of the page
+         */
+        boolean take() {
+            if (m_remaining == 0) {
+                m_truncated = true;
+                return false;
+            }
+            m_remaining--;
+            m_rows++;
+            return true;
+        }
+    }
+
     private final NonBlockingHashMap<StatsSelector, NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>> registeredStatsSources =
             new NonBlockingHashMap<StatsSelector, NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>>();
 
@@ -247,6 +325,24 @@ public class StatsAgent extends OpsAgent
                         clientHandle,
                         System.currentTimeMillis(),
                         obj);
+
+        // A page only holds the rows of the host the cursor points at
+        if (obj.has("rowLimit")) {
+            Set<Integer> liveHostIds = m_messenger.getLiveHostIds();
+            int hostId = obj.getInt("cursorHost");
+            if (hostId == -1) {
+                hostId = Collections.min(liveHostIds);
+                obj.put("cursorHost", hostId);
+            }
+            else if (!liveHostIds.contains(hostId)) {
+                sendErrorResponse(c, ClientResponse.GRACEFUL_FAILURE,
+                        "Host " + hostId + " of the @Statistics cursor is no longer part of the cluster",
+                        clientHandle);
+                return;
+            }
+            distributeOpsWork(psr, obj, Collections.singleton(hostId));
+            return;
+        }
         distributeOpsWork(psr, obj);
             }
 
@@ -255,8 +351,8 @@ public class StatsAgent extends OpsAgent
     // return null.  Yes, ugly.  Bang it out, then refactor later.
     private String parseParamsForStatistics(ParameterSet params, JSONObject obj) throws Exception
     {
-        if ((params.toArray().length < 1) || (params.toArray().length > 2)) {
-            return "Incorrect number of arguments to @Statistics (expects 2, received " +
+        if ((params.toArray().length < 1) || (params.toArray().length > 4)) {
+            return "Incorrect number of arguments to @Statistics (expects 2, or 3 to 4 for a page of rows, received " +
                     params.toArray().length + ")";
         }
         Object first = params.toArray()[0];
@@ -281,6 +377,54 @@ public class StatsAgent extends OpsAgent
         obj.put("subselector", subselector);
         obj.put("interval", interval);
 
+        if (params.toArray().length > 2) {
+            return parsePageParamsForStatistics(params, obj);
+        }
+        return null;
+    }
+
+    // The third argument is the most rows to return, the fourth is the cursor returned with
+    // the previous page, null or empty for the first page. A cursor is "<host id>:<row offset>".
+    private String parsePageParamsForStatistics(ParameterSet params, JSONObject obj) throws Exception
+    {
+        final StatsSelector subselector = StatsSelector.valueOf(obj.getString("subselector"));
+        if (!PAGEABLE_SELECTORS.contains(subselector)) {
+            return "@Statistics selector " + subselector.name() + " can't be returned a page at a time";
+        }
+        if (obj.getBoolean("interval")) {
+            return "@Statistics can't return interval statistics a page at a time";
+        }
+
+        Object third = params.toArray()[2];
+        if (!(third instanceof Number) || ((Number)third).longValue() < 1 ||
+                ((Number)third).longValue() > Integer.MAX_VALUE) {
+            return "Third argument to @Statistics must be a positive row limit, instead was " + third;
+        }
+
+        int cursorHost = -1;
+        int offset = 0;
+        Object fourth = params.toArray().length > 3 ? params.toArray()[3] : null;
+        if (fourth != null && !(fourth instanceof String)) {
+            return "Fourth argument to @Statistics must be a STRING cursor, instead was " + fourth;
+        }
+        if (fourth != null && !((String)fourth).isEmpty()) {
+            String cursor = (String)fourth;
+            int colon = cursor.indexOf(':');
+            try {
+                cursorHost = Integer.parseInt(cursor.substring(0, colon));
+                offset = Integer.parseInt(cursor.substring(colon + 1));
+            }
+            catch (Exception e) {
+                return "Fourth argument to @Statistics is not a valid cursor: " + cursor;
+            }
+            if (cursorHost < 0 || offset < 0) {
+                return "Fourth argument to @Statistics is not a valid cursor: " + cursor;
+            }
+        }
+
+        obj.put("rowLimit", ((Number)third).intValue());
+        obj.put("cursorHost", cursorHost);
+        obj.put("offset", offset);
         return null;
     }
 
@@ -359,6 +503,9 @@ public class StatsAgent extends OpsAgent
         String subselectorString = obj.getString("subselector");
         boolean interval = obj.getBoolean("interval");
         StatsSelector subselector = StatsSelector.valueOf(subselectorString);
+        if (obj.has("rowLimit")) {
+            return collectStatsPage(subselector, obj.getInt("offset"), obj.getInt("rowLimit"));
+        }
         switch (subselector) {
         case DRPRODUCER:
         case DR: // synonym of DRPRODUCER
@@ -403,6 +550,12 @@ public class StatsAgent extends OpsAgent
         case PLANNER:
             stats = collectStats(StatsSelector.PLANNER, interval);
             break;
+        case ADHOCPLANNER:
+            stats = collectStats(StatsSelector.ADHOCPLANNER, interval);
+            break;
+        case EXPORTEXECUTOR:
+            stats = collectStats(StatsSelector.EXPORTEXECUTOR, interval);
+            break;
         case LIVECLIENTS:
             stats = collectStats(StatsSelector.LIVECLIENTS, interval);
             break;
@@ -521,6 +674,36 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    /**
+     * Collect a page of at most rowLimit rows of this host, followed by a table holding the
+     * cursor of the next page in NEXT_CURSOR, null after the last page of the last host.
+     */
+    private VoltTable[] collectStatsPage(StatsSelector selector, int offset, int rowLimit)
+    {
+        final RowWindow window = new RowWindow(offset, rowLimit);
+        VoltTable page = getStatsAggregateInternal(selector, false, System.currentTimeMillis(), null, window);
+        if (page == null) {
+            return null;
+        }
+
+        String nextCursor = null;
+        final int hostId = m_messenger.getHostId();
+        if (window.m_truncated) {
+            nextCursor = hostId + ":" + (offset + window.m_rows);
+        }
+        else {
+            for (int liveHostId : m_messenger.getLiveHostIds()) {
+                if (liveHostId > hostId) {
+                    nextCursor = liveHostId + ":0";
+                    break;
+                }
+            }
+        }
+        VoltTable cursor = new VoltTable(new VoltTable.ColumnInfo("NEXT_CURSOR", VoltType.STRING));
+        cursor.addRow(nextCursor);
+        return new VoltTable[] { page, cursor };
+    }
+
     public void registerStatsSource(StatsSelector selector, long siteId, StatsSource source) {
         assert selector != null;
         assert source != null;
@@ -537,6 +720,20 @@ public class StatsAgent extends OpsAgent
         statsSources.add(source);
     }
 
+    /**
+     * @return the stats sources registered for the selector on this host, across all sites
+     */
+    public List<StatsSource> getStatsSources(StatsSelector selector) {
+        List<StatsSource> sources = new ArrayList<StatsSource>();
+        final NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>> siteIdToStatsSources = registeredStatsSources.get(selector);
+        if (siteIdToStatsSources != null) {
+            for (NonBlockingHashSet<StatsSource> statsSources : siteIdToStatsSources.values()) {
+                sources.addAll(statsSources);
+            }
+        }
+        return sources;
+    }
+
     public void deregisterStatsSourcesFor(StatsSelector selector, long siteId) {
         assert selector != null;
         final NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>> siteIdToStatsSources = registeredStatsSources.get(selector);
@@ -560,14 +757,19 @@ public class StatsAgent extends OpsAgent
             final StatsSelector selector,
             final boolean interval,
             final Long now) {
-        return getStatsAggregateInternal(selector, interval, now, null);
+        return getStatsAggregateInternal(selector, interval, now, null, null);
     }
 
+    /**
+     * With a window only the rows of the window are added, collecting the sites in order of
+     * site id so that consecutive windows line up.
+     */
     private VoltTable getStatsAggregateInternal(
             final StatsSelector selector,
             final boolean interval,
             final Long now,
-            VoltTable prevResults)
+            VoltTable prevResults,
+            RowWindow window)
     {
         assert selector != null;
         final NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>> siteIdToStatsSources = registeredStatsSources.get(selector);
@@ -608,37 +810,87 @@ public class StatsAgent extends OpsAgent
         // Append to previous results if provided.
         final VoltTable resultTable = prevResults != null ? prevResults : new VoltTable(columns);
 
-        for (NonBlockingHashSet<StatsSource> statsSources : siteIdToStatsSources.values()) {
-
-            //The window where it is empty exists here to
-            while (statsSources.isEmpty()) {
-                Thread.yield();
+        if (window != null) {
+            for (NonBlockingHashSet<StatsSource> statsSources :
+                    new TreeMap<Long, NonBlockingHashSet<StatsSource>>(siteIdToStatsSources).values()) {
+                collectSiteStats(statsSources, interval, now, resultTable, window);
+                if (window.m_truncated) {
+                    break;
+                }
+            }
+        }
+        else if (m_collectors == null || siteIdToStatsSources.size() < 2) {
+            for (NonBlockingHashSet<StatsSource> statsSources : siteIdToStatsSources.values()) {
+                collectSiteStats(statsSources, interval, now, resultTable, null);
+            }
+        }
+        else {
+            final VoltTable.ColumnInfo siteColumns[] = columns;
+            List<ListenableFuture<VoltTable>> siteTables = new ArrayList<ListenableFuture<VoltTable>>();
+            for (final NonBlockingHashSet<StatsSource> statsSources : siteIdToStatsSources.values()) {
+                siteTables.add(m_collectors.submit(new Callable<VoltTable>() {
+                    @Override
+                    public VoltTable call() {
+                        VoltTable siteTable = new VoltTable(siteColumns);
+                        collectSiteStats(statsSources, interval, now, siteTable, null);
+                        return siteTable;
+                    }
+                }));
+            }
+            for (ListenableFuture<VoltTable> siteTable : siteTables) {
+                final VoltTable table = Futures.getUnchecked(siteTable);
+                while (table.advanceRow()) {
+                    resultTable.add(table);
+                }
             }
+        }
+        return resultTable;
+    }
 
-            assert statsSources != null;
-            for (final StatsSource ss : statsSources) {
-                assert ss != null;
-                /*
-                 * Some sources like TableStats use VoltTable to keep track of
-                 * statistics
-                 */
-                if (ss.isEEStats()) {
-                    final VoltTable table = ss.getStatsTable();
-                    // this table can be null during recovery, at least
-                    if (table != null) {
-                        while (table.advanceRow()) {
-                            resultTable.add(table);
+    private static void collectSiteStats(
+            NonBlockingHashSet<StatsSource> statsSources,
+            boolean interval,
+            Long now,
+            VoltTable resultTable,
+            RowWindow window)
+    {
+        //The window where it is empty exists here to
+        while (statsSources.isEmpty()) {
+            Thread.yield();
+        }
+
+        for (final StatsSource ss : statsSources) {
+            assert ss != null;
+            /*
+             * Some sources like TableStats use VoltTable to keep track of
+             * statistics
+             */
+            if (ss.isEEStats()) {
+                final VoltTable table = ss.getStatsTable();
+                // this table can be null during recovery, at least
+                if (table != null) {
+                    int row = window == null ? 0 : window.skip(table.getRowCount());
+                    while (table.advanceToRow(row++)) {
+                        if (window != null && !window.take()) {
+                            break;
                         }
-                        table.resetRowPosition();
+                        resultTable.add(table);
                     }
-                } else {
-                    Object statsRows[][] = ss.getStatsRows(interval, now);
-                    for (Object[] row : statsRows) {
-                        resultTable.addRow(row);
+                    table.resetRowPosition();
+                }
+            } else {
+                Object statsRows[][] = ss.getStatsRows(interval, now);
+                int row = window == null ? 0 : window.skip(statsRows.length);
+                for (; row < statsRows.length; row++) {
+                    if (window != null && !window.take()) {
+                        break;
                     }
+                    resultTable.addRow(statsRows[row]);
                 }
             }
+            if (window != null && window.m_truncated) {
+                return;
+            }
         }
-        return resultTable;
     }
 }
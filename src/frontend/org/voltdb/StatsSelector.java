@@ -29,6 +29,7 @@ public enum StatsSelector {
     MEMORY,           // info about node's memory usage
     LIVECLIENTS,      // info about the currently connected clients
     PLANNER,          // info about planner and EE performance and cache usage
+    ADHOCPLANNER,     // ad hoc planner thread queue depth and latency
     MANAGEMENT,       // Returns pretty much everything
     PROCEDUREPROFILE, // performs an aggregation of the procedure statistics
     SNAPSHOTSTATUS,
@@ -54,5 +55,6 @@ public enum StatsSelector {
     CPU,            // Return CPU Stats
 
     COMMANDLOG,     // return number of outstanding bytes and txns on this node
+    EXPORTEXECUTOR, // shared export executor pool threads and queue depths
     IMPORTER
 }
@@ -146,8 +146,12 @@ public abstract class StatsSource {
      *         getStatsRows()
      */
     public VoltTable getStatsTable() {
+        final VoltTable table = m_table;
+        if (table == null) {
+            return null;
+        }
         //Create a view for thread safety even though stats are retrieved single threaded right now
-        return new VoltTable(m_table.getBuffer(), true);
+        return new VoltTable(table.getBuffer(), true);
     }
 
     /**
@@ -0,0 +1,315 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Table of the in flight invocations of a connection keyed by client handle.
+ *
+ * The table is split into stripes selected by the low bits of the handle so threads
+ * invoking and completing consecutive handles rarely meet on the same lock. Each stripe is an
+ * open addressing table over primitive long keys with a free list of bookkeeping entries,
+ * so steady state traffic allocates nothing.
+ *
+ * Every entry is also linked into a timer wheel by its expiration time so expiring
+ * invocations only visits the wheel slots that came due instead of every invocation in flight.
+ *
+ * An entry returned by {@link #remove(long)}, {@link #expire(long, List)} or {@link #removeAll(List)}
+ * belongs to the caller until it is handed back with {@link #release(Entry)}, after which it may be
+ * reused for another invocation at any time.
+ */
+class CallbackTable {
+
+    static final class Entry {
+        long handle;
+        long timestampNanos;
+        //Timeout of the procedure, used to report the timeout
+        long procedureTimeoutNanos;
+        //When the periodic expiration should time out the procedure
+        long expirationNanos;
+        ProcedureCallback callback;
+        String name;
+        boolean ignoreBackpressure;
+
+        //Timer wheel slot links, next is also used for the free list
+        private Entry m_prev;
+        private Entry m_next;
+        private int m_slot = -1;
+    }
+
+    static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    static final int WHEEL_SLOTS = 64;
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_FREE_ENTRIES = 1024;
+
+    private static final class Stripe {
+        long m_keys[] = new long[INITIAL_CAPACITY];
+        Entry m_values[] = new Entry[INITIAL_CAPACITY];
+        int m_size = 0;
+
+        final Entry m_wheel[] = new Entry[WHEEL_SLOTS];
+
+        Entry m_free = null;
+        int m_freeCount = 0;
+    }
+
+    private final Stripe m_stripes[] = new Stripe[STRIPES];
+    private volatile long m_lastExpiredTick = -1;
+
+    CallbackTable() {
+        for (int ii = 0; ii < STRIPES; ii++) {
+            m_stripes[ii] = new Stripe();
+        }
+    }
+
+    private Stripe stripe(long handle) {
+        return m_stripes[(int) (handle & (STRIPES - 1))];
+    }
+
+    private static int slotOf(long key, int mask) {
+        //Stripes take the low bits, spread the rest over the table
+        long h = (key >>> 4) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int wheelSlot(long nanos) {
+        return (int) ((nanos / TICK_NANOS) & (WHEEL_SLOTS - 1));
+    }
+
+    /**
+     * Add an invocation, the handle must not already be in the table
+     */
+    void put(long handle, long timestampNanos, ProcedureCallback callback, String name,
+            long procedureTimeoutNanos, long expirationNanos, boolean ignoreBackpressure) {
+        assert(callback != null);
+        final Stripe s = stripe(handle);
+        synchronized (s) {
+            Entry e = s.m_free;
+            if (e != null) {
+                s.m_free = e.m_next;
+                s.m_freeCount--;
+                e.m_next = null;
+            } else {
+                e = new Entry();
+            }
+            e.handle = handle;
+            e.timestampNanos = timestampNanos;
+            e.callback = callback;
+            e.name = name;
+            e.procedureTimeoutNanos = procedureTimeoutNanos;
+            e.expirationNanos = expirationNanos;
+            e.ignoreBackpressure = ignoreBackpressure;
+
+            if ((s.m_size + 1) * 2 > s.m_keys.length) {
+                grow(s);
+            }
+            insert(s, e);
+            s.m_size++;
+            link(s, e);
+        }
+    }
+
+    boolean contains(long handle) {
+        final Stripe s = stripe(handle);
+        synchronized (s) {
+            return find(s, handle) >= 0;
+        }
+    }
+
+    /**
+     * Remove an invocation
+     * @return the entry or null if another thread already removed it
+     */
+    Entry remove(long handle) {
+        final Stripe s = stripe(handle);
+        synchronized (s) {
+            final int index = find(s, handle);
+            if (index < 0) {
+                return null;
+            }
+            final Entry e = s.m_values[index];
+            delete(s, index);
+            unlink(s, e);
+            return e;
+        }
+    }
+
+    /**
+     * Remove the invocations whose expiration time has passed
+     * @param expired receives the removed entries
+     */
+    void expire(long nowNanos, List<Entry> expired) {
+        final long nowTick = nowNanos / TICK_NANOS;
+        final long lastTick = m_lastExpiredTick;
+        //Rescan the last slot, entries due later in that tick were left there
+        final long firstTick = (lastTick == -1 || nowTick - lastTick >= WHEEL_SLOTS) ? nowTick - WHEEL_SLOTS + 1 : lastTick;
+        for (Stripe s : m_stripes) {
+            synchronized (s) {
+                for (long tick = firstTick; tick <= nowTick; tick++) {
+                    final int slot = (int) (tick & (WHEEL_SLOTS - 1));
+                    Entry e = s.m_wheel[slot];
+                    while (e != null) {
+                        final Entry next = e.m_next;
+                        if (e.expirationNanos <= nowNanos) {
+                            delete(s, find(s, e.handle));
+                            unlink(s, e);
+                            expired.add(e);
+                        }
+                        e = next;
+                    }
+                }
+            }
+        }
+        m_lastExpiredTick = nowTick;
+    }
+
+    /**
+     * Remove every invocation
+     * @param removed receives the removed entries
+     */
+    void removeAll(List<Entry> removed) {
+        for (Stripe s : m_stripes) {
+            synchronized (s) {
+                for (int ii = 0; ii < s.m_values.length; ii++) {
+                    final Entry e = s.m_values[ii];
+                    if (e != null) {
+                        s.m_values[ii] = null;
+                        unlink(s, e);
+                        removed.add(e);
+                    }
+                }
+                s.m_size = 0;
+            }
+        }
+    }
+
+    /**
+     * Return a removed entry to the pool once the caller is done with it
+     */
+    void release(Entry e) {
+        final Stripe s = stripe(e.handle);
+        synchronized (s) {
+            e.callback = null;
+            e.name = null;
+            if (s.m_freeCount < MAX_FREE_ENTRIES) {
+                e.m_next = s.m_free;
+                s.m_free = e;
+                s.m_freeCount++;
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe s : m_stripes) {
+            synchronized (s) {
+                size += s.m_size;
+            }
+        }
+        return size;
+    }
+
+    private static int find(Stripe s, long handle) {
+        final int mask = s.m_keys.length - 1;
+        int index = slotOf(handle, mask);
+        while (s.m_values[index] != null) {
+            if (s.m_keys[index] == handle) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static void insert(Stripe s, Entry e) {
+        final int mask = s.m_keys.length - 1;
+        int index = slotOf(e.handle, mask);
+        while (s.m_values[index] != null) {
+            assert(s.m_keys[index] != e.handle);
+            index = (index + 1) & mask;
+        }
+        s.m_keys[index] = e.handle;
+        s.m_values[index] = e;
+    }
+
+    /**
+     * Linear probing delete, shift back following entries that would no longer be found
+     */
+    private static void delete(Stripe s, int index) {
+        final int mask = s.m_keys.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (s.m_values[next] != null) {
+            final int home = slotOf(s.m_keys[next], mask);
+            //Move the entry into the hole if its home isn't cyclically between the hole and its position
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                s.m_keys[hole] = s.m_keys[next];
+                s.m_values[hole] = s.m_values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        s.m_values[hole] = null;
+        s.m_size--;
+    }
+
+    private static void grow(Stripe s) {
+        final Entry oldValues[] = s.m_values;
+        s.m_keys = new long[oldValues.length * 2];
+        s.m_values = new Entry[oldValues.length * 2];
+        for (Entry e : oldValues) {
+            if (e != null) {
+                insert(s, e);
+            }
+        }
+    }
+
+    private static void link(Stripe s, Entry e) {
+        final int slot = wheelSlot(e.expirationNanos);
+        e.m_slot = slot;
+        e.m_prev = null;
+        e.m_next = s.m_wheel[slot];
+        if (e.m_next != null) {
+            e.m_next.m_prev = e;
+        }
+        s.m_wheel[slot] = e;
+    }
+
+    private static void unlink(Stripe s, Entry e) {
+        if (e.m_prev != null) {
+            e.m_prev.m_next = e.m_next;
+        } else {
+            s.m_wheel[e.m_slot] = e.m_next;
+        }
+        if (e.m_next != null) {
+            e.m_next.m_prev = e.m_prev;
+        }
+        e.m_prev = null;
+        e.m_next = null;
+        e.m_slot = -1;
+    }
+}
@@ -110,6 +110,27 @@ public interface Client {
     public boolean callProcedure(ProcedureCallback callback, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Asynchronously invoke a procedure and return a future for the response. The future is completed by the
+     * single thread backing the client instance without handing off to another thread, so many dependent
+     * invocations can be chained with {@link ClientResponseFuture#addCallback(ProcedureCallback)} without
+     * dedicating a thread to waiting on each one. Use
+     * {@link ClientResponseFuture#addCallback(ProcedureCallback, java.util.concurrent.Executor)} to run
+     * slow or blocking continuations on another executor.</p>
+     *
+     * <p>Backpressure is handled as in {@link #callProcedure(ProcedureCallback, String, Object...)}. If the
+     * invocation can't be queued the future is already completed with a response with the status
+     * {@link ClientResponse#GRACEFUL_FAILURE}.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return {@link ClientResponseFuture} that is completed with the response to the invocation.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ClientResponseFuture callProcedureAsync(String procName, Object... parameters)
+    throws IOException, NoConnectionsException;
+
     /**
      * <p>Synchronously invoke a procedure with timeout. Blocks until a result is available. A {@link ProcCallException}
      * is thrown if the response is anything other then success.</p>
@@ -306,6 +306,32 @@ public final class ClientImpl implements Client {
                 Distributer.USE_DEFAULT_CLIENT_TIMEOUT, TimeUnit.NANOSECONDS, parameters);
     }
 
+    /**
+     * Asynchronously invoke a procedure call.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future completed with the response, or with a failure response if the procedure wasn't queued
+     */
+    @Override
+    public ClientResponseFuture callProcedureAsync(
+            String procName,
+            Object... parameters)
+                    throws IOException, NoConnectionsException
+    {
+        final ClientResponseFuture future = new ClientResponseFuture(m_distributer);
+        ProcedureInvocation invocation
+                = new ProcedureInvocation(m_handle.getAndIncrement(), procName, parameters);
+        if (!internalAsyncCallProcedure(future.m_callback, Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation)) {
+            future.complete(new ClientResponseImpl(
+                    ClientResponse.GRACEFUL_FAILURE,
+                    ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                    "",
+                    new VoltTable[0],
+                    "Unable to queue client request."));
+        }
+        return future;
+    }
+
     /**
      * Asynchronously invoke a procedure call with timeout.
      * @param callback TransactionCallback that will be invoked with procedure results.
@@ -824,6 +850,11 @@ public final class ClientImpl implements Client {
 
     }
 
+    //Hidden method for getPartitionForParameter of an integer value
+    public long getPartitionForLong(byte typeValue, long value) {
+        return m_distributer.getPartitionForLong(typeValue, value);
+    }
+
     public HashinatorLiteType getHashinatorType() {
         return m_distributer.getHashinatorType();
     }
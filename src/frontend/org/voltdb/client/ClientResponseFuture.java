@@ -0,0 +1,108 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+
+import com.google_voltpatches.common.util.concurrent.AbstractFuture;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+
+/**
+ * <p>The pending response to a procedure invoked with {@link Client#callProcedureAsync(String, Object...)}.</p>
+ *
+ * <p>The future is completed directly by the thread backing the client instance when the response
+ * arrives. Failures such as timeouts and lost connections are reported through the status of the
+ * {@link ClientResponse}, the future itself never completes exceptionally.</p>
+ *
+ * <p>Continuations added with {@link #addCallback(ProcedureCallback)} or with an executor that runs tasks
+ * in the calling thread are invoked by the client thread and are subject to the same restrictions
+ * as a {@link ProcedureCallback}: they must not block, and must not call {@link #get()} on a future
+ * that is not yet done. Pass an executor to {@link #addCallback(ProcedureCallback, Executor)} to run
+ * slow continuations elsewhere.</p>
+ */
+public final class ClientResponseFuture extends AbstractFuture<ClientResponse> {
+
+    private final Distributer m_distributer;
+
+    /*
+     * Callback handed to the distributer in place of a user callback
+     */
+    final ProcedureCallback m_callback = new ProcedureCallback() {
+        @Override
+        public void clientCallback(ClientResponse clientResponse) {
+            set(clientResponse);
+        }
+    };
+
+    ClientResponseFuture(Distributer distributer) {
+        m_distributer = distributer;
+    }
+
+    /**
+     * Complete the future without invoking the procedure, e.g. when it couldn't be queued
+     */
+    void complete(ClientResponse response) {
+        set(response);
+    }
+
+    /**
+     * <p>Invoke a callback with the response from the client thread as soon as it arrives, or immediately from
+     * the calling thread if the response has already arrived.</p>
+     *
+     * @param callback {@link ProcedureCallback} that will be invoked with the response.
+     */
+    public void addCallback(ProcedureCallback callback) {
+        addCallback(callback, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * <p>Invoke a callback with the response using the provided executor once the response arrives.
+     * Exceptions thrown by the callback are reported to the client status listeners like those thrown by
+     * the callbacks passed to {@link Client#callProcedure(ProcedureCallback, String, Object...)}.</p>
+     *
+     * @param callback {@link ProcedureCallback} that will be invoked with the response.
+     * @param executor {@link Executor} that runs the callback.
+     */
+    public void addCallback(final ProcedureCallback callback, Executor executor) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (isCancelled()) {
+                    return;
+                }
+                final ClientResponse response;
+                try {
+                    response = get();
+                } catch (Exception e) {
+                    //Never completed exceptionally and done by the time listeners run
+                    throw new AssertionError(e);
+                }
+                try {
+                    callback.clientCallback(response);
+                } catch (Throwable t) {
+                    if (m_distributer != null) {
+                        m_distributer.uncaughtException(callback, response, t);
+                    } else {
+                        ClientImpl.LOG.log(Level.WARNING, "Uncaught exception in procedure callback", t);
+                    }
+                }
+            }
+        }, executor);
+    }
+}
@@ -31,8 +31,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -325,31 +323,25 @@ class Distributer {
                         c.sendPing();
                     }
 
-                    // for each outstanding procedure
-                    for (final Map.Entry<Long, CallbackBookeeping> e : c.m_callbacks.entrySet()) {
-                        final long handle = e.getKey();
-                        final CallbackBookeeping cb = e.getValue();
-
-                        // if the timeout is expired, call the callback and remove the
-                        // bookeeping data
+                    // for each outstanding procedure whose timeout has expired, call the callback
+                    // and remove the bookeeping data
+                    c.m_callbacks.expire(nowNanos, m_expired);
+                    for (final CallbackTable.Entry cb : m_expired) {
                         final long deltaNanos = Math.max(1, nowNanos - cb.timestampNanos);
-                        if (deltaNanos > cb.procedureTimeoutNanos) {
-
-                            //For expected long operations don't use the default timeout
-                            //unless it is > MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS
-                            final boolean isLongOp = isLongOp(cb.name);
-                            if (isLongOp && (deltaNanos < TimeUnit.MILLISECONDS.toNanos(MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS))) {
-                                continue;
-                            }
-
-                            c.handleTimedoutCallback(handle, nowNanos);
-                        }
+                        c.invokeCallbackWithTimeout(cb.name, cb.callback, deltaNanos, nowNanos,
+                                cb.procedureTimeoutNanos, cb.handle, cb.ignoreBackpressure);
+                        c.m_callbacks.release(cb);
                     }
+                    m_expired.clear();
                 }
             } catch (Throwable t) {
+                m_expired.clear();
                 t.printStackTrace();
             }
         }
+
+        //Reused every run, the task only runs on the single scheduler thread
+        private final ArrayList<CallbackTable.Entry> m_expired = new ArrayList<>();
     }
 
     /*
@@ -368,26 +360,9 @@ class Distributer {
         return false;
     }
 
-    class CallbackBookeeping {
-        public CallbackBookeeping(long timestampNanos, ProcedureCallback callback, String name, long timeoutNanos, boolean ignoreBackpressure) {
-            assert(callback != null);
-            this.timestampNanos = timestampNanos;
-            this.callback = callback;
-            this.name = name;
-            this.procedureTimeoutNanos = timeoutNanos;
-            this.ignoreBackpressure = ignoreBackpressure;
-        }
-        long timestampNanos;
-        //Timeout in ms 0 means use conenction specified procedure timeoutMS.
-        final long procedureTimeoutNanos;
-        ProcedureCallback callback;
-        String name;
-        boolean ignoreBackpressure;
-    }
-
     class NodeConnection extends VoltProtocolHandler implements org.voltcore.network.QueueMonitor {
         private final AtomicInteger m_callbacksToInvoke = new AtomicInteger(0);
-        private final ConcurrentMap<Long, CallbackBookeeping> m_callbacks = new ConcurrentHashMap<>();
+        private final CallbackTable m_callbacks = new CallbackTable();
         private final NonBlockingHashMap<String, ClientStats> m_stats = new NonBlockingHashMap<>();
         private Connection m_connection;
         private volatile boolean m_isConnected = true;
@@ -436,14 +411,20 @@ class Distributer {
                 return;
             }
 
-            assert(m_callbacks.containsKey(handle) == false);
+            assert(m_callbacks.contains(handle) == false);
 
             //Drain needs to know when all callbacks have been invoked
             final int callbacksToInvoke = m_callbacksToInvoke.incrementAndGet();
             assert(callbacksToInvoke >= 0);
 
+            //For expected long operations don't use the default timeout
+            //unless it is > MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS
+            final long expirationNanos = isLongOp(name) ?
+                    nowNanos + Math.max(timeoutNanos, TimeUnit.MILLISECONDS.toNanos(MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS)) :
+                    timeoutTime;
+
             //Optimistically submit the task
-            m_callbacks.put(handle, new CallbackBookeeping(nowNanos, callback, name, timeoutNanos, ignoreBackpressure));
+            m_callbacks.put(handle, nowNanos, callback, name, timeoutNanos, expirationNanos, ignoreBackpressure);
 
             //Schedule the timeout to fire relative to the amount of time
             //spent getting to this point. Might fire immediately
@@ -459,9 +440,11 @@ class Distributer {
             //Check for disconnect
             if (!m_isConnected) {
                 //Check if the disconnect or expiration already handled the callback
-                if (m_callbacks.remove(handle) == null) {
+                final CallbackTable.Entry cb = m_callbacks.remove(handle);
+                if (cb == null) {
                     return;
                 }
+                m_callbacks.release(cb);
                 final ClientResponse r = new ClientResponseImpl(
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
                         "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
@@ -511,7 +494,7 @@ class Distributer {
         void handleTimedoutCallback(long handle, long nowNanos) {
             //Callback doesn't have to be there, it may have already
             //received a response or been expired by the periodic expiration task, or a discrete expiration task
-            final CallbackBookeeping cb = m_callbacks.remove(handle);
+            final CallbackTable.Entry cb = m_callbacks.remove(handle);
 
             //It was handled during the race
             if (cb == null) {
@@ -521,6 +504,7 @@ class Distributer {
             final long deltaNanos = Math.max(1, nowNanos - cb.timestampNanos);
 
             invokeCallbackWithTimeout(cb.name, cb.callback, deltaNanos, nowNanos, cb.procedureTimeoutNanos, handle, cb.ignoreBackpressure);
+            m_callbacks.release(cb);
         }
 
         /*
@@ -650,7 +634,7 @@ class Distributer {
 
             //Race with expiration thread to be the first to remove the callback
             //from the map and process it
-            final CallbackBookeeping stuff = m_callbacks.remove(response.getClientHandle());
+            final CallbackTable.Entry stuff = m_callbacks.remove(response.getClientHandle());
 
             // presumably (hopefully) this is a response for a timed-out message
             if (stuff == null) {
@@ -683,6 +667,7 @@ class Distributer {
                 int clusterRoundTrip = response.getClusterRoundtrip();
                 m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
                 updateStats(stuff.name, deltaNanos, clusterRoundTrip, abort, error, false);
+                m_callbacks.release(stuff);
                 response.setClientRoundtrip(deltaNanos);
                 assert(response.getHash() == null); // make sure it didn't sneak into wire protocol
                 try {
@@ -801,12 +786,9 @@ class Distributer {
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
                         "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
                 ") was lost before a response was received");
-            for (Map.Entry<Long, CallbackBookeeping> e : m_callbacks.entrySet()) {
-                //Check for race with other threads
-                if (m_callbacks.remove(e.getKey()) == null) {
-                    continue;
-                }
-                final CallbackBookeeping callBk = e.getValue();
+            final ArrayList<CallbackTable.Entry> callbacks = new ArrayList<>();
+            m_callbacks.removeAll(callbacks);
+            for (CallbackTable.Entry callBk : callbacks) {
                 try {
                     callBk.callback.clientCallback(r);
                 }
@@ -819,6 +801,7 @@ class Distributer {
                 assert(remainingToInvoke >= 0);
 
                 m_rateLimiter.transactionResponseReceived(System.nanoTime(), -1, callBk.ignoreBackpressure);
+                m_callbacks.release(callBk);
             }
         }
 
@@ -1438,6 +1421,13 @@ class Distributer {
         return m_hashinator.getHashedPartitionForParameter(typeValue, value);
     }
 
+    public long getPartitionForLong(byte typeValue, long value) {
+        if (m_hashinator == null) {
+            return -1;
+        }
+        return m_hashinator.getHashedPartitionForLong(typeValue, value);
+    }
+
     public HashinatorLiteType getHashinatorType() {
         if (m_hashinator == null) {
             return HashinatorLiteType.LEGACY;
@@ -343,6 +343,41 @@ public class HashinatorLite {
         return hashToPartition(partitionParamType, partitionValue);
     }
 
+    /**
+     * Same as {@link #getHashedPartitionForParameter(int, Object)} for the value of an integer
+     * partition parameter, without boxing it.
+     *
+     * @return The partition best set up to execute the procedure.
+     * @throws VoltTypeException if the partition parameter isn't of an integer type
+     */
+    public int getHashedPartitionForLong(int partitionParameterType, long partitionValue)
+            throws VoltTypeException {
+        final VoltType partitionParamType = VoltType.get((byte) partitionParameterType);
+        final long nullValue;
+        switch (partitionParamType) {
+        case TINYINT:
+            nullValue = VoltType.NULL_TINYINT;
+            break;
+        case SMALLINT:
+            nullValue = VoltType.NULL_SMALLINT;
+            break;
+        case INTEGER:
+            nullValue = VoltType.NULL_INTEGER;
+            break;
+        case BIGINT:
+            nullValue = VoltType.NULL_BIGINT;
+            break;
+        default:
+            throw new VoltTypeException("getHashedPartitionForLong: " + partitionParamType +
+                    " is not an integer type");
+        }
+        // Nulls hash to partition 0 with both hashinators, like in hashToPartition()
+        if (partitionValue == nullValue) {
+            return 0;
+        }
+        return hashinateLong(partitionValue);
+    }
+
     public HashinatorLiteType getConfigurationType() {
         return m_type;
     }
@@ -0,0 +1,467 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client.VoltBulkLoader;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltdb.ParameterConverter;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltOverflowException;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTableRow;
+import org.voltdb.VoltType;
+import org.voltdb.VoltTypeException;
+import org.voltdb.common.Constants;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.GeographyValue;
+import org.voltdb.types.TimestampType;
+import org.voltdb.types.VoltDecimalHelper;
+
+/**
+ * <p>Builds the rows of a VoltBulkLoader column by column from typed values. Values are
+ * serialized as they are added and rows are copied into the batch of their partition,
+ * which is sent as is once it holds a batch worth of rows. Unlike
+ * {@link VoltBulkLoader#insertRow(Object, Object...)} no array, boxed value or conversion
+ * is needed per row.</p>
+ *
+ * <p>Columns are added in table order, one add call per column, and {@link #endRow(Object)}
+ * finishes the row. A value that doesn't fit its column throws a {@link VoltTypeException}
+ * and drops the row being built. A row builder must only be used by one thread at a time,
+ * use a builder per thread to load from several threads.</p>
+ *
+ * <p>Rows stay in the builder until their batch is full or the loader is flushed,
+ * drained or closed. If the thread is interrupted while a full batch waits to be sent, the
+ * rows of that batch are reported to the failure callback of the loader. Close the builder
+ * when done with it so the loader stops tracking it.</p>
+ */
+public class BulkLoaderRowBuilder {
+
+    // Batch of rows for a partition, in the serialization of a VoltTable
+    private static class Batch {
+        ByteBuffer m_buffer;
+        List<Object> m_rowHandles = new ArrayList<Object>();
+
+        Batch(byte schema[], int capacity) {
+            m_buffer = ByteBuffer.allocate(capacity);
+            m_buffer.put(schema);
+            m_buffer.putInt(0);
+        }
+    }
+
+    private final VoltBulkLoader m_loader;
+    private final VoltType[] m_columnTypes;
+    private final int m_partitionedColumnIndex;
+    private final VoltType m_partitionColumnType;
+    // Table header shared by all batches
+    private final byte[] m_schema;
+    private final Batch[] m_batches;
+
+    // Row being built, starting with its length
+    private ByteBuffer m_row = ByteBuffer.allocate(1024);
+    private int m_column = 0;
+    // Value of the partition column of the row, the object is only used by non integer columns
+    private long m_partitionLong;
+    private Object m_partitionObject;
+
+    BulkLoaderRowBuilder(VoltBulkLoader loader) {
+        m_loader = loader;
+        m_columnTypes = loader.m_columnTypes;
+        m_partitionedColumnIndex = loader.m_partitionedColumnIndex;
+        m_partitionColumnType = loader.m_partitionColumnType;
+        m_schema = PrivateVoltTableFactory.getSchemaBytes(new VoltTable(loader.m_colInfo));
+        m_batches = new Batch[loader.m_partitionTable.length];
+        m_row.position(4);
+    }
+
+    /**
+     * Add the value of a TINYINT, SMALLINT, INTEGER, BIGINT or TIMESTAMP column. Timestamps
+     * are in microseconds since the epoch.
+     */
+    public BulkLoaderRowBuilder addLong(long value) {
+        final VoltType type = nextColumn();
+        ensureCapacity(8);
+        switch (type) {
+        case TINYINT:
+            checkRange(type, value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+            m_row.put((byte) value);
+            break;
+        case SMALLINT:
+            checkRange(type, value, Short.MIN_VALUE, Short.MAX_VALUE);
+            m_row.putShort((short) value);
+            break;
+        case INTEGER:
+            checkRange(type, value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            m_row.putInt((int) value);
+            break;
+        case BIGINT:
+            checkRange(type, value, Long.MIN_VALUE, Long.MAX_VALUE);
+            m_row.putLong(value);
+            break;
+        case TIMESTAMP:
+            m_row.putLong(value);
+            break;
+        default:
+            throw mismatch(type, "long");
+        }
+        if (m_column == m_partitionedColumnIndex) {
+            m_partitionLong = value;
+        }
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Add the value of a FLOAT column.
+     */
+    public BulkLoaderRowBuilder addDouble(double value) {
+        final VoltType type = nextColumn();
+        if (type != VoltType.FLOAT) {
+            throw mismatch(type, "double");
+        }
+        if (value == VoltType.NULL_FLOAT) {
+            throw overflow(type);
+        }
+        ensureCapacity(8);
+        m_row.putDouble(value);
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Add the value of a VARCHAR column.
+     */
+    public BulkLoaderRowBuilder addString(String value) {
+        if (value == null) {
+            return addNull();
+        }
+        final VoltType type = nextColumn();
+        if (type != VoltType.STRING) {
+            throw mismatch(type, "String");
+        }
+        if (m_column == m_partitionedColumnIndex) {
+            m_partitionObject = value;
+        }
+        return putBytes(value.getBytes(Constants.UTF8ENCODING));
+    }
+
+    /**
+     * Add the value of a VARBINARY column, or the UTF-8 encoded value of a VARCHAR column.
+     */
+    public BulkLoaderRowBuilder addBytes(byte[] value) {
+        if (value == null) {
+            return addNull();
+        }
+        final VoltType type = nextColumn();
+        if (type != VoltType.VARBINARY && type != VoltType.STRING) {
+            throw mismatch(type, "byte[]");
+        }
+        if (m_column == m_partitionedColumnIndex) {
+            m_partitionObject = value;
+        }
+        return putBytes(value);
+    }
+
+    /**
+     * Add the value of a DECIMAL column.
+     */
+    public BulkLoaderRowBuilder addDecimal(BigDecimal value) {
+        if (value == null) {
+            return addNull();
+        }
+        final VoltType type = nextColumn();
+        if (type != VoltType.DECIMAL) {
+            throw mismatch(type, "BigDecimal");
+        }
+        ensureCapacity(VoltType.DECIMAL.getLengthInBytesForFixedTypes());
+        try {
+            VoltDecimalHelper.serializeBigDecimal(value, m_row);
+        } catch (RuntimeException e) {
+            resetRow();
+            throw new VoltTypeException(e.getMessage());
+        }
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Add a null value to the next column.
+     */
+    public BulkLoaderRowBuilder addNull() {
+        final VoltType type = nextColumn();
+        ensureCapacity(type.getLengthInBytesForFixedTypesWithoutCheck() > 0 ?
+                type.getLengthInBytesForFixedTypesWithoutCheck() : 4);
+        switch (type) {
+        case TINYINT:
+            m_row.put(VoltType.NULL_TINYINT);
+            break;
+        case SMALLINT:
+            m_row.putShort(VoltType.NULL_SMALLINT);
+            break;
+        case INTEGER:
+            m_row.putInt(VoltType.NULL_INTEGER);
+            break;
+        case BIGINT:
+        case TIMESTAMP:
+            m_row.putLong(VoltType.NULL_BIGINT);
+            break;
+        case FLOAT:
+            m_row.putDouble(VoltType.NULL_FLOAT);
+            break;
+        case STRING:
+        case VARBINARY:
+        case GEOGRAPHY:
+            m_row.putInt(VoltType.NULL_STRING_LENGTH);
+            break;
+        case GEOGRAPHY_POINT:
+            GeographyPointValue.serializeNull(m_row);
+            break;
+        case DECIMAL:
+            VoltDecimalHelper.serializeNull(m_row);
+            break;
+        default:
+            throw mismatch(type, "null");
+        }
+        if (m_column == m_partitionedColumnIndex) {
+            m_partitionLong = VoltType.NULL_BIGINT;
+            m_partitionObject = null;
+        }
+        m_column++;
+        return this;
+    }
+
+    /**
+     * Add a value of any type to the next column, converting it like
+     * {@link VoltBulkLoader#insertRow(Object, Object...)} does. This is the way to add
+     * geography values.
+     */
+    public BulkLoaderRowBuilder addValue(Object value) {
+        if (VoltType.isVoltNullValue(value)) {
+            return addNull();
+        }
+        final VoltType type = nextColumn();
+        final Object converted;
+        try {
+            converted = ParameterConverter.tryToMakeCompatible(type.classFromType(), value);
+        } catch (VoltTypeException e) {
+            resetRow();
+            throw e;
+        }
+        if (VoltType.isVoltNullValue(converted)) {
+            return addNull();
+        }
+
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+            return addLong(((Number) converted).longValue());
+        case TIMESTAMP:
+            return addLong(((TimestampType) converted).getTime());
+        case FLOAT:
+            return addDouble(((Number) converted).doubleValue());
+        case STRING:
+            return addString((String) converted);
+        case VARBINARY:
+            return addBytes((byte[]) converted);
+        case DECIMAL:
+            return addDecimal((BigDecimal) converted);
+        case GEOGRAPHY_POINT:
+            ensureCapacity(GeographyPointValue.getLengthInBytes());
+            ((GeographyPointValue) converted).flattenToBuffer(m_row);
+            break;
+        case GEOGRAPHY: {
+            final GeographyValue gv = (GeographyValue) converted;
+            ensureCapacity(4 + gv.getLengthInBytes());
+            m_row.putInt(gv.getLengthInBytes());
+            gv.flattenToBuffer(m_row);
+            break;
+        }
+        default:
+            throw mismatch(type, value.getClass().getSimpleName());
+        }
+        m_column++;
+        return this;
+    }
+
+    /**
+     * <p>Finish the row and queue it for insert.</p>
+     *
+     * @param rowHandle User supplied object used to distinguish failed insert attempts
+     * @throws IllegalStateException if a value wasn't added for every column
+     * @throws java.lang.InterruptedException if interrupted while sending the full batch of the row
+     */
+    public void endRow(Object rowHandle) throws InterruptedException {
+        if (m_column != m_columnTypes.length) {
+            final int columns = m_column;
+            resetRow();
+            throw new IllegalStateException("Row has " + columns + " of the " + m_columnTypes.length +
+                    " columns of the table");
+        }
+        final int rowSize = m_row.position() - 4;
+        if (rowSize > VoltTableRow.MAX_TUPLE_LENGTH) {
+            resetRow();
+            throw new VoltOverflowException(
+                    "Table row total length larger than allowed max " + VoltTableRow.MAX_TUPLE_LENGTH_STR);
+        }
+        m_row.putInt(0, rowSize);
+
+        try {
+            final int partition;
+            if (m_partitionedColumnIndex == -1) {
+                partition = m_loader.m_firstPartitionTable;
+            } else if (m_partitionColumnType.isAnyIntegerType()) {
+                partition = (int) m_loader.m_clientImpl.getPartitionForLong(m_partitionColumnType.getValue(),
+                        m_partitionLong);
+            } else {
+                partition = (int) m_loader.m_clientImpl.getPartitionForParameter(m_partitionColumnType.getValue(),
+                        m_partitionObject);
+            }
+
+            synchronized (this) {
+                Batch batch = m_batches[partition];
+                if (batch == null) {
+                    batch = new Batch(m_schema, Math.max(64 * 1024, m_schema.length + 4 + m_row.position()));
+                    m_batches[partition] = batch;
+                }
+                if (batch.m_buffer.remaining() < m_row.position()) {
+                    ByteBuffer buffer = ByteBuffer.allocate(
+                            Math.max(batch.m_buffer.capacity() * 2, batch.m_buffer.position() + m_row.position()));
+                    batch.m_buffer.flip();
+                    buffer.put(batch.m_buffer);
+                    batch.m_buffer = buffer;
+                }
+                m_row.flip();
+                batch.m_buffer.put(m_row);
+                batch.m_rowHandles.add(rowHandle);
+
+                if (batch.m_rowHandles.size() >= m_loader.m_partitionTable[partition].m_minBatchTriggerSize) {
+                    send(partition, batch);
+                }
+            }
+        } finally {
+            resetRow();
+        }
+    }
+
+    /**
+     * Submit the rows of all partially full batches of this builder to the loader. This is
+     * done by {@link VoltBulkLoader#flush()}, {@link VoltBulkLoader#drain()} and
+     * {@link VoltBulkLoader#close()} as well.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    public synchronized void flush() throws InterruptedException {
+        for (int i = 0; i < m_batches.length; i++) {
+            if (m_batches[i] != null && !m_batches[i].m_rowHandles.isEmpty()) {
+                send(i, m_batches[i]);
+            }
+        }
+    }
+
+    /**
+     * Flush the rows of this builder and stop the loader from tracking it. The builder
+     * must not be used afterwards.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    public void close() throws InterruptedException {
+        try {
+            flush();
+        } finally {
+            m_loader.m_rowBuilders.remove(this);
+        }
+    }
+
+    /**
+     * Hand the rows of a batch to its partition as a table. The next batch is started first,
+     * in a buffer of the same size, since the buffer of this one belongs to the table even
+     * if it can't be sent.
+     */
+    private void send(int partition, Batch batch) throws InterruptedException {
+        final ByteBuffer buffer = batch.m_buffer;
+        m_batches[partition] = new Batch(m_schema, buffer.capacity());
+
+        buffer.putInt(m_schema.length, batch.m_rowHandles.size());
+        buffer.flip();
+        final VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(buffer, true);
+        m_loader.queueTable(partition, table, batch.m_rowHandles);
+    }
+
+    private VoltType nextColumn() {
+        if (m_column == m_columnTypes.length) {
+            resetRow();
+            throw new IllegalStateException("Row already has all " + m_columnTypes.length +
+                    " columns of the table");
+        }
+        return m_columnTypes[m_column];
+    }
+
+    private BulkLoaderRowBuilder putBytes(byte[] value) {
+        if (value.length > VoltType.MAX_VALUE_LENGTH) {
+            resetRow();
+            throw new VoltOverflowException("Value in column " + m_column + " larger than allowed max " +
+                    VoltType.humanReadableSize(VoltType.MAX_VALUE_LENGTH));
+        }
+        ensureCapacity(4 + value.length);
+        m_row.putInt(value.length);
+        m_row.put(value);
+        m_column++;
+        return this;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (m_row.remaining() < bytes) {
+            ByteBuffer row = ByteBuffer.allocate(Math.max(m_row.capacity() * 2, m_row.position() + bytes));
+            m_row.flip();
+            row.put(m_row);
+            m_row = row;
+        }
+    }
+
+    // The minimum of a type is its null value
+    private void checkRange(VoltType type, long value, long min, long max) {
+        if (value <= min || value > max) {
+            throw overflow(type);
+        }
+    }
+
+    private VoltTypeException overflow(VoltType type) {
+        final int column = m_column;
+        resetRow();
+        return new VoltTypeException("Value for column " + column + " would overflow " + type);
+    }
+
+    private VoltTypeException mismatch(VoltType type, String valueType) {
+        final int column = m_column;
+        resetRow();
+        return new VoltTypeException("Value for column " + column + " is type " + valueType +
+                " when type " + type + " was expected.");
+    }
+
+    private void resetRow() {
+        m_row.clear();
+        m_row.position(4);
+        m_column = 0;
+        m_partitionLong = VoltType.NULL_BIGINT;
+        m_partitionObject = null;
+    }
+}
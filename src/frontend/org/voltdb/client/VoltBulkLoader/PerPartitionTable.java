@@ -26,6 +26,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
@@ -74,6 +75,9 @@ public class PerPartitionTable {
     final String m_tableName;
     // Upsert Mode Flag
     final byte m_upsert;
+    // Limits the tables of row builders and VoltBulkLoader.insertTable() waiting to be sent,
+    // like the size of m_partitionRowQueue limits the rows
+    final Semaphore m_pendingTables = new Semaphore(5);
 
     // Callback for batch submissions to the Client. A failed request submits the entire
     // batch of rows to m_failedQueue for row by row processing on m_failureProcessor.
@@ -107,6 +111,40 @@ public class PerPartitionTable {
         }
     }
 
+    // Callback for tables submitted as they are. A failed table is taken apart into rows
+    // that are re-inserted one by one, like the rows of a failed batch.
+    class TableProcedureCallback implements ProcedureCallback {
+        final VoltBulkLoader m_loader;
+        final VoltTable m_table;
+        final List<Object> m_rowHandles;
+
+        TableProcedureCallback(VoltBulkLoader loader, VoltTable table, List<Object> rowHandles) {
+            m_loader = loader;
+            m_table = table;
+            m_rowHandles = rowHandles;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse response) throws InterruptedException {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                m_es.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            reinsertFailed(toRows(m_loader, m_table, m_rowHandles));
+                        } catch (Exception e) {
+                            loaderLog.error("Failed to re-insert failed table", e);
+                        }
+                    }
+                });
+            }
+            else {
+                m_loader.m_outstandingRowCount.addAndGet(-1 * m_table.getRowCount());
+                m_loader.m_loaderCompletedCnt.addAndGet(m_table.getRowCount());
+            }
+        }
+    }
+
     PerPartitionTable(ClientImpl clientImpl, String tableName, int partitionId, boolean isMP,
             VoltBulkLoader firstLoader, int minBatchTriggerSize) {
         m_clientImpl = clientImpl;
@@ -160,6 +198,27 @@ public class PerPartitionTable {
         }
     }
 
+    /**
+     * Submit a table holding rows of this partition without converting its rows. The table
+     * must not be changed afterwards. Blocks while too many tables are waiting to be sent.
+     */
+    void insertTable(final VoltBulkLoader loader, final VoltTable toSend, final List<Object> rowHandles)
+            throws InterruptedException {
+        m_pendingTables.acquire();
+        m_es.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sendTable(new TableProcedureCallback(loader, toSend, rowHandles), toSend);
+                } catch (Exception e) {
+                    loaderLog.error("Failed to load table", e);
+                } finally {
+                    m_pendingTables.release();
+                }
+            }
+        });
+    }
+
     /**
      * Flush all queued rows even if they are smaller than the batch size. This does not
      * guarantee that they will be reinserted if any of them fail. To make sure all rows
@@ -221,6 +280,21 @@ public class PerPartitionTable {
         }
     }
 
+    private static List<VoltBulkLoaderRow> toRows(VoltBulkLoader loader, VoltTable table,
+            List<Object> rowHandles) {
+        final VoltType[] columnTypes = loader.m_columnTypes;
+        List<VoltBulkLoaderRow> rows = new ArrayList<VoltBulkLoaderRow>(table.getRowCount());
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            Object rowData[] = new Object[columnTypes.length];
+            for (int i = 0; i < rowData.length; i++) {
+                rowData[i] = table.get(i, columnTypes[i]);
+            }
+            rows.add(new VoltBulkLoaderRow(loader, rowHandles.get(table.getActiveRowIndex()), rowData));
+        }
+        return rows;
+    }
+
     private PartitionProcedureCallback buildTable() {
         ArrayList<VoltBulkLoaderRow> buf = new ArrayList<VoltBulkLoaderRow>(m_minBatchTriggerSize);
         m_partitionRowQueue.drainTo(buf, m_minBatchTriggerSize);
@@ -249,6 +323,11 @@ public class PerPartitionTable {
     }
 
     private void loadTable(ProcedureCallback callback, VoltTable toSend) throws Exception {
+        sendTable(callback, toSend);
+        toSend.clearRowData();
+    }
+
+    private void sendTable(ProcedureCallback callback, VoltTable toSend) throws Exception {
         if (toSend.getRowCount() <= 0) {
             return;
         }
@@ -267,6 +346,5 @@ public class PerPartitionTable {
                     "Connection to database was lost");
             callback.clientCallback(r);
         }
-        toSend.clearRowData();
     }
 }
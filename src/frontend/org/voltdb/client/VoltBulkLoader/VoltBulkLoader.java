@@ -18,9 +18,11 @@
 package org.voltdb.client.VoltBulkLoader;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -95,7 +97,7 @@ public class VoltBulkLoader {
     //Number of columns
     int m_columnCnt = 0;
     //Is this a MP transaction
-    private boolean m_isMP = false;
+    boolean m_isMP = false;
     //Total number of partition processors including the MP processor.
     private int m_maxPartitionProcessors = -1;
 
@@ -107,6 +109,8 @@ public class VoltBulkLoader {
     final AtomicLong m_outstandingRowCount = new AtomicLong(0);
     //Number of rows for which we have received a definitive success or failure.
     final AtomicLong m_loaderCompletedCnt = new AtomicLong(0);
+    //Row builders of this loader, flushed with it
+    final List<BulkLoaderRowBuilder> m_rowBuilders = new CopyOnWriteArrayList<BulkLoaderRowBuilder>();
 
     // Constructor allocated through the Client to ensure consistency of VoltBulkLoaderGlobals
     public VoltBulkLoader(BulkLoaderState vblGlobals, String tableName, int maxBatchSize,
@@ -342,6 +346,124 @@ public class VoltBulkLoader {
         m_outstandingRowCount.incrementAndGet();
     }
 
+    /**
+     * <p>Create a builder that adds rows to this VoltBulkLoader from typed column values,
+     * serializing them straight into the batches sent to the database. The builder is
+     * flushed with the loader until it is closed.</p>
+     *
+     * @return a row builder to be used by one thread at a time
+     */
+    public BulkLoaderRowBuilder newRowBuilder() {
+        BulkLoaderRowBuilder builder = new BulkLoaderRowBuilder(this);
+        m_rowBuilders.add(builder);
+        return builder;
+    }
+
+    /**
+     * <p>Add the rows of a table to VoltBulkLoader table. The table must have the columns of
+     * the VoltBulkLoader table in the same order and with the same types. Its rows are sent as
+     * they are, the table is only split up when its rows belong to more than one partition.
+     * The table must not be changed after it is passed in.</p>
+     *
+     * @param tableHandle User supplied object passed with every row of the table that fails to insert
+     * @param table Rows to insert
+     * @throws java.lang.InterruptedException
+     */
+    public void insertTable(Object tableHandle, VoltTable table) throws InterruptedException {
+        if (table.getColumnCount() != m_columnCnt) {
+            throw new IllegalArgumentException("insertTable received incorrect number of columns; " +
+                    table.getColumnCount() + " found, " + m_columnCnt + " expected");
+        }
+        for (int i = 0; i < m_columnCnt; i++) {
+            if (table.getColumnType(i) != m_columnTypes[i]) {
+                throw new IllegalArgumentException("insertTable received column " + i + " of type " +
+                        table.getColumnType(i) + " when type " + m_columnTypes[i] + " was expected");
+            }
+        }
+        final int rowCount = table.getRowCount();
+        if (rowCount == 0) {
+            return;
+        }
+
+        if (m_isMP) {
+            queueTable(m_firstPartitionTable, table, Collections.nCopies(rowCount, tableHandle));
+            return;
+        }
+
+        int partitions[] = new int[rowCount];
+        boolean onePartition = true;
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            final int row = table.getActiveRowIndex();
+            if (m_partitionColumnType.isAnyIntegerType()) {
+                partitions[row] = (int)m_clientImpl.getPartitionForLong(m_partitionColumnType.getValue(),
+                        table.getLong(m_partitionedColumnIndex));
+            } else {
+                partitions[row] = (int)m_clientImpl.getPartitionForParameter(m_partitionColumnType.getValue(),
+                        table.get(m_partitionedColumnIndex, m_partitionColumnType));
+            }
+            onePartition &= partitions[row] == partitions[0];
+        }
+        if (onePartition) {
+            queueTable(partitions[0], table, Collections.nCopies(rowCount, tableHandle));
+            return;
+        }
+
+        VoltTable partitionTables[] = new VoltTable[m_partitionTable.length];
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            final int partition = partitions[table.getActiveRowIndex()];
+            if (partitionTables[partition] == null) {
+                partitionTables[partition] = new VoltTable(m_colInfo);
+            }
+            partitionTables[partition].add(table);
+        }
+        InterruptedException interrupted = null;
+        for (int i = 0; i < partitionTables.length; i++) {
+            if (partitionTables[i] == null) {
+                continue;
+            }
+            final List<Object> rowHandles = Collections.nCopies(partitionTables[i].getRowCount(), tableHandle);
+            if (interrupted == null) {
+                try {
+                    queueTable(i, partitionTables[i], rowHandles);
+                } catch (InterruptedException e) {
+                    interrupted = e;
+                }
+            } else {
+                failRows(rowHandles, "Interrupted before the row was sent");
+            }
+        }
+        if (interrupted != null) {
+            throw interrupted;
+        }
+    }
+
+    /**
+     * Queue a table of rows for a partition, counting them as outstanding. If interrupted
+     * before the table is queued the rows are reported as failed instead, so drain doesn't
+     * wait for them.
+     */
+    void queueTable(int partition, VoltTable table, List<Object> rowHandles) throws InterruptedException {
+        m_outstandingRowCount.addAndGet(rowHandles.size());
+        boolean queued = false;
+        try {
+            m_partitionTable[partition].insertTable(this, table, rowHandles);
+            queued = true;
+        } finally {
+            if (!queued) {
+                m_outstandingRowCount.addAndGet(-rowHandles.size());
+                failRows(rowHandles, "Interrupted before the row was sent");
+            }
+        }
+    }
+
+    private void failRows(List<Object> rowHandles, String errMessage) {
+        for (Object rowHandle : rowHandles) {
+            generateError(rowHandle, null, errMessage);
+        }
+    }
+
     /**
      * Called to asynchronously force the VoltBulkLoader to submit all the partially full batches
      * in all partitions of the table to the Client for insert. To wait for all rows to be processed,
@@ -349,6 +471,9 @@ public class VoltBulkLoader {
      * instances working on the same table and using the same instance of Client.
      */
     public void flush() throws ExecutionException, InterruptedException {
+        for (BulkLoaderRowBuilder builder : m_rowBuilders) {
+            builder.flush();
+        }
         for (int i = m_firstPartitionTable; i <= m_lastPartitionTable; i++) {
             m_partitionTable[i].flushAllTableQueues();
         }
@@ -362,6 +487,9 @@ public class VoltBulkLoader {
      * @throws java.lang.InterruptedException
      */
     public synchronized void drain() throws InterruptedException {
+        for (BulkLoaderRowBuilder builder : m_rowBuilders) {
+            builder.flush();
+        }
         // Wait for number of PerPartitionTables we are using and the Failure Processor
         for (int i=m_firstPartitionTable; i<=m_lastPartitionTable; i++) {
             try {
@@ -405,6 +533,7 @@ public class VoltBulkLoader {
             // keep one PerPartitionTable around so we can use it as the poisoned
             // table for the PartitionProcessors
             drain();
+            m_rowBuilders.clear();
             for (PerPartitionTable ppt : m_partitionTable) {
                 if (ppt != null) {
                     try {
@@ -17,20 +17,33 @@
 
 package org.voltdb.compiler;
 
-import java.io.Serializable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.voltcore.logging.VoltLogger;
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
 import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.cache.Cache;
 import com.google_voltpatches.common.cache.CacheBuilder;
+import com.google_voltpatches.common.cache.CacheStats;
+import com.google_voltpatches.common.cache.Weigher;
 
 /**
  * Keep a cache two level cache of plans generated by the Ad Hoc
@@ -43,9 +56,16 @@ import com.google_voltpatches.common.cache.CacheBuilder;
  * statement mapped to core parameterized plans. These parameterized
  * plans need parameter values and sql literals in order to be
  * actually used.
+ *
+ * Both levels are striped LRU caches so several planner threads can use them at once.
+ *
+ * If ADHOC_PLAN_CACHE_DIR is set, the SQL of the parameterized statements is periodically
+ * written to a file in that directory named after the catalog hash. The statements are
+ * planned again to warm the cache when a node starts with the same catalog. Pointing the
+ * nodes of a cluster at a shared directory shares the statements between them.
  */
-public class AdHocCompilerCache implements Serializable {
-    private static final long serialVersionUID = 1L;
+public class AdHocCompilerCache {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
 
     //////////////////////////////////////////////////////////////////////////
     // STATIC CODE TO MANAGE CACHE LIFETIMES / GLOBALNESS
@@ -59,6 +79,17 @@ public class AdHocCompilerCache implements Serializable {
         m_catalogHashMatch.invalidateAll();
     }
 
+    /**
+     * Drop the plans of every cache, for the statements to be planned again
+     * against new estimates of the table sizes.
+     */
+    public static void invalidatePlans() {
+        for (AdHocCompilerCache cache : m_catalogHashMatch.asMap().values()) {
+            cache.m_literalCache.invalidateAll();
+            cache.m_coreCache.invalidateAll();
+        }
+    }
+
     /**
      * Get the global cache for a given hash of the catalog. Note that there can be only
      * one cache per catalogHash at a time.
@@ -73,6 +104,117 @@ public class AdHocCompilerCache implements Serializable {
         return cache;
     }
 
+    //////////////////////////////////////////////////////////////////////////
+    // PERSISTED STATEMENTS TO WARM THE CACHE
+    //////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A statement that was planned into the parameterized plan cache and how many
+     * user parameters it takes
+     */
+    public static class WarmupStatement {
+        public final String sql;
+        public final int userParamCount;
+
+        public WarmupStatement(String sql, int userParamCount) {
+            this.sql = sql;
+            this.userParamCount = userParamCount;
+        }
+    }
+
+    /**
+     * @return the directory the cached statements are persisted in or null if they are not persisted
+     */
+    public static File getPersistenceDirectory() {
+        final String dir = System.getProperty("ADHOC_PLAN_CACHE_DIR");
+        if (dir == null || dir.trim().isEmpty()) {
+            return null;
+        }
+        return new File(dir.trim());
+    }
+
+    private static File getPersistenceFile(File dir, byte[] catalogHash) {
+        return new File(dir, "adhoc_plan_cache_" + Encoder.hexEncode(catalogHash) + ".sql");
+    }
+
+    /**
+     * Read the statements persisted for a catalog
+     * @return the statements, empty if nothing was persisted for the catalog
+     */
+    public static List<WarmupStatement> loadWarmupStatements(File dir, byte[] catalogHash) throws IOException {
+        final File file = getPersistenceFile(dir, catalogHash);
+        final List<WarmupStatement> statements = new ArrayList<WarmupStatement>();
+        if (!file.exists()) {
+            return statements;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), Constants.UTF8ENCODING))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int separator = line.indexOf(' ');
+                if (separator < 1) {
+                    continue;
+                }
+                try {
+                    statements.add(new WarmupStatement(Encoder.hexDecodeToString(line.substring(separator + 1)),
+                                                       Integer.parseInt(line.substring(0, separator))));
+                } catch (RuntimeException e) {
+                    // skip a line damaged by a concurrent writer, it is only a hint
+                }
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Write the statements in the parameterized plan cache of a catalog, merged with the
+     * statements already persisted by this or another node. The file is replaced atomically.
+     */
+    public static void persistWarmupStatements(File dir, byte[] catalogHash) throws IOException {
+        final AdHocCompilerCache cache = m_catalogHashMatch.getIfPresent(Encoder.hexEncode(catalogHash));
+        if (cache == null) {
+            return;
+        }
+        final Map<String, Integer> statements = new LinkedHashMap<String, Integer>();
+        for (WarmupStatement stmt : cache.getWarmupStatements()) {
+            statements.put(stmt.sql, stmt.userParamCount);
+        }
+        if (statements.isEmpty()) {
+            return;
+        }
+        for (WarmupStatement stmt : loadWarmupStatements(dir, catalogHash)) {
+            if (statements.size() >= cache.MAX_CORE_ENTRIES) {
+                break;
+            }
+            if (!statements.containsKey(stmt.sql)) {
+                statements.put(stmt.sql, stmt.userParamCount);
+            }
+        }
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create ad hoc plan cache directory " + dir);
+        }
+        final File file = getPersistenceFile(dir, catalogHash);
+        final File tempFile = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(tempFile), Constants.UTF8ENCODING))) {
+                for (Map.Entry<String, Integer> e : statements.entrySet()) {
+                    writer.write(e.getValue().toString());
+                    writer.write(' ');
+                    writer.write(Encoder.hexEncode(e.getKey()));
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                hostLog.warn("Unable to delete temporary ad hoc plan cache file " + tempFile);
+            }
+        }
+    }
+
     //////////////////////////////////////////////////////////////////////////
     // PER-INSTANCE AWESOMEC CACHING CODE
     //////////////////////////////////////////////////////////////////////////
@@ -83,22 +225,37 @@ public class AdHocCompilerCache implements Serializable {
     final long MAX_LITERAL_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_LITERAL_MEM_BYTES", 32*1024*1024);
     final int MAX_CORE_ENTRIES;
 
+    // number of independently locked segments of each cache, each segment evicts
+    // by itself so small caches get fewer segments
+    private static final int MAX_CONCURRENCY_LEVEL = 16;
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+
+    private static int concurrencyLevel(int maxEntries) {
+        return Math.max(1, Math.min(MAX_CONCURRENCY_LEVEL, maxEntries / MIN_SEGMENT_ENTRIES));
+    }
+
+    /**
+     * The parameterized plans of a parsed statement and the SQL of one of the statements
+     * it was planned from
+     */
+    private static class CoreCacheEntry {
+        final String m_sql;
+        final int m_userParamCount;
+        final List<BoundPlan> m_variants = new CopyOnWriteArrayList<BoundPlan>();
+
+        CoreCacheEntry(String sql, int userParamCount, BoundPlan variant) {
+            m_sql = sql;
+            m_userParamCount = userParamCount;
+            m_variants.add(variant);
+        }
+    }
+
     /** cache of literals to full plans */
-    final Map<String, AdHocPlannedStatement> m_literalCache;
+    final Cache<String, AdHocPlannedStatement> m_literalCache;
     /** cache of parameterized plan descriptions to one or more core parameterized plans,
      *  each plan optionally has its own requirements for which parameters need to be bound
      *  to what values to enable its specialized (expression-indexed) plan. */
-    final Map<String, List<BoundPlan> > m_coreCache;
-
-    // placeholder stats used during development that may/may not survive
-    long m_literalHits = 0;
-    long m_literalQueries = 0;
-    long m_literalInsertions = 0;
-    long m_literalEvictions = 0;
-    long m_planHits = 0;
-    long m_planQueries = 0;
-    long m_planInsertions = 0;
-    long m_planEvictions = 0;
+    final Cache<String, CoreCacheEntry> m_coreCache;
 
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
@@ -120,123 +277,54 @@ public class AdHocCompilerCache implements Serializable {
         MAX_LITERAL_ENTRIES = maxLiteralEntries;
         MAX_CORE_ENTRIES = maxCoreEntries;
 
-        // an LRU cache map
-        m_literalCache = new AdHocStatementCache(MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM);
-
-        // an LRU cache map
-        m_coreCache = new LinkedHashMap<String, List<BoundPlan> >(MAX_CORE_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
-                if (size() > MAX_CORE_ENTRIES) {
-                    ++m_planEvictions;
-                    return true;
-                }
-                return false;
-            }
-
-        };
-    }
-
-    // define a LinkedHashMap based LRU cache bounds by both entry number and entry value on-heap size
-    // without changing Map.Entry, only works for value of type AdHocPlannedStatement
-    // only extend put, remove,clear and removeEldestEntry methods to account weight
-    public class AdHocStatementCache extends LinkedHashMap<String, AdHocPlannedStatement>{
-       private static final long serialVersionUID = 2988383448026641836L;
-        private final int maxEntries;
-        private final long maxMemory; // in bytes
-        private long currentMemory;   // in bytes
-
-        public AdHocStatementCache() {
-            // default max entry of 1000
-            // default max value size of 32MB
-            this(1000, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries) {
-            this(maxEntries, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries, final long maxMemory) {
-            // set accessOrder to true for LRU
-            super(maxEntries * 2, .75f, true);
-            this.maxEntries = maxEntries;
-            this.maxMemory = maxMemory;
-            this.currentMemory = 0;
-        }
-
-        // This method is called just after a new entry has been added
-        @Override
-        public boolean removeEldestEntry(final Map.Entry<String, AdHocPlannedStatement> eldest) {
-            if ((size() > maxEntries) || (this.currentMemory > this.maxMemory))  {
-                ++m_literalEvictions;
-                this.currentMemory -= eldest.getValue().getSerializedSize();
-                return true;
-            }
-            return false;
-        }
-
-        @Override
-        public AdHocPlannedStatement put(String key, AdHocPlannedStatement value) {
-            this.currentMemory += value.getSerializedSize();
-            return super.put(key,value);
-        }
-
-        @Override
-        public AdHocPlannedStatement remove(Object key) {
-            AdHocPlannedStatement value = super.remove(key);
-            if (value != null) {
-                this.currentMemory -= value.getSerializedSize();
-            }
-            return value;
-        }
-
-        @Override
-        public void clear() {
-            super.clear();
-            this.currentMemory = 0;
-        }
+        // An LRU cache bounded by both entry count and on-heap size. Every entry weighs at
+        // least its share of the memory limit, so the total weight stays under the memory
+        // limit only while the number of entries stays under the entry limit.
+        final int minimumWeight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, MAX_LITERAL_MEM / MAX_LITERAL_ENTRIES));
+        m_literalCache = CacheBuilder.newBuilder()
+                .concurrencyLevel(concurrencyLevel(MAX_LITERAL_ENTRIES))
+                .maximumWeight(MAX_LITERAL_MEM)
+                .weigher(new Weigher<String, AdHocPlannedStatement>() {
+                    @Override
+                    public int weigh(String key, AdHocPlannedStatement value) {
+                        return Math.max(minimumWeight, value.getSerializedSize());
+                    }
+                })
+                .recordStats()
+                .build();
+
+        // an LRU cache
+        m_coreCache = CacheBuilder.newBuilder()
+                .concurrencyLevel(concurrencyLevel(MAX_CORE_ENTRIES))
+                .maximumSize(MAX_CORE_ENTRIES)
+                .recordStats()
+                .build();
     }
 
     /**
      * Stats printing method used during development.
      * Probably shouldn't live past real stats integration.
      */
-    synchronized void printStats() {
-        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_literalHits, m_literalQueries, (m_literalHits * 100.0) / m_literalQueries,
-                m_literalInsertions, m_literalEvictions);
-        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_planHits, m_planQueries, (m_planHits * 100.0) /m_planQueries,
-                m_planInsertions, m_planEvictions);
+    void printStats() {
+        final CacheStats literalStats = m_literalCache.stats();
+        final CacheStats planStats = m_coreCache.stats();
+        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Evictions %d\n",
+                literalStats.hitCount(), literalStats.requestCount(), literalStats.hitRate() * 100.0,
+                literalStats.evictionCount());
+        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Evictions %d\n",
+                planStats.hitCount(), planStats.requestCount(), planStats.hitRate() * 100.0,
+                planStats.evictionCount());
 
         System.out.print(line1 + line2);
         System.out.flush();
-
-        // reset these
-        m_literalHits = 0;
-        m_literalQueries = 0;
-        m_literalInsertions = 0;
-        m_literalEvictions = 0;
-        m_planHits = 0;
-        m_planQueries = 0;
-        m_planInsertions = 0;
-        m_planEvictions = 0;
     }
 
     /**
      * @param sql SQL literal
      * @return full, ready-to-go plan
      */
-    public synchronized AdHocPlannedStatement getWithSQL(String sql) {
-        ++m_literalQueries;
-        AdHocPlannedStatement retval = m_literalCache.get(sql);
-        if (retval != null) {
-            ++m_literalHits;
-        }
-        return retval;
+    public AdHocPlannedStatement getWithSQL(String sql) {
+        return m_literalCache.getIfPresent(sql);
     }
 
     /**
@@ -244,13 +332,9 @@ public class AdHocCompilerCache implements Serializable {
      * SQL statement
      * @return A CorePlan that needs parameter values to run.
      */
-    public synchronized List<BoundPlan> getWithParsedToken(String parsedToken) {
-        ++m_planQueries;
-        List<BoundPlan> retval = m_coreCache.get(parsedToken);
-        if (retval != null) {
-            ++m_planHits;
-        }
-        return retval;
+    public List<BoundPlan> getWithParsedToken(String parsedToken) {
+        CoreCacheEntry entry = m_coreCache.getIfPresent(parsedToken);
+        return entry == null ? null : entry.m_variants;
     }
 
     /**
@@ -271,12 +355,12 @@ public class AdHocCompilerCache implements Serializable {
      * @param hasUserQuestionMarkParameters is user provided parameterized query
      * @param hasAutoParameterizedException is the auto parameterized query has parameter exception
      */
-    public synchronized void put(String sql,
-                                 String parsedToken,
-                                 AdHocPlannedStatement planIn,
-                                 String[] extractedLiterals,
-                                 boolean hasUserQuestionMarkParameters,
-                                 boolean hasAutoParameterizedException)
+    public void put(String sql,
+                    String parsedToken,
+                    AdHocPlannedStatement planIn,
+                    String[] extractedLiterals,
+                    boolean hasUserQuestionMarkParameters,
+                    boolean hasAutoParameterizedException)
     {
         assert(sql != null);
         assert(parsedToken != null);
@@ -293,55 +377,53 @@ public class AdHocCompilerCache implements Serializable {
 
         // deal with L2 cache
         if (! hasAutoParameterizedException) {
-            BoundPlan matched = null;
             BoundPlan unmatched = new BoundPlan(planIn.core, planIn.parameterBindings(extractedLiterals));
             // deal with the parameterized plan cache first
-            List<BoundPlan> boundVariants = m_coreCache.get(parsedToken);
-            if (boundVariants == null) {
-                boundVariants = new ArrayList<BoundPlan>();
-                m_coreCache.put(parsedToken, boundVariants);
-                // Note that there is an edge case in which more than one plan is getting counted as one
-                // "plan insertion". This only happens when two different plans arose from the same parameterized
-                // query (token) because one invocation used the correct constants to trigger an expression index and
-                // another invocation did not.  These are not counted separately (which would have to happen below
-                // after each call to boundVariants.add) because they are not evicted separately.
-                // It seems saner to use consistent units when counting insertions vs. evictions.
-                ++m_planInsertions;
-            } else {
-                for (BoundPlan boundPlan : boundVariants) {
-                    if (boundPlan.equals(unmatched)) {
-                        matched = boundPlan;
-                        break;
+            final int userParamCount = hasUserQuestionMarkParameters ? planIn.core.parameterTypes.length : 0;
+            CoreCacheEntry entry = m_coreCache.asMap().putIfAbsent(parsedToken,
+                    new CoreCacheEntry(sql, userParamCount, unmatched));
+            if (entry != null) {
+                // Another thread may be adding a variant of the same token
+                synchronized (entry) {
+                    BoundPlan matched = null;
+                    for (BoundPlan boundPlan : entry.m_variants) {
+                        if (boundPlan.equals(unmatched)) {
+                            matched = boundPlan;
+                            break;
+                        }
                     }
-                }
-                if (matched != null) {
-                    // if a different core is found, reuse it
-                    // this is useful when updating the literal cache
-                    if (unmatched.m_core != matched.m_core) {
-                        plan = new AdHocPlannedStatement(planIn, matched.m_core);
-                        plan.setBoundConstants(matched.m_constants);
+                    if (matched != null) {
+                        // if a different core is found, reuse it
+                        // this is useful when updating the literal cache
+                        if (unmatched.m_core != matched.m_core) {
+                            plan = new AdHocPlannedStatement(planIn, matched.m_core);
+                            plan.setBoundConstants(matched.m_constants);
+                        }
+                    }
+                    else {
+                        entry.m_variants.add(unmatched);
                     }
                 }
             }
-            if (matched == null) {
-                // Don't count insertions (of possibly repeated tokens) here
-                //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
-                boundVariants.add(unmatched);
-            }
         }
 
         // then deal with the L1 cache
         if (! hasUserQuestionMarkParameters) {
-            AdHocPlannedStatement cachedPlan = m_literalCache.get(sql);
-            if (cachedPlan == null) {
-                //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
-                m_literalCache.put(sql, plan);
-                ++m_literalInsertions;
-            }
-            else {
-                assert(cachedPlan.equals(plan));
-            }
+            //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
+            AdHocPlannedStatement cachedPlan = m_literalCache.asMap().putIfAbsent(sql, plan);
+            assert(cachedPlan == null || cachedPlan.equals(plan));
+        }
+    }
+
+    /**
+     * @return the SQL and user parameter count of a statement for each parameterized plan in the cache
+     */
+    public List<WarmupStatement> getWarmupStatements() {
+        List<WarmupStatement> statements = new ArrayList<WarmupStatement>();
+        for (CoreCacheEntry entry : m_coreCache.asMap().values()) {
+            statements.add(new WarmupStatement(entry.m_sql, entry.m_userParamCount));
         }
+        return statements;
     }
 
     /**
@@ -365,7 +447,7 @@ public class AdHocCompilerCache implements Serializable {
      * @return  literal cache size as a count
      */
     public int getLiteralCacheSize() {
-        return m_literalCache.size();
+        return (int) m_literalCache.size();
     }
 
     /**
@@ -373,6 +455,6 @@ public class AdHocCompilerCache implements Serializable {
      * @return  core cache size as a count
      */
     public int getCoreCacheSize() {
-        return m_coreCache.size();
+        return (int) m_coreCache.size();
     }
 }
@@ -17,13 +17,19 @@
 
 package org.voltdb.compiler;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
@@ -33,6 +39,7 @@ import org.voltcore.messaging.LocalObjectMessage;
 import org.voltcore.messaging.Mailbox;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltdb.AdHocPlannerStats;
 import org.voltdb.CatalogContext;
 import org.voltdb.ClientInterface.ExplainMode;
 import org.voltdb.OperationMode;
@@ -46,6 +53,7 @@ import org.voltdb.planner.StatementPartitioning;
 import org.voltdb.utils.MiscUtils;
 
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
 
 public class AsyncCompilerAgent {
 
@@ -55,20 +63,74 @@ public class AsyncCompilerAgent {
     // if more than this amount of work is queued, reject new work
     static public final int MAX_QUEUE_DEPTH = 250;
 
+    // number of threads planning ad hoc SQL, catalog changes are always done one at a time
+    static public final int PLANNER_THREADS = Integer.getInteger("ADHOC_PLANNER_THREADS",
+            Math.max(1, Math.min(4, CoreUtils.availableProcessors() / 2)));
+
     // accept work via this mailbox
     Mailbox m_mailbox;
 
     public AsyncCompilerAgent(LicenseApi licenseApi) {
+        this(licenseApi, PLANNER_THREADS);
+    }
+
+    public AsyncCompilerAgent(LicenseApi licenseApi, int plannerThreads) {
+        if (plannerThreads < 1) {
+            throw new IllegalArgumentException("Must specify > 0 planner threads");
+        }
         m_helper = new AsyncCompilerAgentHelper(licenseApi);
+        m_plannerThreads = plannerThreads;
+        m_plannerQueue = new LinkedBlockingQueue<Runnable>(MAX_QUEUE_DEPTH);
+        m_es = MoreExecutors.listeningDecorator(
+                new ThreadPoolExecutor(plannerThreads, plannerThreads, 0L, TimeUnit.MILLISECONDS,
+                        m_plannerQueue, CoreUtils.getThreadFactory("Ad Hoc Planner")));
+        m_plannerToolEs = plannerThreads > 1 ? CoreUtils.getSingleThreadExecutor("Ad Hoc Planner Builder") : null;
+        m_stats = new AdHocPlannerStats(plannerThreads, MAX_QUEUE_DEPTH, new AdHocPlannerStats.QueueDepth() {
+            @Override
+            public int getQueueDepth() {
+                return m_plannerQueue.size();
+            }
+        });
     }
 
     // The helper for catalog updates, back after its exclusive three year tour
     // of Europe, Scandinavia, and the sub-continent.
     final AsyncCompilerAgentHelper m_helper;
 
-    // do work in this executor service
-    final ListeningExecutorService m_es =
-        CoreUtils.getBoundedSingleThreadExecutor("Ad Hoc Planner", MAX_QUEUE_DEPTH);
+    // plan ad hoc SQL in this executor service
+    final int m_plannerThreads;
+    private final LinkedBlockingQueue<Runnable> m_plannerQueue;
+    final ListeningExecutorService m_es;
+
+    // do catalog changes, including ad hoc DDL once it has been checked, in this executor service
+    final ListeningExecutorService m_catalogChangeEs =
+        CoreUtils.getBoundedSingleThreadExecutor("Catalog Change Planner", MAX_QUEUE_DEPTH);
+
+    private final AdHocPlannerStats m_stats;
+
+    /*
+     * With more than one planner thread each thread plans with its own PlannerTool since
+     * planning through the HSQL session of a tool is serialized. The extra tools for a catalog
+     * are built by m_plannerToolEs when the catalog is installed, not by the planner threads.
+     * A planner thread takes one of them the first time it plans against the catalog context,
+     * until one is ready it plans with the shared tool of the context.
+     */
+    private static class PreparedPlannerTools {
+        final PlannerTool m_contextTool;
+        final ConcurrentLinkedQueue<PlannerTool> m_tools = new ConcurrentLinkedQueue<>();
+
+        PreparedPlannerTools(PlannerTool contextTool) {
+            m_contextTool = contextTool;
+        }
+    }
+    private volatile PreparedPlannerTools m_preparedTools = null;
+    private final ExecutorService m_plannerToolEs;
+
+    private static class PlannerToolHolder {
+        PlannerTool m_contextTool = null;
+        PlannerTool m_tool = null;
+    }
+    private final ThreadLocal<PlannerToolHolder> m_plannerTools = ThreadLocal.withInitial(PlannerToolHolder::new);
 
     // Enable debug hooks when the "asynccompilerdebug" sys prop is set to "true" or "yes".
     private final static MiscUtils.BooleanSystemProperty DEBUG_MODE =
@@ -86,6 +148,16 @@ public class AsyncCompilerAgent {
             m_es.shutdown();
             m_es.awaitTermination(120, TimeUnit.SECONDS);
         }
+        if (m_plannerToolEs != null) {
+            m_plannerToolEs.shutdownNow();
+        }
+        // Planner threads may have handed off ad hoc DDL
+        m_catalogChangeEs.shutdown();
+        m_catalogChangeEs.awaitTermination(120, TimeUnit.SECONDS);
+    }
+
+    public AdHocPlannerStats getStats() {
+        return m_stats;
     }
 
     public void createMailbox(final HostMessenger hostMessenger, final long hsId) {
@@ -99,15 +171,20 @@ public class AsyncCompilerAgent {
 
             @Override
             public void deliver(final VoltMessage message) {
+                final Runnable task = new Runnable() {
+                    @Override
+                    public void run() {
+                        handleMailboxMessage(message);
+                    }
+                };
+                final LocalObjectMessage wrapper = (LocalObjectMessage)message;
                 try {
-                    m_es.submit(new Runnable() {
-                        @Override
-                        public void run() {
-                            handleMailboxMessage(message);
-                        }
-                    });
+                    if (wrapper.payload instanceof CatalogChangeWork) {
+                        m_catalogChangeEs.submit(task);
+                    } else {
+                        submitPlannerTask(task);
+                    }
                 } catch (RejectedExecutionException rejected) {
-                    final LocalObjectMessage wrapper = (LocalObjectMessage)message;
                     AsyncCompilerWork work = (AsyncCompilerWork)(wrapper.payload);
                     generateErrorResult("Ad Hoc Planner task queue is full. Try again.", work);
                 }
@@ -116,6 +193,84 @@ public class AsyncCompilerAgent {
         hostMessenger.createMailbox(hsId, m_mailbox);
     }
 
+    /**
+     * Queue work for the planner threads, recording how long it waits and runs
+     * @throws RejectedExecutionException if the queue is full
+     */
+    private void submitPlannerTask(final Runnable task) {
+        final long queuedNanos = System.nanoTime();
+        try {
+            m_es.submit(new Runnable() {
+                @Override
+                public void run() {
+                    final long startNanos = System.nanoTime();
+                    try {
+                        task.run();
+                    } finally {
+                        m_stats.completed(startNanos - queuedNanos, System.nanoTime() - startNanos);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException rejected) {
+            m_stats.rejected();
+            throw rejected;
+        }
+        m_stats.submitted();
+    }
+
+    // number of persisted statements planned by each warm up task
+    private static final int WARMUP_BATCH_SIZE = 16;
+
+    /**
+     * Plan the statements persisted for the catalog into the ad hoc plan cache. The
+     * statements are planned a few at a time on the planner threads, each batch queueing
+     * the next when it is done, so warming up never fills the planner queue.
+     */
+    public void warmAdHocCache(final CatalogContext context, File dir) {
+        final List<AdHocCompilerCache.WarmupStatement> statements;
+        try {
+            statements = AdHocCompilerCache.loadWarmupStatements(dir, context.getCatalogHash());
+        } catch (IOException e) {
+            hostLog.warn("Unable to read persisted ad hoc statements from " + dir, e);
+            return;
+        }
+        if (statements.isEmpty()) {
+            return;
+        }
+        hostLog.info("Warming the ad hoc plan cache with " + statements.size() + " persisted statements");
+        submitWarmupBatch(context, statements, 0);
+    }
+
+    private void submitWarmupBatch(final CatalogContext context,
+                                   final List<AdHocCompilerCache.WarmupStatement> statements,
+                                   final int start) {
+        try {
+            submitPlannerTask(new Runnable() {
+                @Override
+                public void run() {
+                    final int end = Math.min(start + WARMUP_BATCH_SIZE, statements.size());
+                    final PlannerTool ptool = getPlannerTool(context);
+                    for (int i = start; i < end; i++) {
+                        final AdHocCompilerCache.WarmupStatement stmt = statements.get(i);
+                        try {
+                            ptool.planSql(stmt.sql, StatementPartitioning.inferPartitioning(), false,
+                                    stmt.userParamCount > 0 ? new Object[stmt.userParamCount] : null);
+                        } catch (Exception e) {
+                            // the statement no longer plans, it simply stays out of the cache
+                            adhocLog.debug("Unable to plan persisted ad hoc statement " + stmt.sql, e);
+                        }
+                    }
+                    if (end < statements.size()) {
+                        submitWarmupBatch(context, statements, end);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            hostLog.warn("Planner queue is full, stopped warming the ad hoc plan cache after "
+                    + start + " statements");
+        }
+    }
+
     void generateErrorResult(String errorMsg, AsyncCompilerWork work) {
         AsyncCompilerResult retval = new AsyncCompilerResult();
         retval.clientHandle = work.clientHandle;
@@ -275,7 +430,28 @@ public class AsyncCompilerAgent {
                 return;
             }
             final CatalogChangeWork ccw = new CatalogChangeWork(w);
-            dispatchCatalogChangeWork(ccw);
+            // Catalog changes are serialized on their own thread, not on the planner threads
+            try {
+                m_catalogChangeEs.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            dispatchCatalogChangeWork(ccw);
+                        }
+                        catch (RuntimeException e) {
+                            AsyncCompilerResult errResult =
+                                AsyncCompilerResult.makeErrorResult(ccw,
+                                    String.format("Unexpected async compiler exception for %s: %s: %s",
+                                            ccw.getClass().getName(),
+                                            e.getLocalizedMessage(),
+                                            "Please contact VoltDB support with this message."));
+                            ccw.completionHandler.onCompletion(errResult);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException rejected) {
+                generateErrorResult("Catalog change task queue is full. Try again.", ccw);
+            }
         }
     }
 
@@ -319,7 +495,7 @@ public class AsyncCompilerAgent {
     }
 
     public void compileAdHocPlanForProcedure(final AdHocPlannerWork apw) {
-        m_es.submit(new Runnable() {
+        submitPlannerTask(new Runnable() {
             @Override
             public void run(){
                 apw.completionHandler.onCompletion(compileAdHocPlan(apw));
@@ -356,7 +532,7 @@ public class AsyncCompilerAgent {
             context = VoltDB.instance().getCatalogContext();
         }
 
-        final PlannerTool ptool = context.m_ptool;
+        final PlannerTool ptool = getPlannerTool(context);
 
         List<String> errorMsgs = new ArrayList<String>();
         List<AdHocPlannedStatement> stmts = new ArrayList<AdHocPlannedStatement>();
@@ -446,6 +622,56 @@ public class AsyncCompilerAgent {
         return plannedStmtBatch;
     }
 
+    /**
+     * Build the PlannerTools the planner threads will use for a newly installed catalog in the
+     * background. One planner thread uses the shared tool of the context so one fewer is built.
+     */
+    public void prepareForCatalog(final CatalogContext context) {
+        if (m_plannerThreads == 1) {
+            return;
+        }
+        final PreparedPlannerTools prepared = new PreparedPlannerTools(context.m_ptool);
+        m_preparedTools = prepared;
+        try {
+            m_plannerToolEs.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Stop early if a newer catalog has been installed in the meantime
+                    for (int i = 1; i < m_plannerThreads && m_preparedTools == prepared; i++) {
+                        try {
+                            prepared.m_tools.offer(new PlannerTool(context.cluster, context.database,
+                                    context.getCatalogHash()));
+                        } catch (Exception e) {
+                            hostLog.warn("Unable to build an ad hoc planner for the catalog, " +
+                                    "some planner threads will share one", e);
+                            return;
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private PlannerTool getPlannerTool(CatalogContext context) {
+        if (m_plannerThreads == 1) {
+            return context.m_ptool;
+        }
+        final PlannerToolHolder holder = m_plannerTools.get();
+        if (holder.m_contextTool != context.m_ptool) {
+            final PreparedPlannerTools prepared = m_preparedTools;
+            final PlannerTool tool = (prepared != null && prepared.m_contextTool == context.m_ptool) ?
+                    prepared.m_tools.poll() : null;
+            if (tool == null) {
+                return context.m_ptool;
+            }
+            holder.m_tool = tool;
+            holder.m_contextTool = context.m_ptool;
+        }
+        return holder.m_tool;
+    }
+
     /**
      * Log ad hoc batch info
      * @param batch  planned statement batch
@@ -19,6 +19,7 @@ package org.voltdb.compiler;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 public class DatabaseEstimates {
 
@@ -28,7 +29,35 @@ public class DatabaseEstimates {
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
     }
 
+    public static class IndexEstimates {
+        // fewer than the tuples of the table for a partial index
+        public long entries;
+    }
+
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
+    HashMap<String, IndexEstimates> indexes = new HashMap<String, IndexEstimates>();
+
+    public DatabaseEstimates() {
+    }
+
+    /**
+     * Copy the estimates, so a planner can add the defaults of the tables it plans for
+     * without changing estimates shared with other planners.
+     */
+    public DatabaseEstimates(DatabaseEstimates other) {
+        for (Map.Entry<String, TableEstimates> e : other.tables.entrySet()) {
+            TableEstimates tableEst = new TableEstimates();
+            tableEst.maxTuples = e.getValue().maxTuples;
+            tableEst.minTuples = e.getValue().minTuples;
+            tableEst.valueHints.addAll(e.getValue().valueHints);
+            tables.put(e.getKey(), tableEst);
+        }
+        for (Map.Entry<String, IndexEstimates> e : other.indexes.entrySet()) {
+            IndexEstimates indexEst = new IndexEstimates();
+            indexEst.entries = e.getValue().entries;
+            indexes.put(e.getKey(), indexEst);
+        }
+    }
 
     public TableEstimates getEstimatesForTable(String tableName) {
         if (tables.containsKey(tableName) == false)
@@ -36,4 +65,11 @@ public class DatabaseEstimates {
 
         return tables.get(tableName);
     }
+
+    /**
+     * @return the estimates for the index, or null if the index is only estimated by its table
+     */
+    public IndexEstimates getEstimatesForIndex(String tableName, String indexName) {
+        return indexes.get(tableName + "." + indexName);
+    }
 }
@@ -0,0 +1,233 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable;
+import org.voltdb.common.Constants;
+
+/**
+ * Estimates of the sizes of the tables and indexes sampled from the running database,
+ * for the planners of this host to cost plans against instead of the defaults of
+ * DatabaseEstimates. The sites cache the table and index statistics of their EE as
+ * they tick, so a sample only reads those. A table is estimated by its average tuple
+ * count over the sites of this host, which is the size of a partition of a partitioned
+ * table and the size of a replicated table. Tables with fewer tuples than a minimum are
+ * estimated at the minimum, so a table that was just created isn't planned as if it
+ * stays empty.
+ *
+ * The estimates are persisted in the voltdbroot, so a restarted node plans with them
+ * until it samples again.
+ */
+public class SampledDatabaseEstimates {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    static final String FILE_NAME = "planner_estimates.json";
+
+    public static final int REFRESH_SECONDS = Integer.getInteger("PLANNER_ESTIMATES_REFRESH_SECONDS", 60);
+    static final long MIN_TUPLES = Long.getLong("PLANNER_ESTIMATES_MIN_TUPLES", 1000);
+    // Statements are planned again when the estimate of a table changes by this factor
+    static final double REPLAN_FACTOR = 2.0;
+
+    private static volatile DatabaseEstimates s_estimates = null;
+
+    /**
+     * @return a copy of the sampled estimates for a planner,
+     * or the default estimates if nothing was sampled
+     */
+    public static DatabaseEstimates get() {
+        final DatabaseEstimates estimates = s_estimates;
+        return estimates == null ? new DatabaseEstimates() : new DatabaseEstimates(estimates);
+    }
+
+    /**
+     * Use the estimates persisted in a directory, if any
+     */
+    public static void load(File dir) {
+        final File file = new File(dir, FILE_NAME);
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            s_estimates = fromJSON(new JSONObject(
+                    new String(Files.readAllBytes(file.toPath()), Constants.UTF8ENCODING)));
+        } catch (IOException | JSONException e) {
+            hostLog.warn("Unable to read the planner estimates from " + file, e);
+        }
+    }
+
+    /**
+     * Sample the estimates from the statistics of the sites of this host, and persist them
+     * in a directory if they changed.
+     * @return true if the estimate of a table changed enough for the statements to be planned again
+     */
+    public static synchronized boolean refresh(StatsAgent statsAgent, File dir) {
+        final DatabaseEstimates estimates = sample(statsAgent);
+        if (!hasChanged(s_estimates, estimates)) {
+            return false;
+        }
+        s_estimates = estimates;
+        try {
+            persist(dir, estimates);
+        } catch (IOException | JSONException e) {
+            hostLog.warn("Unable to persist the planner estimates to " + dir, e);
+        }
+        return true;
+    }
+
+    /**
+     * Go back to the default estimates, when the database shuts down
+     */
+    public static void reset() {
+        s_estimates = null;
+    }
+
+    static DatabaseEstimates sample(StatsAgent statsAgent) {
+        // Sums of the counts over the sites and the number of sites
+        final Map<String, long[]> tableCounts = new HashMap<String, long[]>();
+        for (StatsSource source : statsAgent.getStatsSources(StatsSelector.TABLE)) {
+            final VoltTable stats = source.getStatsTable();
+            // A site that hasn't ticked since it started has no stats yet
+            if (stats == null) {
+                continue;
+            }
+            while (stats.advanceRow()) {
+                if (!"StreamedTable".equals(stats.getString("TABLE_TYPE"))) {
+                    addCount(tableCounts, stats.getString("TABLE_NAME"), stats.getLong("TUPLE_COUNT"));
+                }
+            }
+        }
+        final Map<String, long[]> indexCounts = new HashMap<String, long[]>();
+        for (StatsSource source : statsAgent.getStatsSources(StatsSelector.INDEX)) {
+            final VoltTable stats = source.getStatsTable();
+            if (stats == null) {
+                continue;
+            }
+            while (stats.advanceRow()) {
+                addCount(indexCounts, stats.getString("TABLE_NAME") + "." + stats.getString("INDEX_NAME"),
+                         stats.getLong("ENTRY_COUNT"));
+            }
+        }
+
+        final DatabaseEstimates estimates = new DatabaseEstimates();
+        for (Map.Entry<String, long[]> e : tableCounts.entrySet()) {
+            final DatabaseEstimates.TableEstimates tableEst = estimates.getEstimatesForTable(e.getKey());
+            tableEst.maxTuples = Math.max(MIN_TUPLES, e.getValue()[0] / e.getValue()[1]);
+            tableEst.minTuples = tableEst.maxTuples;
+        }
+        for (Map.Entry<String, long[]> e : indexCounts.entrySet()) {
+            final DatabaseEstimates.IndexEstimates indexEst = new DatabaseEstimates.IndexEstimates();
+            indexEst.entries = Math.max(MIN_TUPLES, e.getValue()[0] / e.getValue()[1]);
+            estimates.indexes.put(e.getKey(), indexEst);
+        }
+        return estimates;
+    }
+
+    private static void addCount(Map<String, long[]> counts, String name, long count) {
+        long[] sum = counts.get(name);
+        if (sum == null) {
+            sum = new long[2];
+            counts.put(name, sum);
+        }
+        sum[0] += count;
+        sum[1]++;
+    }
+
+    static boolean hasChanged(DatabaseEstimates previous, DatabaseEstimates current) {
+        if (previous == null) {
+            return !current.tables.isEmpty();
+        }
+        for (Map.Entry<String, DatabaseEstimates.TableEstimates> e : current.tables.entrySet()) {
+            final DatabaseEstimates.TableEstimates previousEst = previous.tables.get(e.getKey());
+            if (previousEst == null) {
+                return true;
+            }
+            final long tuples = e.getValue().maxTuples;
+            if (Math.max(tuples, previousEst.maxTuples) >= REPLAN_FACTOR * Math.min(tuples, previousEst.maxTuples)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void persist(File dir, DatabaseEstimates estimates) throws IOException, JSONException {
+        final JSONStringer stringer = new JSONStringer();
+        stringer.object();
+        stringer.key("tables").object();
+        for (Map.Entry<String, DatabaseEstimates.TableEstimates> e : estimates.tables.entrySet()) {
+            stringer.key(e.getKey()).value(e.getValue().maxTuples);
+        }
+        stringer.endObject();
+        stringer.key("indexes").object();
+        for (Map.Entry<String, DatabaseEstimates.IndexEstimates> e : estimates.indexes.entrySet()) {
+            stringer.key(e.getKey()).value(e.getValue().entries);
+        }
+        stringer.endObject();
+        stringer.endObject();
+
+        final File file = new File(dir, FILE_NAME);
+        final File tempFile = File.createTempFile(FILE_NAME, ".tmp", dir);
+        try {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), Constants.UTF8ENCODING)) {
+                writer.write(stringer.toString());
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                hostLog.warn("Unable to delete temporary planner estimates file " + tempFile);
+            }
+        }
+    }
+
+    private static DatabaseEstimates fromJSON(JSONObject json) throws JSONException {
+        final DatabaseEstimates estimates = new DatabaseEstimates();
+        final JSONObject tables = json.getJSONObject("tables");
+        for (Iterator<String> it = tables.keys(); it.hasNext();) {
+            final String tableName = it.next();
+            final DatabaseEstimates.TableEstimates tableEst = estimates.getEstimatesForTable(tableName);
+            tableEst.maxTuples = tables.getLong(tableName);
+            tableEst.minTuples = tableEst.maxTuples;
+        }
+        final JSONObject indexes = json.getJSONObject("indexes");
+        for (Iterator<String> it = indexes.keys(); it.hasNext();) {
+            final String indexName = it.next();
+            final DatabaseEstimates.IndexEstimates indexEst = new DatabaseEstimates.IndexEstimates();
+            indexEst.entries = indexes.getLong(indexName);
+            estimates.indexes.put(indexName, indexEst);
+        }
+        return estimates;
+    }
+}
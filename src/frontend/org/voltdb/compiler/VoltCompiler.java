@@ -155,7 +155,8 @@ public class VoltCompiler {
     static String m_canonicalDDL = null;
     Catalog m_catalog = null;
 
-    DatabaseEstimates m_estimates = new DatabaseEstimates();
+    // sampled from the running database when compiling a catalog update on a server
+    DatabaseEstimates m_estimates = SampledDatabaseEstimates.get();
 
     private List<String> m_capturedDiagnosticDetail = null;
 
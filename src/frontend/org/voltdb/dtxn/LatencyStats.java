@@ -125,6 +125,16 @@ public class LatencyStats extends SiteStatsSource {
         return retval;
     }
 
+    /**
+     * The latencies in microseconds of the transactions of this node, refreshed at
+     * most every LATENCY_CACHE_EXPIRATION milliseconds. The histogram is reused across
+     * refreshes, so hold the monitor of this source while reading it.
+     */
+    public AbstractHistogram getHistogram() {
+        assert Thread.holdsLock(this);
+        return m_histogramSupplier.get();
+    }
+
     public LatencyStats(long siteId) {
         super(siteId, false);
     }
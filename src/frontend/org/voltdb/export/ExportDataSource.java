@@ -24,12 +24,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.json_voltpatches.JSONArray;
@@ -73,6 +76,18 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
      */
     private static final VoltLogger exportLog = new VoltLogger("EXPORT");
 
+    /**
+     * Number of polls that may wait for data at once. Setting it above one lets a processor
+     * keep several blocks in flight, and the acks of those blocks are then coalesced
+     * over EXPORT_ACK_WINDOW_MS and applied and forwarded to the replicas as one ack.
+     */
+    // not final so tests can pipeline polls, only change it before creating sources
+    static int MAX_OUTSTANDING_POLLS = Integer.getInteger("EXPORT_MAX_OUTSTANDING_POLLS", 1);
+    static final long ACK_WINDOW_MS = Long.getLong("EXPORT_ACK_WINDOW_MS", 20);
+
+    private static final ScheduledExecutorService m_ackScheduler =
+            CoreUtils.getScheduledThreadPoolExecutor("Export ack coalescer", 1, CoreUtils.SMALL_STACK_SIZE);
+
     private final String m_database;
     private final String m_tableName;
     private String m_partitionColumnName = "";
@@ -89,7 +104,16 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
     private boolean m_endOfStream = false;
     private Runnable m_onDrain;
     private Runnable m_onMastership;
-    private SettableFuture<BBContainer> m_pollFuture;
+    //Polls waiting for data, oldest first
+    private final ArrayDeque<SettableFuture<BBContainer>> m_pollFutures = new ArrayDeque<SettableFuture<BBContainer>>();
+    /*
+     * Polled blocks in USO order that are waiting for the processor to finish with them,
+     * only tracked when acks are coalesced. The lock also guards the coalesced ack state.
+     */
+    private final ArrayDeque<AckingContainer> m_unackedContainers = new ArrayDeque<AckingContainer>();
+    private long m_coalescedAckUso = 0;
+    private long m_flushedAckUso = 0;
+    private boolean m_ackFlushScheduled = false;
     private final AtomicReference<Pair<Mailbox, ImmutableList<Long>>> m_ackMailboxRefs =
             new AtomicReference<Pair<Mailbox,ImmutableList<Long>>>(Pair.of((Mailbox)null, ImmutableList.<Long>builder().build()));
     private final Semaphore m_bufferPushPermits = new Semaphore(16);
@@ -471,10 +495,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
 
             if (m_committedBuffers.isEmpty()) {
                 exportLog.info("Pushed EOS buffer with 0 bytes remaining");
-                if (m_pollFuture != null) {
-                    m_pollFuture.set(null);
-                    m_pollFuture = null;
-                }
+                completePendingPolls();
                 if (m_onDrain != null) {
                     m_onDrain.run();
                 }
@@ -534,7 +555,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
             }
         }
         if (poll) {
-            pollImpl(m_pollFuture);
+            servePendingPolls();
         }
     }
 
@@ -599,10 +620,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                 try {
                     m_committedBuffers.truncateToTxnId(txnId, m_nullArrayLength);
                     if (m_committedBuffers.isEmpty() && m_endOfStream) {
-                        if (m_pollFuture != null) {
-                            m_pollFuture.set(null);
-                            m_pollFuture = null;
-                        }
+                        completePendingPolls();
                         if (m_onDrain != null) {
                             m_onDrain.run();
                         }
@@ -692,15 +710,18 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                 try {
                     /*
                      * The poll is blocking through the future, shouldn't
-                     * call poll a second time until a response has been given
-                     * which nulls out the field
+                     * have more polls waiting than configured until a response
+                     * has been given
                      */
-                    if (m_pollFuture != null) {
-                        fut.setException(new RuntimeException("Should not poll more than once"));
+                    if (m_pollFutures.size() >= MAX_OUTSTANDING_POLLS) {
+                        fut.setException(new RuntimeException(MAX_OUTSTANDING_POLLS == 1 ?
+                                "Should not poll more than once" :
+                                "Should not have more than " + MAX_OUTSTANDING_POLLS + " polls outstanding"));
                         return;
                     }
                     if (!getLocalExecutorService().isShutdown()) {
-                        pollImpl(fut);
+                        m_pollFutures.offer(fut);
+                        servePendingPolls();
                     }
                 } catch (Exception e) {
                     exportLog.error("Exception polling export buffer", e);
@@ -721,11 +742,28 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         return Math.min(m_lastAckUSO, m_firstUnpolledUso);
     }
 
-    private void pollImpl(SettableFuture<BBContainer> fut) {
-        if (fut == null) {
-            return;
+    /**
+     * Hand out data to the waiting polls in the order they were made
+     */
+    private void servePendingPolls() {
+        SettableFuture<BBContainer> fut;
+        while ((fut = m_pollFutures.peek()) != null && pollImpl(fut)) {
+            m_pollFutures.poll();
+        }
+    }
+
+    //Returning null to the waiting polls indicates end of stream
+    private void completePendingPolls() {
+        SettableFuture<BBContainer> fut;
+        while ((fut = m_pollFutures.poll()) != null) {
+            fut.set(null);
         }
+    }
 
+    /**
+     * @return false if there is no unpolled data yet and the poll has to wait
+     */
+    private boolean pollImpl(SettableFuture<BBContainer> fut) {
         try {
             StreamBlock first_unpolled_block = null;
 
@@ -739,7 +777,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                 if (m_onDrain != null) {
                     m_onDrain.run();
                 }
-                return;
+                return true;
             }
             //Assemble a list of blocks to delete so that they can be deleted
             //outside of the m_committedBuffers critical section
@@ -775,27 +813,45 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                 }
             }
 
-            //If there are no unpolled blocks return the firstUnpolledUSO with no data
+            //If there are no unpolled blocks the poll waits for data
             if (first_unpolled_block == null) {
-                m_pollFuture = fut;
-            } else {
-                try {
-                    fut.set(
-                            new AckingContainer(first_unpolled_block.unreleasedContainer(),
-                                    first_unpolled_block.uso() + first_unpolled_block.totalUso()));
-                } catch (RejectedExecutionException reex) {
-                    //We are closing source.
+                return false;
+            }
+            final AckingContainer cont =
+                    new AckingContainer(first_unpolled_block.unreleasedContainer(),
+                            first_unpolled_block.uso() + first_unpolled_block.totalUso());
+            if (MAX_OUTSTANDING_POLLS > 1) {
+                synchronized (m_unackedContainers) {
+                    m_unackedContainers.offer(cont);
+                }
+            }
+            boolean handedOff = false;
+            try {
+                handedOff = fut.set(cont);
+            } catch (RejectedExecutionException reex) {
+                //We are closing source, the listener that would have taken the container didn't run
+            }
+            if (!handedOff) {
+                //Nobody will ack the block, leave it to be polled again
+                if (MAX_OUTSTANDING_POLLS > 1) {
+                    synchronized (m_unackedContainers) {
+                        m_unackedContainers.removeLastOccurrence(cont);
+                    }
                 }
-                m_pollFuture = null;
+                cont.m_backingCont.discard();
+                m_firstUnpolledUso = first_unpolled_block.uso();
             }
         } catch (Throwable t) {
             fut.setException(t);
         }
+        return true;
     }
 
     class AckingContainer extends BBContainer {
         final long m_uso;
         final BBContainer m_backingCont;
+        //Guarded by m_unackedContainers
+        boolean m_acked = false;
         public AckingContainer(BBContainer cont, long uso) {
             super(cont.b());
             m_uso = uso;
@@ -805,6 +861,12 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         @Override
         public void discard() {
             checkDoubleFree();
+            if (MAX_OUTSTANDING_POLLS > 1) {
+                //The memory can be freed from any thread, see StreamBlock
+                m_backingCont.discard();
+                coalesceAck(this);
+                return;
+            }
             RunnableWithES runnable = new RunnableWithES("discard") {
                 @Override
                 public void run() {
@@ -828,6 +890,53 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         }
     }
 
+    /**
+     * Advance the coalesced ack over the blocks the processor is done with. Blocks can be
+     * finished out of order so the ack stops at the first block still being processed,
+     * acking past it would release data that hasn't been exported yet.
+     */
+    private void coalesceAck(AckingContainer cont) {
+        synchronized (m_unackedContainers) {
+            cont.m_acked = true;
+            while (!m_unackedContainers.isEmpty() && m_unackedContainers.peek().m_acked) {
+                m_coalescedAckUso = m_unackedContainers.poll().m_uso;
+            }
+            if (m_ackFlushScheduled || m_coalescedAckUso <= m_flushedAckUso) {
+                return;
+            }
+            m_ackFlushScheduled = true;
+        }
+        m_ackScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                stashOrSubmitTask(new RunnableWithES("coalescedAck") {
+                    @Override
+                    public void run() {
+                        final long uso;
+                        synchronized (m_unackedContainers) {
+                            uso = m_coalescedAckUso;
+                            m_flushedAckUso = uso;
+                            m_ackFlushScheduled = false;
+                        }
+                        try {
+                            try {
+                                if (!getLocalExecutorService().isShutdown()) {
+                                    ackImpl(uso);
+                                }
+                            } finally {
+                                forwardAckToOtherReplicas(uso);
+                            }
+                        } catch (Exception e) {
+                            exportLog.error("Error acking export buffer", e);
+                        } catch (Error e) {
+                            VoltDB.crashLocalVoltDB("Error acking export buffer", true, e);
+                        }
+                    }
+                }, true, false);
+            }
+        }, ACK_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
     private void forwardAckToOtherReplicas(long uso) {
         if (m_runEveryWhere && m_replicaRunning) {
            //we dont forward if we are running as replica in replicated export
@@ -1021,9 +1130,9 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
 
         synchronized(m_executorLock) {
             if (m_executor==null) {
-                ListeningExecutorService es = CoreUtils.getListeningExecutorService(
+                ListeningExecutorService es = ExportExecutorPool.newSerialExecutor(
                             "ExportDataSource gen " + m_generation
-                            + " table " + m_tableName + " partition " + m_partitionId, 1);
+                            + " table " + m_tableName + " partition " + m_partitionId);
                 //If we have a truncate task do that first.
                 if (m_firstAction != null) {
                     exportLog.info("Submitting truncate task for ExportDataSource gen " + m_generation
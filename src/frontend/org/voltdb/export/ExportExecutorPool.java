@@ -0,0 +1,93 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.export;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.utils.SerialExecutorService;
+
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+
+/**
+ * The threads shared by the export data sources and leader elections of a node.
+ * Each source gets a serial executor on a work stealing pool, which keeps its tasks
+ * in order without keeping a thread per source and partition. Setting
+ * EXPORT_EXECUTOR_THREADS to 0 gives every source its own thread again.
+ */
+public class ExportExecutorPool {
+
+    public static final int THREADS = Integer.getInteger("EXPORT_EXECUTOR_THREADS",
+            Math.max(2, Math.min(16, CoreUtils.availableProcessors())));
+
+    private static final ForkJoinPool m_pool = THREADS > 0 ?
+            new ForkJoinPool(THREADS, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName("Export executor - " + t.getPoolIndex());
+                    return t;
+                }
+            }, null, true) : null;
+
+    private static final Set<SerialExecutorService> m_executors =
+            Collections.newSetFromMap(new ConcurrentHashMap<SerialExecutorService, Boolean>());
+
+    private ExportExecutorPool() {}
+
+    /**
+     * @return an executor that runs its tasks one at a time in submission order
+     */
+    public static ListeningExecutorService newSerialExecutor(String name) {
+        if (m_pool == null) {
+            return CoreUtils.getListeningExecutorService(name, 1);
+        }
+        SerialExecutorService es = new SerialExecutorService(name, m_pool);
+        m_executors.add(es);
+        return MoreExecutors.listeningDecorator(es);
+    }
+
+    /**
+     * @return the serial executors that haven't terminated yet
+     */
+    static List<SerialExecutorService> getExecutors() {
+        List<SerialExecutorService> executors = new ArrayList<SerialExecutorService>();
+        Iterator<SerialExecutorService> iter = m_executors.iterator();
+        while (iter.hasNext()) {
+            SerialExecutorService es = iter.next();
+            if (es.isTerminated()) {
+                iter.remove();
+            } else {
+                executors.add(es);
+            }
+        }
+        return executors;
+    }
+
+    static ForkJoinPool getPool() {
+        return m_pool;
+    }
+}
@@ -0,0 +1,117 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.export;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.utils.SerialExecutorService;
+
+/**
+ * Threads and queue depths of the shared export executor pool
+ */
+public class ExportExecutorStats extends StatsSource {
+
+    public enum StatName {
+        POOL_THREADS,
+        ACTIVE_THREADS,
+        STEAL_COUNT,
+        EXECUTORS,
+        QUEUE_DEPTH,
+        MAX_EXECUTOR_QUEUE_DEPTH,
+        MAX_EXECUTOR_QUEUE_DEPTH_EVER,
+        COMPLETED_TASKS
+    };
+
+    public ExportExecutorStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(StatName.POOL_THREADS.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.ACTIVE_THREADS.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.STEAL_COUNT.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.EXECUTORS.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.QUEUE_DEPTH.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.MAX_EXECUTOR_QUEUE_DEPTH.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.MAX_EXECUTOR_QUEUE_DEPTH_EVER.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.COMPLETED_TASKS.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        int executors = 0;
+        int queueDepth = 0;
+        int maxQueueDepth = 0;
+        int maxQueueDepthEver = 0;
+        long completedTasks = 0;
+        for (SerialExecutorService es : ExportExecutorPool.getExecutors()) {
+            final int depth = es.getQueueDepth();
+            executors++;
+            queueDepth += depth;
+            maxQueueDepth = Math.max(maxQueueDepth, depth);
+            maxQueueDepthEver = Math.max(maxQueueDepthEver, es.getMaxQueueDepth());
+            completedTasks += es.getCompletedTasks();
+        }
+
+        // With EXPORT_EXECUTOR_THREADS=0 every source has a thread of its own
+        final ForkJoinPool pool = ExportExecutorPool.getPool();
+        rowValues[columnNameToIndex.get(StatName.POOL_THREADS.name())] = pool == null ? 0 : pool.getPoolSize();
+        rowValues[columnNameToIndex.get(StatName.ACTIVE_THREADS.name())] = pool == null ? 0 : pool.getActiveThreadCount();
+        rowValues[columnNameToIndex.get(StatName.STEAL_COUNT.name())] = pool == null ? 0L : pool.getStealCount();
+        rowValues[columnNameToIndex.get(StatName.EXECUTORS.name())] = executors;
+        rowValues[columnNameToIndex.get(StatName.QUEUE_DEPTH.name())] = queueDepth;
+        rowValues[columnNameToIndex.get(StatName.MAX_EXECUTOR_QUEUE_DEPTH.name())] = maxQueueDepth;
+        rowValues[columnNameToIndex.get(StatName.MAX_EXECUTOR_QUEUE_DEPTH_EVER.name())] = maxQueueDepthEver;
+        rowValues[columnNameToIndex.get(StatName.COMPLETED_TASKS.name())] = completedTasks;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
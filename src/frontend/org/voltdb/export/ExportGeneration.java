@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -155,8 +156,37 @@ public class ExportGeneration implements Generation {
     private static final ListeningExecutorService m_childUpdatingThread =
             CoreUtils.getListeningExecutorService("Export ZK Watcher", 1);
 
-    private final Map<Integer, String> m_partitionLeaderZKName = new HashMap<Integer, String>();
-    private final Set<Integer> m_partitionsIKnowIAmTheLeader = new HashSet<Integer>();
+    private final Map<Integer, String> m_partitionLeaderZKName = new ConcurrentHashMap<Integer, String>();
+    private final Set<Integer> m_partitionsIKnowIAmTheLeader =
+            Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+    /*
+     * Election results are handled on an executor per partition so that the partitions
+     * of a failed node change mastership in parallel, the ZK work itself stays on the
+     * single watcher thread
+     */
+    private final ConcurrentHashMap<Integer, ListeningExecutorService> m_leaderExecutors =
+            new ConcurrentHashMap<Integer, ListeningExecutorService>();
+
+    private ListeningExecutorService getLeaderExecutor(Integer partition) {
+        ListeningExecutorService es = m_leaderExecutors.get(partition);
+        if (es == null) {
+            es = ExportExecutorPool.newSerialExecutor(
+                    "Export leader gen " + m_timestamp + " partition " + partition);
+            ListeningExecutorService existing = m_leaderExecutors.putIfAbsent(partition, es);
+            if (existing != null) {
+                es.shutdown();
+                es = existing;
+            }
+        }
+        return es;
+    }
+
+    private void shutdownLeaderExecutors() {
+        for (ListeningExecutorService es : m_leaderExecutors.values()) {
+            es.shutdown();
+        }
+    }
 
     //This is maintained to detect if this is a continueing generation or not
     private final boolean m_isContinueingGeneration;
@@ -300,12 +330,22 @@ public class ExportGeneration implements Generation {
                     /*
                      * Process the result of the per partition elections.
                      * No worries about ordering with the watcher because the watcher tasks
-                     * all get funneled through this thread
+                     * all get funneled through this thread before they hand the result
+                     * to the partition's executor
                      */
                     Iterator<ZKUtil.ChildrenCallback> iter = callbacks.iterator();
-                    for (Integer partition : m_dataSourcesByPartition.keySet()) {
-                        ZKUtil.ChildrenCallback cb = iter.next();
-                        handleLeaderChildrenUpdate(partition,  cb.getChildren());
+                    for (final Integer partition : m_dataSourcesByPartition.keySet()) {
+                        final List<String> children = iter.next().getChildren();
+                        getLeaderExecutor(partition).execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    handleLeaderChildrenUpdate(partition, children);
+                                } catch (Throwable t) {
+                                    VoltDB.crashLocalVoltDB("Error in export leader election", true, t);
+                                }
+                            }
+                        });
                     }
                 } catch (Throwable t) {
                     VoltDB.crashLocalVoltDB("Error in export leader election", true, t);
@@ -336,7 +376,7 @@ public class ExportGeneration implements Generation {
                                             true,
                                             KeeperException.create(code));
                                 }
-                                m_childUpdatingThread.execute(new Runnable() {
+                                getLeaderExecutor(partition).execute(new Runnable() {
                                     @Override
                                     public void run() {
                                         try {
@@ -748,6 +788,7 @@ public class ExportGeneration implements Generation {
             Throwables.propagateIfPossible(e, IOException.class);
         }
         shutdown = true;
+        shutdownLeaderExecutors();
         VoltFile.recursivelyDelete(m_directory);
 
     }
@@ -827,6 +868,7 @@ public class ExportGeneration implements Generation {
             exportLog.error("Error closing export data sources", e);
         }
         shutdown = true;
+        shutdownLeaderExecutors();
     }
 
     /**
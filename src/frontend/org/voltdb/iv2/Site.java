@@ -17,6 +17,7 @@
 
 package org.voltdb.iv2;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
@@ -82,6 +83,7 @@ import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Deployment;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Table;
+import org.voltdb.common.Constants;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.dtxn.UndoAction;
@@ -724,6 +726,7 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             eeTemp.loadCatalog(m_startupConfig.m_timestamp, m_startupConfig.m_serializedCatalog);
             eeTemp.setBatchTimeout(m_context.cluster.getDeployment().get("deployment").
                             getSystemsettings().get("systemsettings").getQuerytimeout());
+            setSpillDirectory(eeTemp);
         }
         // just print error info an bail if we run into an error here
         catch (final Exception ex) {
@@ -1597,6 +1600,28 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         hostLog.info("DR protocol version has been set to " + drVersion);
     }
 
+    /**
+     * Tell the EE where it may write the intermediate results of large sorts and
+     * aggregations that do not fit within the temp table memory limit.
+     * The directory defaults to large_query_swap under voltdbroot and can be overridden
+     * with the VOLTDB_SPILL_DIRECTORY system property. If it can not be created, the EE
+     * does not spill and such queries fail at the memory limit as before.
+     */
+    private void setSpillDirectory(ExecutionEngine ee) {
+        File spillDir = new File(System.getProperty("VOLTDB_SPILL_DIRECTORY",
+                new File(VoltDB.instance().getVoltDBRootPath(), "large_query_swap").getPath()));
+        if ( ! spillDir.isDirectory() && ! spillDir.mkdirs()) {
+            hostLog.warn("Unable to create the temp table spill directory " + spillDir.getAbsolutePath() +
+                    ". Large sorts and aggregations will not spill to disk.");
+            return;
+        }
+        byte[] pathBytes = spillDir.getAbsolutePath().getBytes(Constants.UTF8ENCODING);
+        ByteBuffer paramBuffer = ee.getParamBufferForExecuteTask(4 + pathBytes.length);
+        paramBuffer.putInt(pathBytes.length);
+        paramBuffer.put(pathBytes);
+        ee.executeTask(TaskType.SET_SPILL_DIRECTORY, paramBuffer);
+    }
+
     /**
      * Generate a in-stream DR event which pushes an event buffer to topend
      */
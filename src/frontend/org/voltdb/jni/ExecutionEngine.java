@@ -64,7 +64,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         SP_JAVA_GET_DRID_TRACKER(4),
         SET_DRID_TRACKER(5),
         GENERATE_DR_EVENT(6),
-        RESET_DR_APPLIED_TRACKER(7);
+        RESET_DR_APPLIED_TRACKER(7),
+        SET_SPILL_DIRECTORY(8);
 
         private TaskType(int taskId) {
             this.taskId = taskId;
@@ -147,6 +148,13 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     public long m_lastTuplesAccessed = 0;
     public long m_currMemoryInBytes = 0;
     public long m_peakMemoryInBytes = 0;
+    public long m_spilledBytes = 0;
+
+    /** Bytes spilled by the earlier fragments of the current batch, and the fragment
+     *  m_spilledBytes was last reported for. The EE reports the bytes spilled so far
+     *  in the fragment, so only the last report of each fragment is counted. */
+    private long m_batchSpilledBytes = 0;
+    private int m_spillFragmentIndex = -1;
 
     /** Make the EE clean and ready to do new transactional work. */
     public void resetDirtyStatus() {
@@ -386,12 +394,18 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             int planNodeTypeAsInt,
             long tuplesProcessed,
             long currMemoryInBytes,
-            long peakMemoryInBytes)
+            long peakMemoryInBytes,
+            long spilledBytes)
     {
         ++m_callsFromEE;
         m_lastTuplesAccessed = tuplesProcessed;
         m_currMemoryInBytes = currMemoryInBytes;
         m_peakMemoryInBytes = peakMemoryInBytes;
+        if (indexFromFragmentTask != m_spillFragmentIndex) {
+            m_batchSpilledBytes += m_spilledBytes;
+            m_spillFragmentIndex = indexFromFragmentTask;
+        }
+        m_spilledBytes = Math.max(spilledBytes, 0);
 
         long currentTime = System.currentTimeMillis();
         if (m_startTime == 0) {
@@ -476,6 +490,10 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
                     + " and the peak usage of memory for temp tables is " + m_peakMemoryInBytes + " bytes.");
         }
 
+        if (m_spilledBytes > 0) {
+            sb.append(" " + m_spilledBytes + " bytes of temp data have been spilled to disk.");
+        }
+
         if (m_sqlTexts != null
                 && indexFromFragmentTask >= 0
                 && indexFromFragmentTask < m_sqlTexts.length) {
@@ -616,6 +634,9 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             m_startTime = 0;
             m_logDuration = INITIAL_LOG_DURATION;
             m_sqlTexts = sqlTexts;
+            m_spilledBytes = 0;
+            m_batchSpilledBytes = 0;
+            m_spillFragmentIndex = -1;
 
             VoltTable[] results = coreExecutePlanFragments(numFragmentIds, planFragmentIds, inputDepIds,
                     parameterSets, txnId, spHandle, lastCommittedSpHandle, uniqueId, undoQuantumToken);
@@ -629,6 +650,11 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             // during an exception, so we don't count cache misses either to get the right ratio.
             m_cacheMisses = 0;
 
+            // spilled bytes are counted even if the batch failed, they were written all the same
+            if (m_plannerStats != null && m_batchSpilledBytes + m_spilledBytes > 0) {
+                m_plannerStats.updateEESpillStats(m_batchSpilledBytes + m_spilledBytes);
+            }
+
             m_sqlTexts = null;
 
             m_fragmentContext = FragmentContext.UNKNOWN;
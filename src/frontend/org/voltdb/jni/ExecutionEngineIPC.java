@@ -300,8 +300,9 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                     long tuplesFound = m_connection.readLong();
                     long currMemoryInBytes = m_connection.readLong();
                     long peakMemoryInBytes = m_connection.readLong();
+                    long spilledBytes = m_connection.readLong();
                     long nextStep = fragmentProgressUpdate(batchIndex, planNodeTypeAsInt, tuplesFound,
-                            currMemoryInBytes, peakMemoryInBytes);
+                            currMemoryInBytes, peakMemoryInBytes, spilledBytes);
                     m_history.append("...RESPONDING TO PROGRESS_UPDATE...nextStep=" + nextStep);
                     m_data.clear();
                     m_data.putLong(nextStep);
@@ -71,13 +71,20 @@ public abstract class AbstractParsedStmt {
 
     protected String m_contentDeterminismMessage = null;
 
-     // Internal statement counter
-    public static int NEXT_STMT_ID = 0;
-    // Internal parameter counter
-    public static int NEXT_PARAMETER_ID = 0;
+    // Internal statement and parameter counters, per thread so statements can be planned concurrently
+    private static final ThreadLocal<int[]> NEXT_STMT_ID = ThreadLocal.withInitial(() -> new int[1]);
+    private static final ThreadLocal<int[]> NEXT_PARAMETER_ID = ThreadLocal.withInitial(() -> new int[1]);
     // The unique id to identify the statement
     public int m_stmtId;
 
+    public static int nextStmtId() {
+        return NEXT_STMT_ID.get()[0]++;
+    }
+
+    public static int nextParameterId() {
+        return NEXT_PARAMETER_ID.get()[0]++;
+    }
+
     public String m_sql;
 
     // The initial value is a safety net for the case of parameter-less statements.
@@ -183,7 +190,7 @@ public abstract class AbstractParsedStmt {
             throw new RuntimeException("Unexpected Element: " + stmtTypeElement.name);
         }
         // Set the unique id
-        retval.m_stmtId = NEXT_STMT_ID++;
+        retval.m_stmtId = nextStmtId();
         return retval;
     }
 
@@ -218,8 +225,8 @@ public abstract class AbstractParsedStmt {
             Database db, String joinOrder) {
 
         // reset the statement counters
-        NEXT_STMT_ID = 0;
-        NEXT_PARAMETER_ID = 0;
+        NEXT_STMT_ID.get()[0] = 0;
+        NEXT_PARAMETER_ID.get()[0] = 0;
         AbstractParsedStmt retval = getParsedStmt(stmtTypeElement, paramValues, db);
 
         parse(retval, sql, stmtTypeElement, db, joinOrder);
@@ -516,7 +523,7 @@ public abstract class AbstractParsedStmt {
         }
 
         // This is a TVE from the correlated expression
-        int paramIdx = NEXT_PARAMETER_ID++;
+        int paramIdx = nextParameterId();
         ParameterValueExpression pve = new ParameterValueExpression(paramIdx, resolvedExpr);
         m_parameterTveMap.put(paramIdx, resolvedExpr);
         return pve;
@@ -1073,14 +1080,14 @@ public abstract class AbstractParsedStmt {
     protected AbstractExpression replaceExpressionsWithPve(AbstractExpression expr) {
         assert(expr != null);
         if (expr instanceof TupleValueExpression) {
-            int paramIdx = NEXT_PARAMETER_ID++;
+            int paramIdx = nextParameterId();
             ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
             m_parameterTveMap.put(paramIdx, expr);
             return pve;
         }
 
         if (expr instanceof AggregateExpression) {
-            int paramIdx = NEXT_PARAMETER_ID++;
+            int paramIdx = nextParameterId();
             ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
             // Disallow aggregation of parent columns in a subquery.
             // except the case HAVING AGG(T1.C1) IN (SELECT T2.C2 ...)
@@ -1420,8 +1427,9 @@ public abstract class AbstractParsedStmt {
                 m_paramsByIndex.put(index, pve);
             }
         }
-        if (max_parameter_id >= NEXT_PARAMETER_ID) {
-            NEXT_PARAMETER_ID = (int)max_parameter_id + 1;
+        final int nextParameterId[] = NEXT_PARAMETER_ID.get();
+        if (max_parameter_id >= nextParameterId[0]) {
+            nextParameterId[0] = (int)max_parameter_id + 1;
         }
     }
 
@@ -1511,6 +1511,14 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
         return m_joinOrder != null || m_hasLargeNumberOfTableJoins;
     }
 
+    /**
+     * @return true if no join order was given and there are too many tables
+     * to plan every join order
+     */
+    public boolean hasLargeNumberOfTableJoins() {
+        return m_hasLargeNumberOfTableJoins;
+    }
+
     public ArrayList<JoinNode> getJoinOrder() {
         return m_joinOrderList;
     }
@@ -181,6 +181,18 @@ public class PlanSelector implements Cloneable {
         outputPlan(plan, planGraph, filename);
     }
 
+    /**
+     * Estimate the cost of a part of a plan with the current cost model,
+     * without considering it as a candidate plan.
+     * @param subPlan the root of the plan-sub-graph
+     * @return the cost of the plan-sub-graph
+     */
+    double estimateSubPlanCost(AbstractPlanNode subPlan) {
+        PlanStatistics stats = new PlanStatistics();
+        subPlan.computeEstimatesRecursively(stats, m_cluster, m_db, m_estimates, m_paramHints);
+        return m_costModel.getPlanCost(stats);
+    }
+
     public void finalizeOutput() {
         if (m_quietPlanner) {
             return;
@@ -19,14 +19,19 @@ package org.voltdb.planner;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.voltdb.VoltType;
 import org.voltdb.catalog.Database;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.AbstractSubqueryExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
@@ -37,10 +42,12 @@ import org.voltdb.planner.parseinfo.SubqueryLeafNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
 import org.voltdb.types.PlanNodeType;
 import org.voltdb.utils.PermutationGenerator;
@@ -62,19 +69,42 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     private ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<JoinNode>();
 
+    /**
+     * The most partial join orders to cost while searching the join order of a join of
+     * too many tables to plan every join order. A count rather than a time limit keeps
+     * the plans of a statement the same from one compilation to the next.
+     */
+    static final int JOIN_ORDER_SEARCH_BUDGET = Integer.getInteger("JOIN_ORDER_SEARCH_BUDGET", 20000);
+
+    /** Costs the partial join orders of the join order search */
+    private final PlanSelector m_planSelector;
+
     /**
      *
      * @param db The catalog's Database object.
      * @param selectStmt The parsed and dissected statement object describing the sql to execute.
      * @param partitioning in/out param first element is partition key value, forcing a single-partition statement if non-null,
      * second may be an inferred partition key if no explicit single-partitioning was specified
+     * @param planSelector The plan selector used to cost the join orders of a large join.
      */
-    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning)
+    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning,
+            PlanSelector planSelector)
     {
         super(db, selectStmt, partitioning);
+        m_planSelector = planSelector;
         if (selectStmt.hasJoinOrder()) {
             // If a join order was provided or large number of tables join
             m_joinOrders.addAll(selectStmt.getJoinOrder());
+            if (selectStmt.hasLargeNumberOfTableJoins() && m_parsedStmt.m_joinTree.allInnerJoins()) {
+                // Rather than only planning the order of the FROM clause, also plan
+                // the cheapest order a search of the join orders of the tables finds.
+                // The order of the FROM clause still wins a tie.
+                JoinNode joinTree = new JoinOrderSearch(m_parsedStmt.m_joinTree).search();
+                if (joinTree != null &&
+                        ! joinTree.generateTableJoinOrder().equals(m_parsedStmt.m_joinTree.generateTableJoinOrder())) {
+                    m_joinOrders.add(joinTree);
+                }
+            }
         } else {
             assert(m_parsedStmt.m_noTableSelectionList.size() == 0);
             m_joinOrders = queueJoinOrders(m_parsedStmt.m_joinTree, true);
@@ -254,6 +284,265 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return joinOrders;
     }
 
+    /**
+     * A join order of some of the tables of a join, with the access path and the join
+     * method that were found the cheapest for each of its tables.
+     */
+    private static class PartialJoinOrder {
+        // Bit mask of the tables of the order
+        final long m_tables;
+        final int[] m_order;
+        final int[] m_accessPathIdxs;
+        // Whether each table but the first one is joined with a hash join
+        final boolean[] m_hashJoins;
+        final double m_cost;
+
+        PartialJoinOrder(long tables, int[] order, int[] accessPathIdxs, boolean[] hashJoins, double cost) {
+            m_tables = tables;
+            m_order = order;
+            m_accessPathIdxs = accessPathIdxs;
+            m_hashJoins = hashJoins;
+            m_cost = cost;
+        }
+
+        boolean isCheaperThan(PartialJoinOrder other) {
+            if (other == null || m_cost < other.m_cost) {
+                return true;
+            }
+            if (m_cost > other.m_cost) {
+                return false;
+            }
+            // Break the ties in favor of the order of the FROM clause
+            for (int ii = 0; ii < m_order.length; ++ii) {
+                if (m_order[ii] != other.m_order[ii]) {
+                    return m_order[ii] < other.m_order[ii];
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Searches the left-deep join orders of a tree of inner joins for the cheapest one.
+     * Orders are built one table at a time, each order being costed as the plan of
+     * its cheapest access paths. The cheapest order of every subset of the tables is
+     * kept, unless there are too many subsets for the search budget. Then, starting
+     * from every table in turn while the budget lasts, the order that is the cheapest
+     * at each step is kept. Tables joined by a filter to the tables already in an
+     * order are added before the ones that would make a cross join.
+     */
+    private class JoinOrderSearch {
+        private final JoinNode m_joinTree;
+        private final List<JoinNode> m_tableNodes;
+        private final List<AbstractExpression> m_filters;
+        // Bit mask of the tables of each filter
+        private final long[] m_filterTables;
+        private int m_orderCount = 0;
+
+        JoinOrderSearch(JoinNode joinTree) {
+            m_joinTree = joinTree;
+            m_tableNodes = joinTree.generateLeafNodesJoinOrder();
+            Map<String, Integer> tableIdxs = new HashMap<String, Integer>();
+            for (int ii = 0; ii < m_tableNodes.size(); ++ii) {
+                tableIdxs.put(m_tableNodes.get(ii).getTableAlias(), ii);
+            }
+            m_filters = ExpressionUtil.uncombinePredicate(joinTree.getAllFilters());
+            m_filterTables = new long[m_filters.size()];
+            for (int ii = 0; ii < m_filters.size(); ++ii) {
+                for (AbstractExpression expr : m_filters.get(ii).findAllTupleValueSubexpressions()) {
+                    Integer tableIdx = tableIdxs.get(((TupleValueExpression)expr).getTableAlias());
+                    if (tableIdx != null) {
+                        m_filterTables[ii] |= 1L << tableIdx;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the join tree of the cheapest order found, or null if none could be planned
+         */
+        JoinNode search() {
+            int tableCount = m_tableNodes.size();
+            if (tableCount < 2 || tableCount >= Long.SIZE) {
+                return null;
+            }
+            PartialJoinOrder best;
+            if (((long)tableCount << (tableCount - 1)) <= JOIN_ORDER_SEARCH_BUDGET) {
+                best = searchAllSubsets();
+            } else {
+                best = searchGreedily();
+            }
+            if (best == null) {
+                return null;
+            }
+
+            List<JoinNode> tableNodes = new ArrayList<JoinNode>();
+            for (int tableIdx : best.m_order) {
+                tableNodes.add(m_tableNodes.get(tableIdx));
+            }
+            JoinNode joinTree = JoinNode.reconstructJoinTreeFromTableNodes(tableNodes, JoinType.INNER);
+            AbstractExpression combinedWhereExpr = m_joinTree.getAllFilters();
+            if (combinedWhereExpr != null) {
+                joinTree.setWhereExpression(combinedWhereExpr.clone());
+            }
+            joinTree.setId(m_joinTree.getId());
+            return joinTree;
+        }
+
+        private PartialJoinOrder searchAllSubsets() {
+            Map<Long, PartialJoinOrder> orders = new LinkedHashMap<Long, PartialJoinOrder>();
+            for (int tableIdx = 0; tableIdx < m_tableNodes.size(); ++tableIdx) {
+                PartialJoinOrder order = extend(null, tableIdx);
+                if (order != null) {
+                    orders.put(order.m_tables, order);
+                }
+            }
+            for (int size = 1; size < m_tableNodes.size(); ++size) {
+                Map<Long, PartialJoinOrder> nextOrders = new LinkedHashMap<Long, PartialJoinOrder>();
+                for (PartialJoinOrder order : orders.values()) {
+                    for (int tableIdx : nextTables(order.m_tables)) {
+                        PartialJoinOrder nextOrder = extend(order, tableIdx);
+                        if (nextOrder != null && nextOrder.isCheaperThan(nextOrders.get(nextOrder.m_tables))) {
+                            nextOrders.put(nextOrder.m_tables, nextOrder);
+                        }
+                    }
+                }
+                orders = nextOrders;
+            }
+            assert(orders.size() <= 1);
+            return orders.isEmpty() ? null : orders.values().iterator().next();
+        }
+
+        private PartialJoinOrder searchGreedily() {
+            PartialJoinOrder best = null;
+            for (int tableIdx = 0; tableIdx < m_tableNodes.size(); ++tableIdx) {
+                if (best != null && m_orderCount >= JOIN_ORDER_SEARCH_BUDGET) {
+                    break;
+                }
+                PartialJoinOrder order = extend(null, tableIdx);
+                while (order != null && order.m_order.length < m_tableNodes.size()) {
+                    PartialJoinOrder cheapest = null;
+                    for (int nextTableIdx : nextTables(order.m_tables)) {
+                        PartialJoinOrder nextOrder = extend(order, nextTableIdx);
+                        if (nextOrder != null && nextOrder.isCheaperThan(cheapest)) {
+                            cheapest = nextOrder;
+                        }
+                    }
+                    order = cheapest;
+                }
+                if (order != null && order.isCheaperThan(best)) {
+                    best = order;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * @return the tables sharing a filter with the given ones,
+         * or all the other tables if there are none
+         */
+        private List<Integer> nextTables(long tables) {
+            List<Integer> joined = new ArrayList<Integer>();
+            List<Integer> others = new ArrayList<Integer>();
+            for (int tableIdx = 0; tableIdx < m_tableNodes.size(); ++tableIdx) {
+                long table = 1L << tableIdx;
+                if ((tables & table) != 0) {
+                    continue;
+                }
+                others.add(tableIdx);
+                for (long filterTables : m_filterTables) {
+                    if ((filterTables & table) != 0 && (filterTables & tables) != 0) {
+                        joined.add(tableIdx);
+                        break;
+                    }
+                }
+            }
+            return joined.isEmpty() ? others : joined;
+        }
+
+        /**
+         * Plan the given order followed by one more table, trying every access path
+         * of the new table with both join methods.
+         * @return the new order, or null if it could not be planned
+         */
+        private PartialJoinOrder extend(PartialJoinOrder order, int tableIdx) {
+            ++m_orderCount;
+            int size = (order == null) ? 1 : order.m_order.length + 1;
+            int[] joinOrder = (order == null) ? new int[1] : Arrays.copyOf(order.m_order, size);
+            joinOrder[size - 1] = tableIdx;
+            long tables = ((order == null) ? 0 : order.m_tables) | (1L << tableIdx);
+
+            List<JoinNode> tableNodes = new ArrayList<JoinNode>();
+            for (int idx : joinOrder) {
+                tableNodes.add(m_tableNodes.get(idx));
+            }
+            JoinNode joinTree = JoinNode.reconstructJoinTreeFromTableNodes(tableNodes, JoinType.INNER);
+            // Only the filters on the tables of the order apply.
+            // Filters on none of the tables don't change which order is cheaper.
+            List<AbstractExpression> filters = new ArrayList<AbstractExpression>();
+            for (int ii = 0; ii < m_filters.size(); ++ii) {
+                if (m_filterTables[ii] != 0 && (m_filterTables[ii] & ~tables) == 0) {
+                    filters.add(m_filters.get(ii).clone());
+                }
+            }
+            joinTree.setWhereExpression(ExpressionUtil.combinePredicates(filters));
+            joinTree.analyzeJoinExpressions(new ArrayList<AbstractExpression>());
+            generateAccessPaths(joinTree);
+
+            // The tables of the given order keep their access paths and join methods.
+            // Each table but the first one is joined to the ones before it by a node
+            // on the left spine of the left-deep tree, the last one by the root.
+            List<JoinNode> leafNodes = joinTree.generateLeafNodesJoinOrder();
+            JoinNode spineNode = joinTree;
+            for (int ii = size - 1; ii > 0; --ii) {
+                if (ii < size - 1) {
+                    ((BranchNode)spineNode).m_currentHashJoin = order.m_hashJoins[ii];
+                }
+                spineNode = spineNode.getLeftNode();
+            }
+            for (int ii = 0; ii < size - 1; ++ii) {
+                List<AccessPath> paths = leafNodes.get(ii).m_accessPaths;
+                leafNodes.get(ii).m_currentAccessPath =
+                        paths.get(Math.min(order.m_accessPathIdxs[ii], paths.size() - 1));
+            }
+            JoinNode tableNode = leafNodes.get(size - 1);
+            BranchNode hashJoinNode = null;
+            if (size > 1 && getHashJoinForJoinClauses((BranchNode)joinTree, joinTree.m_joinInnerOuterList) != null) {
+                hashJoinNode = (BranchNode)joinTree;
+            }
+            boolean[] hashJoinMethods = (hashJoinNode == null) ? new boolean[] { false } : new boolean[] { false, true };
+            int bestPathIdx = -1;
+            boolean bestHashJoin = false;
+            double bestCost = Double.MAX_VALUE;
+            for (int ii = 0; ii < tableNode.m_accessPaths.size(); ++ii) {
+                tableNode.m_currentAccessPath = tableNode.m_accessPaths.get(ii);
+                for (boolean hashJoin : hashJoinMethods) {
+                    if (hashJoinNode != null) {
+                        hashJoinNode.m_currentHashJoin = hashJoin;
+                    }
+                    AbstractPlanNode plan = getSelectSubPlanForJoinNode(joinTree);
+                    if (plan == null) {
+                        continue;
+                    }
+                    double cost = m_planSelector.estimateSubPlanCost(plan);
+                    if (bestPathIdx == -1 || cost < bestCost) {
+                        bestPathIdx = ii;
+                        bestHashJoin = hashJoin;
+                        bestCost = cost;
+                    }
+                }
+            }
+            if (bestPathIdx == -1) {
+                return null;
+            }
+            int[] accessPathIdxs = (order == null) ? new int[1] : Arrays.copyOf(order.m_accessPathIdxs, size);
+            accessPathIdxs[size - 1] = bestPathIdx;
+            boolean[] hashJoins = (order == null) ? new boolean[1] : Arrays.copyOf(order.m_hashJoins, size);
+            hashJoins[size - 1] = bestHashJoin;
+            return new PartialJoinOrder(tables, joinOrder, accessPathIdxs, hashJoins, bestCost);
+        }
+    }
+
     /**
      * Pull a join order out of the join orders deque, compute all possible plans
      * for that join order, then append them to the computed plans deque.
@@ -518,6 +807,8 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
     /**
      * generate all possible plans for the tree.
+     * A join with equalities between its branches is planned both as
+     * a nest loop join and as a hash join, for the plans to be costed against each other.
      *
      * @param rootNode The root node for the whole join tree.
      * @param nodes The node list to iterate over.
@@ -527,24 +818,40 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     {
         assert(nodes.size() > nextNode);
         JoinNode joinNode = nodes.get(nextNode);
-        if (nodes.size() == nextNode + 1) {
-            for (AccessPath path : joinNode.m_accessPaths) {
-                joinNode.m_currentAccessPath = path;
-                AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
-                if (plan == null) {
-                    continue;
-                }
-                m_plans.add(plan);
-            }
-            return;
+        BranchNode hashJoinNode = null;
+        if (joinNode instanceof BranchNode &&
+                getHashJoinForJoinClauses((BranchNode)joinNode, joinNode.m_joinInnerOuterList) != null) {
+            hashJoinNode = (BranchNode)joinNode;
         }
-
         for (AccessPath path : joinNode.m_accessPaths) {
             joinNode.m_currentAccessPath = path;
-            generateSubPlanForJoinNodeRecursively(rootNode, nextNode+1, nodes);
+            generateSubPlanForNextJoinNode(rootNode, nextNode, nodes);
+            if (hashJoinNode != null) {
+                hashJoinNode.m_currentHashJoin = true;
+                generateSubPlanForNextJoinNode(rootNode, nextNode, nodes);
+                hashJoinNode.m_currentHashJoin = false;
+            }
         }
     }
 
+    /**
+     * Generate the plans for the given node's current access path and join method:
+     * the plan for the tree if it is the last node, or else the plans for
+     * all the access paths and join methods of the next nodes.
+     */
+    private void generateSubPlanForNextJoinNode(JoinNode rootNode,
+                                                int currentNode, List<JoinNode> nodes)
+    {
+        if (nodes.size() == currentNode + 1) {
+            AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
+            if (plan != null) {
+                m_plans.add(plan);
+            }
+            return;
+        }
+        generateSubPlanForJoinNodeRecursively(rootNode, currentNode+1, nodes);
+    }
+
     /**
      * Given a specific join node and access path set for inner and outer tables, construct the plan
      * that gives the right tuples.
@@ -701,10 +1008,14 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
             canHaveNLIJ = false;
             canHaveNLJ = false;
         }
+        // The hash join is an alternative to the NLJ only.
+        // The NLIJ plan of an access path is made for the nest loop join method.
+        if (joinNode.m_currentHashJoin && ! canHaveNLJ) {
+            return null;
+        }
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -745,6 +1056,19 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 // the inner node ONLY, that can not be pushed down.
                 joinClauses.addAll(innerAccessPath.otherExprs);
             }
+
+            // An equi-join may hash one of the inputs on its join keys rather than
+            // scanning the inner input once for each outer tuple.
+            AbstractJoinPlanNode nljNode;
+            if (joinNode.m_currentHashJoin) {
+                nljNode = getHashJoinForJoinClauses(joinNode, joinClauses);
+                if (nljNode == null) {
+                    return null;
+                }
+            }
+            else {
+                nljNode = new NestLoopPlanNode();
+            }
             nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(joinClauses));
 
             // combine the tails plan graph with the new head node
@@ -792,6 +1116,72 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Build a hash join node keyed on the equalities (= or IS NOT DISTINCT FROM) among the
+     * join clauses that compare an expression of the outer branch of the join with an
+     * expression of its inner branch.
+     * The key expressions on either side must have the same type, so that equal values
+     * get the same hash in the EE. FLOAT keys are excluded because -0.0 equals 0.0
+     * but does not hash the same.
+     *
+     * @param joinNode The join node to build the plan for.
+     * @param joinClauses The expressions that join the inner branch to the outer branch.
+     * @return the hash join node with its keys set or null if there are no usable equalities.
+     */
+    private static HashJoinPlanNode getHashJoinForJoinClauses(BranchNode joinNode,
+                                                              List<AbstractExpression> joinClauses)
+    {
+        Collection<String> outerTables = joinNode.getLeftNode().generateTableJoinOrder();
+        Collection<String> innerTables = joinNode.getRightNode().generateTableJoinOrder();
+        HashJoinPlanNode hjNode = null;
+        for (AbstractExpression clause : joinClauses) {
+            ExpressionType compareType = clause.getExpressionType();
+            if ((compareType != ExpressionType.COMPARE_EQUAL &&
+                    compareType != ExpressionType.COMPARE_NOTDISTINCT) ||
+                    clause.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class)) {
+                continue;
+            }
+            AbstractExpression left = clause.getLeft();
+            AbstractExpression right = clause.getRight();
+            if (left.getValueType() == null ||
+                    left.getValueType() != right.getValueType() ||
+                    left.getValueType() == VoltType.FLOAT) {
+                continue;
+            }
+            if (isExpressionOfTables(right, outerTables) && isExpressionOfTables(left, innerTables)) {
+                // Put the outer key on the left.
+                AbstractExpression swap = left;
+                left = right;
+                right = swap;
+            }
+            else if ( ! (isExpressionOfTables(left, outerTables) && isExpressionOfTables(right, innerTables))) {
+                continue;
+            }
+            if (hjNode == null) {
+                hjNode = new HashJoinPlanNode();
+            }
+            hjNode.addHashExpressions(left, right, compareType == ExpressionType.COMPARE_NOTDISTINCT);
+        }
+        return hjNode;
+    }
+
+    /**
+     * @return true if the expression references at least one column
+     * and only the columns of the given tables.
+     */
+    private static boolean isExpressionOfTables(AbstractExpression expr, Collection<String> tableAliases) {
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAliases.contains(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
@@ -77,6 +77,7 @@ public class InlineAggregation extends MicroOptimization {
         if (child.getPlanNodeType() != PlanNodeType.SEQSCAN &&
             child.getPlanNodeType() != PlanNodeType.INDEXSCAN &&
             child.getPlanNodeType() != PlanNodeType.NESTLOOP &&
+            child.getPlanNodeType() != PlanNodeType.HASHJOIN &&
             child.getPlanNodeType() != PlanNodeType.NESTLOOPINDEX) {
             return plan;
         }
@@ -40,6 +40,8 @@ public class BranchNode extends JoinNode {
     private JoinNode m_leftNode = null;
     // Right child
     private JoinNode m_rightNode = null;
+    // Join method under the evaluation: a hash join rather than a nest loop join
+    public boolean m_currentHashJoin = false;
     // index into the query catalog cache for a table alias
 
     /**
@@ -394,6 +394,20 @@ public abstract class AbstractJoinPlanNode extends AbstractPlanNode {
         }
     }
 
+    /**
+     * Estimate the number of pairs of an outer and an inner tuple that a join compares.
+     * The estimate is capped well below Long.MAX_VALUE so that adding it up with
+     * the estimates of the other nodes of a plan can't overflow.
+     *
+     * @param outerTupleCount estimated number of outer tuples
+     * @param innerTupleCount estimated number of inner tuples
+     * @return estimated number of tuple pairs
+     */
+    protected static long estimateTuplePairCount(long outerTupleCount, long innerTupleCount) {
+        final double MAX_TUPLE_PAIR_COUNT = Long.MAX_VALUE >> 16;
+        return (long) Math.min((double) outerTupleCount * innerTupleCount, MAX_TUPLE_PAIR_COUNT);
+    }
+
     /**
      * Discount join node child estimates based on the number of its filters
      *
@@ -411,8 +425,8 @@ public abstract class AbstractJoinPlanNode extends AbstractPlanNode {
         AbstractExpression predicate = null;
         if (childNode instanceof AbstractScanPlanNode) {
             predicate = ((AbstractScanPlanNode) childNode).getPredicate();
-        } else if (childNode instanceof NestLoopPlanNode) {
-            predicate = ((NestLoopPlanNode) childNode).getWherePredicate();
+        } else if (childNode instanceof NestLoopPlanNode || childNode instanceof HashJoinPlanNode) {
+            predicate = ((AbstractJoinPlanNode) childNode).getWherePredicate();
         } else if (childNode instanceof NestLoopIndexPlanNode) {
             AbstractPlanNode inlineIndexScan = ((NestLoopIndexPlanNode) childNode).getInlinePlanNode(PlanNodeType.INDEXSCAN);
             assert(inlineIndexScan != null);
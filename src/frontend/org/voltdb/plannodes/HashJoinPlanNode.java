@@ -0,0 +1,192 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.types.JoinType;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * A join of two inputs on the equality of one or more pairs of key expressions.
+ * The EE builds a hash table keyed on the values of the key expressions
+ * for the tuples of one input and probes it with the tuples of the other,
+ * rather than scanning the inner input once per outer tuple like a NestLoopPlanNode.
+ * The join predicate still holds all of the join expressions, including the key
+ * equalities, and is applied to each pair of tuples found in the hash table.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS,
+        NOT_DISTINCT_KEYS,
+        MAY_BUILD_ON_OUTER;
+    }
+
+    // The key expressions on the outer and on the inner input, pairwise equal for a match.
+    // They are copies of the operands of equalities in the join predicate,
+    // so findAllExpressionsOfClass already finds their subexpressions there.
+    protected final List<AbstractExpression> m_outerHashExpressions = new ArrayList<AbstractExpression>();
+    protected final List<AbstractExpression> m_innerHashExpressions = new ArrayList<AbstractExpression>();
+    // The indexes of the key pairs compared with IS NOT DISTINCT FROM, for which NULL matches NULL.
+    protected final List<Integer> m_notDistinctKeys = new ArrayList<Integer>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty() ||
+                m_outerHashExpressions.size() != m_innerHashExpressions.size()) {
+            throw new Exception("ERROR: Mismatched hash key expressions defined for " + this);
+        }
+        for (AbstractExpression exp : m_outerHashExpressions) {
+            exp.validate();
+        }
+        for (AbstractExpression exp : m_innerHashExpressions) {
+            exp.validate();
+        }
+    }
+
+    /**
+     * Add a pair of key expressions that must be equal for an outer and an inner tuple to match.
+     * @param outerExpr the key expression on the outer input
+     * @param innerExpr the key expression on the inner input
+     * @param notDistinct true if the keys are compared with IS NOT DISTINCT FROM
+     */
+    public void addHashExpressions(AbstractExpression outerExpr, AbstractExpression innerExpr,
+                                   boolean notDistinct) {
+        assert(outerExpr != null && innerExpr != null);
+        if (notDistinct) {
+            m_notDistinctKeys.add(m_outerHashExpressions.size());
+        }
+        m_outerHashExpressions.add(outerExpr.clone());
+        m_innerHashExpressions.add(innerExpr.clone());
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return Collections.unmodifiableList(m_outerHashExpressions);
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return Collections.unmodifiableList(m_innerHashExpressions);
+    }
+
+    @Override
+    public void resolveColumnIndexes()
+    {
+        super.resolveColumnIndexes();
+
+        final NodeSchema outer_schema = m_children.get(0).getOutputSchema();
+        final NodeSchema inner_schema = m_children.get(1).getOutputSchema();
+        resolvePredicate(m_outerHashExpressions, outer_schema, inner_schema);
+        resolvePredicate(m_innerHashExpressions, outer_schema, inner_schema);
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     Cluster cluster,
+                                     Database db,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        // Each output of the inputs is processed once -- one to build the hash table,
+        // the other to probe it -- instead of once per tuple of the other input as in an NLJ.
+        assert(m_children.size() == 2);
+        AbstractPlanNode outerChild = m_children.get(0);
+        AbstractPlanNode innerChild = m_children.get(1);
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(outerChild) +
+                innerChild.m_estimatedProcessedTupleCount +
+                outerChild.m_estimatedOutputTupleCount + innerChild.m_estimatedOutputTupleCount;
+    }
+
+    /**
+     * The EE builds the hash table on the smaller input of an inner join, which loses
+     * the order of the outer input when that is the outer one. Only allow that when
+     * the outer input has no order that the plan may rely on.
+     * @return true if the EE may build the hash table on the outer input
+     */
+    public boolean mayBuildOnOuter() {
+        if (m_joinType != JoinType.INNER) {
+            return false;
+        }
+        AbstractPlanNode outerChild = m_children.get(0);
+        return outerChild.getPlanNodeType() != PlanNodeType.INDEXSCAN &&
+                ! (outerChild instanceof AbstractJoinPlanNode);
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        stringer.key(Members.OUTER_HASH_EXPRESSIONS.name()).array(m_outerHashExpressions);
+        stringer.key(Members.INNER_HASH_EXPRESSIONS.name()).array(m_innerHashExpressions);
+        if ( ! m_notDistinctKeys.isEmpty()) {
+            stringer.key(Members.NOT_DISTINCT_KEYS.name()).array();
+            for (Integer ith : m_notDistinctKeys) {
+                stringer.value(ith.longValue());
+            }
+            stringer.endArray();
+        }
+        stringer.keySymbolValuePair(Members.MAY_BUILD_ON_OUTER.name(), mayBuildOnOuter());
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db) throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                Members.INNER_HASH_EXPRESSIONS.name(), null);
+        if ( ! jobj.isNull(Members.NOT_DISTINCT_KEYS.name())) {
+            JSONArray jarray = jobj.getJSONArray(Members.NOT_DISTINCT_KEYS.name());
+            for (int ii = 0; ii < jarray.length(); ++ii) {
+                m_notDistinctKeys.add(jarray.getInt(ii));
+            }
+        }
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        return "HASH " + this.m_joinType.toString() + " JOIN" +
+                (m_sortDirection == SortDirectionType.INVALID ? "" : " (" + m_sortDirection + ")") +
+                explainFilters(indent);
+    }
+
+}
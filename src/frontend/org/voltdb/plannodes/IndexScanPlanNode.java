@@ -577,6 +577,13 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
         // FYI: Index scores should range between 2 and 800003 (I think)
 
         DatabaseEstimates.TableEstimates tableEstimates = estimates.getEstimatesForTable(m_targetTableName);
+        // A partial index holds fewer tuples than its table
+        long indexedTuples = tableEstimates.maxTuples;
+        DatabaseEstimates.IndexEstimates indexEstimates =
+                estimates.getEstimatesForIndex(m_targetTableName, m_catalogIndex.getTypeName());
+        if (indexEstimates != null) {
+            indexedTuples = Math.min(indexedTuples, indexEstimates.entries);
+        }
 
         // get the width of the index - number of columns or expression included in the index
         // need doubles for math
@@ -634,7 +641,7 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            tuplesToRead += (int) (indexedTuples * 0.90 * Math.pow(0.10, keyWidth));
             // "Covering cell" indexes get a special adjustment to make them look more favorable
             // than non-unique range filters in particular.
             // I can't quite justify that rationally, but it "seems reasonable". --paul
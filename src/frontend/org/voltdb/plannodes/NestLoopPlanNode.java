@@ -46,8 +46,13 @@ public class NestLoopPlanNode extends AbstractJoinPlanNode {
         m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
         // Discount outer child estimates based on the number of its filters
         assert(m_children.size() == 2);
-        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
-                m_children.get(1).m_estimatedProcessedTupleCount;
+        // The inner output is scanned once for each outer tuple.
+        AbstractPlanNode outerChild = m_children.get(0);
+        AbstractPlanNode innerChild = m_children.get(1);
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(outerChild) +
+                innerChild.m_estimatedProcessedTupleCount +
+                estimateTuplePairCount(outerChild.m_estimatedOutputTupleCount,
+                                       innerChild.m_estimatedOutputTupleCount);
     }
 
     @Override
@@ -158,6 +158,14 @@ public class OrderByPlanNode extends AbstractPlanNode {
         // we want, given the lack of table stats.
         m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
         m_estimatedProcessedTupleCount = childOutputTupleCountEstimate;
+
+        // A TOP N sort still reads all of its input, but outputs no more than its
+        // LIMIT, when that is a known constant.
+        LimitPlanNode limit = (LimitPlanNode) getInlinePlanNode(PlanNodeType.LIMIT);
+        if (limit != null && limit.getLimit() >= 0 && limit.getLimitExpression() == null) {
+            long remaining = Math.max(0, childOutputTupleCountEstimate - Math.max(0, limit.getOffset()));
+            m_estimatedOutputTupleCount = Math.min(remaining, limit.getLimit());
+        }
     }
 
     @Override
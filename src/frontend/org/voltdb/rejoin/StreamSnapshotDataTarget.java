@@ -40,6 +40,7 @@ import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.SnapshotDataTarget;
 import org.voltdb.SnapshotFormat;
 import org.voltdb.VoltDB;
+import org.voltdb.utils.CompressionCodec;
 import org.voltdb.utils.CompressionService;
 
 import com.google_voltpatches.common.base.Preconditions;
@@ -55,6 +56,9 @@ public class StreamSnapshotDataTarget extends StreamSnapshotBase
 implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     private static final VoltLogger rejoinLog = new VoltLogger("REJOIN");
 
+    // Codec used to compress blocks sent to the rejoining site, each message says which codec it used
+    private static final CompressionCodec m_codec = CompressionCodec.fromSystemProperty("REJOIN_COMPRESSION_CODEC");
+
     // triggers specific test code for TestMidRejoinDeath
     static boolean m_rejoinDeathTestMode = System.getProperties().containsKey("rejoindeathtest");
 
@@ -179,8 +183,8 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         protected int send(Mailbox mb, MessageFactory msgFactory, BBContainer message) throws IOException {
             final ByteBuffer messageBuffer = message.b();
             if (messageBuffer.isDirect()) {
-                byte[] data = CompressionService.compressBuffer(messageBuffer);
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, data));
+                byte[] data = m_codec.compressBuffer(messageBuffer);
+                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, m_codec, data));
 
                 if (rejoinLog.isTraceEnabled()) {
                     rejoinLog.trace("Sending direct buffer");
@@ -189,11 +193,11 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 return data.length;
             } else {
                 byte compressedBytes[] =
-                    CompressionService.compressBytes(
+                    m_codec.compressBytes(
                             messageBuffer.array(), messageBuffer.position(),
                             messageBuffer.remaining());
 
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, compressedBytes));
+                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, m_codec, compressedBytes));
 
                 if (rejoinLog.isTraceEnabled()) {
                     rejoinLog.trace("Sending heap buffer");
@@ -595,6 +599,11 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         return m_sender.m_bytesSent.get(m_targetId).get();
     }
 
+    @Override
+    public long getWriteTimeNanos() {
+        return 0;
+    }
+
     public long getWorksWritten()
     {
         return m_sender.m_worksSent.get(m_targetId).get();
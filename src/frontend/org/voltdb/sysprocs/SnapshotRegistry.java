@@ -135,19 +135,27 @@ public class SnapshotRegistry {
             public final String name;
             public final String filename;
             public final long size;
+            // nanoseconds the target spent writing, 0 if not measured
+            public final long writeNanos;
             public final Throwable error;
 
             private Table(String name, String filename) {
                 this.name = name;
                 this.filename = filename;
                 size = 0;
+                writeNanos = 0;
                 error = null;
             }
 
             public Table(Table t, long size, Throwable error) {
+                this(t, size, 0, error);
+            }
+
+            public Table(Table t, long size, long writeNanos, Throwable error) {
                 this.name = t.name;
                 this.filename = t.filename;
                 this.size = size;
+                this.writeNanos = writeNanos;
                 this.error = error;
             }
         }
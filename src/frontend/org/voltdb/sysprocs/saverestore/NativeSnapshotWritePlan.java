@@ -30,6 +30,7 @@ import org.json_voltpatches.JSONObject;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.InstanceId;
 import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.DirectIOSnapshotDataTarget;
 import org.voltdb.ExtensibleSnapshotDigestData;
 import org.voltdb.SnapshotDataFilter;
 import org.voltdb.SnapshotDataTarget;
@@ -266,8 +267,16 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                 SnapshotFormat.NATIVE,
                 hostId);
 
+        final VoltTable schemaTable;
         if (isActiveActiveDRed && table.getIsdred()) {
-            sdt = new DefaultSnapshotDataTarget(saveFilePath,
+            schemaTable = CatalogUtil.getVoltTable(table, CatalogUtil.DR_HIDDEN_COLUMN_INFO);
+        }
+        else {
+            schemaTable = CatalogUtil.getVoltTable(table);
+        }
+
+        if (DirectIOSnapshotDataTarget.SNAPSHOT_DIRECT_IO) {
+            sdt = new DirectIOSnapshotDataTarget(saveFilePath,
                     hostId,
                     clusterName,
                     databaseName,
@@ -275,7 +284,7 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     partitionCount,
                     table.getIsreplicated(),
                     tracker.getPartitionsForHost(hostId),
-                    CatalogUtil.getVoltTable(table, CatalogUtil.DR_HIDDEN_COLUMN_INFO),
+                    schemaTable,
                     txnId,
                     timestamp);
         }
@@ -288,7 +297,7 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     partitionCount,
                     table.getIsreplicated(),
                     tracker.getPartitionsForHost(hostId),
-                    CatalogUtil.getVoltTable(table),
+                    schemaTable,
                     txnId,
                     timestamp);
         }
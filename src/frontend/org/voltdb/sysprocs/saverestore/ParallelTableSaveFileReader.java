@@ -0,0 +1,138 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * Reads the chunks of the save files of a table for restore. Several files are read and
+ * decompressed ahead of the consumer at once, sharing the read ahead memory of
+ * {@link TableSaveFile}. Chunks are handed out a file at a time with the files ordered by
+ * the lowest partition they contain, and in the order they were written within a file.
+ */
+public class ParallelTableSaveFileReader {
+
+    /**
+     * Number of files read ahead of the file being consumed
+     */
+    public static final int FILES_IN_FLIGHT =
+            Integer.getInteger("SNAPSHOT_RESTORE_FILES_IN_FLIGHT", Math.max(2, CoreUtils.availableProcessors() / 2));
+
+    /**
+     * Number of chunks each file may read ahead, the memory they hold is
+     * also bounded across all files by SNAPSHOT_RESTORE_PREFETCH_BYTES
+     */
+    public static final int READ_AHEAD_CHUNKS = Integer.getInteger("SNAPSHOT_RESTORE_READ_AHEAD_CHUNKS", 8);
+
+    private final List<TableSaveFile> m_saveFiles;
+    private int m_current = 0;
+    private int m_prefetched = 0;
+
+    public ParallelTableSaveFileReader(
+            List<File> files,
+            Integer[] relevantPartitionIds,
+            boolean continueOnCorruptedChunk) throws IOException {
+        List<TableSaveFile> saveFiles = new ArrayList<TableSaveFile>();
+        try {
+            for (File f : files) {
+                saveFiles.add(new TableSaveFile(new FileInputStream(f), READ_AHEAD_CHUNKS,
+                        relevantPartitionIds, continueOnCorruptedChunk));
+            }
+        } catch (IOException e) {
+            for (TableSaveFile saveFile : saveFiles) {
+                saveFile.close();
+            }
+            throw e;
+        }
+        Collections.sort(saveFiles, new Comparator<TableSaveFile>() {
+            @Override
+            public int compare(TableSaveFile o1, TableSaveFile o2) {
+                return Integer.compare(lowestPartitionId(o1), lowestPartitionId(o2));
+            }
+        });
+        m_saveFiles = saveFiles;
+    }
+
+    private static int lowestPartitionId(TableSaveFile saveFile) {
+        int lowest = Integer.MAX_VALUE;
+        for (int partitionId : saveFile.getPartitionIds()) {
+            lowest = Math.min(lowest, partitionId);
+        }
+        return lowest;
+    }
+
+    /**
+     * @return the files in the order their chunks are handed out
+     */
+    public List<TableSaveFile> getSaveFiles() {
+        return Collections.unmodifiableList(m_saveFiles);
+    }
+
+    /**
+     * @return the next chunk, a {@link TableSaveFile.Container}, or null once all files are done
+     */
+    public synchronized BBContainer getNextChunk() throws IOException {
+        while (m_current < m_saveFiles.size()) {
+            while (m_prefetched < m_saveFiles.size() && m_prefetched <= m_current + FILES_IN_FLIGHT) {
+                m_saveFiles.get(m_prefetched++).prefetch();
+            }
+            final TableSaveFile saveFile = m_saveFiles.get(m_current);
+            final BBContainer c = saveFile.getNextChunk();
+            if (c != null) {
+                return c;
+            }
+            // Free the read ahead buffers of the file now rather than at the end of the restore
+            saveFile.close();
+            m_current++;
+        }
+        return null;
+    }
+
+    public Set<Integer> getCorruptedPartitionIds() {
+        Set<Integer> corrupted = new HashSet<Integer>();
+        for (TableSaveFile saveFile : m_saveFiles) {
+            corrupted.addAll(saveFile.getCorruptedPartitionIds());
+        }
+        return corrupted;
+    }
+
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (TableSaveFile saveFile : m_saveFiles) {
+            try {
+                saveFile.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -26,9 +26,15 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.zip.Checksum;
 
@@ -44,15 +50,22 @@ import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.EELibraryLoader;
 import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.utils.CompressionCodec;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.PosixAdvise;
 
+import com.google_voltpatches.common.util.concurrent.Futures;
+
 /**
  * An abstraction around a table's save file for restore.  Deserializes the
  * meta-data that was stored when the table was saved and makes it available
  * to clients.  The meta data is stored as a JSON blob with length prefixing and a CRC
  * as well as a byte to that is set once the file is completely written and synced.
  * A VoltTable header describing the schema is follows the JSON blob.
+ *
+ * Chunks are read by a thread per file and checksummed and decompressed on the
+ * compression service so that several files being restored at once are decompressed
+ * in parallel. Chunks are still handed out in the order they appear in the file.
  */
 public class TableSaveFile
 {
@@ -61,6 +74,26 @@ public class TableSaveFile
         CRC32, CRC32C
     }
 
+    /**
+     * Memory that chunks read ahead of the consumer may hold across all open save files.
+     * Every file may always have one chunk read ahead so that a consumer draining files
+     * one at a time can't be starved by read ahead for the others.
+     */
+    static final long PREFETCH_BYTES = Long.getLong("SNAPSHOT_RESTORE_PREFETCH_BYTES", 512L * 1024 * 1024);
+
+    /**
+     * A chunk that has been read and is being or has been decompressed
+     */
+    private static class PendingChunk {
+        final Future<Container> m_chunk;
+        final boolean m_holdsPrefetchPermit;
+
+        PendingChunk(Future<Container> chunk, boolean holdsPrefetchPermit) {
+            m_chunk = chunk;
+            m_holdsPrefetchPermit = holdsPrefetchPermit;
+        }
+    }
+
     public class Container extends BBContainer {
         public final int partitionId;
         private final BBContainer m_origin;
@@ -91,6 +124,12 @@ public class TableSaveFile
     private static final int DEFAULT_CHUNKSIZE =
             org.voltdb.SnapshotSiteProcessor.m_snapshotBufferLength + (1024 * 256);
 
+    /*
+     * A chunk read ahead holds a compressed input buffer and a decompressed output buffer
+     */
+    private static final Semaphore m_prefetchPermits =
+            new Semaphore((int)Math.max(1, PREFETCH_BYTES / (2L * DEFAULT_CHUNKSIZE)));
+
     public TableSaveFile(
             FileInputStream fis,
             int readAheadChunks,
@@ -245,6 +284,7 @@ public class TableSaveFile
                 m_isReplicated = fd.readBoolean();
                 m_isCompressed = false;
                 m_checksumType = ChecksumType.CRC32;
+                m_codec = CompressionCodec.SNAPPY;
                 if (!m_isReplicated) {
                     m_partitionIds = (int[])fd.readArray(int.class);
                     if (!m_completed) {
@@ -290,6 +330,8 @@ public class TableSaveFile
                 m_isReplicated = obj.getBoolean("isReplicated");
                 m_isCompressed = obj.optBoolean("isCompressed", false);
                 m_checksumType = ChecksumType.valueOf(obj.optString("checksumType", "CRC32"));
+                //Codec was added later, older compressed snapshots are all Snappy
+                m_codec = CompressionCodec.valueOf(obj.optString("compressionCodec", CompressionCodec.SNAPPY.name()));
                 if (!m_isReplicated) {
                     JSONArray partitionIds = obj.getJSONArray("partitionIds");
                     m_partitionIds = new int[partitionIds.length()];
@@ -323,6 +365,9 @@ public class TableSaveFile
             throw new IOException(e);
         } catch (JSONException e) {
             throw new IOException(e);
+        } catch (IllegalArgumentException e) {
+            //Unknown checksum type or compression codec
+            throw new IOException(e);
         }
     }
 
@@ -401,12 +446,28 @@ public class TableSaveFile
             }
         }
 
+        /*
+         * Wait out any decompression still in flight so its buffers can be freed
+         */
+        List<PendingChunk> pending;
         synchronized (this) {
-            while (!m_availableChunks.isEmpty()) {
-                m_availableChunks.poll().discard();
-            }
+            pending = new ArrayList<PendingChunk>(m_pendingChunks);
+            m_pendingChunks.clear();
             notifyAll();
         }
+        for (PendingChunk p : pending) {
+            releaseReadPermits(p);
+            try {
+                final Container c = p.m_chunk.get();
+                if (c != null) {
+                    c.discard();
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                // already reported through m_chunkReaderException
+            }
+        }
 
         /*
          * Free buffers used to pull snapshot data in process
@@ -415,6 +476,9 @@ public class TableSaveFile
         while ((cont = m_buffers.poll()) != null) {
             cont.discard();
         }
+        while ((cont = m_inputBuffers.poll()) != null) {
+            cont.discard();
+        }
     }
 
     public Set<Integer> getCorruptedPartitionIds() {
@@ -425,42 +489,67 @@ public class TableSaveFile
         return m_tableHeader;
     }
 
-    // Will get the next chunk of the table that is just over the chunk size
-    public synchronized BBContainer getNextChunk() throws IOException
-    {
-        if (m_chunkReaderException != null) {
-            throw m_chunkReaderException;
-        }
-        if (!m_hasMoreChunks) {
-            final Container c = m_availableChunks.poll();
-            return c;
-        }
-
-        if (m_chunkReader == null) {
+    /**
+     * Start reading and decompressing chunks ahead of the first call to {@link #getNextChunk()}
+     */
+    public synchronized void prefetch() {
+        if (m_hasMoreChunks && m_chunkReader == null) {
             m_chunkReader = new ChunkReader();
             m_chunkReaderThread = new Thread(m_chunkReader, "ChunkReader");
             m_chunkReaderThread.start();
         }
+    }
 
-        Container c = null;
-        while (c == null && (m_hasMoreChunks || !m_availableChunks.isEmpty())) {
-            c = m_availableChunks.poll();
-            if (c == null) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    throw new IOException(e);
+    // Will get the next chunk of the table that is just over the chunk size
+    public BBContainer getNextChunk() throws IOException
+    {
+        prefetch();
+        while (true) {
+            PendingChunk p = null;
+            synchronized (this) {
+                if (m_chunkReaderException != null) {
+                    throw m_chunkReaderException;
+                }
+                while (p == null && (m_hasMoreChunks || !m_pendingChunks.isEmpty())) {
+                    p = m_pendingChunks.poll();
+                    if (p == null) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                    }
                 }
+                if (p == null) {
+                    if (m_chunkReaderException != null) {
+                        throw m_chunkReaderException;
+                    }
+                    return null;
+                }
+                m_readAheadChunks--;
+                releaseReadPermits(p);
+                notifyAll();
             }
-        }
-        if (c != null) {
-            m_chunkReads.release();
-        } else {
-            if (m_chunkReaderException != null) {
-                throw m_chunkReaderException;
+
+            /*
+             * Don't hold the lock while waiting, a failed decompression takes it to report the failure
+             */
+            final Container c;
+            try {
+                c = p.m_chunk.get();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                synchronized (this) {
+                    throw m_chunkReaderException != null ?
+                            m_chunkReaderException : new IOException(e.getCause());
+                }
+            }
+            // Chunks that were corrupted or for irrelevant partitions are skipped
+            if (c != null) {
+                return c;
             }
         }
-        return c;
     }
 
     public synchronized boolean hasMoreChunks() throws IOException
@@ -468,7 +557,50 @@ public class TableSaveFile
         if (m_chunkReaderException != null) {
             throw m_chunkReaderException;
         }
-        return m_hasMoreChunks || !m_availableChunks.isEmpty();
+        return m_hasMoreChunks || !m_pendingChunks.isEmpty();
+    }
+
+    /**
+     * Wait until another chunk may be read ahead of the consumer
+     * @return true if the chunk counts against the shared read ahead memory
+     */
+    private boolean acquireReadPermits() throws InterruptedException {
+        m_chunkReads.acquire();
+        synchronized (this) {
+            while (m_readAheadChunks > 0 && m_hasMoreChunks) {
+                if (m_prefetchPermits.tryAcquire()) {
+                    return true;
+                }
+                // Permits released by other files don't notify this one
+                wait(10);
+            }
+        }
+        return false;
+    }
+
+    private void releaseReadPermits(boolean holdsPrefetchPermit) {
+        m_chunkReads.release();
+        if (holdsPrefetchPermit) {
+            m_prefetchPermits.release();
+        }
+    }
+
+    private void releaseReadPermits(PendingChunk p) {
+        releaseReadPermits(p.m_holdsPrefetchPermit);
+    }
+
+    private synchronized void offerChunk(Future<Container> chunk, boolean holdsPrefetchPermit) {
+        m_pendingChunks.offer(new PendingChunk(chunk, holdsPrefetchPermit));
+        m_readAheadChunks++;
+        notifyAll();
+    }
+
+    private synchronized void chunkFailed(IOException e) {
+        m_hasMoreChunks = false;
+        if (m_chunkReaderException == null) {
+            m_chunkReaderException = e;
+        }
+        notifyAll();
     }
 
     private final FileChannel m_saveFile;
@@ -487,11 +619,17 @@ public class TableSaveFile
     private final int m_totalPartitions;
     private final long m_txnId;
     private final long m_timestamp;
-    private boolean m_hasMoreChunks = true;
+    private volatile boolean m_hasMoreChunks = true;
     private ConcurrentLinkedQueue<BBContainer> m_buffers = new ConcurrentLinkedQueue<BBContainer>();
-    private final ArrayDeque<Container> m_availableChunks = new ArrayDeque<Container>();
+    /*
+     * Compressed chunks waiting to be decompressed
+     */
+    private final ConcurrentLinkedQueue<BBContainer> m_inputBuffers = new ConcurrentLinkedQueue<BBContainer>();
+    private final ArrayDeque<PendingChunk> m_pendingChunks = new ArrayDeque<PendingChunk>();
+    private int m_readAheadChunks = 0;
     private final HashSet<Integer> m_relevantPartitionIds;
     private final ChecksumType m_checksumType;
+    private final CompressionCodec m_codec;
 
     /*
      * In version 2 the layout of chunks was rejiggered to do less work
@@ -504,7 +642,7 @@ public class TableSaveFile
      * Maintain a list of corrupted partitions. It is possible for uncorrupted partitions
      * to be recovered from a save file in the future
      */
-    private final HashSet<Integer> m_corruptedPartitions = new HashSet<Integer>();
+    private final Set<Integer> m_corruptedPartitions = Collections.synchronizedSet(new HashSet<Integer>());
 
     /**
      * Ignore corrupted chunks and continue validation of the rest of the chunks.
@@ -530,10 +668,6 @@ public class TableSaveFile
          * that should be easier to understand and validate.
          */
         private void readChunksV2() {
-            //For reading the compressed input.
-            final BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
-            final ByteBuffer fileInputBuffer = fileInputBufferC.b();
             long sinceLastFAdvise = Long.MAX_VALUE;
             long positionAtLastFAdvise = 0;
             while (m_hasMoreChunks) {
@@ -576,14 +710,15 @@ public class TableSaveFile
                 /*
                  * Limit the number of chunk materialized into memory at one time
                  */
+                final boolean holdsPrefetchPermit;
                 try {
-                    m_chunkReads.acquire();
+                    holdsPrefetchPermit = acquireReadPermits();
                 } catch (InterruptedException e) {
-                    fileInputBufferC.discard();
                     return;
                 }
                 boolean expectedAnotherChunk = false;
-                Container c = null;
+                boolean offered = false;
+                BBContainer fileInputBufferC = null;
                 try {
 
                     /*
@@ -636,16 +771,17 @@ public class TableSaveFile
                         throw new IOException("Corrupted TableSaveFile chunk has negative chunk length");
                     }
 
+                    fileInputBufferC = getInputBuffer();
+                    final ByteBuffer fileInputBuffer = fileInputBufferC.b();
                     if (nextChunkLength > fileInputBuffer.capacity()) {
                         throw new IOException("Corrupted TableSaveFile chunk has unreasonable length " +
                                 "> DEFAULT_CHUNKSIZE bytes");
                     }
 
                     /*
-                     * Go fetch the compressed data so that the uncompressed size is known
-                     * and use that to set nextChunkLength to be the uncompressed length,
-                     * the code ahead that constructs the volt table is expecting
-                     * the uncompressed size/data since it is producing an uncompressed table
+                     * Go fetch the compressed data, the checksum and decompression
+                     * are done on the compression service so other files and the following
+                     * chunks can be read in the meantime
                      */
                     fileInputBuffer.clear();
                     fileInputBuffer.limit(nextChunkLength);
@@ -657,128 +793,135 @@ public class TableSaveFile
                         sinceLastFAdvise += read;
                     }
                     fileInputBuffer.flip();
-                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
 
-                    /*
-                     * Validate the rest of the chunk. This can fail if the data is corrupted
-                     * or the length value was corrupted.
-                     */
-                    final int calculatedCRC =
-                            DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
-                    if (calculatedCRC != nextChunkCRC) {
-                        m_corruptedPartitions.add(nextChunkPartitionId);
-                        if (m_continueOnCorruptedChunk) {
-                            m_chunkReads.release();
-                            continue;
-                        } else {
-                            throw new IOException("CRC mismatch in saved table chunk");
+                    offerChunk(decompressChunkV2(fileInputBufferC, nextChunkPartitionId, nextChunkCRC),
+                            holdsPrefetchPermit);
+                    fileInputBufferC = null;
+                    offered = true;
+                } catch (EOFException eof) {
+                    synchronized (TableSaveFile.this) {
+                        m_hasMoreChunks = false;
+                        if (expectedAnotherChunk) {
+                            m_chunkReaderException = new IOException(
+                                    "Expected to find another chunk but reached end of file instead");
                         }
+                        TableSaveFile.this.notifyAll();
                     }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    chunkFailed(e);
+                } catch (BufferUnderflowException e) {
+                    chunkFailed(new IOException(e));
+                } catch (BufferOverflowException e) {
+                    chunkFailed(new IOException(e));
+                } catch (IndexOutOfBoundsException e) {
+                    chunkFailed(new IOException(e));
+                } finally {
+                    if (fileInputBufferC != null) m_inputBuffers.offer(fileInputBufferC);
+                    if (!offered) releaseReadPermits(holdsPrefetchPermit);
+                }
+            }
+        }
 
-                    /*
-                     * Now allocate space to store the chunk using the VoltTable serialization representation.
-                     * The chunk will contain an integer row count preceding it so it can
-                     * be sucked straight in. There is a little funny business to overwrite the
-                     * partition id that is not part of the serialization format
-                     */
-                    c = getOutputBuffer(nextChunkPartitionId);
-
-                    /*
-                     * If the length value is wrong or not all data made it to disk this read will
-                     * not complete correctly. There could be overflow, underflow etc.
-                     * so use a try finally block to indicate that all partitions are now corrupt.
-                     * The enclosing exception handlers will do the right thing WRT to
-                     * propagating the error and closing the file.
-                     */
-                    boolean completedRead = false;
+        /**
+         * Validate and decompress a chunk read by {@link #readChunksV2()}
+         * @return the chunk or null if it is to be skipped
+         */
+        private Future<Container> decompressChunkV2(
+                final BBContainer fileInputBufferC,
+                final int nextChunkPartitionId,
+                final int nextChunkCRC) {
+            return CompressionService.submitCompressionTask(new Callable<Container>() {
+                @Override
+                public Container call() throws Exception {
+                    final ByteBuffer fileInputBuffer = fileInputBufferC.b();
+                    Container c = null;
+                    boolean success = false;
                     try {
-                        final ByteBuffer buf = c.b();
                         /*
-                         * Assemble a VoltTable out of the chunk of tuples.
-                         * Put in the header that was cached in the constructor,
-                         * then copy the tuple data.
+                         * Validate the rest of the chunk. This can fail if the data is corrupted
+                         * or the length value was corrupted.
                          */
-                        buf.clear();
-                        buf.limit(nextChunkLength  + m_tableHeader.capacity());
-                        m_tableHeader.position(0);
-                        buf.put(m_tableHeader);
-                        //Doesn't move buffer position, does change the limit
-                        CompressionService.decompressBuffer(fileInputBuffer, buf);
-                        completedRead = true;
-                    } finally {
-                        if (!completedRead) {
+                        final int calculatedCRC =
+                                DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
+                        if (calculatedCRC != nextChunkCRC) {
+                            m_corruptedPartitions.add(nextChunkPartitionId);
+                            if (m_continueOnCorruptedChunk) {
+                                return null;
+                            } else {
+                                throw new IOException("CRC mismatch in saved table chunk");
+                            }
+                        }
+
+                        /*
+                         * Now allocate space to store the chunk using the VoltTable serialization representation.
+                         * The chunk will contain an integer row count preceding it so it can
+                         * be sucked straight in.
+                         */
+                        c = getOutputBuffer(nextChunkPartitionId);
+
+                        /*
+                         * If the length value is wrong or not all data made it to disk this
+                         * will not complete correctly. There could be overflow, underflow etc.
+                         * which indicates that all partitions are now corrupt.
+                         */
+                        try {
+                            final int nextChunkLength = m_codec.uncompressedLength(fileInputBuffer);
+                            final ByteBuffer buf = c.b();
+                            /*
+                             * Assemble a VoltTable out of the chunk of tuples.
+                             * Put in the header that was cached in the constructor,
+                             * then copy the tuple data. The header is shared by the
+                             * decompression threads so it is read through a duplicate.
+                             */
+                            final ByteBuffer tableHeader = m_tableHeader.duplicate();
+                            tableHeader.position(0);
+                            buf.clear();
+                            buf.limit(nextChunkLength  + tableHeader.capacity());
+                            buf.put(tableHeader);
+                            //Doesn't move buffer position, does change the limit
+                            m_codec.decompress(fileInputBuffer, buf);
+                        } catch (Exception e) {
                             for (int partitionId : m_partitionIds) {
                                 m_corruptedPartitions.add(partitionId);
                             }
                             if (m_continueOnCorruptedChunk) {
-                                m_chunkReads.release();
-                                continue;
+                                return null;
                             } else {
-                                throw new IOException("Failed decompression of saved table chunk");
+                                throw new IOException("Failed decompression of saved table chunk", e);
                             }
                         }
-                    }
 
-                    /*
-                     * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
-                     * in case it is the length value that is corrupted
-                     */
-                    if (m_relevantPartitionIds != null) {
-                        if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
-                            m_chunkReads.release();
-                            continue;
+                        /*
+                         * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
+                         * in case it is the length value that is corrupted
+                         */
+                        if (m_relevantPartitionIds != null) {
+                            if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
+                                return null;
+                            }
                         }
-                    }
-
-                    /*
-                     * VoltTable wants the buffer at the home position 0
-                     */
-                    c.b().position(0);
 
-                    synchronized (TableSaveFile.this) {
-                        m_availableChunks.offer(c);
-                        c = null;
-                        TableSaveFile.this.notifyAll();
-                    }
-                } catch (EOFException eof) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks = false;
-                        if (expectedAnotherChunk) {
-                            m_chunkReaderException = new IOException(
-                                    "Expected to find another chunk but reached end of file instead");
+                        /*
+                         * VoltTable wants the buffer at the home position 0
+                         */
+                        c.b().position(0);
+                        success = true;
+                        return c;
+                    } catch (IOException e) {
+                        chunkFailed(e);
+                        throw e;
+                    } catch (RuntimeException e) {
+                        chunkFailed(new IOException(e));
+                        throw e;
+                    } finally {
+                        m_inputBuffers.offer(fileInputBufferC);
+                        if (!success && c != null) {
+                            c.discard();
                         }
-                        TableSaveFile.this.notifyAll();
                     }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks = false;
-                        m_chunkReaderException = e;
-                        TableSaveFile.this.notifyAll();
-                    }
-                } catch (BufferUnderflowException e) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks = false;
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
-                    }
-                } catch (BufferOverflowException e) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks = false;
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
-                    }
-                } catch (IndexOutOfBoundsException e) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks = false;
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
-                    }
-                } finally {
-                    if (c != null) c.discard();
                 }
-            }
-            fileInputBufferC.discard();
+            });
         }
 
         private void readChunks() {
@@ -790,12 +933,14 @@ public class TableSaveFile
                 /*
                  * Limit the number of chunk materialized into memory at one time
                  */
+                final boolean holdsPrefetchPermit;
                 try {
-                    m_chunkReads.acquire();
+                    holdsPrefetchPermit = acquireReadPermits();
                 } catch (InterruptedException e) {
                     return;
                 }
                 boolean expectedAnotherChunk = false;
+                boolean offered = false;
                 Container c = null;
                 try {
 
@@ -958,7 +1103,6 @@ public class TableSaveFile
                     if (calculatedCRC != nextChunkCRC) {
                         m_corruptedPartitions.add(nextChunkPartitionId);
                         if (m_continueOnCorruptedChunk) {
-                            m_chunkReads.release();
                             continue;
                         } else {
                             throw new IOException("CRC mismatch in saved table chunk");
@@ -971,7 +1115,6 @@ public class TableSaveFile
                      */
                     if (m_relevantPartitionIds != null) {
                         if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
-                            m_chunkReads.release();
                             continue;
                         }
                     }
@@ -999,11 +1142,9 @@ public class TableSaveFile
                         }
                     }
 
-                    synchronized (TableSaveFile.this) {
-                        m_availableChunks.offer(c);
-                        c = null;
-                        TableSaveFile.this.notifyAll();
-                    }
+                    offerChunk(Futures.immediateFuture(c), holdsPrefetchPermit);
+                    c = null;
+                    offered = true;
                 } catch (EOFException eof) {
                     synchronized (TableSaveFile.this) {
                         m_hasMoreChunks = false;
@@ -1039,10 +1180,20 @@ public class TableSaveFile
                     }
                 } finally {
                     if (c != null) c.discard();
+                    if (!offered) releaseReadPermits(holdsPrefetchPermit);
                 }
             }
             fileInputBufferC.discard();
         }
+
+        private BBContainer getInputBuffer() {
+            BBContainer c = m_inputBuffers.poll();
+            if (c == null) {
+                c = DBBPool.allocateDirect(m_codec.maxCompressedLength(DEFAULT_CHUNKSIZE));
+            }
+            return c;
+        }
+
         private Container getOutputBuffer(final int nextChunkPartitionId) {
             BBContainer c = m_buffers.poll();
             if (c == null) {
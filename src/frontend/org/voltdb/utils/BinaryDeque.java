@@ -18,6 +18,7 @@ package org.voltdb.utils;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
@@ -58,6 +59,18 @@ public interface BinaryDeque {
 
     int offer(DeferredSerialization ds) throws IOException;
 
+    /**
+     * Store a batch of buffer chains, each as a single object in the deque, in order. The objects
+     * are written with as few writes as possible. IOException may be thrown if an object
+     * is larger then the implementation defined max. 64 megabytes in the case of PersistentBinaryDeque.
+     * If there is an exception attempting to write the buffers then all the buffers will be discarded
+     * @param objects
+     * @param allowCompression
+     * @param sync true to persist the objects to the backing store before returning
+     * @throws IOException
+     */
+    void offer(List<BBContainer> objects, boolean allowCompression, boolean sync) throws IOException;
+
     /**
      * A push creates a new file each time to be "the head" so it is more efficient to pass
      * in all the objects you want to push at once so that they can be packed into
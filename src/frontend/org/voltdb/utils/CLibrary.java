@@ -17,7 +17,9 @@
 package org.voltdb.utils;
 
 import org.voltcore.logging.VoltLogger;
+import com.sun.jna.LastErrorException;
 import com.sun.jna.Native;
+import com.sun.jna.Pointer;
 
 import java.util.Arrays;
 import java.util.List;
@@ -74,4 +76,46 @@ public class CLibrary {
 
     public static native final int getpid();
 
+    /*
+     * Unbuffered file output on Linux, registered separately so a missing
+     * symbol on other platforms can't take the rest of the library down
+     */
+    public static final class DirectIO {
+        static {
+            Native.register(DirectIO.class, "c");
+        }
+
+        public static final int O_WRONLY = 01;
+        public static final int O_CREAT = 0100;
+        public static final int O_TRUNC = 01000;
+        /*
+         * O_DIRECT differs between architectures, on aarch64 and arm 040000 is O_DIRECTORY.
+         * It is 0 on architectures whose value isn't known here and direct I/O must not be used.
+         */
+        public static final int O_DIRECT = directFlag(System.getProperty("os.arch", ""));
+
+        static int directFlag(String arch) {
+            switch (arch) {
+            case "amd64":
+            case "x86_64":
+            case "x86":
+            case "i386":
+            case "i686":
+                return 040000;
+            case "aarch64":
+            case "arm":
+                return 0200000;
+            case "ppc64":
+            case "ppc64le":
+                return 0400000;
+            default:
+                return 0;
+            }
+        }
+
+        public static native final int open(String path, int flags, int mode) throws LastErrorException;
+        public static native final long pwrite(int fd, Pointer buf, long count, long offset) throws LastErrorException;
+        public static native final int fdatasync(int fd) throws LastErrorException;
+        public static native final int close(int fd) throws LastErrorException;
+    }
 }
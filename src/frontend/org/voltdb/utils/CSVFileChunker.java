@@ -0,0 +1,132 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ *
+ * Splits a CSV file into ranges of bytes holding whole records, so the ranges can be
+ * parsed in parallel. A range ends at the first line break past the chunk size that
+ * isn't inside quotes or escaped, following the quoting rules of the tokenizer. Only
+ * the bytes of the file are looked at, so the separator, quote and escape characters
+ * must be ASCII.
+ *
+ */
+class CSVFileChunker {
+
+    static final int DEFAULT_CHUNK_SIZE = Integer.getInteger("CSVLOADER_CHUNK_SIZE", 16 * 1024 * 1024);
+
+    static class Chunk {
+        // Offset of the first byte of the range in the file
+        final long start;
+        final long length;
+        // Lines of the file before the range
+        final long firstLine;
+
+        Chunk(long start, long length, long firstLine) {
+            this.start = start;
+            this.length = length;
+            this.firstLine = firstLine;
+        }
+    }
+
+    private final InputStream m_in;
+    private final byte m_quote;
+    private final byte m_escape;
+    private final long m_chunkSize;
+    private final byte[] m_buffer = new byte[64 * 1024];
+    private int m_bufferPosition = 0;
+    private int m_bufferLimit = 0;
+    private long m_position = 0;
+    private long m_lines = 0;
+    private byte m_lastByte = '\n';
+    private boolean m_quoted = false;
+    private boolean m_escaped = false;
+    private boolean m_eof = false;
+
+    CSVFileChunker(InputStream in, char quote, char escape, long chunkSize) {
+        assert quote < 128 && escape < 128;
+        m_in = in;
+        m_quote = (byte)quote;
+        m_escape = (byte)escape;
+        m_chunkSize = chunkSize;
+    }
+
+    /**
+     * @return the next range of the file, or null once the whole file was handed out
+     */
+    Chunk next() throws IOException {
+        final long start = m_position;
+        final long firstLine = m_lines;
+        while (!m_eof) {
+            if (m_bufferPosition == m_bufferLimit) {
+                m_bufferLimit = m_in.read(m_buffer);
+                m_bufferPosition = 0;
+                if (m_bufferLimit == -1) {
+                    m_bufferLimit = 0;
+                    m_eof = true;
+                    break;
+                }
+            }
+            final byte b = m_buffer[m_bufferPosition++];
+            m_position++;
+            m_lastByte = b;
+            if (b == '\n') {
+                m_lines++;
+            }
+
+            if (m_escaped) {
+                // The tokenizer doesn't carry a record over an escaped line break
+                m_escaped = false;
+                if (b != '\n') {
+                    continue;
+                }
+            } else if (m_quoted) {
+                // A doubled quote leaves and enters the quotes again
+                if (b == m_quote) {
+                    m_quoted = false;
+                }
+                continue;
+            } else if (b == m_escape) {
+                m_escaped = true;
+                continue;
+            } else if (b == m_quote) {
+                m_quoted = true;
+                continue;
+            }
+
+            if (b == '\n' && m_position - start >= m_chunkSize) {
+                return new Chunk(start, m_position - start, firstLine);
+            }
+        }
+        return m_position == start ? null : new Chunk(start, m_position - start, firstLine);
+    }
+
+    /**
+     * @return the lines of the file handed out so far, counting a last line without a line break
+     */
+    long getLineCount() {
+        return m_lastByte == '\n' ? m_lines : m_lines + 1;
+    }
+
+    void close() throws IOException {
+        m_in.close();
+    }
+}
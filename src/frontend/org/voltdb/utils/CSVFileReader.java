@@ -16,16 +16,26 @@
  */
 package org.voltdb.utils;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.supercsv.exception.SuperCsvException;
+import org.supercsv.io.CsvListReader;
 import org.supercsv.io.ICsvListReader;
+import org.supercsv.prefs.CsvPreference;
+import org.supercsv_voltpatches.tokenizer.Tokenizer;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.VoltType;
 import org.voltdb.client.Client;
@@ -33,11 +43,13 @@ import org.voltdb.common.Constants;
 
 import com.google_voltpatches.common.collect.BiMap;
 import com.google_voltpatches.common.collect.HashBiMap;
+import com.google_voltpatches.common.io.ByteStreams;
 
 /**
  *
  * This is a single thread reader which feeds the lines after validating syntax
- * to CSVDataLoader.
+ * to CSVDataLoader. With --readers above 1, {@link #readChunks} parses ranges of
+ * whole records of the file with that many of them at once.
  *
  */
 class CSVFileReader implements Runnable {
@@ -66,8 +78,11 @@ class CSVFileReader implements Runnable {
     private final BulkLoaderErrorHandler m_errHandler;
     private final VoltType[] m_columnTypes;
     private final int m_columnCount;
-    private int headerlen;
-    private Integer[] order;
+    // Set from the header before any row is read, shared by the readers of the chunks of a file
+    private static int headerlen;
+    private static Integer[] order;
+
+    private static final CSVFileChunker.Chunk END_OF_CHUNKS = new CSVFileChunker.Chunk(-1, 0, 0);
 
     static {
         m_blankStrings.put(VoltType.TINYINT, "0");
@@ -96,36 +111,150 @@ class CSVFileReader implements Runnable {
 
     @Override
     public void run() {
-        List<String> lineList;
-
         //if header option is true, check whether csv first line is valid
         if (m_config.header) {
-            if (!checkHeader()) {
+            if (!checkHeader(m_loader)) {
                 m_log.error("In the CSV file " + m_config.file + ", the header "+ m_listReader.getUntokenizedRow() +" does not match "
                         + "an existing column in the table " + m_config.table + ".");
                 System.exit(-1);
             }
         }
 
-        while ((m_config.limitrows-- > 0)) {
+        readRows(m_listReader, m_config.skip, false);
+
+        closeLoader(m_loader);
+    }
+
+    /**
+     * Parse the file with m_config.readers threads. Each takes the next range of whole records
+     * found by a {@link CSVFileChunker} while the file is scanned for them, so rows are inserted
+     * in no particular order, but still report errors with their line in the file.
+     * Closes the loader once all ranges were parsed.
+     *
+     * @return the time spent parsing in nanoseconds, summed across the threads
+     */
+    static long readChunks(final CSVDataLoader loader, final BulkLoaderErrorHandler errHandler,
+            final CsvPreference csvPreference) throws IOException, InterruptedException {
+        if (m_config.header) {
+            if (!checkHeader(loader)) {
+                m_log.error("In the CSV file " + m_config.file + ", the header "+ m_listReader.getUntokenizedRow() +" does not match "
+                        + "an existing column in the table " + m_config.table + ".");
+                System.exit(-1);
+            }
+        }
+
+        final File file = new File(m_config.file);
+        // The header was read already, skip it along with the skipped lines
+        final long skip = m_config.skip + (m_config.header ? 1 : 0);
+        final BlockingQueue<CSVFileChunker.Chunk> chunks =
+                new ArrayBlockingQueue<CSVFileChunker.Chunk>(m_config.readers * 2);
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+        final CSVFileReader readers[] = new CSVFileReader[m_config.readers];
+        final Thread threads[] = new Thread[m_config.readers];
+        for (int i = 0; i < readers.length; i++) {
+            final CSVFileReader reader = new CSVFileReader(loader, errHandler);
+            readers[i] = reader;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        CSVFileChunker.Chunk chunk;
+                        while ((chunk = chunks.take()) != END_OF_CHUNKS) {
+                            // Keep taking chunks once stopped so the scan isn't blocked
+                            if (stopped.get()) {
+                                continue;
+                            }
+                            ICsvListReader listReader = openChunk(file, chunk, skip, csvPreference);
+                            try {
+                                if (reader.readRows(listReader, skip, true)) {
+                                    stopped.set(true);
+                                }
+                            } finally {
+                                listReader.close();
+                            }
+                        }
+                    } catch (IOException ex) {
+                        m_log.error("Failed to read CSV line from file: " + ex);
+                        stopped.set(true);
+                    } catch (InterruptedException e) {
+                        m_log.error("CSVLoader interrupted: " + e);
+                        stopped.set(true);
+                    }
+                }
+            });
+            threads[i].setName("CSVFileReader - " + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        final CSVFileChunker chunker = new CSVFileChunker(new FileInputStream(file),
+                m_config.quotechar, m_config.escape, CSVFileChunker.DEFAULT_CHUNK_SIZE);
+        try {
+            CSVFileChunker.Chunk chunk;
+            while (!stopped.get() && (chunk = chunker.next()) != null) {
+                chunks.put(chunk);
+            }
+        } finally {
+            for (int i = 0; i < threads.length; i++) {
+                chunks.put(END_OF_CHUNKS);
+            }
+            chunker.close();
+        }
+
+        long parsingTime = 0;
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            parsingTime += readers[i].m_parsingTime;
+        }
+        m_totalLineCount.set(chunker.getLineCount());
+
+        closeLoader(loader);
+        return parsingTime;
+    }
+
+    private static ICsvListReader openChunk(File file, CSVFileChunker.Chunk chunk, long skip,
+            CsvPreference csvPreference) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            fis.getChannel().position(chunk.start);
+        } catch (IOException e) {
+            fis.close();
+            throw e;
+        }
+        Tokenizer tokenizer = new Tokenizer(
+                new BufferedReader(new InputStreamReader(ByteStreams.limit(fis, chunk.length))),
+                csvPreference, m_config.strictquotes, m_config.escape, m_config.columnsizelimit,
+                skip, false, (int)chunk.firstLine);
+        return new CsvListReader(tokenizer, csvPreference);
+    }
+
+    /**
+     * Read and insert the rows of the reader, initially after the skipped lines.
+     * In a chunk the row limit doesn't apply, the line counts are set from the whole file.
+     *
+     * @return true if the load should stop
+     */
+    private boolean readRows(ICsvListReader listReader, long skip, boolean chunk) {
+        List<String> lineList;
+
+        while (chunk || (m_config.limitrows-- > 0)) {
             if (m_errHandler.hasReachedErrorLimit()) {
-                break;
+                return true;
             }
 
+            //Lines read before this row
+            final long lineCount = listReader.getLineNumber() == 0 ? skip : listReader.getLineNumber();
+            if (!chunk) {
+                m_totalLineCount.set(lineCount);
+            }
             try {
-                //Initial setting of m_totalLineCount
-                if (m_listReader.getLineNumber() == 0) {
-                    m_totalLineCount.set(m_config.skip);
-                } else {
-                    m_totalLineCount.set(m_listReader.getLineNumber());
-                }
                 long st = System.nanoTime();
-                lineList = m_listReader.read();
+                lineList = listReader.read();
                 long end = System.nanoTime();
                 m_parsingTime += (end - st);
                 if (lineList == null) {
-                    if (m_totalLineCount.get() > m_listReader.getLineNumber()) {
-                        m_totalLineCount.set(m_listReader.getLineNumber());
+                    if (!chunk && m_totalLineCount.get() > listReader.getLineNumber()) {
+                        m_totalLineCount.set(listReader.getLineNumber());
                     }
                     break;
                 }
@@ -140,40 +269,43 @@ class CSVFileReader implements Runnable {
                 String[] reorderValues = new String[m_columnCount];
                 if ((lineCheckResult = checkparams_trimspace_reorder(lineValues, reorderValues)) != null) {
                     final RowWithMetaData metaData
-                            = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                    m_totalLineCount.get() + 1);
+                            = new RowWithMetaData(listReader.getUntokenizedRow(),
+                                    lineCount + 1);
                     if (m_errHandler.handleError(metaData, null, lineCheckResult)) {
-                        break;
+                        return true;
                     }
                     continue;
                 }
 
                 RowWithMetaData lineData
-                        = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                m_listReader.getLineNumber());
+                        = new RowWithMetaData(listReader.getUntokenizedRow(),
+                                listReader.getLineNumber());
                 m_loader.insertRow(lineData, reorderValues);
             } catch (SuperCsvException e) {
-                //Catch rows that can not be read by superCSV m_listReader.
+                //Catch rows that can not be read by superCSV listReader.
                 // e.g. items without quotes when strictquotes is enabled.
                 final RowWithMetaData metaData
-                        = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                m_totalLineCount.get() + 1);
+                        = new RowWithMetaData(listReader.getUntokenizedRow(),
+                                lineCount + 1);
                 if (m_errHandler.handleError(metaData, null, e.getMessage())) {
-                    break;
+                    return true;
                 }
             } catch (IOException ex) {
                 m_log.error("Failed to read CSV line from file: " + ex);
-                break;
+                return true;
             } catch (InterruptedException e) {
                 m_log.error("CSVLoader interrupted: " + e);
-                break;
+                return true;
             }
         }
+        return false;
+    }
 
+    private static void closeLoader(CSVDataLoader loader) {
         //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
         try {
             m_log.debug("Waiting for CSVDataLoader to finish.");
-            m_loader.close();
+            loader.close();
             m_log.debug("CSVDataLoader Done.");
         } catch (Exception ex) {
             m_log.warn("Stopped processing because of connection error. "
@@ -181,11 +313,12 @@ class CSVFileReader implements Runnable {
         }
     }
 
-    private boolean checkHeader() {
+    private static boolean checkHeader(CSVDataLoader loader) {
+        final int columnCount = loader.getColumnTypes().length;
         try {
             String[] firstline = m_listReader.getHeader(false);
             Set<String> firstset = new HashSet<String>();
-            BiMap<Integer, String> colNames = HashBiMap.create(m_loader.getColumnNames());
+            BiMap<Integer, String> colNames = HashBiMap.create(loader.getColumnNames());
             headerlen = firstline.length;
             // remove duplicate.
             for (String name : firstline) {
@@ -196,7 +329,7 @@ class CSVFileReader implements Runnable {
                 }
             }
             // whether column num matches.
-            if (headerlen < m_columnCount) {
+            if (headerlen < columnCount) {
                 return false;
             } else {
                 // whether column name has according table column.
@@ -206,7 +339,7 @@ class CSVFileReader implements Runnable {
                         matchColCount++;
                     }
                 }
-                if (matchColCount != m_columnCount) {
+                if (matchColCount != columnCount) {
                     return false;
                 }
             }
@@ -112,6 +112,10 @@ public class CSVLoader implements BulkLoaderErrorHandler {
      * First line is column name?
      */
     public static final boolean DEFAULT_HEADER = false;
+    /**
+     * Threads parsing the file
+     */
+    public static final int DEFAULT_READERS = 1;
     /**
      * Used for testing only.
      */
@@ -305,6 +309,9 @@ public class CSVLoader implements BulkLoaderErrorHandler {
         @Option(desc = "First line of csv file is column name.", hasArg = false)
         boolean header = DEFAULT_HEADER;
 
+        @Option(desc = "number of threads parsing ranges of the CSV file in parallel, rows are inserted out of order when above 1 (default: 1)")
+        int readers = DEFAULT_READERS;
+
         /**
          * Table name to insert CSV data into.
          */
@@ -341,6 +348,20 @@ public class CSVLoader implements BulkLoaderErrorHandler {
             if (batch < 0) {
                 exitWithMessageAndUsage("batch size number must be >= 0");
             }
+            if (readers < 1) {
+                exitWithMessageAndUsage("readers must be >= 1");
+            }
+            if (readers > 1) {
+                if (file.equals("")) {
+                    exitWithMessageAndUsage("readers above 1 require a file, standard input is read by a single reader");
+                }
+                if (limitrows != Integer.MAX_VALUE) {
+                    exitWithMessageAndUsage("limitrows can't be used with readers above 1");
+                }
+                if (separator > 127 || (!noquotechar && quotechar > 127) || escape > 127) {
+                    exitWithMessageAndUsage("readers above 1 require ASCII separator, quote and escape characters");
+                }
+            }
             if(!customNullString.isEmpty() && !blank.equals("error")){
                 blank = "empty";
             }
@@ -462,15 +483,21 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             CSVFileReader.initializeReader(cfg, csvClient, listReader);
 
-            CSVFileReader csvReader = new CSVFileReader(dataLoader, errHandler);
+            long parsingTime;
+            if (config.readers > 1) {
+                parsingTime = CSVFileReader.readChunks(dataLoader, errHandler, csvPreference);
+            } else {
+                CSVFileReader csvReader = new CSVFileReader(dataLoader, errHandler);
 
-            Thread readerThread = new Thread(csvReader);
-            readerThread.setName("CSVFileReader");
-            readerThread.setDaemon(true);
+                Thread readerThread = new Thread(csvReader);
+                readerThread.setName("CSVFileReader");
+                readerThread.setDaemon(true);
 
-            //Wait for reader to finish.
-            readerThread.start();
-            readerThread.join();
+                //Wait for reader to finish.
+                readerThread.start();
+                readerThread.join();
+                parsingTime = csvReader.m_parsingTime;
+            }
 
             insertTimeEnd = System.currentTimeMillis();
 
@@ -478,7 +505,7 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             errHandler.waitForErrorFlushComplete();
 
-            readerTime = (csvReader.m_parsingTime) / 1000000;
+            readerTime = parsingTime / 1000000;
             insertCount = dataLoader.getProcessedRows();
             ackCount = insertCount - dataLoader.getFailedRows();
             rowsQueued = CSVFileReader.m_totalRowCount.get();
@@ -0,0 +1,338 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import org.voltcore.logging.VoltLogger;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Block compression codecs usable for snapshots, PBD segments and the rejoin stream.
+ * The id of a codec is persisted with the compressed data so it must never change,
+ * new codecs get new ids.
+ *
+ * The direct buffer methods follow the Snappy conventions the callers already rely on.
+ * Input is read from position to limit without moving the position, output is written
+ * starting at the output position and the output limit is set to the end of the written data.
+ *
+ * Snappy streams carry their own uncompressed length. The other codecs prefix the
+ * compressed block with a 4 byte uncompressed length.
+ */
+public enum CompressionCodec {
+    SNAPPY(0) {
+        @Override
+        public int maxCompressedLength(int uncompressedSize) {
+            return Snappy.maxCompressedLength(uncompressedSize);
+        }
+
+        @Override
+        public int uncompressedLength(ByteBuffer compressed) throws IOException {
+            return Snappy.uncompressedLength(compressed);
+        }
+
+        @Override
+        public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+            return Snappy.compress(uncompressed, compressed);
+        }
+
+        @Override
+        public int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+            return Snappy.uncompress(compressed, uncompressed);
+        }
+
+        @Override
+        int compressBlock(byte[] in, int inLength, byte[] out) throws IOException {
+            return Snappy.compress(in, 0, inLength, out, 0);
+        }
+
+        @Override
+        void decompressBlock(byte[] in, int inLength, byte[] out, int outLength) throws IOException {
+            final int uncompressedSize = Snappy.uncompress(in, 0, inLength, out, 0);
+            if (uncompressedSize != outLength) {
+                throw new IOException("Decompressed length " + uncompressedSize + " doesn't match expected length " + outLength);
+            }
+        }
+    },
+
+    /**
+     * Fastest codec, lower ratio than Snappy on most data
+     */
+    LZ4(1) {
+        @Override
+        public int maxCompressedLength(int uncompressedSize) {
+            return LENGTH_PREFIX_BYTES + m_lz4Compressor.maxCompressedLength(uncompressedSize);
+        }
+
+        @Override
+        int compressBlock(byte[] in, int inLength, byte[] out) throws IOException {
+            try {
+                return m_lz4Compressor.compress(in, 0, inLength, out, 0, out.length);
+            } catch (LZ4Exception e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        void decompressBlock(byte[] in, int inLength, byte[] out, int outLength) throws IOException {
+            try {
+                m_lz4Decompressor.decompress(in, 0, out, 0, outLength);
+            } catch (LZ4Exception e) {
+                throw new IOException(e);
+            }
+        }
+    },
+
+    /**
+     * Highest ratio, much more CPU than the other codecs
+     */
+    DEFLATE(2) {
+        @Override
+        public int maxCompressedLength(int uncompressedSize) {
+            // zlib's compressBound plus room for the stream header and trailer
+            return LENGTH_PREFIX_BYTES + uncompressedSize + (uncompressedSize >> 12) + (uncompressedSize >> 14) +
+                    (uncompressedSize >> 25) + 13 + 18;
+        }
+
+        @Override
+        int compressBlock(byte[] in, int inLength, byte[] out) throws IOException {
+            final Deflater deflater = new Deflater();
+            try {
+                deflater.setInput(in, 0, inLength);
+                deflater.finish();
+                final int compressedSize = deflater.deflate(out, 0, out.length);
+                if (!deflater.finished()) {
+                    throw new IOException("Compressed output exceeded the maximum compressed length");
+                }
+                return compressedSize;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        void decompressBlock(byte[] in, int inLength, byte[] out, int outLength) throws IOException {
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(in, 0, inLength);
+                final int inflated = inflater.inflate(out, 0, outLength);
+                if (inflated != outLength || !inflater.finished()) {
+                    throw new IOException("Decompressed length " + inflated + " doesn't match expected length " + outLength);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            } finally {
+                inflater.end();
+            }
+        }
+    };
+
+    private static final VoltLogger LOG = new VoltLogger("HOST");
+
+    static final int LENGTH_PREFIX_BYTES = 4;
+
+    private static final LZ4Factory m_lz4Factory = LZ4Factory.fastestInstance();
+    private static final LZ4Compressor m_lz4Compressor = m_lz4Factory.fastCompressor();
+    private static final LZ4FastDecompressor m_lz4Decompressor = m_lz4Factory.fastDecompressor();
+
+    /*
+     * Heap buffers for the codecs that can only work on arrays, grown as needed up to
+     * MAX_SCRATCH_BYTES. Larger blocks get arrays that are not kept by the thread.
+     */
+    static final int MAX_SCRATCH_BYTES = 1024 * 1024 * 4;
+    private static final ThreadLocal<byte[][]> m_scratch = new ThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            return new byte[][] { new byte[1024 * 32], new byte[1024 * 32] };
+        }
+    };
+
+    private static final CompressionCodec s_byId[];
+    static {
+        s_byId = new CompressionCodec[values().length];
+        for (CompressionCodec codec : values()) {
+            s_byId[codec.id] = codec;
+        }
+    }
+
+    /**
+     * Persisted id of the codec
+     */
+    public final int id;
+
+    private CompressionCodec(int id) {
+        this.id = id;
+    }
+
+    public static CompressionCodec fromId(int id) throws IOException {
+        if (id < 0 || id >= s_byId.length) {
+            throw new IOException("Unknown compression codec id " + id);
+        }
+        return s_byId[id];
+    }
+
+    /**
+     * Get the codec named by a system property, falling back to Snappy if the property
+     * is not set or doesn't name a codec
+     */
+    public static CompressionCodec fromSystemProperty(String property) {
+        final String name = System.getProperty(property);
+        if (name == null) {
+            return SNAPPY;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Unknown compression codec " + name + " for " + property + ", using " + SNAPPY);
+            return SNAPPY;
+        }
+    }
+
+    public static void releaseThreadLocal() {
+        m_scratch.remove();
+    }
+
+    private static byte[] scratch(int index, int minimumSize) {
+        final byte buffers[][] = m_scratch.get();
+        if (buffers[index].length < minimumSize) {
+            if (minimumSize > MAX_SCRATCH_BYTES) {
+                return new byte[minimumSize];
+            }
+            buffers[index] = new byte[Math.min(Math.max(buffers[index].length * 2, minimumSize), MAX_SCRATCH_BYTES)];
+        }
+        return buffers[index];
+    }
+
+    /**
+     * Largest compressed length any codec can produce, for buffers that may hold
+     * data compressed by a codec that isn't known up front
+     */
+    public static int maxCompressedLengthOfAnyCodec(int uncompressedSize) {
+        int max = 0;
+        for (CompressionCodec codec : values()) {
+            max = Math.max(max, codec.maxCompressedLength(uncompressedSize));
+        }
+        return max;
+    }
+
+    public abstract int maxCompressedLength(int uncompressedSize);
+
+    /**
+     * Read the uncompressed length of the block starting at the position of the buffer
+     */
+    public int uncompressedLength(ByteBuffer compressed) throws IOException {
+        final int length = compressed.getInt(compressed.position());
+        if (length < 0) {
+            throw new IOException("Invalid uncompressed length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Compress the remaining bytes of uncompressed into compressed
+     * @return the compressed size
+     */
+    public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+        assert(uncompressed.isDirect());
+        assert(compressed.isDirect());
+        final int inLength = uncompressed.remaining();
+        final byte in[] = scratch(0, inLength);
+        final byte out[] = scratch(1, maxCompressedLength(inLength) - LENGTH_PREFIX_BYTES);
+        uncompressed.duplicate().get(in, 0, inLength);
+
+        final int compressedSize = compressBlock(in, inLength, out);
+        final ByteBuffer dest = compressed.duplicate();
+        dest.putInt(inLength);
+        dest.put(out, 0, compressedSize);
+        compressed.limit(compressed.position() + LENGTH_PREFIX_BYTES + compressedSize);
+        return LENGTH_PREFIX_BYTES + compressedSize;
+    }
+
+    /**
+     * Decompress the remaining bytes of compressed into uncompressed
+     * @return the uncompressed size
+     */
+    public int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+        assert(compressed.isDirect());
+        assert(uncompressed.isDirect());
+        final int outLength = uncompressedLength(compressed);
+        final int inLength = compressed.remaining() - LENGTH_PREFIX_BYTES;
+        if (outLength > uncompressed.capacity() - uncompressed.position()) {
+            throw new IOException("Uncompressed length " + outLength + " doesn't fit in the output buffer");
+        }
+        final byte in[] = scratch(0, inLength);
+        final byte out[] = scratch(1, outLength);
+        final ByteBuffer src = compressed.duplicate();
+        src.position(src.position() + LENGTH_PREFIX_BYTES);
+        src.get(in, 0, inLength);
+
+        decompressBlock(in, inLength, out, outLength);
+        uncompressed.limit(uncompressed.position() + outLength);
+        uncompressed.duplicate().put(out, 0, outLength);
+        return outLength;
+    }
+
+    /**
+     * Compress inLength bytes of in into out, without the length prefix
+     * @return the compressed size
+     */
+    abstract int compressBlock(byte in[], int inLength, byte out[]) throws IOException;
+
+    /**
+     * Decompress inLength bytes of in into the first outLength bytes of out
+     */
+    abstract void decompressBlock(byte in[], int inLength, byte out[], int outLength) throws IOException;
+
+    public byte[] compressBytes(byte bytes[], int offset, int length) throws IOException {
+        if (this == SNAPPY) {
+            return CompressionService.compressBytes(bytes, offset, length);
+        }
+        final byte in[];
+        if (offset == 0) {
+            in = bytes;
+        } else {
+            in = scratch(0, length);
+            System.arraycopy(bytes, offset, in, 0, length);
+        }
+        final byte out[] = scratch(1, maxCompressedLength(length) - LENGTH_PREFIX_BYTES);
+        final int compressedSize = compressBlock(in, length, out);
+
+        final byte result[] = new byte[LENGTH_PREFIX_BYTES + compressedSize];
+        ByteBuffer.wrap(result).putInt(length).put(out, 0, compressedSize);
+        return result;
+    }
+
+    public byte[] compressBuffer(ByteBuffer buffer) throws IOException {
+        if (this == SNAPPY) {
+            return CompressionService.compressBuffer(buffer);
+        }
+        final int length = buffer.remaining();
+        final byte in[] = scratch(0, length);
+        buffer.duplicate().get(in, 0, length);
+        return compressBytes(in, 0, length);
+    }
+}
@@ -73,6 +73,8 @@ import org.voltdb.AuthenticationResult;
 import org.voltdb.CatalogContext;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.HTTPClientInterface;
+import org.voltdb.OpenMetricsRenderer;
+import org.voltdb.StatsAgent;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
 import org.voltdb.client.BatchTimeoutOverrideType;
@@ -887,6 +889,40 @@ public class HTTPAdminListener {
         }
     }
 
+    class MetricsRequestHandler extends VoltRequestHandler {
+
+        // GET on /metrics, the stats of this host for scrapers in the OpenMetrics text format
+        @Override
+        public void handle(String target, Request baseRequest,
+                           HttpServletRequest request, HttpServletResponse response)
+                            throws IOException, ServletException {
+            super.handle(target, baseRequest, request, response);
+            if (baseRequest.isHandled()) return;
+            try {
+                AuthenticationResult authResult = authenticate(baseRequest);
+                if (!authResult.isAuthenticated()) {
+                    response.setContentType("text/plain;charset=utf-8");
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.getWriter().print(authResult.m_message);
+                    baseRequest.setHandled(true);
+                    return;
+                }
+                StatsAgent statsAgent = VoltDB.instance().getStatsAgent();
+                if (statsAgent == null) {
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    baseRequest.setHandled(true);
+                    return;
+                }
+                response.setContentType(OpenMetricsRenderer.CONTENT_TYPE);
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.getWriter().print(new OpenMetricsRenderer(statsAgent).render());
+                baseRequest.setHandled(true);
+            } catch (Exception ex) {
+                logger.info("Not servicing url: " + baseRequest.getRequestURI() + " Details: "+ ex.getMessage(), ex);
+            }
+        }
+    }
+
     /**
      * Draw the catalog report page, mostly by pulling it from the JAR.
      */
@@ -1025,6 +1061,10 @@ public class HTTPAdminListener {
             ContextHandler profileRequestHandler = new ContextHandler("/profile");
             profileRequestHandler.setHandler(new UserProfileHandler());
 
+            ///metrics
+            ContextHandler metricsRequestHandler = new ContextHandler("/metrics");
+            metricsRequestHandler.setHandler(new MetricsRequestHandler());
+
             ContextHandlerCollection handlers = new ContextHandlerCollection();
             handlers.setHandlers(new Handler[] {
                     apiRequestHandler,
@@ -1032,6 +1072,7 @@ public class HTTPAdminListener {
                     ddlRequestHandler,
                     deploymentRequestHandler,
                     profileRequestHandler,
+                    metricsRequestHandler,
                     dbMonitorHandler
             });
 
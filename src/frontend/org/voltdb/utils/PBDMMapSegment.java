@@ -0,0 +1,220 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.BinaryDeque.OutputContainerFactory;
+
+/**
+ * A segment that is written the same way as {@link PBDRegularSegment} but is read
+ * through a memory mapping of the segment file. Uncompressed entries are handed out
+ * as slices of the mapping without copying, compressed entries are decompressed
+ * straight out of the mapping into a container from the caller's factory.
+ *
+ * The mapping is private (copy on write) so consumers may modify the returned buffers
+ * in place without touching the file. A mapping is only unmapped once the segment has
+ * moved past it (closed, deleted, or remapped because the file grew) and every slice
+ * handed out from it has been discarded.
+ */
+public class PBDMMapSegment extends PBDRegularSegment {
+    private static final VoltLogger LOG = new VoltLogger("HOST");
+
+    /**
+     * A mapping of the segment file and the number of slices that still reference it
+     */
+    private static class MappedRegion {
+        private final DBBPool.MBBContainer m_mapping;
+        private int m_refs = 0;
+        private boolean m_retired = false;
+
+        private MappedRegion(DBBPool.MBBContainer mapping) {
+            m_mapping = mapping;
+        }
+
+        private int capacity() {
+            return m_mapping.b().capacity();
+        }
+
+        /**
+         * Duplicate of the mapping positioned on the given range
+         */
+        private ByteBuffer slice(long offset, int length) {
+            final ByteBuffer dup = m_mapping.b().duplicate();
+            dup.limit((int) offset + length);
+            dup.position((int) offset);
+            return dup.slice();
+        }
+
+        private int getInt(long offset) {
+            return m_mapping.b().getInt((int) offset);
+        }
+
+        private synchronized void retain() {
+            m_refs++;
+        }
+
+        private synchronized void release() {
+            assert(m_refs > 0);
+            m_refs--;
+            unmapIfUnused();
+        }
+
+        private synchronized void retire() {
+            m_retired = true;
+            unmapIfUnused();
+        }
+
+        private void unmapIfUnused() {
+            if (m_retired && m_refs == 0) {
+                m_mapping.discard();
+            }
+        }
+    }
+
+    private MappedRegion m_region = null;
+
+    public PBDMMapSegment(Long index, File file) {
+        super(index, file);
+    }
+
+    @Override
+    SegmentReader newSegmentReader(String cursorId) {
+        return new MMapSegmentReader(cursorId);
+    }
+
+    /**
+     * Return a mapping that covers the file up to at least the given offset,
+     * remapping if the segment has grown since it was last mapped.
+     */
+    private MappedRegion mapThrough(long endOffset) throws IOException {
+        if (m_region != null && m_region.capacity() >= endOffset) {
+            return m_region;
+        }
+
+        final long fileSize = m_fc.size();
+        if (fileSize < endOffset) {
+            throw new EOFException();
+        }
+        retireRegion();
+        m_region = new MappedRegion(DBBPool.wrapMBB(m_fc.map(MapMode.PRIVATE, 0, fileSize)));
+        return m_region;
+    }
+
+    private void retireRegion() {
+        if (m_region != null) {
+            m_region.retire();
+            m_region = null;
+        }
+    }
+
+    @Override
+    void closeReadersAndFile() throws IOException {
+        retireRegion();
+        super.closeReadersAndFile();
+    }
+
+    private class MMapSegmentReader extends SegmentReader {
+
+        public MMapSegmentReader(String cursorId) {
+            super(cursorId);
+        }
+
+        @Override
+        public BBContainer poll(OutputContainerFactory factory) throws IOException {
+            if (m_closed) throw new IOException("Reader closed");
+
+            if (!hasMoreEntries()) {
+                return null;
+            }
+
+            //Get the length and size prefix and then slice the object out of the mapping
+            MappedRegion region = mapThrough(m_readOffset + OBJECT_HEADER_BYTES);
+            final int length = region.getInt(m_readOffset);
+            final int flags = region.getInt(m_readOffset + 4);
+            final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+
+            if (length < 1) {
+                throw new IOException("Read an invalid length");
+            }
+
+            final long entryOffset = m_readOffset + OBJECT_HEADER_BYTES;
+            region = mapThrough(entryOffset + length);
+            final ByteBuffer entry = region.slice(entryOffset, length);
+
+            final BBContainer retcont;
+            final int uncompressedLen;
+            if (compressed) {
+                final CompressionCodec codec = codecFromFlags(flags);
+                uncompressedLen = codec.uncompressedLength(entry);
+                final BBContainer decompressed = factory.getContainer(uncompressedLen);
+                decompressed.b().limit(uncompressedLen);
+                codec.decompress(entry, decompressed.b());
+                retcont = new BBContainer(decompressed.b()) {
+                    private boolean m_discarded = false;
+
+                    @Override
+                    public void discard() {
+                        checkDoubleFree();
+                        if (m_discarded) {
+                            LOG.error("PBD Container discarded more than once");
+                            return;
+                        }
+
+                        m_discarded = true;
+                        decompressed.discard();
+                        m_discardCount++;
+                    }
+                };
+            } else {
+                uncompressedLen = length;
+                final MappedRegion sliceRegion = region;
+                sliceRegion.retain();
+                retcont = new BBContainer(entry) {
+                    private boolean m_discarded = false;
+
+                    @Override
+                    public void discard() {
+                        checkDoubleFree();
+                        if (m_discarded) {
+                            LOG.error("PBD Container discarded more than once");
+                            return;
+                        }
+
+                        m_discarded = true;
+                        sliceRegion.release();
+                        m_discardCount++;
+                    }
+                };
+            }
+
+            m_readOffset = entryOffset + length;
+            m_bytesRead += uncompressedLen;
+            m_objectReadIndex++;
+
+            return retcont;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+import com.google_voltpatches.common.base.Preconditions;
+import com.google_voltpatches.common.util.concurrent.Futures;
+
+/**
+ * Writer stage in front of a {@link BinaryDeque} that compresses offered buffers on the
+ * {@link CompressionService} workers instead of on the caller's thread while holding the deque.
+ *
+ * Entries are written to the deque in the order they were offered. Every offer writes, in one batch,
+ * the run of entries at the head of the pipeline that have finished compressing, so the deque is
+ * written while later entries are still being compressed. At most maxInFlight entries are
+ * compressing at a time, the caller waits on the oldest one once that bound is reached.
+ *
+ * The writer is not thread safe, it is meant to be owned by a single producer.
+ */
+public class PBDPipelinedWriter {
+    private final BinaryDeque m_deque;
+    private final int m_maxInFlight;
+    private final CompressionCodec m_codec;
+    private final ArrayDeque<Future<BBContainer>> m_inFlight = new ArrayDeque<>();
+
+    public PBDPipelinedWriter(BinaryDeque deque, int maxInFlight) {
+        this(deque, maxInFlight, PersistentBinaryDeque.COMPRESSION_CODEC_DEFAULT);
+    }
+
+    public PBDPipelinedWriter(BinaryDeque deque, int maxInFlight, CompressionCodec codec) {
+        Preconditions.checkArgument(maxInFlight > 0, "Must allow at least one entry in flight");
+        m_deque = deque;
+        m_maxInFlight = maxInFlight;
+        m_codec = codec;
+    }
+
+    /**
+     * Queue the container for compression and write whatever is ready at the head of the pipeline.
+     * The container will be discarded once it has been compressed or written.
+     */
+    public void offer(final BBContainer cont) throws IOException {
+        final ByteBuffer buf = cont.b();
+        if (buf.remaining() < 32 || !buf.isDirect()) {
+            // Not worth compressing, it still has to be written in order
+            m_inFlight.offer(Futures.immediateFuture(cont));
+        } else {
+            m_inFlight.offer(CompressionService.submitCompressionTask(new Callable<BBContainer>() {
+                @Override
+                public BBContainer call() throws Exception {
+                    return compress(cont, m_codec);
+                }
+            }));
+        }
+
+        writeCompleted(Math.max(0, m_inFlight.size() - m_maxInFlight), false);
+    }
+
+    /**
+     * Wait for all queued entries to be compressed and write them to the deque
+     * @param sync true to sync the deque after writing
+     */
+    public void flush(boolean sync) throws IOException {
+        writeCompleted(m_inFlight.size(), sync);
+    }
+
+    /**
+     * @return The number of entries that have been offered but not written to the deque yet
+     */
+    public int getInFlightCount() {
+        return m_inFlight.size();
+    }
+
+    private static BBContainer compress(BBContainer cont, CompressionCodec codec) throws IOException {
+        final int uncompressedSize = cont.b().remaining();
+        final BBContainer compressed = DBBPool.allocateDirectAndPool(codec.maxCompressedLength(uncompressedSize));
+        boolean success = false;
+        try {
+            final int compressedSize = codec.compress(cont.b(), compressed.b());
+            compressed.b().limit(compressedSize);
+            success = true;
+            return new PBDSegment.PrecompressedContainer(compressed, uncompressedSize, codec);
+        } finally {
+            cont.discard();
+            if (!success) {
+                compressed.discard();
+            }
+        }
+    }
+
+    /**
+     * Write the entries at the head of the pipeline that are done compressing, waiting for
+     * at least mustWrite of them.
+     */
+    private void writeCompleted(int mustWrite, boolean sync) throws IOException {
+        final List<BBContainer> batch = new ArrayList<>();
+        ExecutionException failure = null;
+        try {
+            while (!m_inFlight.isEmpty() && (batch.size() < mustWrite || m_inFlight.peek().isDone())) {
+                batch.add(m_inFlight.peek().get());
+                m_inFlight.poll();
+            }
+        } catch (InterruptedException e) {
+            // Leave the rest in the pipeline, it will be written by the next offer or flush
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The entry that failed has already been discarded by the compression task
+            m_inFlight.poll();
+            failure = e;
+        }
+
+        // Entries ahead of a failed one are still written so the deque keeps them in order
+        if (!batch.isEmpty()) {
+            m_deque.offer(batch, false, sync);
+        } else if (sync && failure == null) {
+            m_deque.sync();
+        }
+        if (failure != null) {
+            throw new IOException("Failed to compress PBD entry", failure.getCause());
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -48,10 +49,10 @@ public class PBDRegularSegment extends PBDSegment {
     //ID of this segment
     private final Long m_index;
 
-    private int m_numOfEntries = -1;
-    private int m_size = -1;
+    int m_numOfEntries = -1;
+    int m_size = -1;
 
-    private DBBPool.BBContainer m_tmpHeaderBuf = null;
+    DBBPool.BBContainer m_tmpHeaderBuf = null;
 
     public PBDRegularSegment(Long index, File file) {
         super(file);
@@ -127,11 +128,19 @@ public class PBDRegularSegment extends PBDSegment {
         if (m_closed) {
             open(false, false);
         }
-        SegmentReader reader = new SegmentReader(cursorId);
+        SegmentReader reader = newSegmentReader(cursorId);
         m_readCursors.put(cursorId, reader);
         return reader;
     }
 
+    /**
+     * Create the reader used for the given cursor. Subclasses can provide readers
+     * that access the segment file differently.
+     */
+    SegmentReader newSegmentReader(String cursorId) {
+        return new SegmentReader(cursorId);
+    }
+
     @Override
     public PBDSegmentReader getReader(String cursorId) {
         PBDSegmentReader reader = m_closedCursors.get(cursorId);
@@ -183,7 +192,12 @@ public class PBDRegularSegment extends PBDSegment {
 
     private void incrementNumEntries(int size) throws IOException
     {
-        m_numOfEntries++;
+        incrementNumEntries(1, size);
+    }
+
+    private void incrementNumEntries(int count, int size) throws IOException
+    {
+        m_numOfEntries += count;
         m_size += size;
 
         m_tmpHeaderBuf.b().clear();
@@ -224,7 +238,7 @@ public class PBDRegularSegment extends PBDSegment {
         closeReadersAndFile();
     }
 
-    private void closeReadersAndFile() throws IOException {
+    void closeReadersAndFile() throws IOException {
         m_readCursors.clear();
         try {
             if (m_ras != null) {
@@ -263,13 +277,13 @@ public class PBDRegularSegment extends PBDSegment {
     }
 
     @Override
-    public boolean offer(DBBPool.BBContainer cont, boolean compress) throws IOException
+    public boolean offer(DBBPool.BBContainer cont, CompressionCodec codec) throws IOException
     {
         if (m_closed) throw new IOException("Segment closed");
         final ByteBuffer buf = cont.b();
         final int remaining = buf.remaining();
-        if (remaining < 32 || !buf.isDirect()) compress = false;
-        final int maxCompressedSize = (compress ? CompressionService.maxCompressedLength(remaining) : remaining) + OBJECT_HEADER_BYTES;
+        final boolean compress = codec != null && remaining >= 32 && buf.isDirect();
+        final int maxCompressedSize = (compress ? codec.maxCompressedLength(remaining) : remaining) + OBJECT_HEADER_BYTES;
         if (remaining() < maxCompressedSize) return false;
 
         m_syncedSinceLastEdit = false;
@@ -280,11 +294,11 @@ public class PBDRegularSegment extends PBDSegment {
 
             if (compress) {
                 destBuf = DBBPool.allocateDirectAndPool(maxCompressedSize);
-                final int compressedSize = CompressionService.compressBuffer(buf, destBuf.b());
+                final int compressedSize = codec.compress(buf, destBuf.b());
                 destBuf.b().limit(compressedSize);
 
                 m_tmpHeaderBuf.b().putInt(compressedSize);
-                m_tmpHeaderBuf.b().putInt(FLAG_COMPRESSED);
+                m_tmpHeaderBuf.b().putInt(compressedFlags(codec));
             } else {
                 destBuf = cont;
                 m_tmpHeaderBuf.b().putInt(remaining);
@@ -336,6 +350,97 @@ public class PBDRegularSegment extends PBDSegment {
         }
     }
 
+    @Override
+    public int offer(List<DBBPool.BBContainer> conts, int startIndex, CompressionCodec codec) throws IOException
+    {
+        if (m_closed) throw new IOException("Segment closed");
+
+        //Find how many entries fit, assuming the worst case compressed size like the single offer
+        long available = remaining();
+        int endIndex = startIndex;
+        while (endIndex < conts.size()) {
+            final ByteBuffer buf = conts.get(endIndex).b();
+            final int remaining = buf.remaining();
+            final boolean compressEntry = codec != null && remaining >= 32 && buf.isDirect() &&
+                    !(conts.get(endIndex) instanceof PrecompressedContainer);
+            final int maxCompressedSize =
+                    (compressEntry ? codec.maxCompressedLength(remaining) : remaining) + OBJECT_HEADER_BYTES;
+            if (available < maxCompressedSize) break;
+            available -= maxCompressedSize;
+            endIndex++;
+        }
+
+        final int count = endIndex - startIndex;
+        if (count == 0) return 0;
+
+        m_syncedSinceLastEdit = false;
+        final DBBPool.BBContainer headers = DBBPool.allocateDirectAndPool(count * OBJECT_HEADER_BYTES);
+        final DBBPool.BBContainer compressed[] = new DBBPool.BBContainer[count];
+        final ByteBuffer gather[] = new ByteBuffer[count * 2];
+        boolean written = false;
+
+        try {
+            long bytesToWrite = 0;
+            int uncompressedSize = 0;
+            for (int ii = 0; ii < count; ii++) {
+                final DBBPool.BBContainer cont = conts.get(startIndex + ii);
+                final ByteBuffer buf = cont.b();
+                final boolean precompressed = cont instanceof PrecompressedContainer;
+                final int remaining = precompressed ? ((PrecompressedContainer) cont).m_uncompressedSize : buf.remaining();
+                final boolean compressEntry = codec != null && remaining >= 32 && buf.isDirect() && !precompressed;
+
+                final ByteBuffer header = headers.b().duplicate();
+                header.position(ii * OBJECT_HEADER_BYTES);
+                header.limit(header.position() + OBJECT_HEADER_BYTES);
+
+                final ByteBuffer payload;
+                if (precompressed) {
+                    payload = buf;
+                    header.putInt(buf.remaining());
+                    header.putInt(compressedFlags(((PrecompressedContainer) cont).m_codec));
+                } else if (compressEntry) {
+                    compressed[ii] = DBBPool.allocateDirectAndPool(codec.maxCompressedLength(remaining));
+                    final int compressedSize = codec.compress(buf, compressed[ii].b());
+                    compressed[ii].b().limit(compressedSize);
+                    payload = compressed[ii].b();
+
+                    header.putInt(compressedSize);
+                    header.putInt(compressedFlags(codec));
+                } else {
+                    payload = buf;
+                    header.putInt(remaining);
+                    header.putInt(NO_FLAGS);
+                }
+                header.flip();
+
+                gather[ii * 2] = header;
+                gather[ii * 2 + 1] = payload;
+                bytesToWrite += OBJECT_HEADER_BYTES + payload.remaining();
+                uncompressedSize += remaining;
+            }
+
+            while (bytesToWrite > 0) {
+                bytesToWrite -= m_fc.write(gather);
+            }
+
+            incrementNumEntries(count, uncompressedSize);
+            written = true;
+        } finally {
+            headers.discard();
+            for (int ii = 0; ii < count; ii++) {
+                if (compressed[ii] != null) {
+                    compressed[ii].discard();
+                }
+                // On error the caller is responsible for the containers that were not written
+                if (written) {
+                    conts.get(startIndex + ii).discard();
+                }
+            }
+        }
+
+        return count;
+    }
+
     @Override
     public int size() {
         return m_size;
@@ -359,14 +464,14 @@ public class PBDRegularSegment extends PBDSegment {
         return written;
     }
 
-    private class SegmentReader implements PBDSegmentReader {
+    class SegmentReader implements PBDSegmentReader {
         private final String m_cursorId;
-        private long m_readOffset = SEGMENT_HEADER_BYTES;
+        long m_readOffset = SEGMENT_HEADER_BYTES;
         //Index of the next object to read, not an offset into the file
-        private int m_objectReadIndex = 0;
-        private int m_bytesRead = 0;
-        private int m_discardCount = 0;
-        private boolean m_closed = false;
+        int m_objectReadIndex = 0;
+        int m_bytesRead = 0;
+        int m_discardCount = 0;
+        boolean m_closed = false;
 
         public SegmentReader(String cursorId) {
             assert(cursorId != null);
@@ -432,10 +537,11 @@ public class PBDRegularSegment extends PBDSegment {
                         }
                         compressedBuf.b().flip();
 
-                        uncompressedLen = CompressionService.uncompressedLength(compressedBuf.bDR());
+                        final CompressionCodec codec = codecFromFlags(flags);
+                        uncompressedLen = codec.uncompressedLength(compressedBuf.bDR());
                         retcont = factory.getContainer(uncompressedLen);
                         retcont.b().limit(uncompressedLen);
-                        CompressionService.decompressBuffer(compressedBuf.bDR(), retcont.b());
+                        codec.decompress(compressedBuf.bDR(), retcont.b());
                     } finally {
                         compressedBuf.discard();
                     }
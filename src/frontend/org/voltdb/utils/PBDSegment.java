@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
+import java.util.List;
 
 public abstract class PBDSegment {
 
@@ -96,9 +97,35 @@ public abstract class PBDSegment {
         public boolean isClosed();
     }
 
+    /**
+     * An entry that was compressed before being offered, see {@link PBDPipelinedWriter}.
+     * Segments write it as is, flagged as compressed, instead of compressing it again.
+     */
+    static final class PrecompressedContainer extends DBBPool.BBContainer {
+        private final DBBPool.BBContainer m_compressed;
+        final int m_uncompressedSize;
+        final CompressionCodec m_codec;
+
+        PrecompressedContainer(DBBPool.BBContainer compressed, int uncompressedSize, CompressionCodec codec) {
+            super(compressed.b());
+            m_compressed = compressed;
+            m_uncompressedSize = uncompressedSize;
+            m_codec = codec;
+        }
+
+        @Override
+        public void discard() {
+            checkDoubleFree();
+            m_compressed.discard();
+        }
+    }
+
     private static final String TRUNCATOR_CURSOR = "__truncator__";
     static final int NO_FLAGS = 0;
     static final int FLAG_COMPRESSED = 1;
+    // Compressed entries store the id of the codec in the second byte of the flags,
+    // files written before codecs were pluggable have 0 there which is Snappy
+    static final int FLAG_CODEC_SHIFT = 8;
 
     static final int COUNT_OFFSET = 0;
     static final int SIZE_OFFSET = 4;
@@ -158,15 +185,35 @@ public abstract class PBDSegment {
 
     abstract boolean hasAllFinishedReading() throws IOException;
 
-    abstract boolean offer(DBBPool.BBContainer cont, boolean compress) throws IOException;
+    /**
+     * @param codec codec to compress the entry with, null to store it uncompressed
+     */
+    abstract boolean offer(DBBPool.BBContainer cont, CompressionCodec codec) throws IOException;
 
     abstract int offer(DeferredSerialization ds) throws IOException;
 
+    /**
+     * Write as many of the containers, starting at startIndex, as will fit in this segment
+     * using a single gathering write. Containers are discarded once they are written,
+     * on error they are left to the caller.
+     * @return The number of containers written, 0 if the first one doesn't fit
+     * @throws IOException
+     */
+    abstract int offer(List<DBBPool.BBContainer> conts, int startIndex, CompressionCodec codec) throws IOException;
+
     // TODO: javadoc
     abstract int size();
 
     abstract protected int writeTruncatedEntry(BinaryDeque.TruncatorResponse entry, int length) throws IOException;
 
+    static int compressedFlags(CompressionCodec codec) {
+        return FLAG_COMPRESSED | (codec.id << FLAG_CODEC_SHIFT);
+    }
+
+    static CompressionCodec codecFromFlags(int flags) throws IOException {
+        return CompressionCodec.fromId((flags >>> FLAG_CODEC_SHIFT) & 0xff);
+    }
+
     /**
      * Parse the segment and truncate the file if necessary.
      * @param truncator    A caller-supplied truncator that decides where in the segment to truncate
@@ -24,6 +24,7 @@ import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
@@ -236,6 +237,18 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     public static final OutputContainerFactory UNSAFE_CONTAINER_FACTORY = new UnsafeOutputContainerFactory();
 
+    /**
+     * Read segments through a memory mapping by default, can be overridden per deque
+     */
+    public static final boolean USE_MMAP_DEFAULT = Boolean.getBoolean("PBD_USE_MMAP");
+
+    /**
+     * Codec used to compress new entries by default, can be overridden per deque.
+     * Existing entries are always read with the codec they were written with.
+     */
+    public static final CompressionCodec COMPRESSION_CODEC_DEFAULT =
+            CompressionCodec.fromSystemProperty("PBD_COMPRESSION_CODEC");
+
     /**
      * Processors also log using this facility.
      */
@@ -243,6 +256,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     private final File m_path;
     private final String m_nonce;
+    private final boolean m_useMMap;
+    private CompressionCodec m_compressionCodec = COMPRESSION_CODEC_DEFAULT;
     private boolean m_initializedFromExistingFiles = false;
     private boolean m_awaitingTruncation = false;
 
@@ -254,6 +269,11 @@ public class PersistentBinaryDeque implements BinaryDeque {
     private int m_numObjects;
     private int m_numDeleted;
 
+    // Batched offer counters
+    private long m_batchCount = 0;
+    private long m_batchedObjectCount = 0;
+    private int m_maxBatchSize = 0;
+
     /**
      * Create a persistent binary deque with the specified nonce and storage
      * back at the specified path. Existing files will
@@ -278,10 +298,26 @@ public class PersistentBinaryDeque implements BinaryDeque {
      * @throws IOException
      */
     public PersistentBinaryDeque(final String nonce, final File path, VoltLogger logger, final boolean deleteEmpty) throws IOException {
+        this(nonce, path, logger, deleteEmpty, USE_MMAP_DEFAULT);
+    }
+
+    /**
+     * Create a persistent binary deque with the specified nonce and storage back at the specified path.
+     *
+     * @param nonce
+     * @param path
+     * @param logger
+     * @param deleteEmpty
+     * @param useMMap     Read segments through a memory mapping instead of file channel reads
+     * @throws IOException
+     */
+    public PersistentBinaryDeque(final String nonce, final File path, VoltLogger logger, final boolean deleteEmpty,
+            final boolean useMMap) throws IOException {
         EELibraryLoader.loadExecutionEngineLibrary(true);
         m_path = path;
         m_nonce = nonce;
         m_usageSpecificLog = logger;
+        m_useMMap = useMMap;
 
         if (!path.exists() || !path.canRead() || !path.canWrite() || !path.canExecute() || !path.isDirectory()) {
             throw new IOException(path + " is not usable ( !exists || !readable " +
@@ -481,7 +517,21 @@ public class PersistentBinaryDeque implements BinaryDeque {
         assertions();
     }
 
+    /**
+     * Change the codec used to compress entries offered from now on
+     */
+    public synchronized void setCompressionCodec(CompressionCodec codec) {
+        m_compressionCodec = codec;
+    }
+
+    public synchronized CompressionCodec getCompressionCodec() {
+        return m_compressionCodec;
+    }
+
     private PBDSegment newSegment(long segmentId, File file) {
+        if (m_useMMap) {
+            return new PBDMMapSegment(segmentId, file);
+        }
         return new PBDRegularSegment(segmentId, file);
     }
 
@@ -527,10 +577,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
         }
 
         PBDSegment tail = peekLastSegment();
-        final boolean compress = object.b().isDirect() && allowCompression;
-        if (!tail.offer(object, compress)) {
+        final CompressionCodec codec = object.b().isDirect() && allowCompression ? m_compressionCodec : null;
+        if (!tail.offer(object, codec)) {
             tail = addSegment(tail);
-            final boolean success = tail.offer(object, compress);
+            final boolean success = tail.offer(object, codec);
             if (!success) {
                 throw new IOException("Failed to offer object in PBD");
             }
@@ -560,6 +610,74 @@ public class PersistentBinaryDeque implements BinaryDeque {
         return written;
     }
 
+    @Override
+    public synchronized void offer(List<BBContainer> objects, boolean allowCompression, boolean sync) throws IOException {
+        assertions();
+        if (m_closed) {
+            for (BBContainer object : objects) {
+                object.discard();
+            }
+            throw new IOException("Closed");
+        }
+
+        PBDSegment tail = peekLastSegment();
+        final CompressionCodec codec = allowCompression ? m_compressionCodec : null;
+        int offered = 0;
+        try {
+            while (offered < objects.size()) {
+                int written = tail.offer(objects, offered, codec);
+                if (written == 0) {
+                    // Sync the full segment before it may be closed by rolling over
+                    if (sync) {
+                        tail.sync();
+                    }
+                    tail = addSegment(tail);
+                    written = tail.offer(objects, offered, codec);
+                    if (written == 0) {
+                        throw new IOException("Failed to offer object in PBD");
+                    }
+                }
+                offered += written;
+                m_numObjects += written;
+            }
+        } finally {
+            // Containers that were not written are discarded on error
+            for (int ii = offered; ii < objects.size(); ii++) {
+                objects.get(ii).discard();
+            }
+        }
+
+        if (sync) {
+            tail.sync();
+        }
+
+        m_batchCount++;
+        m_batchedObjectCount += objects.size();
+        m_maxBatchSize = Math.max(m_maxBatchSize, objects.size());
+        assertions();
+    }
+
+    /**
+     * @return The number of batches offered with {@link #offer(List, boolean, boolean)}
+     */
+    public synchronized long getBatchCount() {
+        return m_batchCount;
+    }
+
+    /**
+     * @return The total number of objects offered in batches
+     */
+    public synchronized long getBatchedObjectCount() {
+        return m_batchedObjectCount;
+    }
+
+    /**
+     * @return The largest number of objects offered in a single batch
+     */
+    public synchronized int getMaxBatchSize() {
+        return m_maxBatchSize;
+    }
+
     private PBDSegment addSegment(PBDSegment tail) throws IOException {
         //Check to see if the tail is completely consumed so we can close and delete it
         if (tail.hasAllFinishedReading() && canDeleteSegment(tail)) {
@@ -637,7 +755,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
             }
 
             while (currentSegmentContents.peek() != null) {
-                writeSegment.offer(currentSegmentContents.pollFirst(), false);
+                writeSegment.offer(currentSegmentContents.pollFirst(), null);
                 m_numObjects++;
             }
 
@@ -0,0 +1,166 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.logging.VoltLogger;
+
+/**
+ * Runs tasks one at a time in the order they were submitted, borrowing a thread of a
+ * shared executor only while it has tasks. Many of these can share a small pool
+ * in place of a thread each. Like a single threaded executor, tasks queued before
+ * {@link #shutdown()} still run.
+ */
+public class SerialExecutorService extends AbstractExecutorService {
+
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    /*
+     * Tasks run before the pool thread is given back so a busy executor
+     * can't keep the others from running
+     */
+    private static final int MAX_TASKS_PER_TURN = 64;
+
+    private final String m_name;
+    private final Executor m_executor;
+    private final ArrayDeque<Runnable> m_tasks = new ArrayDeque<Runnable>();
+    private final CountDownLatch m_terminated = new CountDownLatch(1);
+    // Set while a turn is queued on or running on the shared executor
+    private boolean m_scheduled = false;
+    private boolean m_shutdown = false;
+    private int m_maxQueueDepth = 0;
+    private long m_completedTasks = 0;
+
+    private final Runnable m_turn = new Runnable() {
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_TASKS_PER_TURN; i++) {
+                final Runnable task;
+                synchronized (SerialExecutorService.this) {
+                    task = m_tasks.poll();
+                    if (task == null) {
+                        m_scheduled = false;
+                        if (m_shutdown) {
+                            m_terminated.countDown();
+                        }
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    hostLog.error("Unexpected exception in a task of " + m_name, t);
+                }
+                synchronized (SerialExecutorService.this) {
+                    m_completedTasks++;
+                }
+            }
+            schedule();
+        }
+    };
+
+    public SerialExecutorService(String name, Executor executor) {
+        m_name = name;
+        m_executor = executor;
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    private void schedule() {
+        try {
+            m_executor.execute(m_turn);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                m_scheduled = false;
+                m_tasks.clear();
+                m_shutdown = true;
+                m_terminated.countDown();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        synchronized (this) {
+            if (m_shutdown) {
+                throw new RejectedExecutionException(m_name + " is shut down");
+            }
+            m_tasks.offer(command);
+            m_maxQueueDepth = Math.max(m_maxQueueDepth, m_tasks.size());
+            if (m_scheduled) {
+                return;
+            }
+            m_scheduled = true;
+        }
+        schedule();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        m_shutdown = true;
+        if (!m_scheduled) {
+            m_terminated.countDown();
+        }
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<Runnable>(m_tasks);
+        m_tasks.clear();
+        shutdown();
+        return tasks;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return m_shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return m_terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return m_terminated.await(timeout, unit);
+    }
+
+    public synchronized int getQueueDepth() {
+        return m_tasks.size();
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return m_maxQueueDepth;
+    }
+
+    public synchronized long getCompletedTasks() {
+        return m_completedTasks;
+    }
+}
@@ -0,0 +1,356 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "catalog/cluster.h"
+#include "catalog/table.h"
+#include "common/serializeio.h"
+#include "common/ValuePeeker.hpp"
+#include "plannodes/abstractplannode.h"
+#include "storage/persistenttable.h"
+#include "storage/temptable.h"
+#include "storage/tableiterator.h"
+#include "test_utils/plan_testing_baseclass.h"
+#include "test_utils/LoadTableFrom.hpp"
+
+#include "boost/scoped_ptr.hpp"
+
+#include <cstdio>
+#include <map>
+#include <string>
+
+namespace {
+// Spilling starts at half of this
+const int64_t TEMP_TABLE_MEMORY_LIMIT = 4 * 1024 * 1024;
+// Enough groups to cross the spill threshold several times over
+const int NUM_GROUPS = 30000;
+const int ROWS_PER_GROUP = 2;
+
+/**
+ * The catalog string below reflects this DDL.
+ *
+ * CREATE TABLE T (
+ *    V  VARCHAR(64),
+ *    A  INTEGER
+ * );
+ */
+const char *catalog_string =
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 0\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno 0\n"
+    "set $PREV jsonapi false\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV adminport 0\n"
+    "set $PREV adminstartup false\n"
+    "set $PREV heartbeatTimeout 0\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled false\n"
+    "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 0\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"eJwljMENwDAIA/+dhhi4JN9G3X+lgiLL2BIn41MkYwYpqzsQp3uGTKtcSupHUcJZnVqOh7bOJWLI2Hy9wySLMG1/nx/LDxO9\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"\"\n"
+    "add /clusters#cluster/databases#database groups administrator\n"
+    "set /clusters#cluster/databases#database/groups#administrator admin true\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database groups user\n"
+    "set /clusters#cluster/databases#database/groups#user admin false\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database tables T\n"
+    "set /clusters#cluster/databases#database/tables#T isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"T|vi\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#T columns A\n"
+    "set /clusters#cluster/databases#database/tables#T/columns#A index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#T columns V\n"
+    "set /clusters#cluster/databases#database/tables#T/columns#V index 0\n"
+    "set $PREV type 9\n"
+    "set $PREV size 64\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"V\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n";
+
+//  Plan for this query:
+//      select V, count(*), min(V) from T group by V;
+const char *group_by_varchar_plan =
+    "{\n"
+    "    \"EXECUTE_LIST\": [\n"
+    "        2,\n"
+    "        1\n"
+    "    ],\n"
+    "    \"PLAN_NODES\": [\n"
+    "        {\n"
+    "            \"CHILDREN_IDS\": [2],\n"
+    "            \"ID\": 1,\n"
+    "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+    "        },\n"
+    "        {\n"
+    "            \"ID\": 2,\n"
+    "            \"INLINE_NODES\": [\n"
+    "                {\n"
+    "                    \"AGGREGATE_COLUMNS\": [\n"
+    "                        {\n"
+    "                            \"AGGREGATE_DISTINCT\": 0,\n"
+    "                            \"AGGREGATE_OUTPUT_COLUMN\": 1,\n"
+    "                            \"AGGREGATE_TYPE\": \"AGGREGATE_COUNT_STAR\"\n"
+    "                        },\n"
+    "                        {\n"
+    "                            \"AGGREGATE_DISTINCT\": 0,\n"
+    "                            \"AGGREGATE_EXPRESSION\": {\n"
+    "                                \"COLUMN_IDX\": 0,\n"
+    "                                \"TYPE\": 32,\n"
+    "                                \"VALUE_SIZE\": 64,\n"
+    "                                \"VALUE_TYPE\": 9\n"
+    "                            },\n"
+    "                            \"AGGREGATE_OUTPUT_COLUMN\": 2,\n"
+    "                            \"AGGREGATE_TYPE\": \"AGGREGATE_MIN\"\n"
+    "                        }\n"
+    "                    ],\n"
+    "                    \"GROUPBY_EXPRESSIONS\": [{\n"
+    "                        \"COLUMN_IDX\": 0,\n"
+    "                        \"TYPE\": 32,\n"
+    "                        \"VALUE_SIZE\": 64,\n"
+    "                        \"VALUE_TYPE\": 9\n"
+    "                    }],\n"
+    "                    \"ID\": 3,\n"
+    "                    \"OUTPUT_SCHEMA\": [\n"
+    "                        {\n"
+    "                            \"COLUMN_NAME\": \"V\",\n"
+    "                            \"EXPRESSION\": {\n"
+    "                                \"COLUMN_IDX\": 0,\n"
+    "                                \"TYPE\": 32,\n"
+    "                                \"VALUE_SIZE\": 64,\n"
+    "                                \"VALUE_TYPE\": 9\n"
+    "                            }\n"
+    "                        },\n"
+    "                        {\n"
+    "                            \"COLUMN_NAME\": \"C2\",\n"
+    "                            \"EXPRESSION\": {\n"
+    "                                \"COLUMN_IDX\": 1,\n"
+    "                                \"TYPE\": 32,\n"
+    "                                \"VALUE_TYPE\": 6\n"
+    "                            }\n"
+    "                        },\n"
+    "                        {\n"
+    "                            \"COLUMN_NAME\": \"C3\",\n"
+    "                            \"EXPRESSION\": {\n"
+    "                                \"COLUMN_IDX\": 2,\n"
+    "                                \"TYPE\": 32,\n"
+    "                                \"VALUE_SIZE\": 64,\n"
+    "                                \"VALUE_TYPE\": 9\n"
+    "                            }\n"
+    "                        }\n"
+    "                    ],\n"
+    "                    \"PLAN_NODE_TYPE\": \"HASHAGGREGATE\"\n"
+    "                },\n"
+    "                {\n"
+    "                    \"ID\": 4,\n"
+    "                    \"OUTPUT_SCHEMA\": [{\n"
+    "                        \"COLUMN_NAME\": \"V\",\n"
+    "                        \"EXPRESSION\": {\n"
+    "                            \"COLUMN_IDX\": 0,\n"
+    "                            \"TYPE\": 32,\n"
+    "                            \"VALUE_SIZE\": 64,\n"
+    "                            \"VALUE_TYPE\": 9\n"
+    "                        }\n"
+    "                    }],\n"
+    "                    \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+    "                }\n"
+    "            ],\n"
+    "            \"OUTPUT_SCHEMA\": [\n"
+    "                {\n"
+    "                    \"COLUMN_NAME\": \"V\",\n"
+    "                    \"EXPRESSION\": {\n"
+    "                        \"COLUMN_IDX\": 0,\n"
+    "                        \"TYPE\": 32,\n"
+    "                        \"VALUE_SIZE\": 64,\n"
+    "                        \"VALUE_TYPE\": 9\n"
+    "                    }\n"
+    "                },\n"
+    "                {\n"
+    "                    \"COLUMN_NAME\": \"C2\",\n"
+    "                    \"EXPRESSION\": {\n"
+    "                        \"COLUMN_IDX\": 1,\n"
+    "                        \"TYPE\": 32,\n"
+    "                        \"VALUE_TYPE\": 6\n"
+    "                    }\n"
+    "                },\n"
+    "                {\n"
+    "                    \"COLUMN_NAME\": \"C3\",\n"
+    "                    \"EXPRESSION\": {\n"
+    "                        \"COLUMN_IDX\": 2,\n"
+    "                        \"TYPE\": 32,\n"
+    "                        \"VALUE_SIZE\": 64,\n"
+    "                        \"VALUE_TYPE\": 9\n"
+    "                    }\n"
+    "                }\n"
+    "            ],\n"
+    "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+    "            \"TARGET_TABLE_ALIAS\": \"T\",\n"
+    "            \"TARGET_TABLE_NAME\": \"T\"\n"
+    "        }\n"
+    "    ]\n"
+    "}\n";
+
+/**
+ * Records the most bytes the fragment has spilled, from the progress reports.
+ */
+class SpillTestTopend : public EngineTestTopend {
+public:
+    SpillTestTopend() : m_spilledBytes(0) { }
+
+    static SpillTestTopend *newInstance() {
+        return new SpillTestTopend();
+    }
+
+    int64_t fragmentProgressUpdate(int32_t batchIndex,
+                                   voltdb::PlanNodeType planNodeType,
+                                   int64_t tuplesFound,
+                                   int64_t currMemoryInBytes,
+                                   int64_t peakMemoryInBytes,
+                                   int64_t spilledBytes) {
+        m_spilledBytes = std::max(m_spilledBytes, spilledBytes);
+        return 1000;
+    }
+
+    int64_t m_spilledBytes;
+};
+
+std::string groupKey(int group) {
+    char key[16];
+    snprintf(key, sizeof(key), "key%06d", group);
+    return std::string(key);
+}
+}
+
+class AggregateSpillTest : public PlanTestingBaseClass<SpillTestTopend> {
+public:
+    AggregateSpillTest() {
+        initialize(catalog_string, 0, NULL, (uint32_t)time(NULL), TEMP_TABLE_MEMORY_LIMIT);
+        m_T = getPersistentTableAndId("T", NULL);
+        assert(m_T);
+        setSpillDirectory("/tmp");
+    }
+
+    void setSpillDirectory(const std::string& directory) {
+        char buffer[1024];
+        voltdb::ReferenceSerializeOutput taskOutput(buffer, sizeof(buffer));
+        taskOutput.writeTextString(directory);
+        voltdb::ReferenceSerializeInputBE taskInfo(buffer, taskOutput.size());
+        m_engine->executeTask(voltdb::TASK_TYPE_SET_SPILL_DIRECTORY, taskInfo);
+        m_engine->resetReusedResultOutputBuffer();
+    }
+
+    void insertRow(const std::string& v, int32_t a) {
+        voltdb::TableTuple &tuple = m_T->tempTuple();
+        voltdb::NValue value = voltdb::ValueFactory::getStringValue(v);
+        tuple.setNValue(0, value);
+        tuple.setNValue(1, voltdb::ValueFactory::getIntegerValue(a));
+        m_T->insertTuple(tuple);
+        value.free();
+    }
+
+    static std::string peekString(const voltdb::NValue& value) {
+        int32_t length;
+        const char* data = voltdb::ValuePeeker::peekObject_withoutNull(value, &length);
+        return std::string(data, length);
+    }
+
+protected:
+    voltdb::PersistentTable *m_T;
+};
+
+/*
+ * The groups read back from the spill partitions are emitted from memory that is
+ * reused for the next partition, so their VARCHAR values have to be copied to the output.
+ */
+TEST_F(AggregateSpillTest, testSpilledVarcharGroupBy) {
+    for (int row = 0; row < ROWS_PER_GROUP; ++row) {
+        for (int group = 0; group < NUM_GROUPS; ++group) {
+            insertRow(groupKey(group), row);
+        }
+    }
+
+    executeFragment(100, group_by_varchar_plan);
+    ASSERT_TRUE(m_topend->m_spilledBytes > 0);
+
+    size_t resultSize = m_engine->getResultsSize();
+    voltdb::Pool stringPool;
+    boost::scoped_ptr<voltdb::TempTable> result(voltdb::loadTableFrom(m_result_buffer.get(), resultSize,
+                                                                      &stringPool));
+    ASSERT_TRUE(result != NULL);
+    ASSERT_EQ(3, result->columnCount());
+    ASSERT_EQ(NUM_GROUPS, result->activeTupleCount());
+
+    std::map<std::string, int64_t> counts;
+    voltdb::TableTuple tuple(result->schema());
+    voltdb::TableIterator iter = result->iterator();
+    while (iter.next(tuple)) {
+        std::string key = peekString(tuple.getNValue(0));
+        EXPECT_EQ(key, peekString(tuple.getNValue(2)));
+        counts[key] = voltdb::ValuePeeker::peekAsBigInt(tuple.getNValue(1));
+    }
+    ASSERT_EQ(NUM_GROUPS, static_cast<int>(counts.size()));
+    for (int group = 0; group < NUM_GROUPS; ++group) {
+        std::map<std::string, int64_t>::const_iterator it = counts.find(groupKey(group));
+        ASSERT_TRUE(it != counts.end());
+        EXPECT_EQ(ROWS_PER_GROUP, static_cast<int>(it->second));
+    }
+}
+
+int main() {
+     return TestSuite::globalInstance()->runAll();
+}
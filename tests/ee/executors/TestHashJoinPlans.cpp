@@ -0,0 +1,1855 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+/******************************************************************************************
+ *
+ * NOTA BENE: This file is automagically generated from the source class named
+ *                org.voltdb.planner.EEHashJoinPlanTestGenerator.
+ *            Please do not edit it unless you abandon all hope of regenerating it.
+ *
+ ******************************************************************************************/
+#include "harness.h"
+
+#include "catalog/cluster.h"
+#include "catalog/table.h"
+#include "plannodes/abstractplannode.h"
+#include "storage/persistenttable.h"
+#include "storage/temptable.h"
+#include "storage/tableutil.h"
+#include "test_utils/plan_testing_config.h"
+#include "test_utils/LoadTableFrom.hpp"
+#include "test_utils/plan_testing_baseclass.h"
+
+
+namespace {
+extern TestConfig allTests[];
+};
+
+class TestHashJoinPlans : public PlanTestingBaseClass<EngineTestTopend> {
+public:
+    /*
+     * This constructor lets us set the global random seed for the
+     * random number generator.  It would be better to have a seed
+     * just for this test.  But that is not easily done.
+     */
+    TestHashJoinPlans(uint32_t randomSeed = (unsigned int)time(NULL)) {
+        initialize(m_PartitionByExecutorDB, randomSeed);
+    }
+
+    ~TestHashJoinPlans() { }
+protected:
+    static DBConfig         m_PartitionByExecutorDB;
+};
+
+TEST_F(TestHashJoinPlans, test_inner_join) {
+    static int testIndex = 0;
+    executeTest(allTests[testIndex]);
+}
+TEST_F(TestHashJoinPlans, test_left_join_pre_join_predicate) {
+    static int testIndex = 1;
+    executeTest(allTests[testIndex]);
+}
+TEST_F(TestHashJoinPlans, test_full_join) {
+    static int testIndex = 2;
+    executeTest(allTests[testIndex]);
+}
+TEST_F(TestHashJoinPlans, test_not_distinct_join) {
+    static int testIndex = 3;
+    executeTest(allTests[testIndex]);
+}
+TEST_F(TestHashJoinPlans, test_inline_limit) {
+    static int testIndex = 4;
+    executeTest(allTests[testIndex]);
+}
+TEST_F(TestHashJoinPlans, test_inline_aggregate) {
+    static int testIndex = 5;
+    executeTest(allTests[testIndex]);
+}
+
+
+namespace {
+const char *AAA_ColumnNames[] = {
+    "A"
+    "B",
+    "C",
+};
+const char *BBB_ColumnNames[] = {
+    "A"
+    "B",
+    "C",
+};
+
+
+const int NUM_TABLE_ROWS_AAA = 6;
+const int NUM_TABLE_COLS_AAA = 3;
+const int AAAData[NUM_TABLE_ROWS_AAA * NUM_TABLE_COLS_AAA] = {
+      1, 10,101,
+      1, 20,102,
+      2, 10,201,
+      2,-2147483648,202,
+    -2147483648, 10,301,
+      3, 30,302,
+};
+
+const int NUM_TABLE_ROWS_BBB = 5;
+const int NUM_TABLE_COLS_BBB = 3;
+const int BBBData[NUM_TABLE_ROWS_BBB * NUM_TABLE_COLS_BBB] = {
+      1, 10,111,
+      1, 10,112,
+      2,-2147483648,211,
+    -2147483648, 10,311,
+      4, 40,411,
+};
+
+
+
+const TableConfig AAAConfig = {
+    "AAA",
+    AAA_ColumnNames,
+    NUM_TABLE_ROWS_AAA,
+    NUM_TABLE_COLS_AAA,
+    AAAData
+};
+const TableConfig BBBConfig = {
+    "BBB",
+    BBB_ColumnNames,
+    NUM_TABLE_ROWS_BBB,
+    NUM_TABLE_COLS_BBB,
+    BBBData
+};
+
+
+const TableConfig *allTables[] = {
+    &AAAConfig,
+    &BBBConfig,
+
+};
+
+const int NUM_OUTPUT_ROWS_TEST_INNER_JOIN = 2;
+const int NUM_OUTPUT_COLS_TEST_INNER_JOIN = 3;
+const int outputTable_test_inner_join[NUM_OUTPUT_ROWS_TEST_INNER_JOIN * NUM_OUTPUT_COLS_TEST_INNER_JOIN] = {
+      1, 10,111,
+      1, 10,112,
+};
+
+const int NUM_OUTPUT_ROWS_TEST_LEFT_JOIN_PRE_JOIN_PREDICATE = 7;
+const int NUM_OUTPUT_COLS_TEST_LEFT_JOIN_PRE_JOIN_PREDICATE = 2;
+const int outputTable_test_left_join_pre_join_predicate[NUM_OUTPUT_ROWS_TEST_LEFT_JOIN_PRE_JOIN_PREDICATE * NUM_OUTPUT_COLS_TEST_LEFT_JOIN_PRE_JOIN_PREDICATE] = {
+    101,111,
+    101,112,
+    102,-2147483648,
+    201,211,
+    202,-2147483648,
+    301,-2147483648,
+    302,-2147483648,
+};
+
+const int NUM_OUTPUT_ROWS_TEST_FULL_JOIN = 10;
+const int NUM_OUTPUT_COLS_TEST_FULL_JOIN = 2;
+const int outputTable_test_full_join[NUM_OUTPUT_ROWS_TEST_FULL_JOIN * NUM_OUTPUT_COLS_TEST_FULL_JOIN] = {
+    -2147483648,211,
+    -2147483648,311,
+    -2147483648,411,
+    101,111,
+    101,112,
+    102,-2147483648,
+    201,-2147483648,
+    202,-2147483648,
+    301,-2147483648,
+    302,-2147483648,
+};
+
+const int NUM_OUTPUT_ROWS_TEST_NOT_DISTINCT_JOIN = 4;
+const int NUM_OUTPUT_COLS_TEST_NOT_DISTINCT_JOIN = 2;
+const int outputTable_test_not_distinct_join[NUM_OUTPUT_ROWS_TEST_NOT_DISTINCT_JOIN * NUM_OUTPUT_COLS_TEST_NOT_DISTINCT_JOIN] = {
+    101,111,
+    101,112,
+    202,211,
+    301,311,
+};
+
+const int NUM_OUTPUT_ROWS_TEST_INLINE_LIMIT = 2;
+const int NUM_OUTPUT_COLS_TEST_INLINE_LIMIT = 1;
+const int outputTable_test_inline_limit[NUM_OUTPUT_ROWS_TEST_INLINE_LIMIT * NUM_OUTPUT_COLS_TEST_INLINE_LIMIT] = {
+      1,
+      1,
+};
+
+const int NUM_OUTPUT_ROWS_TEST_INLINE_AGGREGATE = 2;
+const int NUM_OUTPUT_COLS_TEST_INLINE_AGGREGATE = 3;
+const int outputTable_test_inline_aggregate[NUM_OUTPUT_ROWS_TEST_INLINE_AGGREGATE * NUM_OUTPUT_COLS_TEST_INLINE_AGGREGATE] = {
+      1,  4,446,
+      2,  2,422,
+};
+
+
+
+TestConfig allTests[6] = {
+    {
+        // SQL Statement
+        "select AAA.A, AAA.B, BBB.C from AAA join BBB on AAA.A = BBB.A and AAA.B = BBB.B order by AAA.A, AAA.B, BBB.C;",
+        // Plan String
+        "{\n"
+        "    \"EXECUTE_LIST\": [\n"
+        "        5,\n"
+        "        7,\n"
+        "        4,\n"
+        "        3,\n"
+        "        2,\n"
+        "        1\n"
+        "    ],\n"
+        "    \"PLAN_NODES\": [\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [2],\n"
+        "            \"ID\": 1,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [3],\n"
+        "            \"ID\": 2,\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 4,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [4],\n"
+        "            \"ID\": 3,\n"
+        "            \"PLAN_NODE_TYPE\": \"ORDERBY\",\n"
+        "            \"SORT_COLUMNS\": [\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 4,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ]\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [\n"
+        "                5,\n"
+        "                7\n"
+        "            ],\n"
+        "            \"ID\": 4,\n"
+        "            \"INNER_HASH_EXPRESSIONS\": [\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 1,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }\n"
+        "            ],\n"
+        "            \"JOIN_PREDICATE\": {\n"
+        "                \"LEFT\": {\n"
+        "                    \"LEFT\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TABLE_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"RIGHT\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"TYPE\": 10,\n"
+        "                    \"VALUE_TYPE\": 23\n"
+        "                },\n"
+        "                \"RIGHT\": {\n"
+        "                    \"LEFT\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TABLE_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"RIGHT\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"TYPE\": 10,\n"
+        "                    \"VALUE_TYPE\": 23\n"
+        "                },\n"
+        "                \"TYPE\": 20,\n"
+        "                \"VALUE_TYPE\": 23\n"
+        "            },\n"
+        "            \"JOIN_TYPE\": \"INNER\",\n"
+        "            \"MAY_BUILD_ON_OUTER\": true,\n"
+        "            \"OUTER_HASH_EXPRESSIONS\": [\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }\n"
+        "            ],\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"HASHJOIN\",\n"
+        "            \"PRE_JOIN_PREDICATE\": null,\n"
+        "            \"WHERE_PREDICATE\": null\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 5,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 6,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"B\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"AAA\",\n"
+        "            \"TARGET_TABLE_NAME\": \"AAA\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 7,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 8,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"B\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"BBB\",\n"
+        "            \"TARGET_TABLE_NAME\": \"BBB\"\n"
+        "        }\n"
+        "    ]\n"
+        "}",
+        NUM_OUTPUT_ROWS_TEST_INNER_JOIN,
+        NUM_OUTPUT_COLS_TEST_INNER_JOIN,
+        outputTable_test_inner_join
+    },
+    {
+        // SQL Statement
+        "select AAA.C, BBB.C from AAA left join BBB on AAA.A = BBB.A and AAA.B = 10 order by AAA.C, BBB.C;",
+        // Plan String
+        "{\n"
+        "    \"EXECUTE_LIST\": [\n"
+        "        5,\n"
+        "        7,\n"
+        "        4,\n"
+        "        3,\n"
+        "        2,\n"
+        "        1\n"
+        "    ],\n"
+        "    \"PLAN_NODES\": [\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [2],\n"
+        "            \"ID\": 1,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [3],\n"
+        "            \"ID\": 2,\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 4,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [4],\n"
+        "            \"ID\": 3,\n"
+        "            \"PLAN_NODE_TYPE\": \"ORDERBY\",\n"
+        "            \"SORT_COLUMNS\": [\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 4,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ]\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [\n"
+        "                5,\n"
+        "                7\n"
+        "            ],\n"
+        "            \"ID\": 4,\n"
+        "            \"INNER_HASH_EXPRESSIONS\": [{\n"
+        "                \"COLUMN_IDX\": 0,\n"
+        "                \"TABLE_IDX\": 1,\n"
+        "                \"TYPE\": 32,\n"
+        "                \"VALUE_TYPE\": 5\n"
+        "            }],\n"
+        "            \"JOIN_PREDICATE\": {\n"
+        "                \"LEFT\": {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"RIGHT\": {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"TYPE\": 10,\n"
+        "                \"VALUE_TYPE\": 23\n"
+        "            },\n"
+        "            \"JOIN_TYPE\": \"LEFT\",\n"
+        "            \"MAY_BUILD_ON_OUTER\": false,\n"
+        "            \"OUTER_HASH_EXPRESSIONS\": [{\n"
+        "                \"COLUMN_IDX\": 0,\n"
+        "                \"TYPE\": 32,\n"
+        "                \"VALUE_TYPE\": 5\n"
+        "            }],\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"HASHJOIN\",\n"
+        "            \"PRE_JOIN_PREDICATE\": {\n"
+        "                \"LEFT\": {\n"
+        "                    \"COLUMN_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"RIGHT\": {\n"
+        "                    \"ISNULL\": false,\n"
+        "                    \"TYPE\": 30,\n"
+        "                    \"VALUE\": 10,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"TYPE\": 10,\n"
+        "                \"VALUE_TYPE\": 23\n"
+        "            },\n"
+        "            \"WHERE_PREDICATE\": null\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 5,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 6,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"B\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"AAA\",\n"
+        "            \"TARGET_TABLE_NAME\": \"AAA\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 7,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 8,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"BBB\",\n"
+        "            \"TARGET_TABLE_NAME\": \"BBB\"\n"
+        "        }\n"
+        "    ]\n"
+        "}",
+        NUM_OUTPUT_ROWS_TEST_LEFT_JOIN_PRE_JOIN_PREDICATE,
+        NUM_OUTPUT_COLS_TEST_LEFT_JOIN_PRE_JOIN_PREDICATE,
+        outputTable_test_left_join_pre_join_predicate
+    },
+    {
+        // SQL Statement
+        "select AAA.C, BBB.C from AAA full join BBB on AAA.A = BBB.A and AAA.B = BBB.B order by AAA.C, BBB.C;",
+        // Plan String
+        "{\n"
+        "    \"EXECUTE_LIST\": [\n"
+        "        5,\n"
+        "        7,\n"
+        "        4,\n"
+        "        3,\n"
+        "        2,\n"
+        "        1\n"
+        "    ],\n"
+        "    \"PLAN_NODES\": [\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [2],\n"
+        "            \"ID\": 1,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [3],\n"
+        "            \"ID\": 2,\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 5,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [4],\n"
+        "            \"ID\": 3,\n"
+        "            \"PLAN_NODE_TYPE\": \"ORDERBY\",\n"
+        "            \"SORT_COLUMNS\": [\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 5,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ]\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [\n"
+        "                5,\n"
+        "                7\n"
+        "            ],\n"
+        "            \"ID\": 4,\n"
+        "            \"INNER_HASH_EXPRESSIONS\": [\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 1,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }\n"
+        "            ],\n"
+        "            \"JOIN_PREDICATE\": {\n"
+        "                \"LEFT\": {\n"
+        "                    \"LEFT\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TABLE_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"RIGHT\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"TYPE\": 10,\n"
+        "                    \"VALUE_TYPE\": 23\n"
+        "                },\n"
+        "                \"RIGHT\": {\n"
+        "                    \"LEFT\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TABLE_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"RIGHT\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"TYPE\": 10,\n"
+        "                    \"VALUE_TYPE\": 23\n"
+        "                },\n"
+        "                \"TYPE\": 20,\n"
+        "                \"VALUE_TYPE\": 23\n"
+        "            },\n"
+        "            \"JOIN_TYPE\": \"FULL\",\n"
+        "            \"MAY_BUILD_ON_OUTER\": false,\n"
+        "            \"OUTER_HASH_EXPRESSIONS\": [\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }\n"
+        "            ],\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"HASHJOIN\",\n"
+        "            \"PRE_JOIN_PREDICATE\": null,\n"
+        "            \"WHERE_PREDICATE\": null\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 5,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 6,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"B\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"AAA\",\n"
+        "            \"TARGET_TABLE_NAME\": \"AAA\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 7,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 8,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"B\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"BBB\",\n"
+        "            \"TARGET_TABLE_NAME\": \"BBB\"\n"
+        "        }\n"
+        "    ]\n"
+        "}",
+        NUM_OUTPUT_ROWS_TEST_FULL_JOIN,
+        NUM_OUTPUT_COLS_TEST_FULL_JOIN,
+        outputTable_test_full_join
+    },
+    {
+        // SQL Statement
+        "select AAA.C, BBB.C from AAA join BBB on AAA.A is not distinct from BBB.A and AAA.B is not distinct from BBB.B order by AAA.C, BBB.C;",
+        // Plan String
+        "{\n"
+        "    \"EXECUTE_LIST\": [\n"
+        "        5,\n"
+        "        7,\n"
+        "        4,\n"
+        "        3,\n"
+        "        2,\n"
+        "        1\n"
+        "    ],\n"
+        "    \"PLAN_NODES\": [\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [2],\n"
+        "            \"ID\": 1,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [3],\n"
+        "            \"ID\": 2,\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 5,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [4],\n"
+        "            \"ID\": 3,\n"
+        "            \"PLAN_NODE_TYPE\": \"ORDERBY\",\n"
+        "            \"SORT_COLUMNS\": [\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"SORT_DIRECTION\": \"ASC\",\n"
+        "                    \"SORT_EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 5,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ]\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [\n"
+        "                5,\n"
+        "                7\n"
+        "            ],\n"
+        "            \"ID\": 4,\n"
+        "            \"INNER_HASH_EXPRESSIONS\": [\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 1,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }\n"
+        "            ],\n"
+        "            \"JOIN_PREDICATE\": {\n"
+        "                \"LEFT\": {\n"
+        "                    \"LEFT\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"RIGHT\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TABLE_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"TYPE\": 19,\n"
+        "                    \"VALUE_TYPE\": 23\n"
+        "                },\n"
+        "                \"RIGHT\": {\n"
+        "                    \"LEFT\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"RIGHT\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TABLE_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    },\n"
+        "                    \"TYPE\": 19,\n"
+        "                    \"VALUE_TYPE\": 23\n"
+        "                },\n"
+        "                \"TYPE\": 20,\n"
+        "                \"VALUE_TYPE\": 23\n"
+        "            },\n"
+        "            \"JOIN_TYPE\": \"INNER\",\n"
+        "            \"MAY_BUILD_ON_OUTER\": true,\n"
+        "            \"NOT_DISTINCT_KEYS\": [\n"
+        "                0,\n"
+        "                1\n"
+        "            ],\n"
+        "            \"OUTER_HASH_EXPRESSIONS\": [\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }\n"
+        "            ],\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"HASHJOIN\",\n"
+        "            \"PRE_JOIN_PREDICATE\": null,\n"
+        "            \"WHERE_PREDICATE\": null\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 5,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 6,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"B\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"AAA\",\n"
+        "            \"TARGET_TABLE_NAME\": \"AAA\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 7,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 8,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"B\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"BBB\",\n"
+        "            \"TARGET_TABLE_NAME\": \"BBB\"\n"
+        "        }\n"
+        "    ]\n"
+        "}",
+        NUM_OUTPUT_ROWS_TEST_NOT_DISTINCT_JOIN,
+        NUM_OUTPUT_COLS_TEST_NOT_DISTINCT_JOIN,
+        outputTable_test_not_distinct_join
+    },
+    {
+        // SQL Statement
+        "select AAA.A from AAA join BBB on AAA.A = BBB.A where AAA.B = 10 limit 2;",
+        // Plan String
+        "{\n"
+        "    \"EXECUTE_LIST\": [\n"
+        "        5,\n"
+        "        7,\n"
+        "        3,\n"
+        "        2,\n"
+        "        1\n"
+        "    ],\n"
+        "    \"PLAN_NODES\": [\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [2],\n"
+        "            \"ID\": 1,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [3],\n"
+        "            \"ID\": 2,\n"
+        "            \"OUTPUT_SCHEMA\": [{\n"
+        "                \"COLUMN_NAME\": \"A\",\n"
+        "                \"EXPRESSION\": {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [\n"
+        "                5,\n"
+        "                7\n"
+        "            ],\n"
+        "            \"ID\": 3,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 4,\n"
+        "                \"LIMIT\": 2,\n"
+        "                \"LIMIT_EXPRESSION\": null,\n"
+        "                \"LIMIT_PARAM_IDX\": -1,\n"
+        "                \"OFFSET\": 0,\n"
+        "                \"OFFSET_PARAM_IDX\": -1,\n"
+        "                \"PLAN_NODE_TYPE\": \"LIMIT\"\n"
+        "            }],\n"
+        "            \"INNER_HASH_EXPRESSIONS\": [{\n"
+        "                \"COLUMN_IDX\": 0,\n"
+        "                \"TABLE_IDX\": 1,\n"
+        "                \"TYPE\": 32,\n"
+        "                \"VALUE_TYPE\": 5\n"
+        "            }],\n"
+        "            \"JOIN_PREDICATE\": {\n"
+        "                \"LEFT\": {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"RIGHT\": {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"TYPE\": 10,\n"
+        "                \"VALUE_TYPE\": 23\n"
+        "            },\n"
+        "            \"JOIN_TYPE\": \"INNER\",\n"
+        "            \"MAY_BUILD_ON_OUTER\": true,\n"
+        "            \"OUTER_HASH_EXPRESSIONS\": [{\n"
+        "                \"COLUMN_IDX\": 0,\n"
+        "                \"TYPE\": 32,\n"
+        "                \"VALUE_TYPE\": 5\n"
+        "            }],\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"HASHJOIN\",\n"
+        "            \"PRE_JOIN_PREDICATE\": null,\n"
+        "            \"WHERE_PREDICATE\": null\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 5,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 6,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"B\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"PREDICATE\": {\n"
+        "                \"LEFT\": {\n"
+        "                    \"COLUMN_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"RIGHT\": {\n"
+        "                    \"ISNULL\": false,\n"
+        "                    \"TYPE\": 30,\n"
+        "                    \"VALUE\": 10,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"TYPE\": 10,\n"
+        "                \"VALUE_TYPE\": 23\n"
+        "            },\n"
+        "            \"TARGET_TABLE_ALIAS\": \"AAA\",\n"
+        "            \"TARGET_TABLE_NAME\": \"AAA\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 7,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 8,\n"
+        "                \"OUTPUT_SCHEMA\": [{\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"BBB\",\n"
+        "            \"TARGET_TABLE_NAME\": \"BBB\"\n"
+        "        }\n"
+        "    ]\n"
+        "}",
+        NUM_OUTPUT_ROWS_TEST_INLINE_LIMIT,
+        NUM_OUTPUT_COLS_TEST_INLINE_LIMIT,
+        outputTable_test_inline_limit
+    },
+    {
+        // SQL Statement
+        "select AAA.A, count(*), sum(BBB.C) from AAA join BBB on AAA.A = BBB.A group by AAA.A order by AAA.A;",
+        // Plan String
+        "{\n"
+        "    \"EXECUTE_LIST\": [\n"
+        "        6,\n"
+        "        8,\n"
+        "        4,\n"
+        "        3,\n"
+        "        2,\n"
+        "        1\n"
+        "    ],\n"
+        "    \"PLAN_NODES\": [\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [2],\n"
+        "            \"ID\": 1,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [3],\n"
+        "            \"ID\": 2,\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C2\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 6\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C3\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 6\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [4],\n"
+        "            \"ID\": 3,\n"
+        "            \"PLAN_NODE_TYPE\": \"ORDERBY\",\n"
+        "            \"SORT_COLUMNS\": [{\n"
+        "                \"SORT_DIRECTION\": \"ASC\",\n"
+        "                \"SORT_EXPRESSION\": {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }\n"
+        "            }]\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [\n"
+        "                6,\n"
+        "                8\n"
+        "            ],\n"
+        "            \"ID\": 4,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"AGGREGATE_COLUMNS\": [\n"
+        "                    {\n"
+        "                        \"AGGREGATE_DISTINCT\": 0,\n"
+        "                        \"AGGREGATE_OUTPUT_COLUMN\": 1,\n"
+        "                        \"AGGREGATE_TYPE\": \"AGGREGATE_COUNT_STAR\"\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"AGGREGATE_DISTINCT\": 0,\n"
+        "                        \"AGGREGATE_EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        },\n"
+        "                        \"AGGREGATE_OUTPUT_COLUMN\": 2,\n"
+        "                        \"AGGREGATE_TYPE\": \"AGGREGATE_SUM\"\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"GROUPBY_EXPRESSIONS\": [{\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                }],\n"
+        "                \"ID\": 5,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C2\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 1,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 6\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C3\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 6\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"HASHAGGREGATE\"\n"
+        "            }],\n"
+        "            \"INNER_HASH_EXPRESSIONS\": [{\n"
+        "                \"COLUMN_IDX\": 0,\n"
+        "                \"TABLE_IDX\": 1,\n"
+        "                \"TYPE\": 32,\n"
+        "                \"VALUE_TYPE\": 5\n"
+        "            }],\n"
+        "            \"JOIN_PREDICATE\": {\n"
+        "                \"LEFT\": {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TABLE_IDX\": 1,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"RIGHT\": {\n"
+        "                    \"COLUMN_IDX\": 0,\n"
+        "                    \"TYPE\": 32,\n"
+        "                    \"VALUE_TYPE\": 5\n"
+        "                },\n"
+        "                \"TYPE\": 10,\n"
+        "                \"VALUE_TYPE\": 23\n"
+        "            },\n"
+        "            \"JOIN_TYPE\": \"INNER\",\n"
+        "            \"MAY_BUILD_ON_OUTER\": true,\n"
+        "            \"OUTER_HASH_EXPRESSIONS\": [{\n"
+        "                \"COLUMN_IDX\": 0,\n"
+        "                \"TYPE\": 32,\n"
+        "                \"VALUE_TYPE\": 5\n"
+        "            }],\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C2\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 6\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C3\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 2,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 6\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"OUTPUT_SCHEMA_PRE_AGG\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"C\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"HASHJOIN\",\n"
+        "            \"PRE_JOIN_PREDICATE\": null,\n"
+        "            \"WHERE_PREDICATE\": null\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 6,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 7,\n"
+        "                \"OUTPUT_SCHEMA\": [{\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"AAA\",\n"
+        "            \"TARGET_TABLE_NAME\": \"AAA\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 8,\n"
+        "            \"INLINE_NODES\": [{\n"
+        "                \"ID\": 9,\n"
+        "                \"OUTPUT_SCHEMA\": [\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"A\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 0,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    },\n"
+        "                    {\n"
+        "                        \"COLUMN_NAME\": \"C\",\n"
+        "                        \"EXPRESSION\": {\n"
+        "                            \"COLUMN_IDX\": 2,\n"
+        "                            \"TYPE\": 32,\n"
+        "                            \"VALUE_TYPE\": 5\n"
+        "                        }\n"
+        "                    }\n"
+        "                ],\n"
+        "                \"PLAN_NODE_TYPE\": \"PROJECTION\"\n"
+        "            }],\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"BBB\",\n"
+        "            \"TARGET_TABLE_NAME\": \"BBB\"\n"
+        "        }\n"
+        "    ]\n"
+        "}",
+        NUM_OUTPUT_ROWS_TEST_INLINE_AGGREGATE,
+        NUM_OUTPUT_COLS_TEST_INLINE_AGGREGATE,
+        outputTable_test_inline_aggregate
+    },
+};
+
+}
+
+DBConfig TestHashJoinPlans::m_PartitionByExecutorDB =
+
+{
+    //
+    // DDL.
+    //
+    "drop table AAA if exists;\n"
+    "drop table BBB if exists;\n"
+    "\n"
+    "create table AAA (\n"
+    "  A integer,\n"
+    "  B integer,\n"
+    "  C integer\n"
+    " );\n"
+    " \n"
+    " create table BBB (\n"
+    "  A integer,\n"
+    "  B integer,\n"
+    "  C integer\n"
+    " );\n"
+    " ",
+    //
+    // Catalog String
+    //
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 0\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno 0\n"
+    "set $PREV jsonapi false\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV adminport 0\n"
+    "set $PREV adminstartup false\n"
+    "set $PREV heartbeatTimeout 0\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled false\n"
+    "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 0\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"eJy1TkEOgDAIu/saVljZrhr9/5MEs5ubN9NAAqUtNAcvF4gbC8GDFWIlAWEno1dv7K5urrpvnEuQWEk0JJUlBHWehBYlOT8WZ17SwwY4BoMloy8m9/07ePz7U/ANeEhGWQ==\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"\"\n"
+    "add /clusters#cluster/databases#database groups administrator\n"
+    "set /clusters#cluster/databases#database/groups#administrator admin true\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database groups user\n"
+    "set /clusters#cluster/databases#database/groups#user admin false\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database tables AAA\n"
+    "set /clusters#cluster/databases#database/tables#AAA isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"AAA|iii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns A\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns B\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns C\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#C index 2\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"C\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database tables BBB\n"
+    "set /clusters#cluster/databases#database/tables#BBB isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"BBB|iii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns A\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns B\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns C\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#C index 2\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"C\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database procedures testhashjoinplans\n"
+    "set /clusters#cluster/databases#database/procedures#testhashjoinplans classname \"\"\n"
+    "set $PREV readonly false\n"
+    "set $PREV singlepartition false\n"
+    "set $PREV everysite false\n"
+    "set $PREV systemproc false\n"
+    "set $PREV defaultproc false\n"
+    "set $PREV hasjava false\n"
+    "set $PREV hasseqscans false\n"
+    "set $PREV language \"\"\n"
+    "set $PREV partitiontable null\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV partitionparameter 0\n"
+    "set $PREV allowedInShutdown false\n"
+    "",
+    2,
+    allTables
+};
+
+
+int main() {
+     return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,173 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "storage/SpillFile.h"
+
+#include "harness.h"
+#include "common/Pool.hpp"
+#include "common/ThreadLocalPool.h"
+#include "common/TupleSchemaBuilder.h"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "logging/LogManager.h"
+#include "logging/StdoutLogProxy.h"
+#include "storage/TempTableLimits.h"
+#include "test_utils/ScopedTupleSchema.hpp"
+
+#include <cstdio>
+#include <cstdlib>
+#include <string>
+#include <unistd.h>
+
+using namespace voltdb;
+
+class SpillFileTest : public Test
+{
+public:
+    // The first spill of each TempTableLimits is logged through the thread's LogManager.
+    SpillFileTest() : m_logManager(new StdoutLogProxy())
+    {
+        char dirTemplate[] = "/tmp/spillfiletest-XXXXXX";
+        m_directory = mkdtemp(dirTemplate);
+    }
+
+    ~SpillFileTest()
+    {
+        rmdir(m_directory.c_str());
+    }
+
+    LogManager m_logManager;
+    ThreadLocalPool m_pool;
+    std::string m_directory;
+};
+
+static std::string stringForRow(int row)
+{
+    return std::string(row % 300, static_cast<char>('a' + row % 26));
+}
+
+TEST_F(SpillFileTest, RoundTrip)
+{
+    TupleSchemaBuilder builder(2);
+    builder.setColumnAtIndex(0, VALUE_TYPE_BIGINT);
+    builder.setColumnAtIndex(1, VALUE_TYPE_VARCHAR, 512);
+    ScopedTupleSchema schema(builder.build());
+    TempTableLimits limits(1024 * 1024, -1, 0, m_directory);
+    EXPECT_TRUE(limits.shouldSpill());
+
+    const int rowCount = 5000;
+    SpillFile file(&limits);
+    {
+        StandAloneTupleStorage storage(schema.get());
+        TableTuple tuple = storage.tuple();
+        for (int row = 0; row < rowCount; ++row) {
+            NValue text = ValueFactory::getStringValue(stringForRow(row));
+            tuple.setNValue(0, ValueFactory::getBigIntValue(row));
+            tuple.setNValue(1, text);
+            file.append(tuple);
+            text.free();
+        }
+    }
+    EXPECT_EQ(rowCount, file.tupleCount());
+
+    // Read it back twice, to check that a rewind after reading starts over.
+    for (int pass = 0; pass < 2; ++pass) {
+        file.rewind();
+        Pool pool;
+        StandAloneTupleStorage storage(schema.get());
+        TableTuple tuple = storage.tuple();
+        int row = 0;
+        while (file.next(tuple, &pool)) {
+            EXPECT_EQ(0, tuple.getNValue(0).compare(ValueFactory::getBigIntValue(row)));
+            NValue text = ValueFactory::getStringValue(stringForRow(row));
+            EXPECT_EQ(0, tuple.getNValue(1).compare(text));
+            text.free();
+            ++row;
+        }
+        EXPECT_EQ(rowCount, row);
+    }
+    EXPECT_TRUE(limits.getSpilledBytes() > rowCount * 8);
+    limits.resetSpilledBytes();
+    EXPECT_EQ(0, limits.getSpilledBytes());
+}
+
+TEST_F(SpillFileTest, StorageRoundTrip)
+{
+    TupleSchemaBuilder builder(2);
+    builder.setColumnAtIndex(0, VALUE_TYPE_BIGINT);
+    builder.setColumnAtIndex(1, VALUE_TYPE_VARCHAR, 512);
+    ScopedTupleSchema schema(builder.build());
+    TempTableLimits limits(1024 * 1024, -1, 0, m_directory);
+
+    // Only the pointers to the strings are spilled, so they must stay in the pool.
+    Pool strings;
+    const int rowCount = 5000;
+    SpillFile file(&limits);
+    {
+        StandAloneTupleStorage storage(schema.get());
+        TableTuple tuple = storage.tuple();
+        for (int row = 0; row < rowCount; ++row) {
+            NValue text = ValueFactory::getStringValue(stringForRow(row));
+            tuple.setNValue(0, ValueFactory::getBigIntValue(row));
+            tuple.setNValueAllocateForObjectCopies(1, text, &strings);
+            file.appendStorage(tuple);
+            text.free();
+        }
+    }
+    EXPECT_EQ(rowCount, file.tupleCount());
+
+    file.rewind();
+    StandAloneTupleStorage storage(schema.get());
+    TableTuple tuple = storage.tuple();
+    int row = 0;
+    while (file.nextStorage(tuple)) {
+        EXPECT_EQ(0, tuple.getNValue(0).compare(ValueFactory::getBigIntValue(row)));
+        NValue text = ValueFactory::getStringValue(stringForRow(row));
+        EXPECT_EQ(0, tuple.getNValue(1).compare(text));
+        text.free();
+        ++row;
+    }
+    EXPECT_EQ(rowCount, row);
+    EXPECT_EQ(rowCount * tuple.tupleLength(), limits.getSpilledBytes());
+}
+
+TEST_F(SpillFileTest, Empty)
+{
+    TupleSchemaBuilder builder(1);
+    builder.setColumnAtIndex(0, VALUE_TYPE_INTEGER);
+    ScopedTupleSchema schema(builder.build());
+    TempTableLimits limits(1024 * 1024, -1, 0, m_directory);
+
+    SpillFile file(&limits);
+    file.rewind();
+    Pool pool;
+    StandAloneTupleStorage storage(schema.get());
+    TableTuple tuple = storage.tuple();
+    EXPECT_FALSE(file.next(tuple, &pool));
+    EXPECT_EQ(0, limits.getSpilledBytes());
+}
+
+int main()
+{
+    return TestSuite::globalInstance()->runAll();
+}
@@ -125,6 +125,44 @@ TEST_F(TempTableLimitsTest, CheckLimitException)
     EXPECT_TRUE(threw);
 }
 
+TEST_F(TempTableLimitsTest, CheckSpillThreshold)
+{
+    TestProxy* proxy = dynamic_cast<TestProxy*>(const_cast<LogProxy*>(m_logManager.getLogProxy()));
+    proxy->reset();
+
+    // No spilling without a spill directory
+    TempTableLimits noDirectory(1024 * 10, -1, 1024 * 5);
+    noDirectory.increaseAllocated(1024 * 6);
+    EXPECT_FALSE(noDirectory.shouldSpill());
+
+    TempTableLimits dut(1024 * 10, -1, 1024 * 5, "/tmp"); // 10K hard limit, spill at 5K
+    dut.increaseAllocated(1024 * 4);
+    EXPECT_FALSE(dut.shouldSpill());
+    // memory held outside of temp tables counts toward the threshold
+    EXPECT_TRUE(dut.shouldSpill(1024));
+    dut.increaseAllocated(1024);
+    EXPECT_TRUE(dut.shouldSpill());
+
+    // spilling to stay under the limit only when the bytes wouldn't fit
+    EXPECT_FALSE(noDirectory.shouldSpillToFit(1024 * 5));
+    EXPECT_FALSE(dut.shouldSpillToFit(1024 * 5));
+    EXPECT_TRUE(dut.shouldSpillToFit(1024 * 5 + 1));
+
+    // the first spill of an execution gets logged, later ones do not
+    dut.increaseSpilled(1024);
+    EXPECT_EQ(proxy->lastLoggerId, LOGGERID_SQL);
+    EXPECT_EQ(proxy->lastLogLevel, LOGLEVEL_INFO);
+    proxy->reset();
+    dut.increaseSpilled(1024);
+    EXPECT_EQ(proxy->lastLoggerId, LOGGERID_INVALID);
+    EXPECT_EQ(1024 * 2, dut.getSpilledBytes());
+    dut.resetSpilledBytes();
+    EXPECT_EQ(0, dut.getSpilledBytes());
+    dut.increaseSpilled(1024);
+    EXPECT_EQ(proxy->lastLoggerId, LOGGERID_SQL);
+    proxy->reset();
+}
+
 int main()
 {
     return TestSuite::globalInstance()->runAll();
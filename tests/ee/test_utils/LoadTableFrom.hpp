@@ -55,8 +55,8 @@ namespace voltdb {
  * schema from the input itself.  This is used only for testing.
  *
  * Note that the sizes of the columns must be predictable from the
- * column types.  No columns may have variable sized types.  This
- * includes array types.
+ * column types, except for variable sized types, which are given
+ * the largest size.  No columns may have array types.
  *
  * The caller owns the table object, and is responsible for
  * deleting it.
@@ -101,7 +101,14 @@ TempTable *loadTableFrom(const char *buffer,
                    column_count);
         }
         assert(colType != VALUE_TYPE_ARRAY);
-        builder.setColumnAtIndex(idx, colType);
+        if (isVariableLengthType(colType)) {
+            // The serialized values carry their own lengths
+            builder.setColumnAtIndex(idx, colType,
+                                     TupleSchema::COLUMN_MAX_VALUE_LENGTH, true, true);
+        }
+        else {
+            builder.setColumnAtIndex(idx, colType);
+        }
     }
     TupleSchema *schema = builder.build();
     for (int idx = 0; idx < column_count; idx += 1) {
@@ -118,7 +125,7 @@ TempTable *loadTableFrom(const char *buffer,
                                        schema, // Transfers ownership to the table.
                                        columnNames,
                                        NULL);
-    table->loadTuplesFromNoHeader(result);
+    table->loadTuplesFromNoHeader(result, pool);
     return table;
 }
 }
@@ -112,7 +112,8 @@ public:
     void initialize(const char         *catalogString,
                     int                 numTables,
                     const TableConfig **tables,
-                    uint32_t            randomSeed) {
+                    uint32_t            randomSeed,
+                    int64_t             tempTableMemoryLimit = voltdb::DEFAULT_TEMP_TABLE_MEMORY) {
         srand(randomSeed);
         m_catalog_string = catalogString;
         /*
@@ -134,7 +135,7 @@ public:
                              m_exception_buffer.get(), 4096);
         m_engine->resetReusedResultOutputBuffer();
         int partitionCount = 3;
-        ASSERT_TRUE(m_engine->initialize(this->m_cluster_id, this->m_site_id, 0, 0, "", 0, 1024, voltdb::DEFAULT_TEMP_TABLE_MEMORY, false));
+        ASSERT_TRUE(m_engine->initialize(this->m_cluster_id, this->m_site_id, 0, 0, "", 0, 1024, tempTableMemoryLimit, false));
         m_engine->updateHashinator(voltdb::HASHINATOR_LEGACY, (char*)&partitionCount, NULL, 0);
         ASSERT_TRUE(m_engine->loadCatalog( -2, m_catalog_string));
 
@@ -57,6 +57,9 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import junit.framework.TestCase;
@@ -203,9 +206,24 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public long write(ByteBuffer[] srcs, int offset, int length)
                 throws IOException {
-            // TODO Auto-generated method stub
-            return 0;
+            if (!m_open) throw new IOException();
+            gatheringWriteCount++;
+            if (m_behavior == SINK) {
+                long remaining = 0;
+                for (int ii = offset; ii < offset + length; ii++) {
+                    remaining += srcs[ii].remaining();
+                    srcs[ii].position(srcs[ii].limit());
+                }
+                return remaining;
+            }
+            else if (m_behavior == FULL) {
+                return 0;
+            }
+            assert(false);
+            return -1;
         }
+
+        public int gatheringWriteCount = 0;
     }
 
 
@@ -452,4 +470,133 @@ public class TestNIOWriteStream extends TestCase {
         assertEquals(0, queue.get());
     }
 
+    public void testGatheringWrite() throws Exception {
+        MockChannel channel = new MockChannel(MockChannel.SINK, 0);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port, null, null, null, true, 0);
+
+        //Pool buffers are 4 bytes so this spans 50 of them
+        for (int ii = 0; ii < 10; ii++) {
+            wstream.enqueue(ByteBuffer.allocate(20));
+        }
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(50, wstream.getOutstandingMessageCount());
+        assertEquals(200, wstream.drainTo(channel));
+        assertEquals(1, channel.gatheringWriteCount);
+        assertTrue(wstream.isEmpty());
+
+        //More buffers than fit in one gathering write
+        for (int ii = 0; ii < 10; ii++) {
+            wstream.enqueue(ByteBuffer.allocate(40));
+        }
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(400, wstream.drainTo(channel));
+        assertEquals(3, channel.gatheringWriteCount);
+        assertTrue(wstream.isEmpty());
+        wstream.shutdown();
+    }
+
+    public void testGatheringWriteFull() throws Exception {
+        MockChannel channel = new MockChannel(MockChannel.FULL, 0);
+        MockPort port = new MockPort();
+        final AtomicLong queue = new AtomicLong();
+        NIOWriteStream wstream = new NIOWriteStream(port, null, null, new QueueMonitor() {
+            @Override
+            public boolean queue(int bytes) {
+                queue.addAndGet(bytes);
+                return false;
+            }
+        }, true, 0);
+
+        wstream.enqueue(ByteBuffer.allocate(100));
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(0, wstream.drainTo(channel));
+        assertTrue(wstream.hadBackPressure());
+        assertFalse(wstream.isEmpty());
+
+        channel.m_behavior = MockChannel.SINK;
+        assertEquals(100, wstream.drainTo(channel));
+        assertFalse(wstream.hadBackPressure());
+        assertTrue(wstream.isEmpty());
+        assertEquals(0, queue.get());
+        wstream.shutdown();
+    }
+
+    public void testCoalesceWindow() throws Exception {
+        MockChannel channel = new MockChannel(MockChannel.SINK, 0);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port, null, null, null, true, TimeUnit.MILLISECONDS.toNanos(50));
+
+        //A write smaller than a pool buffer is held back
+        wstream.enqueue(ByteBuffer.allocate(2));
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(0, wstream.drainTo(channel));
+        assertFalse(wstream.isEmpty());
+
+        //without polling the channel, write selection is turned back on when the window passes
+        assertTrue(port.checkWriteSet());
+        assertTrue(wstream.deferHeldWrite());
+        assertFalse(port.checkWriteSet());
+
+        //and goes out with the next one once the window has passed
+        wstream.enqueue(ByteBuffer.allocate(1));
+        assertTrue(port.checkWriteSet());
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(0, wstream.drainTo(channel));
+        assertTrue(wstream.deferHeldWrite());
+        Thread.sleep(60);
+        assertTrue(port.checkWriteSet());
+        assertEquals(3, wstream.drainTo(channel));
+        assertFalse(wstream.deferHeldWrite());
+        assertEquals(1, channel.gatheringWriteCount);
+        assertTrue(wstream.isEmpty());
+
+        //A full buffer is not held back
+        wstream.enqueue(ByteBuffer.allocate(4));
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(4, wstream.drainTo(channel));
+        wstream.shutdown();
+    }
+
+    public void testConcurrentEnqueue() throws Exception {
+        final MockChannel channel = new MockChannel(MockChannel.SINK, 0);
+        MockPort port = new MockPort();
+        final NIOWriteStream wstream = new NIOWriteStream(port);
+
+        final int threadCount = 4;
+        final int writesPerThread = 10000;
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int ii = 0; ii < threadCount; ii++) {
+            producers.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int jj = 0; jj < writesPerThread; jj++) {
+                        wstream.enqueue(ByteBuffer.allocate(8));
+                    }
+                }
+            });
+        }
+        for (Thread t : producers) {
+            t.start();
+        }
+
+        //Drain while the producers are running
+        long bytesWritten = 0;
+        boolean producing = true;
+        while (producing || !wstream.isEmpty()) {
+            producing = false;
+            for (Thread t : producers) {
+                producing |= t.isAlive();
+            }
+            wstream.swapAndSerializeQueuedWrites(pool);
+            bytesWritten += wstream.drainTo(channel);
+        }
+
+        assertEquals(threadCount * writesPerThread * 8, bytesWritten);
+        assertEquals(threadCount * writesPerThread, wstream.getEnqueueCount());
+        assertEquals(0, wstream.getOutstandingMessageCount());
+        assertTrue(wstream.getMaxDrainedWrites() > 0);
+        wstream.shutdown();
+    }
+
 }
@@ -0,0 +1,141 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.sysprocs.saverestore.TableSaveFile;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+public class TestDefaultSnapshotDataTarget extends TestCase {
+
+    private static final int CHUNKS = 50;
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception {
+        // chunk checksums are computed natively
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        m_dir = Files.createTempDirectory("snapshottarget").toFile();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File f : m_dir.listFiles()) {
+            f.delete();
+        }
+        m_dir.delete();
+    }
+
+    private DefaultSnapshotDataTarget createTarget(String table) throws Exception {
+        VoltTable schema = new VoltTable(new ColumnInfo("C", VoltType.INTEGER));
+        return new DefaultSnapshotDataTarget(new File(m_dir, table + ".vpt"), 0, "cluster", "database", table,
+                1, false, Arrays.asList(0), schema, 1, System.currentTimeMillis());
+    }
+
+    private static Callable<BBContainer> chunk(int sequence) {
+        // partition id, then an empty row count followed by the sequence number
+        ByteBuffer buf = ByteBuffer.allocateDirect(12);
+        buf.putInt(0).putInt(0).putInt(sequence).flip();
+        return Callables.returning(DBBPool.wrapBB(buf));
+    }
+
+    public void testConcurrentTargetsKeepTheirOrder() throws Exception {
+        final int targetCount = DefaultSnapshotDataTarget.SNAPSHOT_WRITER_THREADS * 2;
+        final List<DefaultSnapshotDataTarget> targets = new ArrayList<DefaultSnapshotDataTarget>();
+        for (int i = 0; i < targetCount; i++) {
+            targets.add(createTarget("T" + i));
+        }
+
+        // one site thread per target, the way each site feeds its own tables
+        ExecutorService sites = Executors.newFixedThreadPool(targetCount);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final DefaultSnapshotDataTarget target : targets) {
+                futures.add(sites.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        List<ListenableFuture<?>> writes = new ArrayList<ListenableFuture<?>>();
+                        for (int i = 0; i < CHUNKS; i++) {
+                            writes.add(target.write(chunk(i), 0));
+                        }
+                        for (ListenableFuture<?> write : writes) {
+                            write.get();
+                        }
+                        target.close();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            sites.shutdown();
+        }
+
+        for (int i = 0; i < targetCount; i++) {
+            DefaultSnapshotDataTarget target = targets.get(i);
+            assertNull(target.getLastWriteException());
+            assertTrue(target.getBytesWritten() > 0);
+            assertTrue(target.getWriteTimeNanos() > 0);
+
+            FileInputStream fis = new FileInputStream(new File(m_dir, "T" + i + ".vpt"));
+            TableSaveFile saveFile = new TableSaveFile(fis, 1, null);
+            try {
+                assertTrue(saveFile.getCompleted());
+                for (int expected = 0; expected < CHUNKS; expected++) {
+                    BBContainer c = saveFile.getNextChunk();
+                    assertNotNull(c);
+                    try {
+                        assertEquals(expected, c.b().getInt(c.b().limit() - 4));
+                    } finally {
+                        c.discard();
+                    }
+                }
+                assertNull(saveFile.getNextChunk());
+            } finally {
+                saveFile.close();
+            }
+        }
+    }
+}
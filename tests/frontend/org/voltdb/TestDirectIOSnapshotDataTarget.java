@@ -0,0 +1,115 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.sysprocs.saverestore.TableSaveFile;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+public class TestDirectIOSnapshotDataTarget extends TestCase {
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception {
+        // chunk checksums and the posix hooks are native
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        m_dir = Files.createTempDirectory("directiotarget").toFile();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File f : m_dir.listFiles()) {
+            f.delete();
+        }
+        m_dir.delete();
+    }
+
+    private static Callable<BBContainer> chunk(int sequence, int fillerInts) {
+        // partition id, an empty row count, filler and the sequence number at the end
+        ByteBuffer buf = ByteBuffer.allocateDirect(12 + fillerInts * 4);
+        buf.putInt(0).putInt(0);
+        Random r = new Random(sequence);
+        for (int i = 0; i < fillerInts; i++) {
+            buf.putInt(r.nextInt());
+        }
+        buf.putInt(sequence).flip();
+        return Callables.returning(DBBPool.wrapBB(buf));
+    }
+
+    public void testReadableAsNativeSnapshot() throws Exception {
+        File file = new File(m_dir, "T.vpt");
+        VoltTable schema = new VoltTable(new ColumnInfo("C", VoltType.INTEGER));
+        DirectIOSnapshotDataTarget target = new DirectIOSnapshotDataTarget(file, 0, "cluster", "database", "T",
+                1, false, Arrays.asList(0), schema, 1, System.currentTimeMillis());
+
+        // sizes that end chunks at every offset within a block, and chunks bigger than a block
+        final int chunks = 200;
+        List<ListenableFuture<?>> writes = new ArrayList<ListenableFuture<?>>();
+        for (int i = 0; i < chunks; i++) {
+            writes.add(target.write(chunk(i, (i * 397) % 5000), 0));
+        }
+        for (ListenableFuture<?> write : writes) {
+            write.get();
+        }
+        target.close();
+
+        assertNull(target.getLastWriteException());
+        // padding and preallocated space are trimmed
+        assertEquals(target.getBytesWritten(), file.length());
+
+        TableSaveFile saveFile = new TableSaveFile(new FileInputStream(file), 1, null);
+        try {
+            assertTrue(saveFile.getCompleted());
+            for (int expected = 0; expected < chunks; expected++) {
+                BBContainer c = saveFile.getNextChunk();
+                assertNotNull(c);
+                try {
+                    assertEquals(expected, c.b().getInt(c.b().limit() - 4));
+                } finally {
+                    c.discard();
+                }
+            }
+            assertNull(saveFile.getNextChunk());
+        } finally {
+            saveFile.close();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.voltdb.CommandLog.CompletionChecks;
+import org.voltdb.CommandLog.DurabilityListener;
+import org.voltdb.iv2.SpScheduler.DurableUniqueIdListener;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+public class TestGroupCommitCommandLog extends TestCase {
+
+    /**
+     * Counts the transactions handed to it and the ones released as durable
+     */
+    static class CountingListener implements DurabilityListener {
+        int m_pending = 0;
+        final AtomicInteger m_durable = new AtomicInteger();
+
+        @Override
+        public void setUniqueIdListener(DurableUniqueIdListener listener) {}
+
+        @Override
+        public void createFirstCompletionCheck(boolean isSyncLogging, boolean commandLoggingEnabled) {}
+
+        @Override
+        public boolean completionCheckInitialized() {
+            return true;
+        }
+
+        @Override
+        public void addTransaction(TransactionTask pendingTask) {
+            m_pending++;
+        }
+
+        @Override
+        public void initializeLastDurableUniqueId(long uniqueId) {}
+
+        @Override
+        public int getNumberOfTasks() {
+            return m_pending;
+        }
+
+        @Override
+        public CompletionChecks startNewTaskList(int nextMaxRowCnt) {
+            final int count = m_pending;
+            m_pending = 0;
+            return new CompletionChecks() {
+                @Override
+                public CompletionChecks startNewCheckList(int startSize) {
+                    return null;
+                }
+
+                @Override
+                public void addTask(TransactionTask task) {}
+
+                @Override
+                public void setLastDurableUniqueId(long uniqueId) {}
+
+                @Override
+                public boolean isChanged() {
+                    return count > 0;
+                }
+
+                @Override
+                public int getTaskListSize() {
+                    return count;
+                }
+
+                @Override
+                public void processChecks() {}
+            };
+        }
+
+        @Override
+        public void processDurabilityChecks(CompletionChecks completionChecks) {
+            m_durable.addAndGet(completionChecks.getTaskListSize());
+        }
+    }
+
+    private File m_logDir;
+    private File m_snapshotDir;
+
+    @Override
+    public void setUp() throws Exception {
+        // without a cluster the log runs standalone
+        MockVoltDB voltdb = new MockVoltDB(null, null);
+        voltdb.m_hostMessenger = null;
+        VoltDB.replaceVoltDBInstanceForTest(voltdb);
+        m_logDir = Files.createTempDirectory("commandlog").toFile();
+        m_snapshotDir = new File(m_logDir, "snapshots");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File f : m_snapshotDir.listFiles()) {
+            f.delete();
+        }
+        m_snapshotDir.delete();
+        for (File f : m_logDir.listFiles()) {
+            f.delete();
+        }
+        m_logDir.delete();
+    }
+
+    private GroupCommitCommandLog createLog(boolean synchronous, int fsyncInterval, int maxTxns) {
+        GroupCommitCommandLog log = new GroupCommitCommandLog(synchronous, fsyncInterval, maxTxns,
+                m_logDir.getPath(), m_snapshotDir.getPath());
+        log.init(64, Long.MIN_VALUE, 2, null, new HashMap<Integer, Long>());
+        return log;
+    }
+
+    private static Iv2InitiateTaskMessage message(long txnId, boolean isSinglePartition, boolean isReadOnly) {
+        StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+        invocation.setProcName("Insert");
+        invocation.setParams(txnId, "value" + txnId);
+        return new Iv2InitiateTaskMessage(0, 0, 0, txnId, txnId, isReadOnly, isSinglePartition,
+                invocation, 0, 0, false);
+    }
+
+    private static void waitForDurable(CountingListener listener, int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (listener.m_durable.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, listener.m_durable.get());
+    }
+
+    public void testSynchronousGroupCommit() throws Exception {
+        GroupCommitCommandLog log = createLog(true, 10000, 10);
+        CountingListener listener = new CountingListener();
+        log.registerDurabilityListener(listener);
+
+        for (int i = 0; i < 9; i++) {
+            assertNull(log.log(message(i, true, false), i, null, listener, null));
+        }
+        // neither the interval nor the batch size is reached
+        Thread.sleep(100);
+        assertEquals(0, listener.m_durable.get());
+
+        // the tenth transaction fills the batch and releases all of them together
+        log.log(message(9, true, false), 9, null, listener, null);
+        waitForDurable(listener, 10);
+        assertFalse(log.canOfferTask());
+        log.shutdown();
+    }
+
+    public void testAsynchronousGroupCommit() throws Exception {
+        GroupCommitCommandLog log = createLog(false, 5, 1000);
+        CountingListener listener = new CountingListener();
+        log.registerDurabilityListener(listener);
+
+        for (int i = 0; i < 20; i++) {
+            ListenableFuture<Object> f = log.log(message(i, true, false), i, null, listener, null);
+            assertNotNull(f);
+        }
+        // the fsync interval releases the batch
+        waitForDurable(listener, 20);
+        assertTrue(log.logIv2Fault(0, null, 0, 0).get(10, TimeUnit.SECONDS));
+        assertTrue(log.canOfferTask());
+        log.shutdown();
+    }
+
+    public void testShutdownFlushes() throws Exception {
+        GroupCommitCommandLog log = createLog(true, 10000, 1000);
+        CountingListener listener = new CountingListener();
+        log.registerDurabilityListener(listener);
+        for (int i = 0; i < 5; i++) {
+            log.log(message(i, true, false), i, null, listener, null);
+        }
+        log.shutdown();
+        assertEquals(5, listener.m_durable.get());
+    }
+
+    public void testReadBack() throws Exception {
+        GroupCommitCommandLog log = createLog(false, 1, 1);
+        CountingListener listener = new CountingListener();
+        log.registerDurabilityListener(listener);
+        TxnEgo sp = TxnEgo.makeZero(1);
+        List<Long> spHandles = new ArrayList<Long>();
+        for (int i = 0; i < 10; i++) {
+            sp = sp.makeNext();
+            spHandles.add(sp.getTxnId());
+            log.log(message(sp.getTxnId(), true, false), sp.getTxnId(), null, listener, null);
+            // read only transactions are not logged
+            log.log(message(sp.getTxnId(), true, true), sp.getTxnId(), null, listener, null);
+        }
+        log.log(message(1000, false, false), spHandles.get(9), new int[] { 0, 1 }, listener, null);
+        waitForDurable(listener, 21);
+        log.shutdown();
+
+        List<File> segments = CommandLogSegmentReader.listSegments(m_logDir);
+        assertEquals(1, segments.size());
+        CommandLogSegmentReader reader = new CommandLogSegmentReader(segments.get(0));
+        assertEquals(Long.MIN_VALUE, reader.getTxnId());
+        assertTrue(reader.getPerPartitionTxnId().isEmpty());
+        for (int i = 0; i < 10; i++) {
+            CommandLogSegmentReader.Entry entry = reader.next();
+            assertNotNull(entry);
+            assertEquals((long) spHandles.get(i), entry.spHandle);
+            assertTrue(entry.isSinglePartition);
+            assertNull(entry.involvedPartitions);
+            assertEquals("Insert", entry.invocation.getProcName());
+            assertEquals(spHandles.get(i), entry.invocation.getParams().toArray()[0]);
+        }
+        CommandLogSegmentReader.Entry mp = reader.next();
+        assertFalse(mp.isSinglePartition);
+        assertEquals(1000, mp.txnId);
+        assertEquals(2, mp.involvedPartitions.length);
+        assertNull(reader.next());
+
+        // a torn write at the tail ends the segment at the last complete entry
+        RandomAccessFile raf = new RandomAccessFile(segments.get(0), "rw");
+        try {
+            raf.setLength(raf.length() - 3);
+        } finally {
+            raf.close();
+        }
+        reader = new CommandLogSegmentReader(segments.get(0));
+        int count = 0;
+        while (reader.next() != null) {
+            count++;
+        }
+        assertEquals(10, count);
+    }
+}
@@ -0,0 +1,98 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.dtxn.LatencyStats;
+
+public class TestOpenMetricsRenderer {
+
+    private MockVoltDB m_mvoltdb;
+
+    @Before
+    public void setUp() throws Exception {
+        m_mvoltdb = new MockVoltDB();
+        VoltDB.replaceVoltDBInstanceForTest(m_mvoltdb);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_mvoltdb.shutdown(null);
+        VoltDB.replaceVoltDBInstanceForTest(null);
+    }
+
+    @Test
+    public void testRenderRows() throws Exception {
+        MockStatsSource.columns = Arrays.asList(new VoltTable.ColumnInfo[] {
+                new VoltTable.ColumnInfo("TIMESTAMP", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("PARTITION_ID", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("PROCEDURE", VoltType.STRING),
+                new VoltTable.ColumnInfo("INVOCATIONS", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("AVG_EXECUTION_TIME", VoltType.FLOAT)
+        });
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.PROCEDURE, 0, new MockStatsSource(new Object[][] {
+                { 1L, 0, "Insert", 10L, 1.5 },
+                { 1L, 0, "Say \"hi\"", 3L, null }
+        }));
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.PROCEDURE, 1, new MockStatsSource(new Object[][] {
+                { 1L, 1, "Insert", 7L, 2.5 }
+        }));
+
+        String metrics = new OpenMetricsRenderer(m_mvoltdb.getStatsAgent()).render();
+
+        // Each family is written once with all of its samples following it
+        int invocations = metrics.indexOf("# TYPE voltdb_procedure_invocations counter\n");
+        int avg = metrics.indexOf("# TYPE voltdb_procedure_avg_execution_time gauge\n");
+        assertTrue(invocations >= 0 && avg > invocations);
+        String invocationSamples = metrics.substring(invocations, avg);
+        assertTrue(invocationSamples.contains("voltdb_procedure_invocations_total{partition_id=\"0\",procedure=\"Insert\"} 10\n"));
+        assertTrue(invocationSamples.contains("voltdb_procedure_invocations_total{partition_id=\"0\",procedure=\"Say \\\"hi\\\"\"} 3\n"));
+        assertTrue(invocationSamples.contains("voltdb_procedure_invocations_total{partition_id=\"1\",procedure=\"Insert\"} 7\n"));
+        assertTrue(metrics.contains("voltdb_procedure_avg_execution_time{partition_id=\"1\",procedure=\"Insert\"} 2.5\n"));
+        assertFalse(metrics.contains("Say \\\"hi\\\"\"} null"));
+        assertFalse(metrics.contains("timestamp"));
+        assertTrue(metrics.endsWith("# EOF\n"));
+    }
+
+    @Test
+    public void testRenderLatency() throws Exception {
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.LATENCY, 0, new LatencyStats(0));
+
+        String metrics = new OpenMetricsRenderer(m_mvoltdb.getStatsAgent()).render();
+
+        assertTrue(metrics.contains("# TYPE voltdb_latency_seconds histogram\n"));
+        assertTrue(metrics.contains("le=\"0.0001\"} 0\n"));
+        assertTrue(metrics.contains("le=\"+Inf\"} 0\n"));
+        assertTrue(metrics.contains("voltdb_latency_seconds_count{host_id=\"" +
+                m_mvoltdb.getHostMessenger().getHostId() + "\""));
+        assertEquals(1, metrics.split("# TYPE voltdb_latency_seconds ").length - 1);
+    }
+}
@@ -37,6 +37,7 @@ import org.junit.Test;
 import org.voltcore.network.*;
 import org.voltdb.client.ClientResponse;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -124,6 +125,116 @@ public class TestStatsAgent {
         return ParameterSet.fromArrayWithCopy(blah);
     }
 
+    private void registerTableStats(int sites, int rowsPerSite) {
+        MockStatsSource.columns = Arrays.asList(new VoltTable.ColumnInfo[] {
+                new VoltTable.ColumnInfo( "SITE", VoltType.INTEGER),
+                new VoltTable.ColumnInfo( "ROW", VoltType.INTEGER)
+        });
+        for (int site = 0; site < sites; site++) {
+            Object rows[][] = new Object[rowsPerSite][];
+            for (int row = 0; row < rowsPerSite; row++) {
+                rows[row] = new Object[] { site, row };
+            }
+            m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.TABLE, site, new MockStatsSource(rows));
+        }
+    }
+
+    private ParameterSet subselectPage(String subselector, int rowLimit, String cursor)
+    {
+        return ParameterSet.fromArrayWithCopy(subselector, 0, rowLimit, cursor);
+    }
+
+    @Test
+    public void testCollectStatsAcrossSites() throws Exception {
+        registerTableStats(8, 3);
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselect("TABLE", 0));
+        ClientResponseImpl response = responses.take();
+
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        VoltTable results[] = response.getResults();
+        assertEquals(1, results.length);
+        Set<String> rows = new HashSet<String>();
+        while (results[0].advanceRow()) {
+            assertTrue(rows.add(results[0].getLong("SITE") + "/" + results[0].getLong("ROW")));
+        }
+        assertEquals(24, rows.size());
+    }
+
+    @Test
+    public void testCollectStatsPages() throws Exception {
+        registerTableStats(3, 3);
+
+        String cursor = null;
+        int pages = 0;
+        int site = 0;
+        int row = 0;
+        do {
+            m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                    subselectPage("TABLE", 4, cursor));
+            ClientResponseImpl response = responses.take();
+            assertEquals(response.getStatusString(), ClientResponse.SUCCESS, response.getStatus());
+            VoltTable results[] = response.getResults();
+            assertEquals(2, results.length);
+            assertEquals(pages < 2 ? 4 : 1, results[0].getRowCount());
+
+            // Pages hand out the rows of the sites in order
+            while (results[0].advanceRow()) {
+                assertEquals(site, results[0].getLong("SITE"));
+                assertEquals(row, results[0].getLong("ROW"));
+                if (++row == 3) {
+                    site++;
+                    row = 0;
+                }
+            }
+            results[1].advanceRow();
+            cursor = results[1].getString("NEXT_CURSOR");
+            pages++;
+        } while (cursor != null);
+        assertEquals(3, pages);
+        assertEquals(3, site);
+    }
+
+    @Test
+    public void testInvalidStatsPages() throws Exception {
+        createAndRegisterStats();
+        registerTableStats(1, 1);
+
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselectPage("DR", 10, null));
+        ClientResponseImpl response = responses.take();
+        assertEquals(ClientResponse.GRACEFUL_FAILURE, response.getStatus());
+        assertEquals("@Statistics selector DR can't be returned a page at a time", response.getStatusString());
+
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselectPage("TABLE", 0, null));
+        response = responses.take();
+        assertEquals(ClientResponse.GRACEFUL_FAILURE, response.getStatus());
+        assertEquals("Third argument to @Statistics must be a positive row limit, instead was 0",
+                response.getStatusString());
+
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselectPage("TABLE", 10, "garbage"));
+        response = responses.take();
+        assertEquals(ClientResponse.GRACEFUL_FAILURE, response.getStatus());
+        assertEquals("Fourth argument to @Statistics is not a valid cursor: garbage", response.getStatusString());
+
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselectPage("TABLE", 10, "99:0"));
+        response = responses.take();
+        assertEquals(ClientResponse.GRACEFUL_FAILURE, response.getStatus());
+        assertEquals("Host 99 of the @Statistics cursor is no longer part of the cluster",
+                response.getStatusString());
+
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselectPage("TABLE", 10, ""));
+        response = responses.take();
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        assertEquals(1, response.getResults()[0].getRowCount());
+        response.getResults()[1].advanceRow();
+        assertNull(response.getResults()[1].getString("NEXT_CURSOR"));
+    }
+
     @Test
     public void testInvalidStatisticsSubselector() throws Exception {
         createAndRegisterStats();
@@ -158,6 +158,17 @@ public class MockVoltClient implements Client {
         return false;
     }
 
+    @Override
+    public ClientResponseFuture callProcedureAsync(String procName, Object... parameters) {
+        ClientResponseFuture future = new ClientResponseFuture(null);
+        try {
+            future.complete(callProcedure(procName, parameters));
+        } catch (ProcCallException e) {
+            future.complete(e.getClientResponse());
+        }
+        return future;
+    }
+
     @Override
     public void drain() {
         // TODO Auto-generated method stub
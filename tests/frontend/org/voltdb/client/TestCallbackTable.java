@@ -0,0 +1,130 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TestCallbackTable extends TestCase {
+
+    private static final ProcedureCallback CALLBACK = new NullCallback();
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    public void testPutRemove() {
+        CallbackTable table = new CallbackTable();
+        Random r = new Random(0);
+        Set<Long> handles = new HashSet<Long>();
+        for (int ii = 0; ii < 10000; ii++) {
+            long handle = r.nextInt(1000000) - 500000;
+            if (handles.add(handle)) {
+                table.put(handle, 0, CALLBACK, "proc" + handle, SECOND, SECOND, false);
+            }
+        }
+        assertEquals(handles.size(), table.size());
+
+        for (long handle : handles) {
+            assertTrue(table.contains(handle));
+            CallbackTable.Entry e = table.remove(handle);
+            assertNotNull(e);
+            assertEquals(handle, e.handle);
+            assertEquals("proc" + handle, e.name);
+            table.release(e);
+            assertNull(table.remove(handle));
+        }
+        assertEquals(0, table.size());
+    }
+
+    public void testEntriesAreReused() {
+        CallbackTable table = new CallbackTable();
+        table.put(1, 0, CALLBACK, "proc", SECOND, SECOND, false);
+        CallbackTable.Entry first = table.remove(1);
+        table.release(first);
+        assertNull(first.callback);
+
+        //Same stripe as handle 1
+        table.put(17, 5, CALLBACK, "proc2", SECOND, SECOND, true);
+        CallbackTable.Entry second = table.remove(17);
+        assertSame(first, second);
+        assertEquals(5, second.timestampNanos);
+        assertTrue(second.ignoreBackpressure);
+    }
+
+    public void testExpire() {
+        CallbackTable table = new CallbackTable();
+        final long start = 1000 * SECOND;
+        table.put(1, start, CALLBACK, "a", SECOND, start + SECOND, false);
+        table.put(2, start, CALLBACK, "b", 2 * SECOND, start + 2 * SECOND + SECOND / 2, false);
+        //Wraps around the wheel more than once
+        table.put(3, start, CALLBACK, "c", 200 * SECOND, start + 200 * SECOND, false);
+        table.put(4, start, CALLBACK, "d", SECOND, start + SECOND, false);
+        table.release(table.remove(4));
+
+        ArrayList<CallbackTable.Entry> expired = new ArrayList<CallbackTable.Entry>();
+        table.expire(start, expired);
+        assertTrue(expired.isEmpty());
+
+        table.expire(start + SECOND, expired);
+        assertEquals(1, expired.size());
+        assertEquals(1, expired.get(0).handle);
+        expired.clear();
+
+        //Due later within the tick that was just scanned
+        table.expire(start + 2 * SECOND + SECOND / 4, expired);
+        assertTrue(expired.isEmpty());
+        table.expire(start + 3 * SECOND, expired);
+        assertEquals(1, expired.size());
+        assertEquals(2, expired.get(0).handle);
+        expired.clear();
+
+        for (long now = start + 4 * SECOND; now < start + 200 * SECOND; now += SECOND) {
+            table.expire(now, expired);
+            assertTrue(expired.isEmpty());
+        }
+        table.expire(start + 200 * SECOND, expired);
+        assertEquals(1, expired.size());
+        assertEquals(3, expired.get(0).handle);
+        assertEquals(0, table.size());
+    }
+
+    public void testRemoveAll() {
+        CallbackTable table = new CallbackTable();
+        for (long handle = 0; handle < 1000; handle++) {
+            table.put(handle, 0, CALLBACK, "proc", SECOND, SECOND, false);
+        }
+        ArrayList<CallbackTable.Entry> removed = new ArrayList<CallbackTable.Entry>();
+        table.removeAll(removed);
+        assertEquals(1000, removed.size());
+        assertEquals(0, table.size());
+
+        //Nothing left to expire
+        ArrayList<CallbackTable.Entry> expired = new ArrayList<CallbackTable.Entry>();
+        table.expire(10 * SECOND, expired);
+        assertTrue(expired.isEmpty());
+    }
+}
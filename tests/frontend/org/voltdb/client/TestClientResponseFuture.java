@@ -0,0 +1,131 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+
+public class TestClientResponseFuture extends TestCase {
+
+    private static ClientResponse response(byte status) {
+        return new ClientResponseImpl(status, new VoltTable[0], "");
+    }
+
+    public void testCallbackRunsInCompletingThread() throws Exception {
+        final ClientResponseFuture future = new ClientResponseFuture(null);
+        final AtomicReference<Thread> callbackThread = new AtomicReference<Thread>();
+        final AtomicReference<ClientResponse> received = new AtomicReference<ClientResponse>();
+        future.addCallback(new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse clientResponse) {
+                callbackThread.set(Thread.currentThread());
+                received.set(clientResponse);
+            }
+        });
+        assertFalse(future.isDone());
+
+        final ClientResponse r = response(ClientResponse.SUCCESS);
+        Thread networkThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    future.m_callback.clientCallback(r);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        networkThread.start();
+        networkThread.join();
+
+        assertSame(networkThread, callbackThread.get());
+        assertSame(r, received.get());
+        assertSame(r, future.get());
+    }
+
+    public void testCallbackAfterCompletion() throws Exception {
+        ClientResponseFuture future = new ClientResponseFuture(null);
+        final ClientResponse r = response(ClientResponse.GRACEFUL_FAILURE);
+        future.complete(r);
+
+        final AtomicReference<ClientResponse> received = new AtomicReference<ClientResponse>();
+        future.addCallback(new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse clientResponse) {
+                received.set(clientResponse);
+            }
+        });
+        assertSame(r, received.get());
+    }
+
+    public void testCallbackOnExecutor() throws Exception {
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        try {
+            ClientResponseFuture future = new ClientResponseFuture(null);
+            final CountDownLatch latch = new CountDownLatch(1);
+            final AtomicReference<Thread> callbackThread = new AtomicReference<Thread>();
+            future.addCallback(new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) {
+                    callbackThread.set(Thread.currentThread());
+                    latch.countDown();
+                }
+            }, es);
+            future.m_callback.clientCallback(response(ClientResponse.SUCCESS));
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertNotSame(Thread.currentThread(), callbackThread.get());
+        } finally {
+            es.shutdown();
+        }
+    }
+
+    public void testThrowingCallbackDoesNotStopOthers() throws Exception {
+        ClientResponseFuture future = new ClientResponseFuture(null);
+        final AtomicReference<ClientResponse> received = new AtomicReference<ClientResponse>();
+        future.addCallback(new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse clientResponse) throws Exception {
+                throw new Exception("Expected by the test");
+            }
+        });
+        future.addCallback(new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse clientResponse) {
+                received.set(clientResponse);
+            }
+        });
+        final ClientResponse r = response(ClientResponse.SUCCESS);
+        future.m_callback.clientCallback(r);
+        assertSame(r, received.get());
+    }
+}
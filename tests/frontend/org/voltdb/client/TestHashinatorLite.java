@@ -403,4 +403,39 @@ public class TestHashinatorLite extends TestCase {
         assertTrue(hash1 < partitionCount);
         assertTrue(hash1 >= 0);
     }
+
+    @Test
+    public void testLongHashMatchesParameterHash() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            int partitionCount = r.nextInt(100) + 1;
+            tandemTestLongHash(new HashinatorLite(partitionCount));
+
+            byte[] configBytes = ElasticHashinator.getConfigureBytes(partitionCount, ElasticHashinator.DEFAULT_TOTAL_TOKENS);
+            tandemTestLongHash(new HashinatorLite(HashinatorLiteType.ELASTIC, configBytes, false));
+        }
+    }
+
+    private void tandemTestLongHash(HashinatorLite h) throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            long value = r.nextLong();
+            assertEquals(h.getHashedPartitionForParameter(VoltType.BIGINT.getValue(), value),
+                    h.getHashedPartitionForLong(VoltType.BIGINT.getValue(), value));
+            assertEquals(h.getHashedPartitionForParameter(VoltType.INTEGER.getValue(), (int) value),
+                    h.getHashedPartitionForLong(VoltType.INTEGER.getValue(), (int) value));
+            assertEquals(h.getHashedPartitionForParameter(VoltType.SMALLINT.getValue(), (short) value),
+                    h.getHashedPartitionForLong(VoltType.SMALLINT.getValue(), (short) value));
+            assertEquals(h.getHashedPartitionForParameter(VoltType.TINYINT.getValue(), (byte) value),
+                    h.getHashedPartitionForLong(VoltType.TINYINT.getValue(), (byte) value));
+        }
+
+        // Nulls of every integer type
+        assertEquals(h.getHashedPartitionForParameter(VoltType.BIGINT.getValue(), VoltType.NULL_BIGINT),
+                h.getHashedPartitionForLong(VoltType.BIGINT.getValue(), VoltType.NULL_BIGINT));
+        assertEquals(h.getHashedPartitionForParameter(VoltType.INTEGER.getValue(), VoltType.NULL_INTEGER),
+                h.getHashedPartitionForLong(VoltType.INTEGER.getValue(), VoltType.NULL_INTEGER));
+        assertEquals(h.getHashedPartitionForParameter(VoltType.SMALLINT.getValue(), VoltType.NULL_SMALLINT),
+                h.getHashedPartitionForLong(VoltType.SMALLINT.getValue(), VoltType.NULL_SMALLINT));
+        assertEquals(h.getHashedPartitionForParameter(VoltType.TINYINT.getValue(), VoltType.NULL_TINYINT),
+                h.getHashedPartitionForLong(VoltType.TINYINT.getValue(), VoltType.NULL_TINYINT));
+    }
 }
@@ -0,0 +1,159 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
+
+public class TestAdHocCompilerCache extends TestCase {
+
+    private static final byte[] CATALOG_HASH = new byte[] { 1, 2, 3, 4 };
+
+    private static AdHocPlannedStatement statement(String sql, int paramCount) {
+        VoltType[] paramTypes = new VoltType[paramCount];
+        for (int i = 0; i < paramCount; i++) {
+            paramTypes[i] = VoltType.INTEGER;
+        }
+        byte[] plan = sql.getBytes(Constants.UTF8ENCODING);
+        // the plan stands in for its own hash so plans for different SQL differ
+        CorePlan core = new CorePlan(plan, null, plan, null,
+                false, true, paramTypes, CATALOG_HASH);
+        return new AdHocPlannedStatement(sql.getBytes(Constants.UTF8ENCODING), core,
+                ParameterSet.emptyParameterSet(), null);
+    }
+
+    public void testPutAndGet() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(10, 10);
+        AdHocPlannedStatement literal = statement("select * from t where a = 1", 0);
+        cache.put("select * from t where a = 1", "token1", literal, null, false, false);
+        AdHocPlannedStatement user = statement("select * from t where a = ?", 1);
+        cache.put("select * from t where a = ?", "token2", user, null, true, false);
+
+        assertSame(literal, cache.getWithSQL("select * from t where a = 1"));
+        // user parameterized statements only go in the core cache
+        assertNull(cache.getWithSQL("select * from t where a = ?"));
+        List<BoundPlan> variants = cache.getWithParsedToken("token2");
+        assertEquals(1, variants.size());
+        assertSame(user.core, variants.get(0).m_core);
+        assertEquals(1, cache.getLiteralCacheSize());
+        assertEquals(2, cache.getCoreCacheSize());
+    }
+
+    public void testEntryLimits() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(5, 5);
+        for (int i = 0; i < 100; i++) {
+            String sql = "select * from t where a = " + i;
+            cache.put(sql, "token" + i, statement(sql, 0), null, false, false);
+        }
+        assertTrue(cache.getLiteralCacheSize() <= 5);
+        assertTrue(cache.getCoreCacheSize() <= 5);
+        assertNotNull(cache.getWithSQL("select * from t where a = 99"));
+    }
+
+    public void testConcurrentPuts() throws Exception {
+        final AdHocCompilerCache cache = new AdHocCompilerCache(1000, 1000);
+        ExecutorService es = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(es.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 200; i++) {
+                            String sql = "select * from t where a = " + i;
+                            cache.put(sql, "token" + (i % 50), statement(sql, 0), null, false, false);
+                            assertNotNull(cache.getWithSQL(sql));
+                            assertNotNull(cache.getWithParsedToken("token" + (i % 50)));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            es.shutdown();
+        }
+        assertEquals(200, cache.getLiteralCacheSize());
+        assertEquals(50, cache.getCoreCacheSize());
+        for (int i = 0; i < 50; i++) {
+            // every distinct core plan for a token is kept once
+            assertEquals(4, cache.getWithParsedToken("token" + i).size());
+        }
+    }
+
+    public void testPersistAndLoad() throws Exception {
+        File dir = Files.createTempDirectory("adhoccache").toFile();
+        try {
+            AdHocCompilerCache cache = AdHocCompilerCache.getCacheForCatalogHash(CATALOG_HASH);
+            cache.put("select * from t where a = 1", "token1", statement("select * from t where a = 1", 0),
+                    null, false, false);
+            cache.put("select * from t where\na = ?", "token2", statement("select * from t where\na = ?", 1),
+                    null, true, false);
+            AdHocCompilerCache.persistWarmupStatements(dir, CATALOG_HASH);
+
+            // another node with the same catalog merges its statements into the file
+            AdHocCompilerCache.clearHashCache();
+            cache = AdHocCompilerCache.getCacheForCatalogHash(CATALOG_HASH);
+            cache.put("select * from t where b = 2", "token3", statement("select * from t where b = 2", 0),
+                    null, false, false);
+            AdHocCompilerCache.persistWarmupStatements(dir, CATALOG_HASH);
+
+            Map<String, Integer> loaded = new HashMap<String, Integer>();
+            for (AdHocCompilerCache.WarmupStatement stmt :
+                    AdHocCompilerCache.loadWarmupStatements(dir, CATALOG_HASH)) {
+                loaded.put(stmt.sql, stmt.userParamCount);
+            }
+            assertEquals(3, loaded.size());
+            assertEquals(Integer.valueOf(0), loaded.get("select * from t where a = 1"));
+            assertEquals(Integer.valueOf(1), loaded.get("select * from t where\na = ?"));
+            assertEquals(Integer.valueOf(0), loaded.get("select * from t where b = 2"));
+
+            assertTrue(AdHocCompilerCache.loadWarmupStatements(dir, new byte[] { 5 }).isEmpty());
+        } finally {
+            AdHocCompilerCache.clearHashCache();
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+}
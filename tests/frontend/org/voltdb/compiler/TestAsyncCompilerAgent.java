@@ -25,12 +25,14 @@ package org.voltdb.compiler;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -65,9 +67,11 @@ public class TestAsyncCompilerAgent {
 
     class BlockingAnswer implements Answer<AsyncCompilerResult> {
         public final Semaphore flag = new Semaphore(0);
+        public final Semaphore entered = new Semaphore(0);
 
         @Override
         public AsyncCompilerResult answer(InvocationOnMock invocation) throws Throwable {
+            entered.release();
             flag.acquire();
             return null;
         }
@@ -91,15 +95,20 @@ public class TestAsyncCompilerAgent {
         m_agent.m_mailbox = spy(m_agent.m_mailbox);
 
         /*
-         * send max + 2 messages to the agent. The first one will be executed
-         * immediately so it doesn't consume queue capacity, the next max number
-         * of messages will use up all the capacity, the last one will be
-         * rejected.
+         * send threads + max + 1 messages to the agent. The first one for each planner
+         * thread will be executed immediately so it doesn't consume queue capacity,
+         * the next max number of messages will use up all the capacity, the last one
+         * will be rejected.
          */
+        final int requests = m_agent.m_plannerThreads + AsyncCompilerAgent.MAX_QUEUE_DEPTH + 1;
         final AtomicInteger completedRequests = new AtomicInteger();
         final AtomicReference<AsyncCompilerResult> result = new AtomicReference<AsyncCompilerResult>();
         final long threadId = Thread.currentThread().getId();
-        for (int i = 0; i < AsyncCompilerAgent.MAX_QUEUE_DEPTH + 2; ++i) {
+        for (int i = 0; i < requests; ++i) {
+            if (i == m_agent.m_plannerThreads) {
+                // make sure the first ones were taken off the queue
+                blockingAnswer.entered.acquire(m_agent.m_plannerThreads);
+            }
             AsyncCompilerWorkCompletionHandler handler = new AsyncCompilerWorkCompletionHandler() {
                 @Override
                 public void onCompletion(AsyncCompilerResult compilerResult) {
@@ -127,10 +136,46 @@ public class TestAsyncCompilerAgent {
         assertNotNull(result.get().errorMsg);
 
         // let all requests return
-        blockingAnswer.flag.release(AsyncCompilerAgent.MAX_QUEUE_DEPTH + 5);
+        blockingAnswer.flag.release(requests + 5);
 
         // check if all previous requests finish
         m_agent.shutdown();
-        assertEquals(AsyncCompilerAgent.MAX_QUEUE_DEPTH + 2, completedRequests.get());
+        assertEquals(requests, completedRequests.get());
+    }
+
+    /**
+     * Checks that ad hoc work is planned by several threads at once
+     * @throws InterruptedException
+     */
+    @Test
+    public void testParallelPlanning() throws InterruptedException {
+        m_agent.shutdown();
+        m_agent = spy(new AsyncCompilerAgent(m_licenseApi, 3));
+
+        BlockingAnswer blockingAnswer = new BlockingAnswer();
+        doAnswer(blockingAnswer).when(m_agent).compileAdHocPlan(any(AdHocPlannerWork.class));
+        m_agent.createMailbox(mock(HostMessenger.class), 100);
+
+        final AtomicInteger completedRequests = new AtomicInteger();
+        for (int i = 0; i < 3; ++i) {
+            AsyncCompilerWorkCompletionHandler handler = new AsyncCompilerWorkCompletionHandler() {
+                @Override
+                public void onCompletion(AsyncCompilerResult compilerResult) {
+                    completedRequests.incrementAndGet();
+                }
+            };
+            AdHocPlannerWork work = AdHocPlannerWork.makeStoredProcAdHocPlannerWork(100, "select * from a",
+                                                                                    null, false, null,
+                                                                                    handler);
+            LocalObjectMessage msg = new LocalObjectMessage(work);
+            msg.m_sourceHSId = 100;
+            m_agent.m_mailbox.deliver(msg);
+        }
+
+        // all three are being planned before any of them is allowed to finish
+        assertTrue(blockingAnswer.entered.tryAcquire(3, 60, TimeUnit.SECONDS));
+        blockingAnswer.flag.release(3);
+        m_agent.shutdown();
+        assertEquals(3, completedRequests.get());
     }
 }
@@ -0,0 +1,149 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.voltdb.IndexStats;
+import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
+import org.voltdb.StatsSource;
+import org.voltdb.TableStats;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+public class TestSampledDatabaseEstimates extends TestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        SampledDatabaseEstimates.reset();
+    }
+
+    // Fill the stats of a source with rows given as column names followed by their values
+    private static void setRows(StatsSource source, Object[]... rows) {
+        ArrayList<ColumnInfo> columns = source.getColumnSchema();
+        VoltTable table = new VoltTable(columns.toArray(new ColumnInfo[columns.size()]));
+        for (Object[] values : rows) {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                row[i] = table.getColumnType(i) == VoltType.STRING ? "" : 0;
+            }
+            for (int i = 0; i < values.length; i += 2) {
+                row[table.getColumnIndex((String) values[i])] = values[i + 1];
+            }
+            table.addRow(row);
+        }
+        source.setStatsTable(table);
+    }
+
+    private static void setTableRows(StatsAgent agent, long siteId, long rowsOfT, long rowsOfR) {
+        TableStats tableStats = new TableStats(siteId);
+        setRows(tableStats,
+                new Object[] { "TABLE_NAME", "T", "TABLE_TYPE", "PersistentTable", "TUPLE_COUNT", rowsOfT },
+                new Object[] { "TABLE_NAME", "R", "TABLE_TYPE", "PersistentTable", "TUPLE_COUNT", rowsOfR },
+                new Object[] { "TABLE_NAME", "S", "TABLE_TYPE", "StreamedTable", "TUPLE_COUNT", 1000000L });
+        agent.deregisterStatsSourcesFor(StatsSelector.TABLE, siteId);
+        agent.registerStatsSource(StatsSelector.TABLE, siteId, tableStats);
+    }
+
+    private static StatsAgent statsAgent() {
+        StatsAgent agent = new StatsAgent();
+        setTableRows(agent, 1, 100000, 20);
+        setTableRows(agent, 2, 300000, 20);
+        IndexStats indexStats = new IndexStats(1);
+        setRows(indexStats,
+                new Object[] { "TABLE_NAME", "T", "INDEX_NAME", "PARTIAL", "ENTRY_COUNT", 5000L });
+        agent.registerStatsSource(StatsSelector.INDEX, 1, indexStats);
+        return agent;
+    }
+
+    public void testSample() {
+        DatabaseEstimates estimates = SampledDatabaseEstimates.sample(statsAgent());
+
+        // A table is estimated by its average over the sites, and at least at the minimum
+        assertEquals(200000, estimates.getEstimatesForTable("T").maxTuples);
+        assertEquals(SampledDatabaseEstimates.MIN_TUPLES, estimates.getEstimatesForTable("R").maxTuples);
+        assertFalse(estimates.tables.containsKey("S"));
+        assertEquals(5000, estimates.getEstimatesForIndex("T", "PARTIAL").entries);
+        assertNull(estimates.getEstimatesForIndex("T", "OTHER"));
+    }
+
+    public void testSkipsSourcesWithoutStats() {
+        StatsAgent agent = statsAgent();
+        TableStats noStats = new TableStats(3);
+        noStats.setStatsTable(null);
+        agent.registerStatsSource(StatsSelector.TABLE, 3, noStats);
+        IndexStats noIndexStats = new IndexStats(3);
+        noIndexStats.setStatsTable(null);
+        agent.registerStatsSource(StatsSelector.INDEX, 3, noIndexStats);
+
+        // The site without stats doesn't count toward the averages
+        DatabaseEstimates estimates = SampledDatabaseEstimates.sample(agent);
+        assertEquals(200000, estimates.getEstimatesForTable("T").maxTuples);
+        assertEquals(5000, estimates.getEstimatesForIndex("T", "PARTIAL").entries);
+    }
+
+    public void testRefreshAndLoad() throws Exception {
+        File dir = Files.createTempDirectory("planner_estimates").toFile();
+        try {
+            // Nothing sampled yet
+            assertEquals(new DatabaseEstimates().getEstimatesForTable("T").maxTuples,
+                         SampledDatabaseEstimates.get().getEstimatesForTable("T").maxTuples);
+
+            StatsAgent agent = statsAgent();
+            assertTrue(SampledDatabaseEstimates.refresh(agent, dir));
+            assertEquals(200000, SampledDatabaseEstimates.get().getEstimatesForTable("T").maxTuples);
+            assertTrue(new File(dir, SampledDatabaseEstimates.FILE_NAME).exists());
+
+            // Small changes keep the plans
+            setTableRows(agent, 2, 350000, 20);
+            assertFalse(SampledDatabaseEstimates.refresh(agent, dir));
+            assertEquals(200000, SampledDatabaseEstimates.get().getEstimatesForTable("T").maxTuples);
+            setTableRows(agent, 2, 900000, 20);
+            assertTrue(SampledDatabaseEstimates.refresh(agent, dir));
+            assertEquals(500000, SampledDatabaseEstimates.get().getEstimatesForTable("T").maxTuples);
+
+            // A planner can't change the shared estimates
+            SampledDatabaseEstimates.get().getEstimatesForTable("T").maxTuples = 1;
+            assertEquals(500000, SampledDatabaseEstimates.get().getEstimatesForTable("T").maxTuples);
+
+            SampledDatabaseEstimates.reset();
+            SampledDatabaseEstimates.load(dir);
+            DatabaseEstimates loaded = SampledDatabaseEstimates.get();
+            assertEquals(500000, loaded.getEstimatesForTable("T").maxTuples);
+            assertEquals(SampledDatabaseEstimates.MIN_TUPLES, loaded.getEstimatesForTable("R").maxTuples);
+            assertEquals(5000, loaded.getEstimatesForIndex("T", "PARTIAL").entries);
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.export;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.MockVoltDB;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Table;
+import org.voltdb.export.ExportDataSource.AckingContainer;
+import org.voltdb.utils.VoltFile;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+public class TestExportDataSource extends TestCase {
+
+    private final static File TEST_DIR = new File("/tmp/" + System.getProperty("user.name") + "-export");
+
+    private static final int BLOCK_SIZE = 20;
+
+    MockVoltDB m_mockVoltDB;
+    int m_host = 0;
+    int m_site = 1;
+    int m_part = 2;
+    int m_savedMaxOutstandingPolls;
+
+    @Override
+    public void setUp() throws Exception {
+        m_mockVoltDB = new MockVoltDB();
+        m_mockVoltDB.addSite(CoreUtils.getHSIdFromHostAndSite(m_host, m_site), m_part);
+        m_mockVoltDB.addTable("TableName", false);
+        m_mockVoltDB.addColumnToTable("TableName", "COL1", VoltType.INTEGER, false, null, VoltType.INTEGER);
+        m_mockVoltDB.addColumnToTable("TableName", "COL2", VoltType.STRING, false, null, VoltType.STRING);
+        VoltDB.replaceVoltDBInstanceForTest(m_mockVoltDB);
+
+        if (TEST_DIR.exists()) {
+            VoltFile.recursivelyDelete(TEST_DIR);
+        }
+        TEST_DIR.mkdir();
+
+        m_savedMaxOutstandingPolls = ExportDataSource.MAX_OUTSTANDING_POLLS;
+        ExportDataSource.MAX_OUTSTANDING_POLLS = 3;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        ExportDataSource.MAX_OUTSTANDING_POLLS = m_savedMaxOutstandingPolls;
+        m_mockVoltDB.shutdown(null);
+    }
+
+    private ExportDataSource createSource() throws Exception {
+        Table table = m_mockVoltDB.getCatalogContext().database.getTables().get("TableName");
+        ExportDataSource s = new ExportDataSource(new Runnable() {
+                    @Override
+                    public void run() {}
+                },
+                "database", table.getTypeName(), m_part, table.getSignature(), 0,
+                table.getColumns(), table.getPartitioncolumn(), TEST_DIR.getAbsolutePath());
+        s.setupExecutor();
+        s.setMaster();
+        return s;
+    }
+
+    private static void pushBlock(ExportDataSource s, long uso) {
+        s.pushExportBuffer(uso, ByteBuffer.allocateDirect(BLOCK_SIZE + StreamBlock.HEADER_SIZE), false, false);
+    }
+
+    private static AckingContainer get(ListenableFuture<BBContainer> fut) throws Exception {
+        return (AckingContainer)fut.get(10, TimeUnit.SECONDS);
+    }
+
+    public void testPipelinedPoll() throws Exception {
+        ExportDataSource s = createSource();
+        try {
+            pushBlock(s, 0);
+            pushBlock(s, BLOCK_SIZE);
+
+            // Several polls are served at once, in USO order
+            AckingContainer first = get(s.poll());
+            AckingContainer second = get(s.poll());
+            assertEquals(BLOCK_SIZE, first.m_uso);
+            assertEquals(BLOCK_SIZE * 2, second.m_uso);
+
+            // A poll with nothing left waits for the next block
+            ListenableFuture<BBContainer> third = s.poll();
+            ListenableFuture<BBContainer> fourth = s.poll();
+            pushBlock(s, BLOCK_SIZE * 2);
+            assertEquals(BLOCK_SIZE * 3, get(third).m_uso);
+            assertFalse(fourth.isDone());
+
+            // Only MAX_OUTSTANDING_POLLS polls can wait at once
+            s.poll();
+            s.poll();
+            try {
+                s.poll().get(10, TimeUnit.SECONDS);
+                fail("Should not allow more waiting polls than configured");
+            } catch (Exception expected) {}
+        } finally {
+            s.closeAndDelete().get();
+        }
+    }
+
+    public void testCoalescedAck() throws Exception {
+        ExportDataSource s = createSource();
+        try {
+            pushBlock(s, 0);
+            pushBlock(s, BLOCK_SIZE);
+            pushBlock(s, BLOCK_SIZE * 2);
+            AckingContainer first = get(s.poll());
+            AckingContainer second = get(s.poll());
+            AckingContainer third = get(s.poll());
+            final long size = s.sizeInBytes();
+
+            // Finishing the later blocks doesn't ack past the one still being exported
+            third.discard();
+            second.discard();
+            Thread.sleep(ExportDataSource.ACK_WINDOW_MS * 5);
+            assertEquals(size, s.sizeInBytes());
+
+            // Once it is done, one ack releases all three
+            first.discard();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (s.sizeInBytes() != 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(ExportDataSource.ACK_WINDOW_MS);
+            }
+            assertEquals(0, s.sizeInBytes());
+        } finally {
+            s.closeAndDelete().get();
+        }
+    }
+
+    public void testCancelledPollLeavesBlockForNextPoll() throws Exception {
+        ExportDataSource s = createSource();
+        try {
+            ListenableFuture<BBContainer> cancelled = s.poll();
+            cancelled.cancel(false);
+            pushBlock(s, 0);
+
+            // The block wasn't handed to the cancelled poll, so it is polled again
+            // and doesn't hold up the coalesced ack
+            AckingContainer cont = get(s.poll());
+            assertEquals(BLOCK_SIZE, cont.m_uso);
+            cont.discard();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (s.sizeInBytes() != 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(ExportDataSource.ACK_WINDOW_MS);
+            }
+            assertEquals(0, s.sizeInBytes());
+        } finally {
+            s.closeAndDelete().get();
+        }
+    }
+}
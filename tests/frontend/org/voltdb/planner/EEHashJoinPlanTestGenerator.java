@@ -0,0 +1,146 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+/**
+ * Generates tests/ee/executors/TestHashJoinPlans.cpp, which runs hash join plans
+ * of the planner in the EE. The tables have no indexes, so each of the
+ * equi-joins below costs less as a hash join than as a nest loop join.
+ */
+public class EEHashJoinPlanTestGenerator extends PlannerTestCase {
+    private static final String DDL_FILENAME = "testplans-ee-generators.sql";
+    // The EE reads this integer as NULL
+    private static final int NULL = Integer.MIN_VALUE;
+
+    @Override
+    protected void setUp() throws Exception {
+        setupSchema(EEHashJoinPlanTestGenerator.class.getResource(DDL_FILENAME),
+                    "testhashjoinplans",
+                    false);
+    }
+
+    public void testGeneratedPlan() throws Exception {
+        TableConfig AAAConfig = new TableConfig("AAA",
+                                                new String[] {"A", "B", "C"},
+                                                new int[][] {
+                                                    {    1,   10,  101},
+                                                    {    1,   20,  102},
+                                                    {    2,   10,  201},
+                                                    {    2, NULL,  202},
+                                                    { NULL,   10,  301},
+                                                    {    3,   30,  302}});
+        TableConfig BBBConfig = new TableConfig("BBB",
+                                                new String[] {"A", "B", "C"},
+                                                new int[][] {
+                                                    {    1,   10,  111},
+                                                    {    1,   10,  112},
+                                                    {    2, NULL,  211},
+                                                    { NULL,   10,  311},
+                                                    {    4,   40,  411}});
+        DBConfig db = new DBConfig(getClass(),
+                                   EEHashJoinPlanTestGenerator.class.getResource(DDL_FILENAME),
+                                   getCatalogString(),
+                                   AAAConfig,
+                                   BBBConfig);
+        String sqlStmt;
+
+        // NULL keys don't match
+        sqlStmt = "select AAA.A, AAA.B, BBB.C from AAA join BBB on AAA.A = BBB.A and AAA.B = BBB.B " +
+                  "order by AAA.A, AAA.B, BBB.C;";
+        db.addTest(new TestConfig("test_inner_join",
+                                  sqlStmt,
+                                  new int[][] {
+                                      { 1, 10, 111},
+                                      { 1, 10, 112}}));
+
+        // AAA.B = 10 is a pre-join predicate: the outer tuples that fail it are null-padded
+        sqlStmt = "select AAA.C, BBB.C from AAA left join BBB on AAA.A = BBB.A and AAA.B = 10 " +
+                  "order by AAA.C, BBB.C;";
+        db.addTest(new TestConfig("test_left_join_pre_join_predicate",
+                                  sqlStmt,
+                                  new int[][] {
+                                      { 101,  111},
+                                      { 101,  112},
+                                      { 102, NULL},
+                                      { 201,  211},
+                                      { 202, NULL},
+                                      { 301, NULL},
+                                      { 302, NULL}}));
+
+        sqlStmt = "select AAA.C, BBB.C from AAA full join BBB on AAA.A = BBB.A and AAA.B = BBB.B " +
+                  "order by AAA.C, BBB.C;";
+        db.addTest(new TestConfig("test_full_join",
+                                  sqlStmt,
+                                  new int[][] {
+                                      { NULL,  211},
+                                      { NULL,  311},
+                                      { NULL,  411},
+                                      {  101,  111},
+                                      {  101,  112},
+                                      {  102, NULL},
+                                      {  201, NULL},
+                                      {  202, NULL},
+                                      {  301, NULL},
+                                      {  302, NULL}}));
+
+        // NULL keys match NULL keys
+        sqlStmt = "select AAA.C, BBB.C from AAA join BBB " +
+                  "on AAA.A is not distinct from BBB.A and AAA.B is not distinct from BBB.B " +
+                  "order by AAA.C, BBB.C;";
+        db.addTest(new TestConfig("test_not_distinct_join",
+                                  sqlStmt,
+                                  new int[][] {
+                                      { 101, 111},
+                                      { 101, 112},
+                                      { 202, 211},
+                                      { 301, 311}}));
+
+        // The LIMIT is inlined in the join, which stops probing once it is reached
+        sqlStmt = "select AAA.A from AAA join BBB on AAA.A = BBB.A where AAA.B = 10 limit 2;";
+        db.addTest(new TestConfig("test_inline_limit",
+                                  sqlStmt,
+                                  new int[][] {
+                                      { 1},
+                                      { 1}}));
+
+        // The aggregate is inlined in the join
+        sqlStmt = "select AAA.A, count(*), sum(BBB.C) from AAA join BBB on AAA.A = BBB.A " +
+                  "group by AAA.A order by AAA.A;";
+        db.addTest(new TestConfig("test_inline_aggregate",
+                                  sqlStmt,
+                                  new int[][] {
+                                      { 1, 4, 446},
+                                      { 2, 2, 422}}));
+        generateTests("executors", "TestHashJoinPlans", db);
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.runClasses(EEHashJoinPlanTestGenerator.class);
+    }
+
+}
@@ -26,7 +26,9 @@ package org.voltdb.planner;
 import java.util.HashSet;
 import java.util.List;
 
+import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.SeqScanPlanNode;
@@ -230,11 +232,11 @@ public class TestJoinOrder extends PlannerTestCase {
     public void testFullJoinOrder() {
         AbstractPlanNode pn = compileSPWithJoinOrder("select * FROM T1 JOIN T2 ON T1.A = T2.B FULL JOIN T3 ON T1.A = T3.C", "T1, T2, T3");
         AbstractPlanNode n = pn.getChild(0).getChild(0);
-        assertEquals(PlanNodeType.NESTLOOP, n.getPlanNodeType());
-        assertEquals(JoinType.FULL, ((NestLoopPlanNode) n).getJoinType());
+        assertEquals(PlanNodeType.HASHJOIN, n.getPlanNodeType());
+        assertEquals(JoinType.FULL, ((HashJoinPlanNode) n).getJoinType());
         assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().equals("T3"));
         n = n.getChild(0);
-        assertEquals(PlanNodeType.NESTLOOP, n.getPlanNodeType());
+        assertEquals(PlanNodeType.HASHJOIN, n.getPlanNodeType());
         assertTrue(((SeqScanPlanNode)n.getChild(0)).getTargetTableName().equals("T1"));
         assertTrue(((SeqScanPlanNode)n.getChild(1)).getTargetTableName().equals("T2"));
 
@@ -273,14 +275,14 @@ public class TestJoinOrder extends PlannerTestCase {
         AbstractPlanNode n = pn.getChild(0).getChild(0);
         String joinOrder[] = {"T2", "T1", "T3", "T4", "T5", "T7", "T6"};
         for (int i = 6; i > 0; i--) {
-            assertTrue(n instanceof NestLoopPlanNode);
+            assertTrue(n instanceof AbstractJoinPlanNode);
             assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
             SeqScanPlanNode s = (SeqScanPlanNode) n.getChild(1);
             if (i == 1) {
                 assertTrue(n.getChild(0) instanceof SeqScanPlanNode);
                 assertTrue(joinOrder[i-1].equals(((SeqScanPlanNode) n.getChild(0)).getTargetTableName()));
             } else {
-                assertTrue(n.getChild(0) instanceof NestLoopPlanNode);
+                assertTrue(n.getChild(0) instanceof AbstractJoinPlanNode);
                 n = n.getChild(0);
             }
             assertTrue(joinOrder[i].equals(s.getTargetTableName()));
@@ -339,7 +341,7 @@ public class TestJoinOrder extends PlannerTestCase {
                         || ((SeqScanPlanNode)n.getChild(1)).getTargetTableName().endsWith(Integer.toString(ii - 1)));
                 break;
             } else {
-                NestLoopPlanNode node = (NestLoopPlanNode)n;
+                AbstractJoinPlanNode node = (AbstractJoinPlanNode)n;
                 if (mySets.contains(Integer.valueOf(ii))) {
                     assertTrue(((SeqScanPlanNode)n.getChild(0)).getTargetTableName().endsWith(Integer.toString(ii)));
                     n = node.getChild(1);
@@ -419,6 +421,38 @@ public class TestJoinOrder extends PlannerTestCase {
 
     }
 
+    public void testMoreThan5TablesJoinOrderSearch() {
+        AbstractPlanNode pn;
+        String sql;
+
+        // Only the last table of the FROM clause can be looked up by the parameter,
+        // the search starts from it to look up every other table by its primary key
+        sql = "select * FROM I1, I2, I3, I4, I5, I6 where I6.F = ? and I5.E = I6.F + 1 and " +
+                "I4.D = I5.E + 1 and I3.C = I4.D + 1 and I2.B = I3.C + 1 and I1.A = I2.B + 1";
+        pn = compile(sql);
+        checkIndexLookups(pn, "I6", 6);
+
+        // Too many tables to search every subset of them, the order is searched greedily
+        StringBuilder from = new StringBuilder("select * FROM I1 X1");
+        StringBuilder where = new StringBuilder(" where X12.A = ?");
+        for (int ii = 2; ii <= 12; ii++) {
+            from.append(", I1 X").append(ii);
+            where.append(" and X").append(ii - 1).append(".A = X").append(ii).append(".A + 1");
+        }
+        pn = compile(from.append(where).toString());
+        checkIndexLookups(pn, "X12", 12);
+    }
+
+    // Check that every table of the join is looked up by its index,
+    // starting from the given one
+    private static void checkIndexLookups(AbstractPlanNode pn, String firstTable, int tableCount) {
+        List<AbstractPlanNode> joins = pn.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX);
+        assertEquals(tableCount - 1, joins.size());
+        AbstractPlanNode outer = joins.get(joins.size() - 1).getChild(0);
+        assertTrue(outer instanceof IndexScanPlanNode);
+        assertEquals(firstTable, ((IndexScanPlanNode)outer).getTargetTableAlias());
+    }
+
     @Override
     protected void setUp() throws Exception {
         setupSchema(true, TestJoinOrder.class.getResource("testplans-joinorder-ddl.sql"), "testjoinorder");
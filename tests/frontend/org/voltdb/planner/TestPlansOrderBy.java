@@ -286,8 +286,9 @@ public class TestPlansOrderBy extends PlannerTestCase {
                 "ORDER BY T.T_D0 DESC, T.T_D1 DESC LIMIT ?");
 
         // filter on indexed column on one table, prefix join constraint,
-        // ORDER BY looking for 1 recovered spoiler -> no ORDER BY node
-        validateOptimalPlan("SELECT * FROM T, Tmanykeys WHERE Tmanykeys.T_D0 = T.T_D2 AND Tmanykeys.T_D0 = ?  " +
+        // ORDER BY looking for 1 recovered spoiler -> the ordered index scan would drive an NLJ
+        // that compares each of its tuples with every tuple of T, so the NLIJ and a sort cost less
+        validateIndexedBruteForcePlan("SELECT * FROM T, Tmanykeys WHERE Tmanykeys.T_D0 = T.T_D2 AND Tmanykeys.T_D0 = ?  " +
                 "ORDER BY Tmanykeys.T_D1 LIMIT ?");
         // This query requires additional recognition of transitive equality to eliminate the ORDER BY.
         // See ENG-4728.
@@ -801,6 +802,41 @@ public class TestPlansOrderBy extends PlannerTestCase {
 
     }
 
+    public void testOrderByLimitIsTopN() {
+        // ORDER BY ... LIMIT without an index to provide the order sorts
+        // with an inline LIMIT, which the EE executes as a TOP N sort.
+        OrderByPlanNode obpn = findOnlyOrderBy("SELECT * FROM Tnokey ORDER BY T_D1 LIMIT 10");
+        assertNotNull(obpn.getInlinePlanNode(PlanNodeType.LIMIT));
+        assertTrue(obpn.getEstimatedOutputTupleCount() <= 10);
+
+        // The LIMIT gets inlined past the projection of display columns.
+        obpn = findOnlyOrderBy("SELECT T_D1 + 1 FROM Tnokey ORDER BY T_D2 LIMIT 5 OFFSET 3");
+        assertNotNull(obpn.getInlinePlanNode(PlanNodeType.LIMIT));
+        assertTrue(obpn.getEstimatedOutputTupleCount() <= 5);
+
+        // A parameterized LIMIT is only known at run time.
+        obpn = findOnlyOrderBy("SELECT * FROM Tnokey ORDER BY T_D1 LIMIT ?");
+        assertNotNull(obpn.getInlinePlanNode(PlanNodeType.LIMIT));
+
+        // Without a LIMIT, all of the input gets sorted.
+        obpn = findOnlyOrderBy("SELECT * FROM Tnokey ORDER BY T_D1");
+        assertNull(obpn.getInlinePlanNode(PlanNodeType.LIMIT));
+
+        // On partitioned data, each partition sorts its TOP N rows.
+        List<AbstractPlanNode> frags = compileToFragments("SELECT P_D2 FROM P ORDER BY P_D2 LIMIT 10");
+        assertEquals(2, frags.size());
+        List<AbstractPlanNode> orderBys = frags.get(1).findAllNodesOfType(PlanNodeType.ORDERBY);
+        assertEquals(1, orderBys.size());
+        assertNotNull(orderBys.get(0).getInlinePlanNode(PlanNodeType.LIMIT));
+    }
+
+    private OrderByPlanNode findOnlyOrderBy(String sql) {
+        AbstractPlanNode pn = compile(sql);
+        List<AbstractPlanNode> orderBys = pn.findAllNodesOfType(PlanNodeType.ORDERBY);
+        assertEquals(1, orderBys.size());
+        return (OrderByPlanNode) orderBys.get(0);
+    }
+
     private void validateMergeReceive(String sql, boolean hasLimit, int[] sortColumnIdx) {
         List<AbstractPlanNode> frags =  compileToFragments(sql);
         assertEquals(2, frags.size());
@@ -0,0 +1,154 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.EELibraryLoader;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+
+public class TestParallelTableSaveFileReader extends TestCase {
+
+    private static final int HOSTS = 3;
+    private static final int CHUNKS = 40;
+
+    private File m_dir;
+    private List<File> m_files;
+
+    @Override
+    public void setUp() throws Exception {
+        // chunk checksums are computed natively
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        m_dir = Files.createTempDirectory("tablesavefile").toFile();
+        m_files = new ArrayList<File>();
+        // the host with the lowest id has the highest partitions
+        for (int host = 0; host < HOSTS; host++) {
+            final int firstPartition = (HOSTS - host - 1) * 2;
+            m_files.add(writeFile(host, firstPartition, firstPartition + 1));
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File f : m_dir.listFiles()) {
+            f.delete();
+        }
+        m_dir.delete();
+    }
+
+    private File writeFile(int hostId, int partitionA, int partitionB) throws Exception {
+        File file = new File(m_dir, "T-host_" + hostId + ".vpt");
+        VoltTable schema = new VoltTable(new ColumnInfo("C", VoltType.INTEGER));
+        DefaultSnapshotDataTarget target = new DefaultSnapshotDataTarget(file, hostId, "cluster", "database", "T",
+                HOSTS * 2, false, Arrays.asList(partitionA, partitionB), schema, 1, System.currentTimeMillis());
+        for (int i = 0; i < CHUNKS; i++) {
+            // partition id, then an empty row count followed by the sequence number
+            ByteBuffer buf = ByteBuffer.allocateDirect(12);
+            buf.putInt(i % 2 == 0 ? partitionA : partitionB).putInt(0).putInt(i).flip();
+            target.write(Callables.returning(DBBPool.wrapBB(buf)), 0).get();
+        }
+        target.close();
+        return file;
+    }
+
+    public void testChunksInPartitionOrder() throws Exception {
+        ParallelTableSaveFileReader reader = new ParallelTableSaveFileReader(m_files, null, false);
+        try {
+            for (int file = 0; file < HOSTS; file++) {
+                final int firstPartition = file * 2;
+                for (int expected = 0; expected < CHUNKS; expected++) {
+                    TableSaveFile.Container c = (TableSaveFile.Container)reader.getNextChunk();
+                    assertNotNull(c);
+                    try {
+                        assertEquals(firstPartition + expected % 2, c.partitionId);
+                        assertEquals(expected, c.b().getInt(c.b().limit() - 4));
+                    } finally {
+                        c.discard();
+                    }
+                }
+            }
+            assertNull(reader.getNextChunk());
+            assertTrue(reader.getCorruptedPartitionIds().isEmpty());
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testRelevantPartitions() throws Exception {
+        ParallelTableSaveFileReader reader = new ParallelTableSaveFileReader(m_files, new Integer[] { 1, 4 }, false);
+        try {
+            int count = 0;
+            int lastPartition = -1;
+            BBContainer c;
+            while ((c = reader.getNextChunk()) != null) {
+                try {
+                    final int partitionId = ((TableSaveFile.Container)c).partitionId;
+                    assertTrue(partitionId == 1 || partitionId == 4);
+                    assertTrue(partitionId >= lastPartition);
+                    lastPartition = partitionId;
+                    count++;
+                } finally {
+                    c.discard();
+                }
+            }
+            assertEquals(CHUNKS, count);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testCloseWithChunksInFlight() throws Exception {
+        ParallelTableSaveFileReader reader = new ParallelTableSaveFileReader(m_files, null, false);
+        BBContainer c = reader.getNextChunk();
+        assertNotNull(c);
+        c.discard();
+        // the files read ahead give their buffers and read ahead memory back on close
+        reader.close();
+        reader = new ParallelTableSaveFileReader(m_files, null, false);
+        try {
+            int count = 0;
+            while ((c = reader.getNextChunk()) != null) {
+                c.discard();
+                count++;
+            }
+            assertEquals(HOSTS * CHUNKS, count);
+        } finally {
+            reader.close();
+        }
+    }
+}
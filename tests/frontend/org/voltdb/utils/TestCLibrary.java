@@ -36,4 +36,12 @@ public class TestCLibrary {
         assertNotNull(limit);
         assertTrue(limit.intValue() >= 1024);//True on any sane system
     }
+
+    @Test
+    public void testDirectFlagPerArch() throws Exception {
+        assertEquals(040000, CLibrary.DirectIO.directFlag("amd64"));
+        //040000 is O_DIRECTORY on aarch64
+        assertEquals(0200000, CLibrary.DirectIO.directFlag("aarch64"));
+        assertEquals(0, CLibrary.DirectIO.directFlag("s390x"));
+    }
 }
@@ -0,0 +1,119 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.supercsv.io.CsvListReader;
+import org.supercsv.io.ICsvListReader;
+import org.supercsv.prefs.CsvPreference;
+import org.supercsv_voltpatches.tokenizer.Tokenizer;
+
+public class TestCSVFileChunker {
+
+    private static final String CSV =
+            "1,plain,10\n" +
+            "2,\"quoted, with a comma\",20\n" +
+            "3,\"quoted\nacross\nlines\",30\n" +
+            "\n" +
+            "4,\"doubled \"\" quote\",40\n" +
+            "5,escaped \\\" quote,50\n" +
+            "6,\"ends in a line break\n\",60\n" +
+            "7,last,70";
+
+    private static final CsvPreference PREFERENCE = new CsvPreference.Builder('"', ',', "\n").build();
+
+    private static List<CSVFileChunker.Chunk> chunk(String csv, long chunkSize) throws Exception {
+        CSVFileChunker chunker = new CSVFileChunker(new ByteArrayInputStream(csv.getBytes("UTF-8")),
+                '"', '\\', chunkSize);
+        List<CSVFileChunker.Chunk> chunks = new ArrayList<CSVFileChunker.Chunk>();
+        CSVFileChunker.Chunk chunk;
+        while ((chunk = chunker.next()) != null) {
+            chunks.add(chunk);
+        }
+        assertNull(chunker.next());
+        assertEquals(csv.split("\n", -1).length, chunker.getLineCount());
+        return chunks;
+    }
+
+    // Each row followed by the line number it was read at
+    private static List<String> parse(String csv, long skip, int lineOffset) throws Exception {
+        ICsvListReader reader = new CsvListReader(
+                new Tokenizer(new StringReader(csv), PREFERENCE, false, '\\', 1024, skip, false, lineOffset),
+                PREFERENCE);
+        List<String> rows = new ArrayList<String>();
+        List<String> row;
+        while ((row = reader.read()) != null) {
+            rows.add(row + "@" + reader.getLineNumber());
+        }
+        reader.close();
+        return rows;
+    }
+
+    @Test
+    public void testChunksHoldWholeRecords() throws Exception {
+        for (long chunkSize : new long[] { 1, 5, 20, 40, 1024 }) {
+            for (long skip : new long[] { 0, 1, 2 }) {
+                List<CSVFileChunker.Chunk> chunks = chunk(CSV, chunkSize);
+                List<String> rows = new ArrayList<String>();
+                long position = 0;
+                for (CSVFileChunker.Chunk chunk : chunks) {
+                    assertEquals(position, chunk.start);
+                    String text = CSV.substring((int)chunk.start, (int)(chunk.start + chunk.length));
+                    assertEquals(CSV.substring(0, (int)chunk.start).split("\n", -1).length - 1, chunk.firstLine);
+                    rows.addAll(parse(text, skip, (int)chunk.firstLine));
+                    position += chunk.length;
+                }
+                assertEquals(CSV.length(), position);
+                // Parsing the chunks gives the rows and line numbers of parsing the whole file
+                assertEquals("chunk size " + chunkSize + ", skip " + skip, parse(CSV, skip, 0), rows);
+            }
+        }
+    }
+
+    @Test
+    public void testChunkSize() throws Exception {
+        assertEquals(1, chunk(CSV, 1024).size());
+        // Line breaks in quotes don't end a chunk, so the records are the smallest chunks
+        List<CSVFileChunker.Chunk> chunks = chunk(CSV, 1);
+        assertEquals(8, chunks.size());
+        assertEquals(Arrays.asList(0L, 1L, 2L, 5L, 6L, 7L, 8L, 10L), firstLines(chunks));
+    }
+
+    private static List<Long> firstLines(List<CSVFileChunker.Chunk> chunks) {
+        List<Long> firstLines = new ArrayList<Long>();
+        for (CSVFileChunker.Chunk chunk : chunks) {
+            firstLines.add(chunk.firstLine);
+        }
+        return firstLines;
+    }
+}
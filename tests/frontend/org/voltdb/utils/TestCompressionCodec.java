@@ -0,0 +1,102 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestCompressionCodec {
+
+    private static ByteBuffer getCompressibleBuffer(int size) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(size);
+        Random r = new Random(size);
+        while (buf.hasRemaining()) {
+            buf.put((byte) (r.nextInt(16)));
+        }
+        buf.flip();
+        return buf;
+    }
+
+    @Test
+    public void testDirectRoundTrip() throws Exception {
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            for (int size : new int[] { 1, 1024, 1024 * 1024 * 2, CompressionCodec.MAX_SCRATCH_BYTES + 1 }) {
+                ByteBuffer input = getCompressibleBuffer(size);
+                ByteBuffer compressed = ByteBuffer.allocateDirect(codec.maxCompressedLength(size));
+                final int compressedSize = codec.compress(input, compressed);
+                assertEquals(0, input.position());
+                assertEquals(compressedSize, compressed.limit());
+                assertTrue(compressedSize <= CompressionCodec.maxCompressedLengthOfAnyCodec(size));
+                assertEquals(size, codec.uncompressedLength(compressed));
+
+                ByteBuffer output = ByteBuffer.allocateDirect(size);
+                assertEquals(size, codec.decompress(compressed, output));
+                assertEquals(input, output);
+            }
+        }
+    }
+
+    @Test
+    public void testHeapCompressionIsReadableDirect() throws Exception {
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            ByteBuffer input = getCompressibleBuffer(4096);
+            byte bytes[] = new byte[4096 + 16];
+            input.duplicate().get(bytes, 16, 4096);
+
+            byte compressedBytes[] = codec.compressBytes(bytes, 16, 4096);
+            ByteBuffer compressed = ByteBuffer.allocateDirect(compressedBytes.length);
+            compressed.put(compressedBytes).flip();
+
+            ByteBuffer output = ByteBuffer.allocateDirect(4096);
+            codec.decompress(compressed, output);
+            assertEquals(input, output);
+        }
+    }
+
+    @Test
+    public void testBlockRoundTrip() throws Exception {
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            byte input[] = new byte[4096];
+            getCompressibleBuffer(4096).get(input);
+            byte compressed[] = new byte[codec.maxCompressedLength(4096)];
+            final int compressedSize = codec.compressBlock(input, input.length, compressed);
+
+            byte output[] = new byte[4096];
+            codec.decompressBlock(compressed, compressedSize, output, output.length);
+            assertArrayEquals(input, output);
+        }
+    }
+
+    @Test
+    public void testIdsAreStable() throws Exception {
+        assertEquals(CompressionCodec.SNAPPY, CompressionCodec.fromId(0));
+        assertEquals(CompressionCodec.LZ4, CompressionCodec.fromId(1));
+        assertEquals(CompressionCodec.DEFLATE, CompressionCodec.fromId(2));
+    }
+}
@@ -0,0 +1,142 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.BinaryDeque.BinaryDequeReader;
+
+public class TestPBDMMapSegment {
+
+    private static final String CURSOR_ID = "testPBDMMap";
+    private final static VoltLogger logger = new VoltLogger("EXPORT");
+
+    private PersistentBinaryDeque m_pbd;
+
+    @Test
+    public void testOfferPollMixedCompression() throws Exception {
+        System.out.println("Running testOfferPollMixedCompression");
+        //Spans several segments, alternating compressed and uncompressed entries
+        for (int ii = 0; ii < 96; ii++) {
+            m_pbd.offer(DBBPool.wrapBB(TestPersistentBinaryDeque.getFilledBuffer(ii)), ii % 2 == 0);
+        }
+
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        for (int ii = 0; ii < 96; ii++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertNotNull(cont);
+                assertEquals(TestPersistentBinaryDeque.getFilledBuffer(ii), cont.b());
+            } finally {
+                cont.discard();
+            }
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+
+        //Fully consumed segments are deleted, leaving only the write segment
+        assertEquals(1, TestPersistentBinaryDeque.getSortedDirectoryListing().size());
+    }
+
+    @Test
+    public void testModifiedSliceDoesNotChangeFile() throws Exception {
+        System.out.println("Running testModifiedSliceDoesNotChangeFile");
+        for (int ii = 0; ii < 4; ii++) {
+            m_pbd.offer(DBBPool.wrapBB(TestPersistentBinaryDeque.getFilledBuffer(ii)), false);
+        }
+
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        cont.b().putLong(0, Long.MIN_VALUE);
+        cont.discard();
+        m_pbd.close();
+
+        m_pbd = new PersistentBinaryDeque(TestPersistentBinaryDeque.TEST_NONCE,
+                TestPersistentBinaryDeque.TEST_DIR, logger, true, true);
+        reader = m_pbd.openForRead(CURSOR_ID);
+        cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+        try {
+            assertEquals(TestPersistentBinaryDeque.getFilledBuffer(0), cont.b());
+        } finally {
+            cont.discard();
+        }
+    }
+
+    @Test
+    public void testSliceOutlivesSegmentClose() throws Exception {
+        System.out.println("Running testSliceOutlivesSegmentClose");
+        for (int ii = 0; ii < 96; ii++) {
+            m_pbd.offer(DBBPool.wrapBB(TestPersistentBinaryDeque.getFilledBuffer(ii)), false);
+        }
+
+        //Hold on to the last entry of the first segment while the reader moves on
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        BBContainer held = null;
+        for (int ii = 0; ii < 33; ii++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            if (ii == 30) {
+                held = cont;
+            } else {
+                cont.discard();
+            }
+        }
+
+        TreeSet<String> listing = TestPersistentBinaryDeque.getSortedDirectoryListing();
+        assertTrue(listing.contains("pbd_nonce.0.pbd"));
+        try {
+            assertEquals(TestPersistentBinaryDeque.getFilledBuffer(30), held.b());
+        } finally {
+            held.discard();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        TestPersistentBinaryDeque.setupTestDir();
+        m_pbd = new PersistentBinaryDeque(TestPersistentBinaryDeque.TEST_NONCE,
+                TestPersistentBinaryDeque.TEST_DIR, logger, true, true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try {
+            m_pbd.close();
+        } catch (Exception e) {}
+        try {
+            TestPersistentBinaryDeque.tearDownTestDir();
+        } finally {
+            m_pbd = null;
+        }
+    }
+}
@@ -32,6 +32,8 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
@@ -859,6 +861,72 @@ public class TestPersistentBinaryDeque {
         assertTrue(names.first().equals("pbd_nonce.5.pbd"));
     }
 
+    @Test
+    public void testOfferBatch() throws Exception {
+        System.out.println("Running testOfferBatch");
+        //One batch large enough to span three segments
+        List<BBContainer> batch = new ArrayList<BBContainer>();
+        for (int ii = 0; ii < 96; ii++) {
+            batch.add(DBBPool.wrapBB(getFilledBuffer(ii)));
+        }
+        m_pbd.offer(batch, true, true);
+        File files[] = TEST_DIR.listFiles();
+        assertEquals(3, files.length);
+
+        batch.clear();
+        for (int ii = 96; ii < 100; ii++) {
+            batch.add(DBBPool.wrapBB(getFilledSmallBuffer(ii)));
+        }
+        m_pbd.offer(batch, false, false);
+        assertEquals(2, m_pbd.getBatchCount());
+        assertEquals(100, m_pbd.getBatchedObjectCount());
+        assertEquals(96, m_pbd.getMaxBatchSize());
+        m_pbd.close();
+
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        assertEquals(100, reader.getNumObjects());
+        for (int ii = 0; ii < 100; ii++) {
+            ByteBuffer defaultBuffer = ii < 96 ? getFilledBuffer(ii) : getFilledSmallBuffer(ii);
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertTrue(defaultBuffer.equals(retval.b()));
+            } finally {
+                retval.discard();
+            }
+        }
+        assertTrue(reader.isEmpty());
+    }
+
+    @Test
+    public void testPipelinedWriter() throws Exception {
+        System.out.println("Running testPipelinedWriter");
+        PBDPipelinedWriter writer = new PBDPipelinedWriter(m_pbd, 4);
+        for (int ii = 0; ii < 96; ii++) {
+            if (ii % 10 == 0) {
+                writer.offer(DBBPool.wrapBB(getFilledSmallBuffer(ii)));
+            } else {
+                writer.offer(DBBPool.wrapBB(getFilledBuffer(ii)));
+            }
+            assertTrue(writer.getInFlightCount() <= 4);
+        }
+        writer.flush(true);
+        assertEquals(0, writer.getInFlightCount());
+
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        assertEquals(96, reader.getNumObjects());
+        for (int ii = 0; ii < 96; ii++) {
+            ByteBuffer defaultBuffer = ii % 10 == 0 ? getFilledSmallBuffer(ii) : getFilledBuffer(ii);
+            BBContainer retval = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertTrue(defaultBuffer.equals(retval.b()));
+            } finally {
+                retval.discard();
+            }
+        }
+        assertTrue(reader.isEmpty());
+    }
+
     @Test
     public void testOfferCloseReopenOfferSmall() throws Exception {
         System.out.println("Running testOfferCloseReopenOfferSmall");
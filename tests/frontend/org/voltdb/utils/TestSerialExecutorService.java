@@ -0,0 +1,155 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class TestSerialExecutorService extends TestCase {
+
+    private ExecutorService m_pool;
+
+    @Override
+    public void setUp() {
+        m_pool = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    public void tearDown() {
+        m_pool.shutdownNow();
+    }
+
+    public void testTasksRunInOrderOneAtATime() throws Exception {
+        final int executorCount = 16;
+        final int taskCount = 1000;
+        List<SerialExecutorService> executors = new ArrayList<SerialExecutorService>();
+        List<List<Integer>> results = new ArrayList<List<Integer>>();
+        final AtomicInteger overlaps = new AtomicInteger();
+        for (int i = 0; i < executorCount; i++) {
+            executors.add(new SerialExecutorService("test " + i, m_pool));
+            results.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int task = 0; task < taskCount; task++) {
+            for (int i = 0; i < executorCount; i++) {
+                final List<Integer> result = results.get(i);
+                final int sequence = task;
+                final AtomicInteger running = new AtomicInteger();
+                executors.get(i).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (running.incrementAndGet() != 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        result.add(sequence);
+                        running.decrementAndGet();
+                    }
+                });
+            }
+        }
+        for (SerialExecutorService es : executors) {
+            es.shutdown();
+            assertTrue(es.awaitTermination(30, TimeUnit.SECONDS));
+            assertEquals(taskCount, es.getCompletedTasks());
+            assertEquals(0, es.getQueueDepth());
+        }
+        assertEquals(0, overlaps.get());
+        for (List<Integer> result : results) {
+            assertEquals(taskCount, result.size());
+            for (int task = 0; task < taskCount; task++) {
+                assertEquals(task, result.get(task).intValue());
+            }
+        }
+    }
+
+    public void testShutdownRunsQueuedTasks() throws Exception {
+        SerialExecutorService es = new SerialExecutorService("test", m_pool);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch block = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+        es.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                }
+                ran.incrementAndGet();
+            }
+        });
+        started.await();
+        for (int i = 0; i < 10; i++) {
+            es.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ran.incrementAndGet();
+                }
+            });
+        }
+        assertEquals(10, es.getQueueDepth());
+        assertEquals(10, es.getMaxQueueDepth());
+        es.shutdown();
+        assertTrue(es.isShutdown());
+        assertFalse(es.isTerminated());
+        try {
+            es.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail("Should reject tasks after shutdown");
+        } catch (RejectedExecutionException expected) {
+        }
+        block.countDown();
+        assertTrue(es.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(11, ran.get());
+    }
+
+    public void testThrowingTaskDoesNotStopOthers() throws Exception {
+        SerialExecutorService es = new SerialExecutorService("test", m_pool);
+        es.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new RuntimeException("Expected by the test");
+            }
+        });
+        assertEquals(Integer.valueOf(1), es.submit(new java.util.concurrent.Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 1;
+            }
+        }).get());
+        es.shutdown();
+        assertTrue(es.awaitTermination(30, TimeUnit.SECONDS));
+    }
+}
@@ -34,10 +34,13 @@ import org.voltdb.ServerThread;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltDB.Configuration;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.VoltTypeException;
 import org.voltdb.client.Client;
 import org.voltdb.client.ClientFactory;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
+import org.voltdb.client.VoltBulkLoader.BulkLoaderRowBuilder;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 import org.voltdb.common.Constants;
 import org.voltdb.compiler.VoltProjectBuilder;
@@ -1313,4 +1316,139 @@ public class TestVoltBulkLoader extends TestCase {
             System.gc();
         }
     }
+
+    private VoltBulkLoader startServerAndGetLoader(String my_schema, int my_batchSize,
+            BulkLoaderFailureCallBack callback) throws Exception {
+        pathToCatalog = Configuration.getPathToCatalogForTest("vbl.jar");
+        pathToDeployment = Configuration.getPathToCatalogForTest("vbl.xml");
+        builder = new VoltProjectBuilder();
+
+        builder.addLiteralSchema(my_schema);
+        builder.addPartitionInfo("BLAH", "clm_integer");
+        boolean success = builder.compile(pathToCatalog, 2, 1, 0);
+        assertTrue(success);
+        MiscUtils.copyFile(builder.getPathToDeployment(), pathToDeployment);
+        config = new VoltDB.Configuration();
+        config.m_pathToCatalog = pathToCatalog;
+        config.m_pathToDeployment = pathToDeployment;
+        localServer = new ServerThread(config);
+        localServer.start();
+        localServer.waitForInitialization();
+
+        client1 = ClientFactory.createClient();
+        client1.createConnection("localhost");
+        return client1.getNewBulkLoader("BLAH", my_batchSize, false, callback);
+    }
+
+    private void stopServer() throws Exception {
+        if (client1 != null) client1.close();
+        client1 = null;
+
+        if (localServer != null) {
+            localServer.shutdown();
+            localServer.join();
+        }
+        localServer = null;
+    }
+
+    public void testRowBuilder() throws Exception {
+        String mySchema =
+                "create table BLAH (" +
+                "clm_integer integer not null, " +
+                "clm_string varchar(20) default null, " +
+                "clm_float float default null" +
+                "); ";
+        try {
+            TestFailureCallback testCallback = new TestFailureCallback();
+            VoltBulkLoader bulkLoader = startServerAndGetLoader(mySchema, 5, testCallback);
+            BulkLoaderRowBuilder rowBuilder = bulkLoader.newRowBuilder();
+
+            int rowId = 1;
+            for (; rowId <= 12; rowId++) {
+                rowBuilder.addLong(rowId).addString("row " + rowId).addDouble(rowId * 1.5).endRow(rowId);
+            }
+            // A value that doesn't fit drops the row and leaves the builder ready for the next one
+            try {
+                rowBuilder.addLong(rowId).addLong(rowId);
+                fail("Should not accept a long for a varchar column");
+            } catch (VoltTypeException expected) {}
+            rowBuilder.addLong(rowId).addNull().addNull().endRow(rowId);
+            rowId++;
+
+            // Interrupted while a full batch waits to be sent, the rows of the batch are failed
+            // and the builder is ready for the next row
+            rowBuilder.flush();
+            Thread.currentThread().interrupt();
+            int interruptedRows = 0;
+            try {
+                for (; interruptedRows < 100; rowId++) {
+                    interruptedRows++;
+                    rowBuilder.addLong(0).addString("interrupted").addNull().endRow(rowId);
+                }
+                fail("Should have been interrupted sending a batch");
+            } catch (InterruptedException expected) {}
+            rowId++;
+            rowBuilder.addLong(rowId).addString("after").addNull().endRow(rowId);
+
+            rowBuilder.close();
+            bulkLoader.drain();
+            assertEquals(0, bulkLoader.getOutstandingRowCount());
+            bulkLoader.close();
+
+            assertEquals(interruptedRows, testCallback.failureRows.size());
+            VoltTable count = client1.callProcedure("@AdHoc", "SELECT COUNT(*) FROM BLAH;").getResults()[0];
+            assertEquals(14, count.asScalarLong());
+            count = client1.callProcedure("@AdHoc",
+                    "SELECT COUNT(*) FROM BLAH WHERE clm_string = 'interrupted';").getResults()[0];
+            assertEquals(0, count.asScalarLong());
+        } finally {
+            Thread.interrupted();
+            stopServer();
+        }
+    }
+
+    public void testInsertTable() throws Exception {
+        String mySchema =
+                "create table BLAH (" +
+                "clm_integer integer not null, " +
+                "clm_string varchar(20) default null" +
+                "); ";
+        try {
+            TestFailureCallback testCallback = new TestFailureCallback();
+            VoltBulkLoader bulkLoader = startServerAndGetLoader(mySchema, 5, testCallback);
+
+            // Rows of several partitions are split up, rows of one partition are sent as they are
+            VoltTable table = new VoltTable(new VoltTable.ColumnInfo("CLM_INTEGER", VoltType.INTEGER),
+                    new VoltTable.ColumnInfo("CLM_STRING", VoltType.STRING));
+            for (int i = 0; i < 20; i++) {
+                table.addRow(i, "row " + i);
+            }
+            bulkLoader.insertTable(1, table);
+            VoltTable onePartition = new VoltTable(new VoltTable.ColumnInfo("CLM_INTEGER", VoltType.INTEGER),
+                    new VoltTable.ColumnInfo("CLM_STRING", VoltType.STRING));
+            onePartition.addRow(100, "again");
+            onePartition.addRow(100, "and again");
+            bulkLoader.insertTable(2, onePartition);
+
+            try {
+                bulkLoader.insertTable(3, new VoltTable(new VoltTable.ColumnInfo("CLM_INTEGER", VoltType.INTEGER)));
+                fail("Should not accept a table with the wrong columns");
+            } catch (IllegalArgumentException expected) {}
+
+            bulkLoader.drain();
+            assertEquals(0, bulkLoader.getOutstandingRowCount());
+            assertEquals(22, bulkLoader.getCompletedRowCount());
+            bulkLoader.close();
+            assertTrue(testCallback.failureRows.isEmpty());
+
+            VoltTable count = client1.callProcedure("@AdHoc", "SELECT COUNT(*) FROM BLAH;").getResults()[0];
+            assertEquals(22, count.asScalarLong());
+            VoltTable valTable = client1.callProcedure("@ValidatePartitioning", null, null).getResults()[0];
+            while (valTable.advanceRow()) {
+                assertEquals(0, valTable.getLong("MISPARTITIONED_ROWS"));
+            }
+        } finally {
+            stopServer();
+        }
+    }
 }
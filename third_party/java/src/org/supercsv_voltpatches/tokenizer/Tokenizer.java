@@ -61,6 +61,8 @@ public class Tokenizer extends AbstractTokenizer {
 
     private boolean header;
 
+    private final int lineOffset;
+
     /**
      * Enumeration of tokenizer states. QUOTE_MODE is activated between quotes.
      */
@@ -80,6 +82,15 @@ public class Tokenizer extends AbstractTokenizer {
      */
     public Tokenizer(final Reader reader, final CsvPreference preferences, boolean strictquotes, char escapechar,
             long columnsizelimit, long skipNum, boolean header) {
+    this(reader, preferences, strictquotes, escapechar, columnsizelimit, skipNum, header, 0);
+    }
+
+    /**
+     * Constructs a new <tt>Tokenizer</tt> for a part of a CSV file that starts after
+     * lineOffset lines. Line numbers, including the lines to skip, count from the start of the file.
+     */
+    public Tokenizer(final Reader reader, final CsvPreference preferences, boolean strictquotes, char escapechar,
+            long columnsizelimit, long skipNum, boolean header, int lineOffset) {
 	super(reader, preferences);
 	this.quoteChar = preferences.getQuoteChar();
 	this.delimeterChar = preferences.getDelimiterChar();
@@ -90,6 +101,7 @@ public class Tokenizer extends AbstractTokenizer {
 	this.columnSizeLimit = columnsizelimit;
 	this.skip = skipNum;
 	this.header = header;
+	this.lineOffset = lineOffset;
     }
 
     public Tokenizer(final Reader reader, final CsvPreference preferences, boolean strictquotes, char escapechar,
@@ -353,6 +365,14 @@ public class Tokenizer extends AbstractTokenizer {
 	}
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLineNumber() {
+	return super.getLineNumber() + lineOffset;
+    }
+
     /**
      * {@inheritDoc}
      */